@@ -0,0 +1,110 @@
+package com.mertani.iot.jmh;
+
+import com.mertani.iot.dto.DeviceRequest;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorRequest;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic fixtures shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private BenchmarkData() {
+    }
+
+    static Device device(long id) {
+        return Device.builder()
+                .id(id)
+                .name("Device " + id)
+                .serialNumber("SN-" + id)
+                .description("Benchmark device")
+                .location("Greenhouse " + (id % 10))
+                .active(true)
+                .createdAt(CREATED_AT)
+                .updatedAt(CREATED_AT)
+                .build();
+    }
+
+    static Sensor sensor(Device device, long id) {
+        return Sensor.builder()
+                .id(id)
+                .name("Sensor " + id)
+                .sensorId("SENSOR-" + id)
+                .type("DHT22")
+                .unit("°C")
+                .minValue(-20.0)
+                .maxValue(60.0)
+                .active(true)
+                .device(device)
+                .createdAt(CREATED_AT)
+                .updatedAt(CREATED_AT)
+                .build();
+    }
+
+    static DeviceRequest deviceRequest(long id) {
+        return DeviceRequest.builder()
+                .name("Device " + id)
+                .serialNumber("SN-" + id)
+                .description("Benchmark device")
+                .location("Greenhouse " + (id % 10))
+                .active(true)
+                .build();
+    }
+
+    static SensorRequest sensorRequest(long deviceId, String sensorId) {
+        return SensorRequest.builder()
+                .name("Sensor " + sensorId)
+                .sensorId(sensorId)
+                .type("DHT22")
+                .unit("°C")
+                .minValue(-20.0)
+                .maxValue(60.0)
+                .active(true)
+                .deviceId(deviceId)
+                .build();
+    }
+
+    static List<DeviceResponse> deviceResponses(int devices, int sensorsPerDevice) {
+        List<DeviceResponse> responses = new ArrayList<>(devices);
+        for (long d = 1; d <= devices; d++) {
+            List<SensorResponse> sensors = new ArrayList<>(sensorsPerDevice);
+            for (long s = 1; s <= sensorsPerDevice; s++) {
+                long id = d * 1000 + s;
+                sensors.add(SensorResponse.builder()
+                        .id(id)
+                        .name("Sensor " + id)
+                        .sensorId("SENSOR-" + id)
+                        .type("DHT22")
+                        .unit("°C")
+                        .minValue(-20.0)
+                        .maxValue(60.0)
+                        .active(true)
+                        .deviceId(d)
+                        .createdAt(CREATED_AT)
+                        .updatedAt(CREATED_AT)
+                        .build());
+            }
+            responses.add(DeviceResponse.builder()
+                    .id(d)
+                    .name("Device " + d)
+                    .serialNumber("SN-" + d)
+                    .description("Benchmark device")
+                    .location("Greenhouse " + (d % 10))
+                    .active(true)
+                    .createdAt(CREATED_AT)
+                    .updatedAt(CREATED_AT)
+                    .sensors(sensors)
+                    .build());
+        }
+        return responses;
+    }
+}
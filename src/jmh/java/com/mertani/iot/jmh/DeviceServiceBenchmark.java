@@ -0,0 +1,90 @@
+package com.mertani.iot.jmh;
+
+import com.mertani.iot.IotApplication;
+import com.mertani.iot.dto.DeviceRequest;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorRequest;
+import com.mertani.iot.service.DeviceService;
+import com.mertani.iot.service.SensorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DeviceService#getAllDevices()} end to end (queries, projections and
+ * grouping) against an in-memory H2 database, with the read caches disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceServiceBenchmark {
+
+    @Param({"10", "100"})
+    private int devices;
+
+    @Param({"10"})
+    private int sensorsPerDevice;
+
+    private ConfigurableApplicationContext context;
+    private DeviceService deviceService;
+
+    @Setup
+    public void setUp() {
+        // Passed as arguments: builder properties are defaults that application.properties would override
+        context = new SpringApplicationBuilder(IotApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.cache.type=none",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.mertani.iot=WARN");
+        deviceService = context.getBean(DeviceService.class);
+        SensorService sensorService = context.getBean(SensorService.class);
+
+        List<DeviceRequest> deviceRequests = new ArrayList<>(devices);
+        for (long d = 1; d <= devices; d++) {
+            deviceRequests.add(BenchmarkData.deviceRequest(d));
+        }
+        List<SensorRequest> sensorRequests = new ArrayList<>(devices * sensorsPerDevice);
+        for (DeviceResponse device : deviceService.createDevices(deviceRequests).getCreated()) {
+            for (int s = 0; s < sensorsPerDevice; s++) {
+                sensorRequests.add(BenchmarkData.sensorRequest(device.getId(), "SENSOR-" + device.getId() + "-" + s));
+            }
+        }
+        sensorService.createSensors(sensorRequests);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<DeviceResponse> getAllDevices() {
+        return deviceService.getAllDevices();
+    }
+}
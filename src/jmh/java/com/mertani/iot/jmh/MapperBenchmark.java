@@ -0,0 +1,86 @@
+package com.mertani.iot.jmh;
+
+import com.mertani.iot.dto.DeviceRequest;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.mapper.DeviceMapper;
+import com.mertani.iot.mapper.SensorMapper;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MapStruct conversions used on the write paths and by bulk provisioning.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private final DeviceMapper deviceMapper = DeviceMapper.INSTANCE;
+    private final SensorMapper sensorMapper = SensorMapper.INSTANCE;
+
+    private List<Device> devices;
+    private List<Sensor> sensors;
+    private List<DeviceRequest> deviceRequests;
+
+    @Setup
+    public void setUp() {
+        devices = new ArrayList<>(size);
+        sensors = new ArrayList<>(size);
+        deviceRequests = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            Device device = BenchmarkData.device(i);
+            devices.add(device);
+            sensors.add(BenchmarkData.sensor(device, i));
+            deviceRequests.add(BenchmarkData.deviceRequest(i));
+        }
+    }
+
+    @Benchmark
+    public List<DeviceResponse> deviceToDto() {
+        List<DeviceResponse> result = new ArrayList<>(size);
+        for (Device device : devices) {
+            result.add(deviceMapper.toDto(device));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<SensorResponse> sensorToDto() {
+        List<SensorResponse> result = new ArrayList<>(size);
+        for (Sensor sensor : sensors) {
+            result.add(sensorMapper.toDto(sensor));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Device> deviceRequestToEntity() {
+        List<Device> result = new ArrayList<>(size);
+        for (DeviceRequest request : deviceRequests) {
+            result.add(deviceMapper.toEntity(request));
+        }
+        return result;
+    }
+}
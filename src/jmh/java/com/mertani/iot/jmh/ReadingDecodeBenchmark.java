@@ -0,0 +1,99 @@
+package com.mertani.iot.jmh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.telemetry.ReadingFrame;
+import com.mertani.iot.telemetry.ReadingFrameDecoder;
+import com.mertani.iot.telemetry.ReadingFrameEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding one ingest request of {@code readings} readings from 20 sensors
+ * reporting once a second, as JSON (the way Spring MVC binds it) and in the
+ * binary frame format. The encoded size of both bodies is printed per reading
+ * at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadingDecodeBenchmark {
+
+    private static final int SENSORS = 20;
+
+    @Param({"1000"})
+    private int readings;
+
+    private ObjectReader reader;
+    private byte[] json;
+    private byte[] binary;
+    private final ReadingFrame frame = new ReadingFrame();
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        reader = objectMapper.readerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, SensorReadingRequest.class));
+
+        Random random = new Random(42);
+        long start = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+        List<SensorReadingRequest> requests = new ArrayList<>(readings);
+        ReadingFrameEncoder encoder = new ReadingFrameEncoder();
+        for (int i = 0; i < readings; i++) {
+            String sensorId = "SENSOR-" + (i % SENSORS);
+            long timestamp = start + (i / SENSORS) * 1000L;
+            double value = Math.round((20 + random.nextGaussian()) * 100) / 100.0;
+            requests.add(new SensorReadingRequest(sensorId, Instant.ofEpochMilli(timestamp), value));
+            encoder.add(sensorId, timestamp, value);
+        }
+        json = objectMapper.writeValueAsBytes(requests);
+        binary = encoder.toByteArray();
+
+        System.out.printf("%nbytes per reading: json %.1f, binary %.1f%n",
+                (double) json.length / readings, (double) binary.length / readings);
+    }
+
+    @Benchmark
+    public double decodeJson() throws IOException {
+        List<SensorReadingRequest> requests = reader.readValue(json);
+        double sum = 0;
+        for (SensorReadingRequest request : requests) {
+            sum += request.getValue() + request.getTimestamp().toEpochMilli();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double decodeBinary() {
+        ReadingFrameDecoder decoder = new ReadingFrameDecoder(ByteBuffer.wrap(binary));
+        double sum = 0;
+        while (decoder.next(frame)) {
+            for (int i = 0; i < frame.size(); i++) {
+                sum += frame.value(i) + frame.timestamp(i);
+            }
+        }
+        return sum;
+    }
+}
@@ -2,8 +2,20 @@ package com.mertani.iot;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// R2DBC is only configured in the opt-in reactive read mode, see ReactiveReadConfig
+@SpringBootApplication(exclude = {
+		R2dbcAutoConfiguration.class,
+		R2dbcDataAutoConfiguration.class,
+		R2dbcRepositoriesAutoConfiguration.class,
+		R2dbcTransactionManagerAutoConfiguration.class
+})
+@EnableScheduling
 public class IotApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,260 @@
+package com.mertani.iot.alert;
+
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.model.Alert;
+import com.mertani.iot.model.AlertType;
+import com.mertani.iot.repository.AlertRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.stream.SensorChangedEvent;
+import com.mertani.iot.telemetry.ReadingListener;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.telemetry.SensorSlots;
+import com.mertani.iot.telemetry.SlotPages;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks every accepted reading against its sensor's {@code minValue} and
+ * {@code maxValue}. Bounds and alert state are kept per {@link SensorSlots} slot
+ * in primitive arrays, so a check is a few array reads and never touches the
+ * database; bounds follow {@link SensorChangedEvent}s.
+ * <p>
+ * An alert is raised when a reading crosses a bound and stays open while
+ * further readings do, so a sensor has at most one open alert per bound. It is
+ * resolved once a reading is back inside the bound by the hysteresis margin, a
+ * fraction of the sensor's range (or of the bound when only one is set), which
+ * keeps a value hovering at the bound from raising an alert per reading. State
+ * changes are a compare-and-set on one {@code long} per sensor, and the
+ * resulting events are persisted asynchronously by {@link AlertWriter}.
+ */
+@Slf4j
+@Component
+public class AlertEngine implements ReadingListener {
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+
+    // Bounds per slot: raise above, resolve at or below, raise below, resolve at or above
+    private static final int BOUNDS = 4;
+    private static final int MAX = 0;
+    private static final int CLEAR_MAX = 1;
+    private static final int MIN = 2;
+    private static final int CLEAR_MIN = 3;
+
+    // Alert state per slot: 0 while in bounds, else raisedAt << 2 | (type ordinal + 1)
+    private static final long IN_BOUNDS = 0;
+
+    private static final AlertType[] TYPES = AlertType.values();
+
+    private final SensorSlots slots;
+    private final AlertWriter writer;
+    private final SensorRepository sensorRepository;
+    private final AlertRepository alertRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final double hysteresis;
+
+    private final SlotPages<double[]> bounds = new SlotPages<>(size -> nanFilled(size * BOUNDS));
+    private final SlotPages<long[]> states = new SlotPages<>(long[]::new);
+    private final AtomicInteger open = new AtomicInteger();
+    private final Map<AlertType, Counter> raised = new EnumMap<>(AlertType.class);
+
+    public AlertEngine(SensorSlots slots,
+                       AlertWriter writer,
+                       SensorRepository sensorRepository,
+                       AlertRepository alertRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${iot.alerts.hysteresis:0.02}") double hysteresis,
+                       MeterRegistry meterRegistry) {
+        this.slots = slots;
+        this.writer = writer;
+        this.sensorRepository = sensorRepository;
+        this.alertRepository = alertRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hysteresis = hysteresis;
+        for (AlertType type : List.of(AlertType.ABOVE_MAX, AlertType.BELOW_MIN)) {
+            raised.put(type, Counter.builder("iot.alerts.raised")
+                    .description("Threshold alerts raised")
+                    .tag("type", type.name())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("iot.alerts.open", open, AtomicInteger::get)
+                .description("Threshold alerts currently open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the bounds of all active sensors and the alerts still open, so a
+     * restart neither misses a breach nor raises an open alert a second time.
+     * Reads from the primary, which replicas may lag behind.
+     */
+    @PostConstruct
+    public void load() {
+        transactionTemplate.executeWithoutResult(status -> {
+            int sensors = 0;
+            for (SensorResponse sensor : sensorRepository.findAllResponses()) {
+                if (sensor.isActive() && setBounds(sensor.getId(), sensor.getMinValue(), sensor.getMaxValue())) {
+                    sensors++;
+                }
+            }
+            // Anomaly alerts are the AnomalyDetector's
+            List<Alert> openAlerts = alertRepository.findByResolvedAtIsNull().stream()
+                    .filter(alert -> alert.getType() != AlertType.ANOMALY)
+                    .toList();
+            for (Alert alert : openAlerts) {
+                int slot = slots.getOrAssign(alert.getSensorId());
+                long[] page = states.page(slot);
+                if ((long) LONGS.getAndSet(page, SlotPages.offset(slot),
+                        encode(alert.getRaisedAt().toEpochMilli(), alert.getType())) == IN_BOUNDS) {
+                    open.incrementAndGet();
+                }
+            }
+            log.info("Alert engine loaded bounds of {} sensors and {} open alerts", sensors, openAlerts.size());
+        });
+    }
+
+    @Override
+    public void onReading(SensorRef ref, long timestamp, double value) {
+        int slot = slots.get(ref.id());
+        if (slot < 0) {
+            return;
+        }
+        double[] boundsPage = bounds.pageIfPresent(slot);
+        long[] statePage = states.pageIfPresent(slot);
+        if (boundsPage == null || statePage == null) {
+            return;
+        }
+        int base = SlotPages.offset(slot) * BOUNDS;
+        int offset = SlotPages.offset(slot);
+
+        long state = (long) LONGS.getAcquire(statePage, offset);
+        AlertType current = typeOf(state);
+        AlertType next = evaluate(current, value, boundsPage, base);
+        if (next == current) {
+            return;
+        }
+        long updated = next == null ? IN_BOUNDS : encode(timestamp, next);
+        if (!LONGS.compareAndSet(statePage, offset, state, updated)) {
+            // A concurrent reading of the same sensor changed the state first
+            return;
+        }
+        if (current != null) {
+            resolve(ref.id(), current, state, timestamp);
+        }
+        if (next != null) {
+            double threshold = (double) DOUBLES.getAcquire(boundsPage, base + (next == AlertType.ABOVE_MAX ? MAX : MIN));
+            writer.enqueue(AlertEvent.raised(ref.id(), ref.deviceId(), next, threshold, value, timestamp));
+            raised.get(next).increment();
+            open.incrementAndGet();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSensorChanged(SensorChangedEvent change) {
+        SensorResponse sensor = change.sensor();
+        if (change.isRemoved() || !sensor.isActive()) {
+            clear(change.id());
+        } else if (!setBounds(sensor.getId(), sensor.getMinValue(), sensor.getMaxValue())) {
+            clear(sensor.getId());
+        }
+    }
+
+    public int openCount() {
+        return open.get();
+    }
+
+    /**
+     * @return false if the sensor has no bounds, in which case nothing is stored
+     */
+    private boolean setBounds(long sensorId, Double min, Double max) {
+        if (min == null && max == null) {
+            return false;
+        }
+        double margin = hysteresis * (min != null && max != null
+                ? max - min
+                : Math.abs(min != null ? min : max));
+        int slot = slots.getOrAssign(sensorId);
+        states.page(slot);
+        double[] page = bounds.page(slot);
+        int base = SlotPages.offset(slot) * BOUNDS;
+        DOUBLES.setRelease(page, base + MAX, max != null ? max : Double.NaN);
+        DOUBLES.setRelease(page, base + CLEAR_MAX, max != null ? max - margin : Double.NaN);
+        DOUBLES.setRelease(page, base + MIN, min != null ? min : Double.NaN);
+        DOUBLES.setRelease(page, base + CLEAR_MIN, min != null ? min + margin : Double.NaN);
+        return true;
+    }
+
+    /**
+     * Drops a sensor's bounds and resolves its open alert, if any.
+     */
+    private void clear(long sensorId) {
+        int slot = slots.get(sensorId);
+        double[] boundsPage = slot < 0 ? null : bounds.pageIfPresent(slot);
+        long[] statePage = slot < 0 ? null : states.pageIfPresent(slot);
+        if (boundsPage == null || statePage == null) {
+            return;
+        }
+        int base = SlotPages.offset(slot) * BOUNDS;
+        for (int i = 0; i < BOUNDS; i++) {
+            DOUBLES.setRelease(boundsPage, base + i, Double.NaN);
+        }
+        long state = (long) LONGS.getAndSet(statePage, SlotPages.offset(slot), IN_BOUNDS);
+        if (state != IN_BOUNDS) {
+            resolve(sensorId, typeOf(state), state, System.currentTimeMillis());
+        }
+    }
+
+    private void resolve(long sensorId, AlertType type, long state, long resolvedAt) {
+        writer.enqueue(AlertEvent.resolved(sensorId, type, state >>> 2, resolvedAt));
+        open.decrementAndGet();
+    }
+
+    /**
+     * The alert that should be open after {@code value}, given the one open before.
+     * Unset bounds are NaN, which every comparison fails.
+     */
+    private static AlertType evaluate(AlertType current, double value, double[] page, int base) {
+        if (value > (double) DOUBLES.getAcquire(page, base + MAX)) {
+            return AlertType.ABOVE_MAX;
+        }
+        if (value < (double) DOUBLES.getAcquire(page, base + MIN)) {
+            return AlertType.BELOW_MIN;
+        }
+        if (current == AlertType.ABOVE_MAX && value > (double) DOUBLES.getAcquire(page, base + CLEAR_MAX)) {
+            return current;
+        }
+        if (current == AlertType.BELOW_MIN && value < (double) DOUBLES.getAcquire(page, base + CLEAR_MIN)) {
+            return current;
+        }
+        return null;
+    }
+
+    private static long encode(long raisedAt, AlertType type) {
+        return raisedAt << 2 | (type.ordinal() + 1);
+    }
+
+    private static AlertType typeOf(long state) {
+        return state == IN_BOUNDS ? null : TYPES[(int) (state & 3) - 1];
+    }
+
+    private static double[] nanFilled(int size) {
+        double[] values = new double[size];
+        Arrays.fill(values, Double.NaN);
+        return values;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mertani.iot.alert;
+
+import com.mertani.iot.model.AlertType;
+
+/**
+ * An alert being raised, or resolved when {@code resolvedAt} is set. Alerts are
+ * identified by sensor, type and {@code raisedAt}. Times are epoch milliseconds.
+ */
+public record AlertEvent(long sensorId, long deviceId, AlertType type,
+                         double threshold, double value, long raisedAt, Long resolvedAt) {
+
+    public static AlertEvent raised(long sensorId, long deviceId, AlertType type,
+                                    double threshold, double value, long raisedAt) {
+        return new AlertEvent(sensorId, deviceId, type, threshold, value, raisedAt, null);
+    }
+
+    public static AlertEvent resolved(long sensorId, AlertType type, long raisedAt, long resolvedAt) {
+        return new AlertEvent(sensorId, 0, type, Double.NaN, Double.NaN, raisedAt, resolvedAt);
+    }
+
+    public boolean isResolution() {
+        return resolvedAt != null;
+    }
+}
@@ -0,0 +1,178 @@
+package com.mertani.iot.alert;
+
+import com.mertani.iot.repository.WriteFailures;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persists alert events off the ingest path: events are queued and written in
+ * JDBC batches on a fixed schedule. A full queue drops new events rather than
+ * slowing ingest down; both raising and resolving are idempotent, so nothing
+ * is corrupted by a replay.
+ * <p>
+ * Events whose write fails because the database is unavailable are kept and
+ * written again by the following flushes, up to {@code iot.alerts.write-attempts}
+ * in all. When the database rejects a batch, its events are written one at a
+ * time so only the offending ones are dropped.
+ */
+@Slf4j
+@Component
+public class AlertWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO alerts (sensor_id, device_id, alert_type, threshold, trigger_value, raised_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String RESOLVE_SQL =
+            "UPDATE alerts SET resolved_at = ? "
+                    + "WHERE sensor_id = ? AND alert_type = ? AND raised_at = ? AND resolved_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlockingQueue<AlertEvent> queue;
+    private final int writeAttempts;
+    private final Counter dropped;
+
+    // Guards the retried events; only one flush writes at a time
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private List<AlertEvent> retry = List.of();
+    private int retryAttempts;
+
+    public AlertWriter(JdbcTemplate jdbcTemplate,
+                       @Value("${iot.alerts.queue-capacity:10000}") int queueCapacity,
+                       @Value("${iot.alerts.write-attempts:5}") int writeAttempts,
+                       MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writeAttempts = writeAttempts;
+        this.dropped = Counter.builder("iot.alerts.dropped")
+                .description("Alert events not persisted because the write queue was full or the write failed")
+                .register(meterRegistry);
+    }
+
+    public void enqueue(AlertEvent event) {
+        if (!queue.offer(event)) {
+            dropped.increment();
+            log.warn("Alert queue full, dropping {}", event);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${iot.alerts.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (!retry.isEmpty()) {
+                if (!write(retry)) {
+                    if (++retryAttempts < writeAttempts) {
+                        // New events wait in the queue behind the ones kept back
+                        return;
+                    }
+                    log.error("Dropping {} alert events after {} failed writes", retry.size(), retryAttempts);
+                    dropped.increment(retry.size());
+                }
+                retry = List.of();
+            }
+            List<AlertEvent> events = new ArrayList<>();
+            queue.drainTo(events);
+            if (!events.isEmpty() && !write(events)) {
+                retry = events;
+                retryAttempts = 1;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the database was unavailable and the events should be written again
+     */
+    private boolean write(List<AlertEvent> events) {
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> resolutions = new ArrayList<>();
+        for (AlertEvent event : events) {
+            if (event.isResolution()) {
+                resolutions.add(resolveArgs(event));
+            } else {
+                inserts.add(insertArgs(event));
+            }
+        }
+        try {
+            // An alert raised and resolved within one flush is inserted before it is resolved
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            }
+            if (!resolutions.isEmpty()) {
+                jdbcTemplate.batchUpdate(RESOLVE_SQL, resolutions);
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            if (WriteFailures.isTransient(ex)) {
+                log.warn("Failed to write {} alert events, keeping them for another attempt", events.size(), ex);
+                return false;
+            }
+            log.error("Writing {} alert events one at a time after failed batch", events.size(), ex);
+        }
+        try {
+            int rejected = 0;
+            for (AlertEvent event : events) {
+                rejected += writeOne(event) ? 0 : 1;
+            }
+            dropped.increment(rejected);
+            return true;
+        } catch (RuntimeException unavailable) {
+            // Only transient failures get here; repeating the events already written is harmless
+            log.warn("Failed to write {} alert events, keeping them for another attempt", events.size(), unavailable);
+            return false;
+        }
+    }
+
+    private boolean writeOne(AlertEvent event) {
+        try {
+            if (event.isResolution()) {
+                jdbcTemplate.update(RESOLVE_SQL, resolveArgs(event));
+            } else {
+                jdbcTemplate.update(INSERT_SQL, insertArgs(event));
+            }
+            return true;
+        } catch (RuntimeException ex) {
+            if (WriteFailures.isTransient(ex)) {
+                throw ex;
+            }
+            log.error("Dropping alert event {} the database rejected", event, ex);
+            return false;
+        }
+    }
+
+    private static Object[] insertArgs(AlertEvent event) {
+        return new Object[]{event.sensorId(), event.deviceId(), event.type().name(),
+                event.threshold(), event.value(), timestamp(event.raisedAt())};
+    }
+
+    private static Object[] resolveArgs(AlertEvent event) {
+        return new Object[]{timestamp(event.resolvedAt()), event.sensorId(),
+                event.type().name(), timestamp(event.raisedAt())};
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private static OffsetDateTime timestamp(long epochMillis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,34 @@
+package com.mertani.iot.alert;
+
+import com.mertani.iot.repository.AlertRepository;
+import com.mertani.iot.repository.SensorAnomalyModelRepository;
+import com.mertani.iot.telemetry.SensorSlots;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Opt-in anomaly alerts ({@code iot.alerts.anomaly.enabled=true}), see {@link AnomalyDetector}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "iot.alerts.anomaly.enabled", havingValue = "true")
+@EnableConfigurationProperties(AnomalyProperties.class)
+public class AnomalyDetectionConfig {
+
+    @Bean
+    AnomalyDetector anomalyDetector(AnomalyProperties properties,
+                                    SensorSlots slots,
+                                    AlertWriter writer,
+                                    SensorAnomalyModelRepository modelRepository,
+                                    AlertRepository alertRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        return new AnomalyDetector(properties, slots, writer, modelRepository, alertRepository,
+                jdbcTemplate, transactionManager, meterRegistry);
+    }
+}
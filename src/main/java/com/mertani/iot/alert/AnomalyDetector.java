@@ -0,0 +1,357 @@
+package com.mertani.iot.alert;
+
+import com.mertani.iot.model.Alert;
+import com.mertani.iot.model.AlertType;
+import com.mertani.iot.model.SensorAnomalyModel;
+import com.mertani.iot.repository.AlertRepository;
+import com.mertani.iot.repository.SensorAnomalyModelRepository;
+import com.mertani.iot.stream.SensorChangedEvent;
+import com.mertani.iot.telemetry.ReadingListener;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.telemetry.SensorSlots;
+import com.mertani.iot.telemetry.SlotPages;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Flags readings that are far from what a sensor's recent readings predict,
+ * which catches spikes and drifts that stay within {@code minValue} and
+ * {@code maxValue}. Each sensor has an exponentially weighted mean and
+ * variance, updated in O(1) per reading; a reading more than
+ * {@code raise-z-score} standard deviations from the mean raises an
+ * {@link AlertType#ANOMALY} alert, which stays open until a reading is back
+ * within {@code resolve-z-score}.
+ * <p>
+ * Once a model has {@code min-samples} readings, readings are clamped to the
+ * alert band before they are learned, so a spike moves it no more than an
+ * ordinary extreme reading would, while a lasting shift is learned gradually
+ * and its alert then resolves. Before that the weight is 1/n, making the model
+ * the plain mean and variance of the readings so far.
+ * <p>
+ * Each {@link SensorSlots} slot holds an immutable model, and a reading
+ * replaces it with a compare-and-set of the model it learned from. Readings of
+ * one sensor ingested at once never block each other: the one that loses the
+ * race learns again from the winner's model, and only a reading whose update
+ * lands raises or resolves an alert. Changed models are upserted into
+ * {@code sensor_anomaly_models} every {@code checkpoint-interval-ms} and on
+ * shutdown, and reloaded on startup.
+ */
+@Slf4j
+public class AnomalyDetector implements ReadingListener {
+
+    private static final VarHandle MODELS = MethodHandles.arrayElementVarHandle(Model[].class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO sensor_anomaly_models (sensor_id, mean, variance, samples, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?) ON CONFLICT (sensor_id) DO UPDATE SET mean = EXCLUDED.mean, "
+                    + "variance = EXCLUDED.variance, samples = EXCLUDED.samples, updated_at = EXCLUDED.updated_at";
+
+    private static final String TYPE_CHECK = "alerts_alert_type_check";
+
+    private static final String DELETE_ORPHANS_SQL =
+            "DELETE FROM sensor_anomaly_models m WHERE NOT EXISTS (SELECT 1 FROM sensors s WHERE s.id = m.sensor_id)";
+
+    private static final long NO_ALERT = Long.MIN_VALUE;
+
+    // Model of a slot no reading or alert has reached yet
+    private static final Model UNMODELLED = new Model(0, 0, NO_ALERT, 0, 0);
+
+    private final SensorSlots slots;
+    private final AlertWriter writer;
+    private final SensorAnomalyModelRepository modelRepository;
+    private final AlertRepository alertRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final double alpha;
+    private final double raiseZScore;
+    private final double resolveZScore;
+    private final long minSamples;
+    private final double minStdDev;
+
+    private final SlotPages<Model[]> models = new SlotPages<>(AnomalyDetector::modelPage);
+    // Samples of each model as of the last checkpoint, only touched by load and checkpoint
+    private final SlotPages<long[]> checkpointed = new SlotPages<>(long[]::new);
+    private final AtomicInteger open = new AtomicInteger();
+    private final Counter raised;
+
+    // One checkpoint at a time
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    public AnomalyDetector(AnomalyProperties properties,
+                           SensorSlots slots,
+                           AlertWriter writer,
+                           SensorAnomalyModelRepository modelRepository,
+                           AlertRepository alertRepository,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
+        this.slots = slots;
+        this.writer = writer;
+        this.modelRepository = modelRepository;
+        this.alertRepository = alertRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.alpha = properties.getAlpha();
+        this.raiseZScore = properties.getRaiseZScore();
+        this.resolveZScore = properties.getResolveZScore();
+        this.minSamples = properties.getMinSamples();
+        this.minStdDev = properties.getMinStdDev();
+        this.raised = Counter.builder("iot.alerts.anomalies.raised")
+                .description("Anomaly alerts raised")
+                .register(meterRegistry);
+        Gauge.builder("iot.alerts.anomalies.open", open, AtomicInteger::get)
+                .description("Anomaly alerts currently open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Restores the checkpointed models of active sensors and the anomaly alerts
+     * still open. Readings learned after the last checkpoint are lost, which only
+     * makes a model slightly older.
+     */
+    @PostConstruct
+    public void load() {
+        allowAnomalyAlerts();
+        transactionTemplate.executeWithoutResult(status -> {
+            List<SensorAnomalyModel> saved = modelRepository.findAllOfActiveSensors();
+            for (SensorAnomalyModel model : saved) {
+                int slot = slots.getOrAssign(model.getSensorId());
+                Model[] page = models.page(slot);
+                int offset = SlotPages.offset(slot);
+                while (true) {
+                    Model current = (Model) MODELS.getAcquire(page, offset);
+                    Model next = new Model(model.getSensorId(), model.getSamples(), current.raisedAt(),
+                            model.getMean(), model.getVariance());
+                    if (MODELS.compareAndSet(page, offset, current, next)) {
+                        break;
+                    }
+                }
+                checkpointed.page(slot)[offset] = model.getSamples();
+            }
+            List<Alert> openAlerts = alertRepository.findByTypeAndResolvedAtIsNull(AlertType.ANOMALY);
+            for (Alert alert : openAlerts) {
+                int slot = slots.getOrAssign(alert.getSensorId());
+                Model[] page = models.page(slot);
+                int offset = SlotPages.offset(slot);
+                while (true) {
+                    Model current = (Model) MODELS.getAcquire(page, offset);
+                    Model next = new Model(alert.getSensorId(), current.samples(),
+                            alert.getRaisedAt().toEpochMilli(), current.mean(), current.variance());
+                    if (MODELS.compareAndSet(page, offset, current, next)) {
+                        if (current.raisedAt() == NO_ALERT) {
+                            open.incrementAndGet();
+                        }
+                        break;
+                    }
+                }
+            }
+            log.info("Anomaly detector loaded models of {} sensors and {} open alerts",
+                    saved.size(), openAlerts.size());
+        });
+    }
+
+    @Override
+    public void onReading(SensorRef ref, long timestamp, double value) {
+        if (!Double.isFinite(value)) {
+            return;
+        }
+        int slot = slots.getOrAssign(ref.id());
+        Model[] page = models.page(slot);
+        int offset = SlotPages.offset(slot);
+        Model current;
+        Model next;
+        do {
+            current = (Model) MODELS.getAcquire(page, offset);
+            next = learn(current, ref.id(), timestamp, value);
+        } while (!MODELS.compareAndSet(page, offset, current, next));
+
+        if (next.raisedAt() == current.raisedAt()) {
+            return;
+        }
+        if (current.raisedAt() != NO_ALERT) {
+            resolve(ref.id(), current.raisedAt(), timestamp);
+        } else {
+            double band = raiseZScore * deviation(current);
+            writer.enqueue(AlertEvent.raised(ref.id(), ref.deviceId(), AlertType.ANOMALY,
+                    value > current.mean() ? current.mean() + band : current.mean() - band, value, timestamp));
+            raised.increment();
+            open.incrementAndGet();
+        }
+    }
+
+    /**
+     * Resolves the open alert of a deactivated or removed sensor. The model is
+     * kept, as the sensor may only have moved to another device; the
+     * checkpoints of deleted sensors are dropped with the next checkpoint.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSensorChanged(SensorChangedEvent change) {
+        if (!change.isRemoved() && change.sensor().isActive()) {
+            return;
+        }
+        int slot = slots.get(change.id());
+        Model[] page = slot < 0 ? null : models.pageIfPresent(slot);
+        if (page == null) {
+            return;
+        }
+        int offset = SlotPages.offset(slot);
+        while (true) {
+            Model current = (Model) MODELS.getAcquire(page, offset);
+            if (current.raisedAt() == NO_ALERT) {
+                return;
+            }
+            Model next = new Model(current.sensorId(), current.samples(), NO_ALERT,
+                    current.mean(), current.variance());
+            if (MODELS.compareAndSet(page, offset, current, next)) {
+                resolve(change.id(), current.raisedAt(), System.currentTimeMillis());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Upserts every model that learned from a reading since the last checkpoint.
+     * Models that fail to save stay changed and are retried next time.
+     */
+    @Scheduled(fixedDelayString = "${iot.alerts.anomaly.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        checkpointLock.lock();
+        try {
+            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+            List<Object[]> rows = new ArrayList<>();
+            List<Checkpointed> changed = new ArrayList<>();
+            int assigned = slots.size();
+            for (int slot = 0; slot < assigned; slot++) {
+                Model[] page = models.pageIfPresent(slot);
+                if (page == null) {
+                    continue;
+                }
+                int offset = SlotPages.offset(slot);
+                Model model = (Model) MODELS.getAcquire(page, offset);
+                long[] saved = checkpointed.page(slot);
+                if (model.samples() > 0 && model.samples() != saved[offset]) {
+                    rows.add(new Object[]{model.sensorId(), model.mean(), model.variance(), model.samples(), now});
+                    changed.add(new Checkpointed(saved, offset, model.samples()));
+                }
+            }
+            try {
+                if (!rows.isEmpty()) {
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+                }
+                int orphans = jdbcTemplate.update(DELETE_ORPHANS_SQL);
+                log.debug("Checkpointed {} anomaly models, dropped {} of deleted sensors", rows.size(), orphans);
+            } catch (RuntimeException ex) {
+                log.error("Failed to checkpoint {} anomaly models", rows.size(), ex);
+                return;
+            }
+            for (Checkpointed saved : changed) {
+                saved.page()[saved.offset()] = saved.samples();
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+
+    public int openCount() {
+        return open.get();
+    }
+
+    /**
+     * Hibernate checks {@code alert_type} against the enum's values when it
+     * creates the table, and schema updates never widen the check, so databases
+     * created before anomaly alerts would reject them.
+     */
+    private void allowAnomalyAlerts() {
+        List<String> checks = jdbcTemplate.queryForList("SELECT pg_get_constraintdef(oid) FROM pg_constraint "
+                + "WHERE conrelid = 'alerts'::regclass AND conname = ?", String.class, TYPE_CHECK);
+        if (checks.isEmpty() || checks.get(0).contains("'" + AlertType.ANOMALY.name() + "'")) {
+            return;
+        }
+        String types = Arrays.stream(AlertType.values())
+                .map(type -> "'" + type.name() + "'")
+                .collect(Collectors.joining(", "));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE alerts DROP CONSTRAINT " + TYPE_CHECK);
+            jdbcTemplate.execute("ALTER TABLE alerts ADD CONSTRAINT " + TYPE_CHECK
+                    + " CHECK (alert_type IN (" + types + "))");
+        });
+        log.info("Allowed alert types {} in alerts", types);
+    }
+
+    private void resolve(long sensorId, long raisedAt, long resolvedAt) {
+        writer.enqueue(AlertEvent.resolved(sensorId, AlertType.ANOMALY, raisedAt, resolvedAt));
+        open.decrementAndGet();
+    }
+
+    /**
+     * The model with {@code value} learned, and its alert raised or resolved.
+     */
+    private Model learn(Model model, long sensorId, long timestamp, double value) {
+        // Judged against the model as it was before this reading
+        boolean trained = model.samples() >= minSamples;
+        double deviation = deviation(model);
+        double z = Math.abs(value - model.mean()) / deviation;
+        long raisedAt = model.raisedAt();
+        if (trained && z > raiseZScore) {
+            if (raisedAt == NO_ALERT) {
+                raisedAt = timestamp;
+            }
+        } else if (raisedAt != NO_ALERT && z <= resolveZScore) {
+            raisedAt = NO_ALERT;
+        }
+
+        double band = raiseZScore * deviation;
+        double learned = trained ? Math.min(Math.max(value, model.mean() - band), model.mean() + band) : value;
+        double weight = Math.max(alpha, 1.0 / (model.samples() + 1));
+        double diff = learned - model.mean();
+        return new Model(sensorId, model.samples() + 1, raisedAt,
+                model.mean() + weight * diff, (1 - weight) * (model.variance() + weight * diff * diff));
+    }
+
+    private double deviation(Model model) {
+        return Math.max(Math.sqrt(model.variance()), minStdDev);
+    }
+
+    /**
+     * @param sensorId  0 until modelled
+     * @param samples   readings learned from
+     * @param raisedAt  epoch milliseconds the open alert was raised at, or {@link #NO_ALERT}
+     */
+    private record Model(long sensorId, long samples, long raisedAt, double mean, double variance) {
+    }
+
+    private record Checkpointed(long[] page, int offset, long samples) {
+    }
+
+    private static Model[] modelPage(int size) {
+        Model[] page = new Model[size];
+        Arrays.fill(page, UNMODELLED);
+        return page;
+    }
+}
@@ -0,0 +1,38 @@
+package com.mertani.iot.alert;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Per-sensor anomaly detection of the {@link AnomalyDetector}, bound from
+ * {@code iot.alerts.anomaly.*}. Deviations are in standard deviations of the
+ * sensor's recent readings.
+ */
+@Data
+@ConfigurationProperties(prefix = "iot.alerts.anomaly")
+public class AnomalyProperties {
+
+    /** Runs the detector; off by default. */
+    private boolean enabled;
+
+    /** Weight of each new reading in the mean and variance; about 2 / alpha readings are remembered. */
+    private double alpha = 0.01;
+
+    /** Deviation that raises an alert. */
+    private double raiseZScore = 4.0;
+
+    /** Deviation at or below which an open alert is resolved. */
+    private double resolveZScore = 2.0;
+
+    /** Readings a sensor's model learns from before it can raise alerts. */
+    private int minSamples = 30;
+
+    /**
+     * Floor under the standard deviation, in the sensor's unit, so the first small
+     * change of a sensor that has read the same value for a while isn't an anomaly.
+     */
+    private double minStdDev = 0.01;
+
+    /** How often changed models are saved. */
+    private long checkpointIntervalMs = 60_000;
+}
@@ -0,0 +1,96 @@
+package com.mertani.iot.cache;
+
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.telemetry.SensorRef;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * Names and invalidation of the device/sensor read caches. Entries are evicted
+ * only after the surrounding transaction commits, so a concurrent read can't
+ * re-cache the pre-commit state right after the eviction.
+ */
+@Component
+@RequiredArgsConstructor
+public class InventoryCache {
+
+    /** {@code DeviceResponse} by device id, including the device's sensors. */
+    public static final String DEVICES = "devices";
+
+    /** {@code SensorResponse} by sensor id. */
+    public static final String SENSORS = "sensors";
+
+    /** {@link SensorRef} of active sensors by external sensor ID. */
+    public static final String SENSOR_IDS = "sensorIds";
+
+    private final CacheManager cacheManager;
+
+    public Cache sensorIds() {
+        return cache(SENSOR_IDS);
+    }
+
+    public void evictDevice(Long deviceId) {
+        afterCommit(() -> cache(DEVICES).evict(deviceId));
+    }
+
+    /**
+     * Evicts a sensor and every device whose cached response lists it.
+     */
+    public void evictSensor(Long id, String sensorId, Long... deviceIds) {
+        afterCommit(() -> {
+            cache(SENSORS).evict(id);
+            cache(SENSOR_IDS).evict(sensorId);
+            for (Long deviceId : deviceIds) {
+                cache(DEVICES).evict(deviceId);
+            }
+        });
+    }
+
+    /**
+     * Evicts a device together with its sensors, which are deleted with it by cascade.
+     */
+    public void evictDeviceWithSensors(Long deviceId) {
+        afterCommit(() -> {
+            cache(DEVICES).evict(deviceId);
+            removeIf(SENSORS, value -> value instanceof SensorResponse sensor
+                    && Objects.equals(sensor.getDeviceId(), deviceId));
+            removeIf(SENSOR_IDS, value -> value instanceof SensorRef ref && ref.deviceId() == deviceId);
+        });
+    }
+
+    private void removeIf(String name, Predicate<Object> predicate) {
+        Object nativeCache = cache(name).getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            caffeine.asMap().values().removeIf(predicate);
+        } else if (nativeCache instanceof Map<?, ?> map) {
+            map.values().removeIf(predicate);
+        } else {
+            cache(name).clear();
+        }
+    }
+
+    private Cache cache(String name) {
+        return Objects.requireNonNull(cacheManager.getCache(name), () -> "Cache not configured: " + name);
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+}
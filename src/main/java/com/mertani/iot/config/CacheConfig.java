@@ -0,0 +1,16 @@
+package com.mertani.iot.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Enables the Caffeine-backed caches declared in {@code spring.cache.*}; see
+ * {@link com.mertani.iot.cache.InventoryCache} for the cache names and eviction.
+ * The cache advice wraps the transactional one, so a hit doesn't open a
+ * transaction or borrow a connection.
+ */
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+}
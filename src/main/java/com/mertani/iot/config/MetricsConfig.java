@@ -0,0 +1,30 @@
+package com.mertani.iot.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Application metrics on top of what Spring Boot instruments itself
+ * ({@code http.server.requests}, {@code spring.data.repository.invocations},
+ * {@code hikaricp.*}, {@code cache.*}): service timers come from {@code @Timed}
+ * and per-request statement counts from {@link QueryCountFilter}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    @Bean
+    static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof QueryCountingDataSource)) {
+                    return new QueryCountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+}
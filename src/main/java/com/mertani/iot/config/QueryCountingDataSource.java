@@ -0,0 +1,56 @@
+package com.mertani.iot.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Counts the SQL statements prepared on the current thread, across JPA and
+ * {@code JdbcTemplate} alike. {@link QueryCountFilter} resets and reads the
+ * count around each HTTP request.
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<int[]> STATEMENTS = ThreadLocal.withInitial(() -> new int[1]);
+
+    public QueryCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    public static void reset() {
+        STATEMENTS.get()[0] = 0;
+    }
+
+    public static int current() {
+        return STATEMENTS.get()[0];
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return counting(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return counting(super.getConnection(username, password));
+    }
+
+    private static Connection counting(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement")) {
+                        STATEMENTS.get()[0]++;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,89 @@
+package com.mertani.iot.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Read/write splitting, enabled by configuring {@code iot.datasource.replicas[0].url}.
+ * The primary DataSource is wrapped in a {@link LazyConnectionDataSourceProxy}
+ * whose read-only target is the {@link ReplicaPool}: a transaction marks its
+ * connection read-only before the first statement, so
+ * {@code @Transactional(readOnly = true)} work is served by a replica and
+ * everything else, including reads outside a read-only transaction, by the primary.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "iot.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReadReplicaConfig {
+
+    @Bean(destroyMethod = "close")
+    ReplicaPool replicaPool(ReplicaProperties properties) {
+        ReplicaPool pool = new ReplicaPool(properties);
+        pool.checkHealth();
+        log.info("Routing read-only transactions to {} of {} read replicas",
+                pool.healthyCount(), properties.getReplicas().size());
+        return pool;
+    }
+
+    @Bean
+    static BeanPostProcessor replicaRoutingDataSourcePostProcessor(ObjectProvider<ReplicaPool> replicaPool) {
+        return new RoutingPostProcessor(replicaPool);
+    }
+
+    /**
+     * Runs before the other DataSource wrappers so that statement counting and
+     * concurrency bounds apply to routed connections as well.
+     */
+    private record RoutingPostProcessor(ObjectProvider<ReplicaPool> replicaPool) implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource primary) || bean instanceof LazyConnectionDataSourceProxy) {
+                return bean;
+            }
+            LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+            routing.setReadOnlyDataSource(new ReplicaDataSource(replicaPool.getObject(), primary));
+            return routing;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+
+    private static final class ReplicaDataSource extends AbstractDataSource {
+
+        private final ReplicaPool replicas;
+        private final DataSource primary;
+
+        private ReplicaDataSource(ReplicaPool replicas, DataSource primary) {
+            this.replicas = replicas;
+            this.primary = primary;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return replicas.getConnection(primary);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            // Replica pools use their configured credentials; other users connect to the primary
+            return primary.getConnection(username, password);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.mertani.iot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection pools of the read replicas. Connections are handed out round-robin
+ * across replicas that passed their last health check; a replica that fails to
+ * connect is taken out until a later check succeeds, and when none is available
+ * callers get a connection from the primary instead. A replica whose pool is
+ * merely exhausted stays in: the read moves on to the next target.
+ */
+@Slf4j
+public class ReplicaPool implements MeterBinder, AutoCloseable {
+
+    private final List<Target> targets = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final int validationTimeoutSeconds;
+
+    public ReplicaPool(ReplicaProperties properties) {
+        this.validationTimeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(
+                properties.getReplicaConnectionTimeoutMs()));
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReplicaProperties.Replica replica = properties.getReplicas().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + (i + 1));
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setMaximumPoolSize(properties.getReplicaPoolSize());
+            dataSource.setConnectionTimeout(properties.getReplicaConnectionTimeoutMs());
+            dataSource.setReadOnly(true);
+            // An unreachable replica must not stop the application from starting
+            dataSource.setInitializationFailTimeout(-1);
+            targets.add(new Target(dataSource.getPoolName(), dataSource));
+        }
+    }
+
+    /**
+     * @return a connection to the next healthy replica, or to {@code primary}
+     * when no replica is available
+     */
+    public Connection getConnection(DataSource primary) throws SQLException {
+        int size = targets.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Target target = targets.get((start + i) % size);
+            if (!target.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = target.dataSource.getConnection();
+                target.connections.incrementAndGet();
+                return connection;
+            } catch (SQLException ex) {
+                if (isConnectionFailure(ex)) {
+                    target.setHealthy(false, ex);
+                }
+            }
+        }
+        fallbacks.incrementAndGet();
+        return primary.getConnection();
+    }
+
+    @Scheduled(fixedDelayString = "${iot.datasource.health-check-interval-ms:5000}")
+    public void checkHealth() {
+        for (Target target : targets) {
+            try (Connection connection = target.dataSource.getConnection()) {
+                target.setHealthy(connection.isValid(validationTimeoutSeconds), null);
+            } catch (SQLException ex) {
+                if (isConnectionFailure(ex)) {
+                    target.setHealthy(false, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells a replica that cannot be reached from a pool with every connection
+     * in use: Hikari times out with a bare {@link SQLTransientConnectionException}
+     * in both cases, but only failing to connect leaves the driver's error as
+     * its cause.
+     */
+    static boolean isConnectionFailure(SQLException ex) {
+        return !(ex instanceof SQLTransientConnectionException) || ex.getCause() != null;
+    }
+
+    public int healthyCount() {
+        return (int) targets.stream().filter(target -> target.healthy).count();
+    }
+
+    /**
+     * Per-replica {@code hikaricp.*} pool metrics, {@code iot.db.replica.healthy}
+     * and {@code iot.db.routing.connections} by target, including reads that fell
+     * back to the primary.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Target target : targets) {
+            target.dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            Gauge.builder("iot.db.replica.healthy", target, t -> t.healthy ? 1 : 0)
+                    .tag("replica", target.name)
+                    .register(registry);
+            FunctionCounter.builder("iot.db.routing.connections", target.connections, AtomicLong::get)
+                    .tag("target", target.name)
+                    .register(registry);
+        }
+        FunctionCounter.builder("iot.db.routing.connections", fallbacks, AtomicLong::get)
+                .tag("target", "primary-fallback")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        targets.forEach(target -> target.dataSource.close());
+    }
+
+    private static final class Target {
+
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final AtomicLong connections = new AtomicLong();
+        private volatile boolean healthy;
+
+        private Target(String name, HikariDataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void setHealthy(boolean healthy, SQLException cause) {
+            if (this.healthy == healthy) {
+                return;
+            }
+            this.healthy = healthy;
+            if (healthy) {
+                log.info("Read replica {} is available", name);
+            } else {
+                log.warn("Read replica {} is unavailable, routing its reads elsewhere: {}", name,
+                        cause != null ? cause.getMessage() : "connection not valid");
+            }
+        }
+    }
+}
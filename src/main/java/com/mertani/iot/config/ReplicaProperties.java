@@ -0,0 +1,34 @@
+package com.mertani.iot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas of the primary database, bound from {@code iot.datasource.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "iot.datasource")
+public class ReplicaProperties {
+
+    /** Replicas that read-only transactions are spread across. */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /** Maximum connections in each replica's pool. */
+    private int replicaPoolSize = 10;
+
+    /** How long a read waits for a replica connection before moving on to the next target. */
+    private long replicaConnectionTimeoutMs = 1000;
+
+    /** Interval between replica health checks. */
+    private long healthCheckIntervalMs = 5000;
+
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
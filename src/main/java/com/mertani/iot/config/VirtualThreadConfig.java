@@ -0,0 +1,80 @@
+package com.mertani.iot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Bounds database access with a {@link BoundedDataSource}, sized to the
+ * connection pool unless {@code iot.db.max-concurrency} says otherwise, when
+ * Spring Boot runs Tomcat requests and {@code @Scheduled} work on virtual
+ * threads: request concurrency is then no longer capped by the Tomcat pool.
+ * That takes Java 21 and {@code spring.threads.virtual.enabled=true}; the build
+ * targets Java 17, where Spring Boot ignores the property and this
+ * configuration stays off, so it is not a supported mode yet.
+ * <p>
+ * Work that holds a lock across database or disk I/O (the rollup job,
+ * compaction, segment appends, anomaly checkpoints) uses {@code ReentrantLock}
+ * rather than {@code synchronized}, which would pin a virtual thread to its
+ * carrier while it waits.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    // HikariConfig's default when maximum-pool-size is not set
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    static BeanPostProcessor boundedDataSourcePostProcessor(
+            @Value("${iot.db.max-concurrency:0}") int maxConcurrency,
+            @Value("${iot.db.acquire-timeout-ms:2000}") long acquireTimeoutMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof BoundedDataSource) {
+                    return bean;
+                }
+                int permits = maxConcurrency > 0 ? maxConcurrency : poolSize(dataSource);
+                log.info("Bounding database concurrency of '{}' to {} connections", beanName, permits);
+                return new BoundedDataSource(dataSource, permits, acquireTimeoutMillis);
+            }
+        };
+    }
+
+    /**
+     * {@code iot.db.concurrency.*}: permits in use, callers waiting for one and
+     * callers turned away after the acquire timeout.
+     */
+    @Bean
+    MeterBinder boundedDataSourceMetrics(DataSource dataSource) {
+        return registry -> {
+            BoundedDataSource bounded = DataSourceUnwrapper.unwrap(dataSource, BoundedDataSource.class);
+            if (bounded == null) {
+                return;
+            }
+            Gauge.builder("iot.db.concurrency.limit", bounded, BoundedDataSource::getMaxConcurrency).register(registry);
+            Gauge.builder("iot.db.concurrency.active", bounded, BoundedDataSource::getActive).register(registry);
+            Gauge.builder("iot.db.concurrency.waiting", bounded, BoundedDataSource::getWaiting).register(registry);
+            FunctionCounter.builder("iot.db.concurrency.rejected", bounded, BoundedDataSource::getRejected)
+                    .register(registry);
+        };
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariDataSource.class);
+        return hikari != null && hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+    }
+}
@@ -0,0 +1,27 @@
+package com.mertani.iot.controller;
+
+import com.mertani.iot.dto.AlertResponse;
+import com.mertani.iot.dto.CursorPageResponse;
+import com.mertani.iot.service.AlertService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/alerts")
+@RequiredArgsConstructor
+public class AlertController {
+
+    private final AlertService alertService;
+
+    @GetMapping
+    public ResponseEntity<CursorPageResponse<AlertResponse>> getAlerts(
+            @RequestParam(required = false) Boolean open,
+            @RequestParam(required = false) Long deviceId,
+            @RequestParam(required = false) Long sensorId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int limit) {
+        CursorPageResponse<AlertResponse> page = alertService.getAlertsPage(open, deviceId, sensorId, after, limit);
+        return ResponseEntity.ok(page);
+    }
+}
@@ -1,14 +1,26 @@
 package com.mertani.iot.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.dto.AggregateResponse;
+import com.mertani.iot.dto.BulkCreateResponse;
+import com.mertani.iot.dto.CursorPageResponse;
 import com.mertani.iot.dto.DeviceRequest;
 import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.LatestReadingResponse;
 import com.mertani.iot.service.DeviceService;
+import com.mertani.iot.service.LatestReadingService;
+import com.mertani.iot.service.ReadingQueryService;
+import com.mertani.iot.stream.DeviceStreamHub;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -17,6 +29,10 @@ import java.util.List;
 public class DeviceController {
 
     private final DeviceService deviceService;
+    private final LatestReadingService latestReadingService;
+    private final ReadingQueryService readingQueryService;
+    private final DeviceStreamHub deviceStreamHub;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<DeviceResponse> createDevice(@Valid @RequestBody DeviceRequest request) {
@@ -24,16 +40,65 @@ public class DeviceController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkCreateResponse<DeviceResponse>> createDevices(@RequestBody List<DeviceRequest> requests) {
+        BulkCreateResponse<DeviceResponse> response = deviceService.createDevices(requests);
+        HttpStatus status = response.getErrors().isEmpty() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(response, status);
+    }
+
+    /**
+     * All devices as newline-delimited JSON, streamed from a database cursor.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportDevices() {
+        return NdjsonResponses.stream(objectMapper, DeviceResponse.class, deviceService::exportDevices);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<DeviceResponse> getDevice(@PathVariable Long id) {
         DeviceResponse response = deviceService.getDeviceById(id);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * The newest reading of each of the device's sensors, from memory.
+     */
+    @GetMapping("/{id}/latest")
+    public ResponseEntity<List<LatestReadingResponse>> getLatestReadings(@PathVariable Long id) {
+        return ResponseEntity.ok(latestReadingService.getDeviceLatest(id));
+    }
+
+    /**
+     * Per-bucket aggregates of every sensor of the device in {@code [from, to)},
+     * one set of parallel arrays per sensor.
+     */
+    @GetMapping("/{id}/aggregate")
+    public ResponseEntity<AggregateResponse> getAggregate(
+            @PathVariable Long id,
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(defaultValue = "1h") String resolution) {
+        AggregateResponse response = readingQueryService.getDeviceAggregate(id, from, to, resolution);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Server-Sent Events feed of the device: a {@code device} snapshot, then
+     * {@code reading}, {@code sensor} and {@code sensor-removed} events as they happen.
+     */
+    @GetMapping(value = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamDevice(@PathVariable Long id) {
+        DeviceResponse snapshot = deviceService.getDeviceById(id);
+        return deviceStreamHub.subscribe(id, snapshot);
+    }
+
     @GetMapping
-    public ResponseEntity<List<DeviceResponse>> getAllDevices() {
-        List<DeviceResponse> devices = deviceService.getAllDevices();
-        return ResponseEntity.ok(devices);
+    public ResponseEntity<CursorPageResponse<DeviceResponse>> getAllDevices(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int limit) {
+        CursorPageResponse<DeviceResponse> page = deviceService.getDevicesPage(after, limit);
+        return ResponseEntity.ok(page);
     }
 
     @PutMapping("/{id}")
@@ -0,0 +1,49 @@
+package com.mertani.iot.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes rows pushed by an export as newline-delimited JSON straight to the
+ * response. The first row is flushed immediately; after that output goes out
+ * whenever the response buffer fills.
+ */
+final class NdjsonResponses {
+
+    private NdjsonResponses() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper objectMapper, Class<T> type,
+                                                            Consumer<Consumer<T>> export) {
+        // Flushing after every row would send one chunk per row
+        ObjectWriter writer = objectMapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                boolean[] started = {false};
+                export.accept(row -> {
+                    try {
+                        writer.writeValue(generator, row);
+                        generator.writeRaw('\n');
+                        if (!started[0]) {
+                            generator.flush();
+                            started[0] = true;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -0,0 +1,35 @@
+package com.mertani.iot.controller;
+
+import com.mertani.iot.dto.CursorPageResponse;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.reactive.ReactiveDeviceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read endpoints of {@link DeviceController} served from R2DBC. Spring MVC
+ * subscribes to the returned {@link Mono} asynchronously, so the request thread
+ * is released while the queries run.
+ */
+@RestController
+@RequestMapping("/api/reactive/devices")
+@ConditionalOnProperty(name = "iot.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveDeviceController {
+
+    private final ReactiveDeviceService deviceService;
+
+    @GetMapping("/{id}")
+    public Mono<DeviceResponse> getDevice(@PathVariable Long id) {
+        return deviceService.getDeviceById(id);
+    }
+
+    @GetMapping
+    public Mono<CursorPageResponse<DeviceResponse>> getAllDevices(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int limit) {
+        return deviceService.getDevicesPage(after, limit);
+    }
+}
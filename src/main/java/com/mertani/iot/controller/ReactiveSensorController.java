@@ -0,0 +1,40 @@
+package com.mertani.iot.controller;
+
+import com.mertani.iot.dto.CursorPageResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.reactive.ReactiveSensorService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Read endpoints of {@link SensorController} served from R2DBC.
+ */
+@RestController
+@RequestMapping("/api/reactive/sensors")
+@ConditionalOnProperty(name = "iot.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveSensorController {
+
+    private final ReactiveSensorService sensorService;
+
+    @GetMapping("/{id}")
+    public Mono<SensorResponse> getSensor(@PathVariable Long id) {
+        return sensorService.getSensorById(id);
+    }
+
+    @GetMapping
+    public Mono<CursorPageResponse<SensorResponse>> getAllSensors(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int limit) {
+        return sensorService.getSensorsPage(after, limit);
+    }
+
+    @GetMapping("/device/{deviceId}")
+    public Mono<List<SensorResponse>> getSensorsByDeviceId(@PathVariable Long deviceId) {
+        return sensorService.getSensorsByDeviceId(deviceId).collectList();
+    }
+}
@@ -1,14 +1,23 @@
 package com.mertani.iot.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.dto.AggregateResponse;
+import com.mertani.iot.dto.BulkCreateResponse;
+import com.mertani.iot.dto.CursorPageResponse;
+import com.mertani.iot.dto.ReadingSeriesResponse;
 import com.mertani.iot.dto.SensorRequest;
 import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.service.ReadingQueryService;
 import com.mertani.iot.service.SensorService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -17,6 +26,8 @@ import java.util.List;
 public class SensorController {
 
     private final SensorService sensorService;
+    private final ReadingQueryService readingQueryService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<SensorResponse> createSensor(@Valid @RequestBody SensorRequest request) {
@@ -24,16 +35,61 @@ public class SensorController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkCreateResponse<SensorResponse>> createSensors(@RequestBody List<SensorRequest> requests) {
+        BulkCreateResponse<SensorResponse> response = sensorService.createSensors(requests);
+        HttpStatus status = response.getErrors().isEmpty() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(response, status);
+    }
+
+    /**
+     * All sensors as newline-delimited JSON, streamed from a database cursor.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportSensors() {
+        return NdjsonResponses.stream(objectMapper, SensorResponse.class, sensorService::exportSensors);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<SensorResponse> getSensor(@PathVariable Long id) {
         SensorResponse response = sensorService.getSensorById(id);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Min, max, average and count of the sensor's readings per {@code resolution}
+     * bucket in {@code [from, to)}.
+     */
+    @GetMapping("/{id}/readings")
+    public ResponseEntity<ReadingSeriesResponse> getReadings(
+            @PathVariable Long id,
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(defaultValue = "1h") String resolution) {
+        ReadingSeriesResponse response = readingQueryService.getSeries(id, from, to, resolution);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Min, max, average, count and newest value of the sensor's readings per
+     * {@code resolution} bucket in {@code [from, to)}, as parallel arrays.
+     */
+    @GetMapping("/{id}/aggregate")
+    public ResponseEntity<AggregateResponse> getAggregate(
+            @PathVariable Long id,
+            @RequestParam Instant from,
+            @RequestParam Instant to,
+            @RequestParam(defaultValue = "1h") String resolution) {
+        AggregateResponse response = readingQueryService.getSensorAggregate(id, from, to, resolution);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping
-    public ResponseEntity<List<SensorResponse>> getAllSensors() {
-        List<SensorResponse> sensors = sensorService.getAllSensors();
-        return ResponseEntity.ok(sensors);
+    public ResponseEntity<CursorPageResponse<SensorResponse>> getAllSensors(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int limit) {
+        CursorPageResponse<SensorResponse> page = sensorService.getSensorsPage(after, limit);
+        return ResponseEntity.ok(page);
     }
 
     @GetMapping("/device/{deviceId}")
@@ -0,0 +1,100 @@
+package com.mertani.iot.controller;
+
+import com.mertani.iot.dto.LatestReadingResponse;
+import com.mertani.iot.dto.ReadingImportResponse;
+import com.mertani.iot.dto.SensorReadingIngestResponse;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.service.LatestReadingService;
+import com.mertani.iot.service.ReadingExportService;
+import com.mertani.iot.service.ReadingImportService;
+import com.mertani.iot.service.SensorReadingService;
+import com.mertani.iot.telemetry.ReadingArrowWriter;
+import com.mertani.iot.telemetry.ReadingFrameDecoder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/sensors/readings")
+@RequiredArgsConstructor
+public class SensorReadingController {
+
+    private final SensorReadingService sensorReadingService;
+    private final LatestReadingService latestReadingService;
+    private final ReadingImportService readingImportService;
+    private final ReadingExportService readingExportService;
+
+    @PostMapping
+    public ResponseEntity<SensorReadingIngestResponse> ingestReadings(@RequestBody List<SensorReadingRequest> readings) {
+        SensorReadingIngestResponse response = sensorReadingService.ingest(readings);
+        return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+    }
+
+    @PostMapping(consumes = ReadingFrameDecoder.MEDIA_TYPE)
+    public ResponseEntity<SensorReadingIngestResponse> ingestReadingFrames(@RequestBody byte[] body) {
+        SensorReadingIngestResponse response = sensorReadingService.ingestFrames(ByteBuffer.wrap(body));
+        return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * The newest reading of every sensor, from memory.
+     */
+    @GetMapping("/latest")
+    public ResponseEntity<List<LatestReadingResponse>> getLatestReadings() {
+        return ResponseEntity.ok(latestReadingService.getFleetLatest());
+    }
+
+    /**
+     * Imports a CSV file of historical readings, streamed as it arrives. Sending
+     * the same file to the same import ID again resumes where it stopped.
+     */
+    @PutMapping(value = "/imports/{importId}", consumes = {"text/csv", "text/plain"})
+    public ResponseEntity<ReadingImportResponse> importReadings(@PathVariable String importId,
+                                                                InputStream body) throws IOException {
+        return ResponseEntity.ok(readingImportService.importCsv(importId, body));
+    }
+
+    @GetMapping("/imports/{importId}")
+    public ResponseEntity<ReadingImportResponse> getImport(@PathVariable String importId) {
+        return ResponseEntity.ok(readingImportService.getImport(importId));
+    }
+
+    /**
+     * The sensors' raw readings in {@code [from, to)} as an Apache Arrow stream,
+     * written in record batches as they are read from the database.
+     */
+    @GetMapping(value = "/export", produces = ReadingArrowWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportReadings(@RequestParam List<Long> sensorIds,
+                                                                @RequestParam Instant from,
+                                                                @RequestParam Instant to) {
+        long[] ids = readingExportService.checkExport(sensorIds, from, to);
+        StreamingResponseBody body = out -> {
+            ReadingArrowWriter writer = new ReadingArrowWriter(out);
+            readingExportService.exportReadings(ids, from, to, chunk -> {
+                try {
+                    writer.write(chunk);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ReadingArrowWriter.MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("readings.arrows").build().toString())
+                .body(body);
+    }
+}
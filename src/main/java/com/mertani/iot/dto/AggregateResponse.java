@@ -0,0 +1,20 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AggregateResponse {
+    private Instant from;
+    private Instant to;
+    // ISO-8601 bucket size, e.g. PT5M
+    private String resolution;
+    // Table the buckets were computed from: raw, 1m, 1h or 1d
+    private String source;
+    private List<AggregateSeries> series;
+}
@@ -0,0 +1,25 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+/**
+ * One sensor's buckets as parallel arrays: element {@code i} of every array
+ * describes the bucket starting at {@code buckets[i]}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AggregateSeries {
+    // Primary key of the sensor
+    private Long id;
+    private String sensorId;
+    // Bucket starts in epoch milliseconds, oldest first; empty buckets are left out
+    private long[] buckets;
+    private double[] min;
+    private double[] max;
+    private double[] avg;
+    private long[] count;
+    // Value of the newest reading in the bucket
+    private double[] last;
+}
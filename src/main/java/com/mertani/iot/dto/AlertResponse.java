@@ -0,0 +1,23 @@
+package com.mertani.iot.dto;
+
+import com.mertani.iot.model.AlertType;
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertResponse {
+    private Long id;
+    // Primary key of the sensor, like deviceId
+    private Long sensorId;
+    private Long deviceId;
+    private AlertType type;
+    private double threshold;
+    private double value;
+    private Instant raisedAt;
+    // Null while the alert is open
+    private Instant resolvedAt;
+}
@@ -0,0 +1,14 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateResponse<T> {
+    private List<T> created;
+    private List<BulkItemError> errors;
+}
@@ -0,0 +1,13 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkItemError {
+    // Position of the rejected item in the request array
+    private int index;
+    private String message;
+}
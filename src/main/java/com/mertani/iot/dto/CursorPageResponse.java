@@ -0,0 +1,34 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    public static final int MAX_LIMIT = 1000;
+
+    private List<T> items;
+
+    // Id of the last item on this page, to be passed back as "after"; null on the last page
+    private Long nextCursor;
+
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Builds a page from rows fetched with {@code limit + 1}: the extra row only
+     * signals that another page exists and is not returned.
+     */
+    public static <T> CursorPageResponse<T> of(List<T> rows, int limit, Function<T, Long> idExtractor) {
+        boolean hasMore = rows.size() > limit;
+        List<T> items = hasMore ? rows.subList(0, limit) : rows;
+        Long nextCursor = hasMore ? idExtractor.apply(items.get(items.size() - 1)) : null;
+        return new CursorPageResponse<>(items, nextCursor);
+    }
+}
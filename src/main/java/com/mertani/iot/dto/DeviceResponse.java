@@ -25,4 +25,10 @@ public class DeviceResponse {
     private LocalDateTime updatedAt;
     
     private List<SensorResponse> sensors;
+
+    // Used by the DeviceRepository projection queries; sensors are attached afterwards
+    public DeviceResponse(Long id, String name, String serialNumber, String description, String location,
+                          boolean active, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, name, serialNumber, description, location, active, createdAt, updatedAt, null);
+    }
 }
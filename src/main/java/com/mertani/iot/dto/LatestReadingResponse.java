@@ -0,0 +1,17 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatestReadingResponse {
+    private Long id;
+    private String sensorId;
+    private Long deviceId;
+    private Instant timestamp;
+    private double value;
+}
@@ -0,0 +1,18 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadingAggregate {
+    // Start of the bucket
+    private Instant bucket;
+    private double min;
+    private double max;
+    private double avg;
+    private long count;
+}
@@ -0,0 +1,29 @@
+package com.mertani.iot.dto;
+
+import com.mertani.iot.model.ReadingImport;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadingImportResponse {
+    private String importId;
+    private ReadingImport.Status status;
+
+    // CSV lines done in total, and the line this request resumed after
+    private long lines;
+    private long resumedFrom;
+
+    private long accepted;
+    private long rejected;
+
+    // Unknown sensor IDs seen by this request, up to a limit; their readings were rejected
+    private Set<String> unknownSensorIds;
+
+    private Instant startedAt;
+    private Instant updatedAt;
+}
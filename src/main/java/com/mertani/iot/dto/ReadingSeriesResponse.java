@@ -0,0 +1,23 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadingSeriesResponse {
+    // Primary key of the sensor
+    private Long sensorId;
+    private Instant from;
+    private Instant to;
+    // ISO-8601 bucket size, e.g. PT1H
+    private String resolution;
+    // Table the buckets were computed from: raw, 1m, 1h or 1d
+    private String source;
+    // Buckets with at least one reading, oldest first
+    private List<ReadingAggregate> points;
+}
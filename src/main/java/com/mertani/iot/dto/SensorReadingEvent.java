@@ -0,0 +1,16 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorReadingEvent {
+    private Long id;
+    private String sensorId;
+    private Instant timestamp;
+    private double value;
+}
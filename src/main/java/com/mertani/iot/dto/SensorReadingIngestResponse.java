@@ -0,0 +1,17 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorReadingIngestResponse {
+    private int accepted;
+    private int rejected;
+
+    // Sensor IDs that are unknown or inactive; readings for them were rejected
+    private Set<String> unknownSensorIds;
+}
@@ -0,0 +1,15 @@
+package com.mertani.iot.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorReadingRequest {
+    private String sensorId;
+    private Instant timestamp;
+    private Double value;
+}
@@ -1,7 +1,11 @@
 package com.mertani.iot.exception;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -27,12 +31,63 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
-    @ExceptionHandler({DuplicateSerialNumberException.class, DuplicateSensorIdException.class})
+    @ExceptionHandler(ReadingImportNotFoundException.class)
+    public ResponseEntity<Object> handleReadingImportNotFoundException(ReadingImportNotFoundException ex, WebRequest request) {
+        Map<String, Object> body = createErrorBody(HttpStatus.NOT_FOUND, ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler({DuplicateSerialNumberException.class, DuplicateSensorIdException.class,
+            ReadingImportInProgressException.class})
     public ResponseEntity<Object> handleDuplicateDataException(RuntimeException ex, WebRequest request) {
         Map<String, Object> body = createErrorBody(HttpStatus.CONFLICT, ex.getMessage());
         return new ResponseEntity<>(body, HttpStatus.CONFLICT);
     }
 
+    // Unique constraint violations that slip past the existence checks, e.g. duplicates
+    // created concurrently or within one batched transaction
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Object> handleDataIntegrityViolationException(DataIntegrityViolationException ex, WebRequest request) {
+        Map<String, Object> body = createErrorBody(HttpStatus.CONFLICT, "Resource already exists or violates a constraint");
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+
+    // No database connection within the acquire timeout: the service is overloaded,
+    // not broken, so ask the client to retry
+    @ExceptionHandler({CannotCreateTransactionException.class, CannotGetJdbcConnectionException.class})
+    public ResponseEntity<Object> handleConnectionUnavailableException(RuntimeException ex, WebRequest request) {
+        Map<String, Object> body = createErrorBody(HttpStatus.SERVICE_UNAVAILABLE, "Database is busy, please retry");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
+
+    @ExceptionHandler(ReadingBufferFullException.class)
+    public ResponseEntity<Object> handleReadingBufferFullException(ReadingBufferFullException ex, WebRequest request) {
+        Map<String, Object> body = createErrorBody(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
+
+    @ExceptionHandler(MalformedReadingFrameException.class)
+    public ResponseEntity<Object> handleMalformedReadingFrameException(MalformedReadingFrameException ex, WebRequest request) {
+        Map<String, Object> body = createErrorBody(HttpStatus.BAD_REQUEST, ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidReadingQueryException.class)
+    public ResponseEntity<Object> handleInvalidReadingQueryException(InvalidReadingQueryException ex, WebRequest request) {
+        Map<String, Object> body = createErrorBody(HttpStatus.BAD_REQUEST, ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(InvalidReadingImportException.class)
+    public ResponseEntity<Object> handleInvalidReadingImportException(InvalidReadingImportException ex, WebRequest request) {
+        Map<String, Object> body = createErrorBody(HttpStatus.BAD_REQUEST, ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Object> handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, Object> body = createErrorBody(HttpStatus.BAD_REQUEST, "Validation error");
@@ -0,0 +1,7 @@
+package com.mertani.iot.exception;
+
+public class InvalidReadingImportException extends RuntimeException {
+    public InvalidReadingImportException(String message) {
+        super(message);
+    }
+}
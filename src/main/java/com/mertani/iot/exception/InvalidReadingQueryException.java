@@ -0,0 +1,7 @@
+package com.mertani.iot.exception;
+
+public class InvalidReadingQueryException extends RuntimeException {
+    public InvalidReadingQueryException(String message) {
+        super(message);
+    }
+}
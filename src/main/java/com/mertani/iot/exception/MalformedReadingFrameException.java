@@ -0,0 +1,7 @@
+package com.mertani.iot.exception;
+
+public class MalformedReadingFrameException extends RuntimeException {
+    public MalformedReadingFrameException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.mertani.iot.exception;
+
+public class ReadingBufferFullException extends RuntimeException {
+    public ReadingBufferFullException(String message) {
+        super(message);
+    }
+}
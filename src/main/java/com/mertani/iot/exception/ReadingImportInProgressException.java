@@ -0,0 +1,7 @@
+package com.mertani.iot.exception;
+
+public class ReadingImportInProgressException extends RuntimeException {
+    public ReadingImportInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.mertani.iot.exception;
+
+public class ReadingImportNotFoundException extends RuntimeException {
+    public ReadingImportNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,31 @@
+package com.mertani.iot.gateway;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Raw socket listener for devices that cannot use the HTTP API, bound from
+ * {@code iot.gateway.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "iot.gateway")
+public class GatewayProperties {
+
+    /** Opens the listener; off by default. */
+    private boolean enabled;
+
+    /** Address both sockets bind to. */
+    private String bindAddress = "0.0.0.0";
+
+    /** UDP port, -1 to disable; 0 picks a free port. */
+    private int udpPort = 9700;
+
+    /** TCP port, -1 to disable; 0 picks a free port. */
+    private int tcpPort = 9700;
+
+    /** Largest accepted frame; also the per-connection TCP buffer size. */
+    private int maxFrameBytes = 65_536;
+
+    /** Socket receive buffer requested for UDP, absorbing bursts while a batch is written. */
+    private int udpReceiveBufferBytes = 4 * 1024 * 1024;
+}
@@ -0,0 +1,280 @@
+package com.mertani.iot.gateway;
+
+import com.mertani.iot.dto.SensorReadingIngestResponse;
+import com.mertani.iot.exception.MalformedReadingFrameException;
+import com.mertani.iot.service.SensorReadingService;
+import com.mertani.iot.telemetry.ReadingFrameDecoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Receives readings over plain UDP and TCP in the binary frame format of
+ * {@link ReadingFrameDecoder} and ingests them like
+ * {@code POST /api/sensors/readings}: sensors are resolved against the active
+ * inventory and accepted readings go through the same buffer and batch writer.
+ * A UDP datagram holds one or more whole frames; a TCP connection carries a
+ * stream of frames that may arrive split across reads.
+ * <p>
+ * One selector thread serves both sockets and every connection. A datagram or
+ * frame that cannot be decoded is dropped, and a TCP connection that sends one
+ * is closed, since the stream cannot be resynchronized. Nothing is acknowledged;
+ * when the batch writer falls behind the selector thread waits on it, and the
+ * backlog builds up in the socket buffers.
+ */
+@Slf4j
+public class TelemetryGateway implements SmartLifecycle {
+
+    private final GatewayProperties properties;
+    private final SensorReadingService sensorReadingService;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Transport udp;
+    private final Transport tcp;
+
+    private Selector selector;
+    private DatagramChannel udpChannel;
+    private ServerSocketChannel tcpChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public TelemetryGateway(GatewayProperties properties,
+                            SensorReadingService sensorReadingService,
+                            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.sensorReadingService = sensorReadingService;
+        this.udp = new Transport("udp", meterRegistry);
+        this.tcp = new Transport("tcp", meterRegistry);
+        Gauge.builder("iot.gateway.connections", connections, AtomicInteger::get)
+                .description("Open TCP connections to the telemetry gateway")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        try {
+            selector = Selector.open();
+            if (properties.getUdpPort() >= 0) {
+                udpChannel = DatagramChannel.open();
+                udpChannel.setOption(StandardSocketOptions.SO_RCVBUF, properties.getUdpReceiveBufferBytes());
+                udpChannel.bind(new InetSocketAddress(properties.getBindAddress(), properties.getUdpPort()));
+                udpChannel.configureBlocking(false);
+                udpChannel.register(selector, SelectionKey.OP_READ);
+                log.info("Telemetry gateway listening on UDP {}", udpChannel.getLocalAddress());
+            }
+            if (properties.getTcpPort() >= 0) {
+                tcpChannel = ServerSocketChannel.open();
+                tcpChannel.bind(new InetSocketAddress(properties.getBindAddress(), properties.getTcpPort()));
+                tcpChannel.configureBlocking(false);
+                tcpChannel.register(selector, SelectionKey.OP_ACCEPT);
+                log.info("Telemetry gateway listening on TCP {}", tcpChannel.getLocalAddress());
+            }
+        } catch (IOException ex) {
+            closeQuietly();
+            throw new UncheckedIOException("Cannot open telemetry gateway sockets", ex);
+        }
+        running = true;
+        selectorThread = new Thread(this::run, "telemetry-gateway");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(5000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Bound UDP port, or -1 when UDP is disabled. */
+    public int udpPort() {
+        return udpChannel != null ? udpChannel.socket().getLocalPort() : -1;
+    }
+
+    /** Bound TCP port, or -1 when TCP is disabled. */
+    public int tcpPort() {
+        return tcpChannel != null ? tcpChannel.socket().getLocalPort() : -1;
+    }
+
+    private void run() {
+        ByteBuffer datagram = ByteBuffer.allocate(properties.getMaxFrameBytes() + Integer.BYTES);
+        while (running) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.channel() == udpChannel) {
+                        receiveDatagrams(datagram);
+                    } else if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        readConnection(key);
+                    }
+                }
+            } catch (ClosedSelectorException ex) {
+                return;
+            } catch (IOException | RuntimeException ex) {
+                log.error("Telemetry gateway loop failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Drains every queued datagram, so one wakeup handles a whole burst.
+     */
+    private void receiveDatagrams(ByteBuffer datagram) throws IOException {
+        while (true) {
+            datagram.clear();
+            if (udpChannel.receive(datagram) == null) {
+                return;
+            }
+            datagram.flip();
+            try {
+                ingest(udp, datagram);
+            } catch (MalformedReadingFrameException ex) {
+                udp.malformed.increment();
+                log.debug("Dropped malformed datagram: {}", ex.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = tcpChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ,
+                ByteBuffer.allocate(properties.getMaxFrameBytes() + Integer.BYTES));
+        connections.incrementAndGet();
+    }
+
+    private void readConnection(SelectionKey key) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        try {
+            if (channel.read(buffer) < 0) {
+                close(key);
+                return;
+            }
+            buffer.flip();
+            int complete = ReadingFrameDecoder.completeLength(buffer, properties.getMaxFrameBytes());
+            if (complete > 0) {
+                int limit = buffer.limit();
+                buffer.limit(buffer.position() + complete);
+                ingest(tcp, buffer);
+                buffer.limit(limit);
+            }
+            buffer.compact();
+        } catch (MalformedReadingFrameException ex) {
+            tcp.malformed.increment();
+            log.debug("Closing connection that sent a malformed frame: {}", ex.getMessage());
+            close(key);
+        } catch (IOException ex) {
+            close(key);
+        }
+    }
+
+    private void ingest(Transport transport, ByteBuffer frames) {
+        try {
+            SensorReadingIngestResponse response = sensorReadingService.ingestFrames(frames);
+            transport.accepted.increment(response.getAccepted());
+            transport.rejected.increment(response.getRejected());
+        } catch (MalformedReadingFrameException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            // e.g. the database is unreachable while resolving new sensor IDs
+            transport.failed.increment();
+            log.warn("Dropped {} readings: {}", transport.name, ex.getMessage());
+        }
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+        connections.decrementAndGet();
+    }
+
+    private void closeQuietly() {
+        try {
+            if (selector != null) {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            }
+            if (udpChannel != null) {
+                udpChannel.close();
+            }
+            if (tcpChannel != null) {
+                tcpChannel.close();
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to close telemetry gateway sockets", ex);
+        }
+        connections.set(0);
+    }
+
+    private static final class Transport {
+
+        private final String name;
+        private final Counter accepted;
+        private final Counter rejected;
+        private final Counter malformed;
+        private final Counter failed;
+
+        private Transport(String name, MeterRegistry registry) {
+            this.name = name;
+            this.accepted = Counter.builder("iot.gateway.readings")
+                    .description("Readings received by the telemetry gateway")
+                    .tags("transport", name, "outcome", "accepted")
+                    .register(registry);
+            this.rejected = Counter.builder("iot.gateway.readings")
+                    .description("Readings received by the telemetry gateway")
+                    .tags("transport", name, "outcome", "rejected")
+                    .register(registry);
+            this.malformed = Counter.builder("iot.gateway.malformed")
+                    .description("Datagrams dropped or connections closed for undecodable frames")
+                    .tag("transport", name)
+                    .register(registry);
+            this.failed = Counter.builder("iot.gateway.failed")
+                    .description("Datagrams or frame batches dropped because ingest failed")
+                    .tag("transport", name)
+                    .register(registry);
+        }
+    }
+}
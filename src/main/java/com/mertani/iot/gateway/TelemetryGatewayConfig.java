@@ -0,0 +1,24 @@
+package com.mertani.iot.gateway;
+
+import com.mertani.iot.service.SensorReadingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Opt-in UDP/TCP ingest ({@code iot.gateway.enabled=true}), see {@link TelemetryGateway}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "iot.gateway.enabled", havingValue = "true")
+@EnableConfigurationProperties(GatewayProperties.class)
+public class TelemetryGatewayConfig {
+
+    @Bean
+    TelemetryGateway telemetryGateway(GatewayProperties properties,
+                                      SensorReadingService sensorReadingService,
+                                      MeterRegistry meterRegistry) {
+        return new TelemetryGateway(properties, sensorReadingService, meterRegistry);
+    }
+}
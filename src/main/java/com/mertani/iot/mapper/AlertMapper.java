@@ -0,0 +1,11 @@
+package com.mertani.iot.mapper;
+
+import com.mertani.iot.dto.AlertResponse;
+import com.mertani.iot.model.Alert;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface AlertMapper {
+
+    AlertResponse toDto(Alert alert);
+}
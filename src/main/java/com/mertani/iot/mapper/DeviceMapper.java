@@ -3,6 +3,7 @@ package com.mertani.iot.mapper;
 import com.mertani.iot.dto.DeviceRequest;
 import com.mertani.iot.dto.DeviceResponse;
 import com.mertani.iot.model.Device;
+import com.mertani.iot.reactive.DeviceRow;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
@@ -17,5 +18,11 @@ public interface DeviceMapper {
     @Mapping(target = "updatedAt", ignore = true)
     Device toEntity(DeviceRequest request);
     
+    // Sensors are attached by the service from a batched query; mapping them here
+    // would initialise the lazy collection once per device.
+    @Mapping(target = "sensors", ignore = true)
     DeviceResponse toDto(Device device);
+
+    @Mapping(target = "sensors", ignore = true)
+    DeviceResponse toDto(DeviceRow row);
 }
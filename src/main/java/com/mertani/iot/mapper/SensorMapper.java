@@ -3,6 +3,7 @@ package com.mertani.iot.mapper;
 import com.mertani.iot.dto.SensorRequest;
 import com.mertani.iot.dto.SensorResponse;
 import com.mertani.iot.model.Sensor;
+import com.mertani.iot.reactive.SensorRow;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
@@ -19,4 +20,6 @@ public interface SensorMapper {
     
     @Mapping(source = "device.id", target = "deviceId")
     SensorResponse toDto(Sensor sensor);
+
+    SensorResponse toDto(SensorRow row);
 }
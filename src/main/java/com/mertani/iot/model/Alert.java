@@ -0,0 +1,52 @@
+package com.mertani.iot.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A period during which a sensor's readings were out of bounds or anomalous,
+ * from the reading that raised it to the one that cleared it ({@code resolvedAt}
+ * is null while it is open). Rows are written with plain JDBC by
+ * {@link com.mertani.iot.alert.AlertWriter}, hence the identity column; like
+ * readings, the sensor is referenced without a foreign key.
+ */
+@Entity
+@Table(name = "alerts",
+        uniqueConstraints = @UniqueConstraint(name = "uk_alerts_sensor_type_raised",
+                columnNames = {"sensor_id", "alert_type", "raised_at"}),
+        indexes = @Index(name = "idx_alerts_device", columnList = "device_id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Alert {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sensor_id", nullable = false)
+    private Long sensorId;
+
+    @Column(name = "device_id", nullable = false)
+    private Long deviceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "alert_type", nullable = false, length = 32)
+    private AlertType type;
+
+    /** The bound that was crossed; for an anomaly, the edge of the expected band. */
+    @Column(nullable = false)
+    private double threshold;
+
+    /** The reading that raised the alert. */
+    @Column(name = "trigger_value", nullable = false)
+    private double value;
+
+    @Column(name = "raised_at", nullable = false)
+    private Instant raisedAt;
+
+    @Column(name = "resolved_at")
+    private Instant resolvedAt;
+}
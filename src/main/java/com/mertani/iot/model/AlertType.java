@@ -0,0 +1,10 @@
+package com.mertani.iot.model;
+
+public enum AlertType {
+    /** Reading above the sensor's {@code maxValue}. */
+    ABOVE_MAX,
+    /** Reading below the sensor's {@code minValue}. */
+    BELOW_MIN,
+    /** Reading far outside what the sensor's recent readings predict, see {@code AnomalyDetector}. */
+    ANOMALY
+}
@@ -12,8 +12,10 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Device {
+    // Pooled sequence so Hibernate can batch inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "devices_seq")
+    @SequenceGenerator(name = "devices_seq", sequenceName = "devices_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -0,0 +1,46 @@
+package com.mertani.iot.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Progress of one CSV import of readings, named by the client so that sending
+ * the same file again resumes it. Saved after every chunk written, so
+ * {@code lines} never counts a line whose reading isn't stored.
+ */
+@Entity
+@Table(name = "reading_imports")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReadingImport {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @Column(name = "import_id", length = 100)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    /** CSV lines done, not counting the header or blank lines. */
+    @Column(nullable = false)
+    private long lines;
+
+    @Column(nullable = false)
+    private long accepted;
+
+    @Column(nullable = false)
+    private long rejected;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
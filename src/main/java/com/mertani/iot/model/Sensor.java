@@ -11,8 +11,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Sensor {
+    // Pooled sequence so Hibernate can batch inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sensors_seq")
+    @SequenceGenerator(name = "sensors_seq", sequenceName = "sensors_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -0,0 +1,39 @@
+package com.mertani.iot.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Checkpoint of one sensor's anomaly model, so a restart resumes from what was
+ * learned instead of warming up again. Rows are upserted with plain JDBC by
+ * {@link com.mertani.iot.alert.AnomalyDetector}; like readings, the sensor is
+ * referenced without a foreign key.
+ */
+@Entity
+@Table(name = "sensor_anomaly_models")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SensorAnomalyModel {
+    @Id
+    @Column(name = "sensor_id")
+    private Long sensorId;
+
+    /** Exponentially weighted mean of the readings. */
+    @Column(nullable = false)
+    private double mean;
+
+    /** Exponentially weighted variance of the readings. */
+    @Column(nullable = false)
+    private double variance;
+
+    /** Readings learned from. */
+    @Column(nullable = false)
+    private long samples;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
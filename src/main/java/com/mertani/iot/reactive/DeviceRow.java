@@ -0,0 +1,22 @@
+package com.mertani.iot.reactive;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only R2DBC view of a {@code devices} row. The table is owned by the JPA
+ * {@link com.mertani.iot.model.Device} entity; this type is never written.
+ */
+@Table("devices")
+public record DeviceRow(
+        @Id Long id,
+        String name,
+        String serialNumber,
+        String description,
+        String location,
+        boolean active,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
@@ -0,0 +1,11 @@
+package com.mertani.iot.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+
+public interface ReactiveDeviceRepository extends ReactiveCrudRepository<DeviceRow, Long> {
+
+    @Query("SELECT * FROM devices WHERE id > :after ORDER BY id LIMIT :limit")
+    Flux<DeviceRow> findPageAfter(long after, int limit);
+}
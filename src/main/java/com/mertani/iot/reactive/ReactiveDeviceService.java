@@ -0,0 +1,75 @@
+package com.mertani.iot.reactive;
+
+import com.mertani.iot.dto.CursorPageResponse;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.exception.DeviceNotFoundException;
+import com.mertani.iot.mapper.DeviceMapper;
+import com.mertani.iot.mapper.SensorMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of the read side of
+ * {@link com.mertani.iot.service.DeviceService}. No thread is held while a
+ * query is in flight; results are not cached.
+ */
+@Service
+@ConditionalOnProperty(name = "iot.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveDeviceService {
+
+    private final ReactiveDeviceRepository deviceRepository;
+    private final ReactiveSensorRepository sensorRepository;
+    private final DeviceMapper deviceMapper;
+    private final SensorMapper sensorMapper;
+
+    /**
+     * Fetches the device and its sensors concurrently.
+     */
+    public Mono<DeviceResponse> getDeviceById(Long id) {
+        Mono<DeviceRow> device = deviceRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new DeviceNotFoundException("Device not found with id: " + id)));
+        Mono<List<SensorResponse>> sensors = sensorRepository.findByDeviceIdOrderById(id)
+                .map(sensorMapper::toDto)
+                .collectList();
+        return Mono.zip(device, sensors, (row, deviceSensors) -> {
+            DeviceResponse response = deviceMapper.toDto(row);
+            response.setSensors(deviceSensors);
+            return response;
+        });
+    }
+
+    /**
+     * One page of devices with their sensors: the page is fetched first, then
+     * the sensors of all its devices with a single {@code IN} query.
+     */
+    public Mono<CursorPageResponse<DeviceResponse>> getDevicesPage(Long after, int limit) {
+        int pageSize = CursorPageResponse.clampLimit(limit);
+        return deviceRepository.findPageAfter(after == null ? 0L : after, pageSize + 1)
+                .map(deviceMapper::toDto)
+                .collectList()
+                .flatMap(rows -> {
+                    CursorPageResponse<DeviceResponse> page = CursorPageResponse.of(rows, pageSize, DeviceResponse::getId);
+                    return attachSensors(page.getItems()).thenReturn(page);
+                });
+    }
+
+    private Mono<Void> attachSensors(List<DeviceResponse> devices) {
+        if (devices.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Long> ids = devices.stream().map(DeviceResponse::getId).toList();
+        return sensorRepository.findByDeviceIdInOrderById(ids)
+                .map(sensorMapper::toDto)
+                .collect(Collectors.groupingBy(SensorResponse::getDeviceId))
+                .doOnNext(byDevice -> devices.forEach(device ->
+                        device.setSensors(byDevice.getOrDefault(device.getId(), List.of()))))
+                .then();
+    }
+}
@@ -0,0 +1,38 @@
+package com.mertani.iot.reactive;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+
+/**
+ * Opt-in R2DBC read path ({@code iot.reactive.enabled=true}). The R2DBC
+ * auto-configuration is excluded on {@link com.mertani.iot.IotApplication} and
+ * imported only here (a plain import, since auto-configuration exclusions also
+ * apply to {@code @ImportAutoConfiguration}), so the default servlet/JPA mode
+ * opens no R2DBC pool and keeps a single transaction manager.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "iot.reactive.enabled", havingValue = "true")
+@Import({R2dbcAutoConfiguration.class, R2dbcDataAutoConfiguration.class})
+@EnableR2dbcRepositories(basePackageClasses = ReactiveReadConfig.class)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveReadConfig {
+
+    /**
+     * Boot backs off its JDBC DataSource once an R2DBC ConnectionFactory exists,
+     * but JPA still serves every write, so it is declared here the same way.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
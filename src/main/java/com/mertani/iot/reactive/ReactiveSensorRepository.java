@@ -0,0 +1,17 @@
+package com.mertani.iot.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+public interface ReactiveSensorRepository extends ReactiveCrudRepository<SensorRow, Long> {
+
+    Flux<SensorRow> findByDeviceIdOrderById(Long deviceId);
+
+    Flux<SensorRow> findByDeviceIdInOrderById(Collection<Long> deviceIds);
+
+    @Query("SELECT * FROM sensors WHERE id > :after ORDER BY id LIMIT :limit")
+    Flux<SensorRow> findPageAfter(long after, int limit);
+}
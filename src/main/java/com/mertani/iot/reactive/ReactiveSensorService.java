@@ -0,0 +1,42 @@
+package com.mertani.iot.reactive;
+
+import com.mertani.iot.dto.CursorPageResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.exception.SensorNotFoundException;
+import com.mertani.iot.mapper.SensorMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of the read side of
+ * {@link com.mertani.iot.service.SensorService}; results are not cached.
+ */
+@Service
+@ConditionalOnProperty(name = "iot.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveSensorService {
+
+    private final ReactiveSensorRepository sensorRepository;
+    private final SensorMapper sensorMapper;
+
+    public Mono<SensorResponse> getSensorById(Long id) {
+        return sensorRepository.findById(id)
+                .map(sensorMapper::toDto)
+                .switchIfEmpty(Mono.error(() -> new SensorNotFoundException("Sensor not found with id: " + id)));
+    }
+
+    public Flux<SensorResponse> getSensorsByDeviceId(Long deviceId) {
+        return sensorRepository.findByDeviceIdOrderById(deviceId).map(sensorMapper::toDto);
+    }
+
+    public Mono<CursorPageResponse<SensorResponse>> getSensorsPage(Long after, int limit) {
+        int pageSize = CursorPageResponse.clampLimit(limit);
+        return sensorRepository.findPageAfter(after == null ? 0L : after, pageSize + 1)
+                .map(sensorMapper::toDto)
+                .collectList()
+                .map(rows -> CursorPageResponse.of(rows, pageSize, SensorResponse::getId));
+    }
+}
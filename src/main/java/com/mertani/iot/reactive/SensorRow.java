@@ -0,0 +1,25 @@
+package com.mertani.iot.reactive;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only R2DBC view of a {@code sensors} row. The table is owned by the JPA
+ * {@link com.mertani.iot.model.Sensor} entity; this type is never written.
+ */
+@Table("sensors")
+public record SensorRow(
+        @Id Long id,
+        String name,
+        String sensorId,
+        String type,
+        String unit,
+        Double minValue,
+        Double maxValue,
+        boolean active,
+        Long deviceId,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
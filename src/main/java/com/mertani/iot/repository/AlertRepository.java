@@ -0,0 +1,32 @@
+package com.mertani.iot.repository;
+
+import com.mertani.iot.model.Alert;
+import com.mertani.iot.model.AlertType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AlertRepository extends JpaRepository<Alert, Long> {
+
+    List<Alert> findByResolvedAtIsNull();
+
+    List<Alert> findByTypeAndResolvedAtIsNull(AlertType type);
+
+    // open: null for all alerts, true for open ones only, false for resolved ones only
+    @Query("select a from Alert a where a.id > :after "
+            + "and (:open is null or (:open = true and a.resolvedAt is null) "
+            + "or (:open = false and a.resolvedAt is not null)) "
+            + "and (:deviceId is null or a.deviceId = :deviceId) "
+            + "and (:sensorId is null or a.sensorId = :sensorId) "
+            + "order by a.id")
+    List<Alert> findPageAfter(@Param("after") Long after,
+                              @Param("open") Boolean open,
+                              @Param("deviceId") Long deviceId,
+                              @Param("sensorId") Long sensorId,
+                              Limit limit);
+}
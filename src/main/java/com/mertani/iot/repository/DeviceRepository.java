@@ -1,13 +1,49 @@
 package com.mertani.iot.repository;
 
+import com.mertani.iot.dto.DeviceResponse;
 import com.mertani.iot.model.Device;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DeviceRepository extends JpaRepository<Device, Long> {
     Optional<Device> findBySerialNumber(String serialNumber);
+
+    // Skips the auto-flush of pending inserts so creating many devices in one
+    // transaction still batches; the unique constraint backs up the check
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
     boolean existsBySerialNumber(String serialNumber);
+
+    // Read-side projections, see SensorRepository.SELECT_RESPONSE. Sensors are
+    // attached by the service.
+    String SELECT_RESPONSE = "select new com.mertani.iot.dto.DeviceResponse(d.id, d.name, d.serialNumber, "
+            + "d.description, d.location, d.active, d.createdAt, d.updatedAt) from Device d ";
+
+    @Query(SELECT_RESPONSE + "where d.id = :id")
+    Optional<DeviceResponse> findResponseById(@Param("id") Long id);
+
+    @Query(SELECT_RESPONSE + "order by d.id")
+    List<DeviceResponse> findAllResponses();
+
+    @Query(SELECT_RESPONSE + "where d.id > :after order by d.id")
+    List<DeviceResponse> findResponsesAfter(@Param("after") Long after, Limit limit);
+
+    // Cursor-backed stream for exports; consume within a transaction and close
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(SELECT_RESPONSE + "order by d.id")
+    Stream<DeviceResponse> streamAllResponses();
+
+    @Query("select d.serialNumber from Device d where d.serialNumber in :serialNumbers")
+    List<String> findExistingSerialNumbers(@Param("serialNumbers") Collection<String> serialNumbers);
 }
@@ -0,0 +1,66 @@
+package com.mertani.iot.repository;
+
+import com.mertani.iot.dto.AggregateSeries;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.ReadingListener;
+import com.mertani.iot.timeseries.ReadingPartitions;
+import com.mertani.iot.timeseries.Rollup;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Readings in the database ({@code iot.readings.store=jdbc}, the default):
+ * written by {@link SensorReadingJdbcRepository} and aggregated by
+ * {@link ReadingSeriesJdbcRepository}, with rollups on PostgreSQL.
+ */
+@Repository
+@ConditionalOnProperty(name = "iot.readings.store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcReadingStore implements ReadingStore {
+
+    private final SensorReadingJdbcRepository readingRepository;
+    private final ReadingSeriesJdbcRepository seriesRepository;
+    private final ReadingPartitions partitions;
+
+    public JdbcReadingStore(SensorReadingJdbcRepository readingRepository,
+                            ReadingSeriesJdbcRepository seriesRepository,
+                            ReadingPartitions partitions) {
+        this.readingRepository = readingRepository;
+        this.seriesRepository = seriesRepository;
+        this.partitions = partitions;
+    }
+
+    @Override
+    public void insertAll(ReadingBatch batch) {
+        readingRepository.insertAll(batch);
+    }
+
+    @Override
+    public void load(ReadingBatch batch) {
+        readingRepository.copyAll(batch);
+    }
+
+    @Override
+    public void forEachLatest(ReadingListener sink) {
+        readingRepository.forEachLatest(sink);
+    }
+
+    @Override
+    public boolean hasRollups() {
+        return partitions.isPartitioned();
+    }
+
+    @Override
+    public Map<Long, AggregateSeries> aggregate(Rollup source, long[] sensorIds, Instant from, Instant to,
+                                                long resolutionMillis) {
+        return seriesRepository.aggregateColumns(source, sensorIds, from, to, resolutionMillis);
+    }
+
+    @Override
+    public void export(long[] sensorIds, Instant from, Instant to, ReadingBatch chunk, Consumer<ReadingBatch> sink) {
+        seriesRepository.export(sensorIds, from, to, chunk, sink);
+    }
+}
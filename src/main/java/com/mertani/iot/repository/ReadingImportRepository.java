@@ -0,0 +1,9 @@
+package com.mertani.iot.repository;
+
+import com.mertani.iot.model.ReadingImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReadingImportRepository extends JpaRepository<ReadingImport, String> {
+}
@@ -0,0 +1,354 @@
+package com.mertani.iot.repository;
+
+import com.mertani.iot.dto.AggregateSeries;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.timeseries.ReadingBlockDecoder;
+import com.mertani.iot.timeseries.ReadingCompactor;
+import com.mertani.iot.timeseries.ReadingPartitions;
+import com.mertani.iot.timeseries.Rollup;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyInputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Buckets sensor readings, either from the raw readings or from a
+ * {@link Rollup} whose buckets divide the requested ones evenly. Buckets are
+ * aligned to multiples of their size since the epoch, in UTC. Raw readings
+ * already compressed by {@link ReadingCompactor} are decoded from their
+ * blocks and bucketed here. Exports stream the readings themselves, raw ones
+ * with a binary COPY.
+ */
+@Repository
+public class ReadingSeriesJdbcRepository {
+
+    // A block never spans a UTC day, so one starting a day before the range is the earliest that can overlap it
+    private static final String BLOCKS_SQL = "SELECT sensor_id, reading_count, data FROM "
+            + ReadingPartitions.BLOCKS_TABLE + " WHERE sensor_id = ANY(?) AND first_at >= ? AND first_at < ? "
+            + "AND last_at >= ? ORDER BY sensor_id, first_at";
+    private static final String EXPORT_BLOCKS_SQL = "SELECT reading_count, data FROM "
+            + ReadingPartitions.BLOCKS_TABLE + " WHERE sensor_id = ? AND first_at >= ? AND first_at < ? "
+            + "AND last_at >= ? ORDER BY first_at";
+    // COPY takes no parameters; the values filled in are a number and two formatted instants.
+    // One sensor at a time, so each is a scan of its primary key through the partitions in time order
+    private static final String EXPORT_COPY_SQL = "COPY (SELECT recorded_at, reading_value FROM "
+            + ReadingPartitions.TABLE + " WHERE sensor_id = %d AND recorded_at >= '%s' AND recorded_at < '%s' "
+            + "ORDER BY recorded_at) TO STDOUT (FORMAT binary)";
+    // Signature, flags, header extension length; then per row a field count and two length-prefixed fields
+    private static final int COPY_HEADER_BYTES = 19;
+    private static final int EXPORT_ROW_BYTES = 2 + 2 * (4 + 8);
+    private static final int EXPORT_FETCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadingCompactor compactor;
+
+    public ReadingSeriesJdbcRepository(JdbcTemplate jdbcTemplate, ReadingCompactor compactor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.compactor = compactor;
+    }
+
+    /**
+     * Buckets several sensors' readings in one query, adding the newest value
+     * of each bucket.
+     *
+     * @param source the rollup to aggregate, or null for the raw readings
+     * @return the non-empty buckets of {@code [from, to)} by sensor primary key;
+     *         sensors without any are absent
+     */
+    public Map<Long, AggregateSeries> aggregateColumns(Rollup source, long[] sensorIds, Instant from, Instant to,
+                                                       long resolutionMillis) {
+        String sql = source == null
+                ? "SELECT sensor_id, " + bucketMillis("recorded_at") + "min(reading_value), max(reading_value), "
+                + "sum(reading_value), count(*), (array_agg(reading_value ORDER BY recorded_at DESC))[1], "
+                + "max(recorded_at) FROM " + ReadingPartitions.TABLE
+                + " WHERE sensor_id = ANY(?) AND recorded_at >= ? AND recorded_at < ?"
+                : "SELECT sensor_id, " + bucketMillis("bucket") + "min(min_value), max(max_value), "
+                + "sum(sum_value), sum(value_count), (array_agg(last_value ORDER BY last_at DESC))[1], "
+                + "max(last_at) FROM " + source.table() + " WHERE sensor_id = ANY(?) AND bucket >= ? AND bucket < ?";
+        Map<Long, Columns> columns = new HashMap<>();
+        jdbcTemplate.query(sql + " GROUP BY 1, 2 ORDER BY 1, 2", ps -> {
+            ps.setLong(1, resolutionMillis);
+            ps.setLong(2, resolutionMillis);
+            ps.setArray(3, ps.getConnection().createArrayOf("bigint", Arrays.stream(sensorIds).boxed().toArray()));
+            ps.setObject(4, timestamp(from));
+            ps.setObject(5, timestamp(to));
+        }, (RowCallbackHandler) rs -> columns.computeIfAbsent(rs.getLong(1), id -> new Columns())
+                .add(rs.getLong(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5), rs.getLong(6),
+                        rs.getDouble(7), rs.getTimestamp(8).getTime()));
+        if (source == null && from.toEpochMilli() < compactor.writableFrom()) {
+            compressed(sensorIds, from, to, resolutionMillis).forEach((id, blockColumns) ->
+                    columns.merge(id, blockColumns, Columns::merge));
+        }
+        Map<Long, AggregateSeries> series = new HashMap<>(columns.size() * 2);
+        columns.forEach((id, sensorColumns) -> series.put(id, sensorColumns.toSeries(id)));
+        return series;
+    }
+
+    /**
+     * Passes the readings of {@code [from, to)} to {@code sink} in chunks of
+     * {@code chunk}'s capacity, sensor by sensor in the order given and each
+     * sensor's in time order: first those decoded from compressed blocks, which
+     * all precede the raw ones, then the raw ones, read with a binary COPY as
+     * they arrive rather than through a result set. Must run in a transaction,
+     * for the blocks to be read through a cursor.
+     */
+    public void export(long[] sensorIds, Instant from, Instant to, ReadingBatch chunk, Consumer<ReadingBatch> sink) {
+        boolean compressed = from.toEpochMilli() < compactor.writableFrom();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            for (long sensorId : sensorIds) {
+                if (compressed) {
+                    exportBlocks(connection, sensorId, from, to, chunk, sink);
+                }
+                String sql = String.format(Locale.ROOT, EXPORT_COPY_SQL, sensorId, from, to);
+                try (InputStream rows = new PGCopyInputStream(copyManager.copyOut(sql))) {
+                    exportRows(rows, buffer, sensorId, chunk, sink);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Reading the readings of sensor " + sensorId + " failed", ex);
+                }
+            }
+            return null;
+        });
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+            chunk.clear();
+        }
+    }
+
+    private void exportBlocks(Connection connection, long sensorId, Instant from, Instant to, ReadingBatch chunk,
+                              Consumer<ReadingBatch> sink) throws SQLException {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        try (PreparedStatement statement = connection.prepareStatement(EXPORT_BLOCKS_SQL)) {
+            // Blocks are up to a few tens of kilobytes each
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            statement.setLong(1, sensorId);
+            statement.setObject(2, timestamp(from.minusSeconds(86_400)));
+            statement.setObject(3, timestamp(to));
+            statement.setObject(4, timestamp(from));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ReadingBlockDecoder decoder = new ReadingBlockDecoder(rs.getBytes(2), rs.getInt(1));
+                    while (decoder.next()) {
+                        long timestamp = decoder.timestamp();
+                        if (timestamp >= fromMillis && timestamp < toMillis) {
+                            add(chunk, sink, sensorId, timestamp, decoder.value());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the rows of one sensor's binary COPY, both fields non-null and 8 bytes long.
+     */
+    private static void exportRows(InputStream rows, ByteBuffer buffer, long sensorId, ReadingBatch chunk,
+                                   Consumer<ReadingBatch> sink) throws IOException {
+        buffer.clear().limit(0);
+        require(rows, buffer, COPY_HEADER_BYTES);
+        buffer.position(COPY_HEADER_BYTES - 4);
+        int extension = buffer.getInt();
+        require(rows, buffer, extension);
+        buffer.position(buffer.position() + extension);
+        while (true) {
+            require(rows, buffer, 2);
+            if (buffer.getShort() == -1) {
+                break;
+            }
+            require(rows, buffer, EXPORT_ROW_BYTES - 2);
+            buffer.getInt();
+            long micros = buffer.getLong();
+            buffer.getInt();
+            double value = buffer.getDouble();
+            add(chunk, sink, sensorId, Math.floorDiv(micros, 1000) + SensorReadingJdbcRepository.POSTGRES_EPOCH_MILLIS,
+                    value);
+        }
+        // Reads the end of the COPY, so the stream closes without cancelling it
+        if (rows.read() != -1) {
+            throw new IOException("Unexpected data after the end of a COPY");
+        }
+    }
+
+    /**
+     * Makes sure {@code buffer} has {@code bytes} left to read, reading more into it if not.
+     */
+    private static void require(InputStream in, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+            if (read < 0) {
+                throw new EOFException("COPY ended in the middle of a row");
+            }
+            buffer.position(buffer.position() + read);
+        }
+        buffer.flip();
+    }
+
+    private static void add(ReadingBatch chunk, Consumer<ReadingBatch> sink, long sensorId, long timestamp,
+                            double value) {
+        chunk.add(sensorId, timestamp, value);
+        if (chunk.size() == chunk.capacity()) {
+            sink.accept(chunk);
+            chunk.clear();
+        }
+    }
+
+    /**
+     * Buckets the compressed readings of {@code [from, to)}.
+     */
+    private Map<Long, Columns> compressed(long[] sensorIds, Instant from, Instant to, long resolutionMillis) {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        Map<Long, Columns> columns = new HashMap<>();
+        jdbcTemplate.query(BLOCKS_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", Arrays.stream(sensorIds).boxed().toArray()));
+            ps.setObject(2, timestamp(from.minusSeconds(86_400)));
+            ps.setObject(3, timestamp(to));
+            ps.setObject(4, timestamp(from));
+        }, (RowCallbackHandler) rs -> {
+            Columns sensorColumns = columns.computeIfAbsent(rs.getLong(1), id -> new Columns());
+            ReadingBlockDecoder decoder = new ReadingBlockDecoder(rs.getBytes(3), rs.getInt(2));
+            while (decoder.next()) {
+                long timestamp = decoder.timestamp();
+                if (timestamp >= fromMillis && timestamp < toMillis) {
+                    sensorColumns.accumulate(Math.floorDiv(timestamp, resolutionMillis) * resolutionMillis,
+                            timestamp, decoder.value());
+                }
+            }
+        });
+        columns.values().removeIf(sensorColumns -> sensorColumns.size == 0);
+        return columns;
+    }
+
+    // date_part is double precision, cheaper per row than extract's numeric
+    private static String bucketMillis(String time) {
+        return "floor(date_part('epoch', " + time + ") * 1000 / ?)::bigint * ?, ";
+    }
+
+    private static OffsetDateTime timestamp(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+
+    /** Growable parallel arrays for one sensor's buckets. */
+    private static final class Columns {
+
+        private long[] buckets = new long[64];
+        private double[] min = new double[64];
+        private double[] max = new double[64];
+        private double[] sum = new double[64];
+        private long[] count = new long[64];
+        private double[] last = new double[64];
+        private long[] lastAt = new long[64];
+        private int size;
+
+        void add(long bucket, double min, double max, double sum, long count, double last, long lastAt) {
+            if (size == buckets.length) {
+                int capacity = size * 2;
+                buckets = Arrays.copyOf(buckets, capacity);
+                this.min = Arrays.copyOf(this.min, capacity);
+                this.max = Arrays.copyOf(this.max, capacity);
+                this.sum = Arrays.copyOf(this.sum, capacity);
+                this.count = Arrays.copyOf(this.count, capacity);
+                this.last = Arrays.copyOf(this.last, capacity);
+                this.lastAt = Arrays.copyOf(this.lastAt, capacity);
+            }
+            buckets[size] = bucket;
+            this.min[size] = min;
+            this.max[size] = max;
+            this.sum[size] = sum;
+            this.count[size] = count;
+            this.last[size] = last;
+            this.lastAt[size] = lastAt;
+            size++;
+        }
+
+        /**
+         * Adds one reading; readings come in time order, so it belongs to the last bucket or a new one.
+         */
+        void accumulate(long bucket, long timestamp, double value) {
+            int i = size - 1;
+            if (i < 0 || buckets[i] != bucket) {
+                add(bucket, value, value, value, 1, value, timestamp);
+                return;
+            }
+            min[i] = Math.min(min[i], value);
+            max[i] = Math.max(max[i], value);
+            sum[i] += value;
+            count[i]++;
+            if (timestamp >= lastAt[i]) {
+                last[i] = value;
+                lastAt[i] = timestamp;
+            }
+        }
+
+        /**
+         * Both sides' buckets in order, combining buckets they share.
+         */
+        static Columns merge(Columns a, Columns b) {
+            Columns merged = new Columns();
+            int i = 0;
+            int j = 0;
+            while (i < a.size || j < b.size) {
+                if (j == b.size || (i < a.size && a.buckets[i] < b.buckets[j])) {
+                    merged.copy(a, i++);
+                } else if (i == a.size || b.buckets[j] < a.buckets[i]) {
+                    merged.copy(b, j++);
+                } else {
+                    boolean aNewer = a.lastAt[i] >= b.lastAt[j];
+                    merged.add(a.buckets[i], Math.min(a.min[i], b.min[j]), Math.max(a.max[i], b.max[j]),
+                            a.sum[i] + b.sum[j], a.count[i] + b.count[j], aNewer ? a.last[i] : b.last[j],
+                            Math.max(a.lastAt[i], b.lastAt[j]));
+                    i++;
+                    j++;
+                }
+            }
+            return merged;
+        }
+
+        private void copy(Columns from, int i) {
+            add(from.buckets[i], from.min[i], from.max[i], from.sum[i], from.count[i], from.last[i], from.lastAt[i]);
+        }
+
+        AggregateSeries toSeries(long id) {
+            double[] avg = new double[size];
+            for (int i = 0; i < size; i++) {
+                avg[i] = sum[i] / count[i];
+            }
+            return AggregateSeries.builder()
+                    .id(id)
+                    .buckets(Arrays.copyOf(buckets, size))
+                    .min(Arrays.copyOf(min, size))
+                    .max(Arrays.copyOf(max, size))
+                    .avg(avg)
+                    .count(Arrays.copyOf(count, size))
+                    .last(Arrays.copyOf(last, size))
+                    .build();
+        }
+    }
+}
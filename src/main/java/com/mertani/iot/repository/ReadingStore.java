@@ -0,0 +1,62 @@
+package com.mertani.iot.repository;
+
+import com.mertani.iot.dto.AggregateSeries;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.ReadingListener;
+import com.mertani.iot.timeseries.Rollup;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Where sensor readings are kept, chosen with {@code iot.readings.store}:
+ * {@code jdbc} (default) for the database tables, {@code segment} for
+ * {@link com.mertani.iot.segment.SegmentReadingStore segment files}.
+ */
+public interface ReadingStore {
+
+    /**
+     * Stores a batch; readings already stored (same sensor and timestamp) are ignored.
+     */
+    void insertAll(ReadingBatch batch);
+
+    /**
+     * Stores a large batch of historical readings, such as one chunk of an
+     * import. Same semantics as {@link #insertAll}, which it defaults to;
+     * stores with a faster bulk path override it.
+     */
+    default void load(ReadingBatch batch) {
+        insertAll(batch);
+    }
+
+    /**
+     * Passes the newest stored reading of every sensor that has one to {@code sink}.
+     */
+    void forEachLatest(ReadingListener sink);
+
+    /**
+     * Whether {@link #aggregate} can read from the {@link Rollup}s.
+     */
+    boolean hasRollups();
+
+    /**
+     * Buckets several sensors' readings, with the newest value of each bucket.
+     * Buckets are aligned to multiples of their size since the epoch, in UTC.
+     *
+     * @param source the rollup to aggregate, or null for the raw readings
+     * @return the non-empty buckets of {@code [from, to)} by sensor primary key;
+     *         sensors without any are absent
+     */
+    Map<Long, AggregateSeries> aggregate(Rollup source, long[] sensorIds, Instant from, Instant to,
+                                         long resolutionMillis);
+
+    /**
+     * Passes several sensors' readings of {@code [from, to)} to {@code sink} in
+     * chunks: sensor by sensor in the order given, each sensor's in time order.
+     * {@code chunk} is filled, passed on when full and cleared after the sink
+     * returns, so sinks must not keep it; the last, partial chunk is passed on
+     * too, unless it is empty.
+     */
+    void export(long[] sensorIds, Instant from, Instant to, ReadingBatch chunk, Consumer<ReadingBatch> sink);
+}
@@ -0,0 +1,15 @@
+package com.mertani.iot.repository;
+
+import com.mertani.iot.model.SensorAnomalyModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SensorAnomalyModelRepository extends JpaRepository<SensorAnomalyModel, Long> {
+
+    @Query("select m from SensorAnomalyModel m where m.sensorId in (select s.id from Sensor s where s.active = true)")
+    List<SensorAnomalyModel> findAllOfActiveSensors();
+}
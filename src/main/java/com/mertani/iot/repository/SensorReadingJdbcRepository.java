@@ -0,0 +1,251 @@
+package com.mertani.iot.repository;
+
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.ReadingListener;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.timeseries.ReadingCompactor;
+import com.mertani.iot.timeseries.ReadingPartitions;
+import com.mertani.iot.timeseries.RollupTracker;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Writes buffered readings with JDBC batch inserts, and bulk loads with COPY.
+ * JPA is bypassed on purpose: readings are never updated, so entity state
+ * tracking would only cost memory. The table and its partitions are managed by
+ * {@link ReadingPartitions}, and written ranges are reported to
+ * {@link RollupTracker}.
+ * <p>
+ * Readings in time compressed by {@link ReadingCompactor} are dropped here
+ * too, not only at ingest: a batch accepted before a compaction may be
+ * written after it. So are readings of a flushed batch that would need more
+ * than {@code iot.readings.max-new-partitions-per-flush} new partitions;
+ * bulk loads may create as many as they need.
+ */
+@Repository
+public class SensorReadingJdbcRepository {
+
+    // Re-delivered readings (same sensor and timestamp) are ignored rather than failing the batch
+    private static final String INSERT_SQL =
+            "INSERT INTO sensor_readings (sensor_id, recorded_at, reading_value) VALUES (?, ?, ?) "
+                    + "ON CONFLICT DO NOTHING";
+
+    // Index probes on (sensor_id, recorded_at) per sensor instead of sorting the whole table;
+    // both subqueries see the same snapshot, and sensors without readings come back as nulls
+    private static final String LATEST_SQL =
+            "SELECT s.sensor_id, s.id, s.device_id, "
+                    + "(SELECT recorded_at FROM sensor_readings WHERE sensor_id = s.id "
+                    + "ORDER BY recorded_at DESC LIMIT 1), "
+                    + "(SELECT reading_value FROM sensor_readings WHERE sensor_id = s.id "
+                    + "ORDER BY recorded_at DESC LIMIT 1) "
+                    + "FROM sensors s";
+
+    // Newest compressed reading per sensor, for sensors whose recent partitions were compressed too
+    private static final String LATEST_BLOCK_SQL =
+            "SELECT s.sensor_id, s.id, s.device_id, b.last_at, b.last_value FROM sensors s "
+                    + "CROSS JOIN LATERAL (SELECT last_at, last_value FROM " + ReadingPartitions.BLOCKS_TABLE
+                    + " WHERE sensor_id = s.id ORDER BY first_at DESC LIMIT 1) b";
+
+    // COPY has no ON CONFLICT: a batch is copied straight into the table under a savepoint,
+    // and only if it repeats a stored reading copied again into a per-connection staging
+    // table and moved on with the same conflict handling as INSERT_SQL, which costs twice as much
+    private static final String COPY_SQL =
+            "COPY sensor_readings (sensor_id, recorded_at, reading_value) FROM STDIN (FORMAT binary)";
+    private static final String STAGE_TABLE = "sensor_readings_load";
+    private static final String CREATE_STAGE_SQL = "CREATE TEMP TABLE IF NOT EXISTS " + STAGE_TABLE
+            + " (sensor_id bigint, recorded_at timestamptz, reading_value double precision) ON COMMIT DELETE ROWS";
+    private static final String COPY_STAGE_SQL = "COPY " + STAGE_TABLE + " FROM STDIN (FORMAT binary)";
+    private static final String MOVE_SQL = "INSERT INTO sensor_readings (sensor_id, recorded_at, reading_value) "
+            + "SELECT sensor_id, recorded_at, reading_value FROM " + STAGE_TABLE + " ON CONFLICT DO NOTHING";
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    // Binary COPY: signature, flags and header extension length, then per row a field count and
+    // each field length-prefixed; timestamps are microseconds since 2000-01-01
+    private static final byte[] COPY_HEADER = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+            0, 0, 0, 0, 0, 0, 0, 0};
+    private static final int COPY_ROW_BYTES = 2 + 3 * (4 + 8);
+    static final long POSTGRES_EPOCH_MILLIS = 946_684_800_000L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadingPartitions partitions;
+    private final ReadingCompactor compactor;
+    private final RollupTracker rollupTracker;
+    private final int batchSize;
+    private final int maxNewPartitions;
+
+    public SensorReadingJdbcRepository(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       ReadingPartitions partitions,
+                                       ReadingCompactor compactor,
+                                       RollupTracker rollupTracker,
+                                       @Value("${iot.readings.jdbc-batch-size:1000}") int batchSize,
+                                       @Value("${iot.readings.max-new-partitions-per-flush:16}") int maxNewPartitions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitions = partitions;
+        this.compactor = compactor;
+        this.rollupTracker = rollupTracker;
+        this.batchSize = batchSize;
+        this.maxNewPartitions = maxNewPartitions;
+    }
+
+    public void insertAll(ReadingBatch batch) {
+        ReadingBatch writable = partitions.ensure(batch, compactor.writableFrom(), maxNewPartitions);
+        try {
+            insert(writable);
+        } catch (DataIntegrityViolationException ex) {
+            writable = rewritable(writable, maxNewPartitions, ex);
+            insert(writable);
+        }
+        rollupTracker.markDirty(writable);
+    }
+
+    private void insert(ReadingBatch batch) {
+        for (int start = 0; start < batch.size(); start += batchSize) {
+            int offset = start;
+            int count = Math.min(batchSize, batch.size() - start);
+            jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    int index = offset + i;
+                    ps.setLong(1, batch.sensorId(index));
+                    ps.setObject(2, OffsetDateTime.ofInstant(Instant.ofEpochMilli(batch.timestamp(index)), ZoneOffset.UTC));
+                    ps.setDouble(3, batch.value(index));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes a large batch with a binary COPY in one transaction, several times
+     * faster than {@link #insertAll} once batches run into the tens of
+     * thousands. Readings already stored are ignored all the same, though a
+     * batch that has any is written at half the speed. Off PostgreSQL this is
+     * {@link #insertAll}.
+     */
+    public void copyAll(ReadingBatch batch) {
+        if (!partitions.isPartitioned()) {
+            insertAll(batch);
+            return;
+        }
+        ReadingBatch writable = partitions.ensure(batch, compactor.writableFrom(), Integer.MAX_VALUE);
+        try {
+            copy(writable);
+        } catch (DataIntegrityViolationException ex) {
+            writable = rewritable(writable, Integer.MAX_VALUE, ex);
+            copy(writable);
+        }
+        rollupTracker.markDirty(writable);
+    }
+
+    private void copy(ReadingBatch batch) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                copy(copyManager, COPY_SQL, batch);
+                connection.releaseSavepoint(savepoint);
+            } catch (SQLException ex) {
+                if (!UNIQUE_VIOLATION.equals(ex.getSQLState())) {
+                    throw ex;
+                }
+                connection.rollback(savepoint);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_STAGE_SQL);
+                    copy(copyManager, COPY_STAGE_SQL, batch);
+                    statement.executeUpdate(MOVE_SQL);
+                }
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * A write that waited on the lock of a partition being compressed finds
+     * the partition gone and no partition for its rows. Compaction raises
+     * writableFrom before it takes the lock, so filtering again drops exactly
+     * those rows; if none are dropped, the failure was something else.
+     */
+    private ReadingBatch rewritable(ReadingBatch batch, int maxCreated, DataIntegrityViolationException ex) {
+        ReadingBatch writable = partitions.ensure(batch, compactor.writableFrom(), maxCreated);
+        if (writable == batch) {
+            throw ex;
+        }
+        return writable;
+    }
+
+    private static void copy(CopyManager copyManager, String sql, ReadingBatch batch) throws SQLException {
+        CopyIn copy = copyManager.copyIn(sql);
+        try {
+            writeRows(copy, batch);
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    private static void writeRows(CopyIn copy, ReadingBatch batch) throws SQLException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        buffer.put(COPY_HEADER);
+        for (int i = 0; i < batch.size(); i++) {
+            // Always leaves room for the trailer
+            if (buffer.remaining() < COPY_ROW_BYTES + 2) {
+                copy.writeToCopy(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            buffer.putShort((short) 3);
+            buffer.putInt(8).putLong(batch.sensorId(i));
+            buffer.putInt(8).putLong((batch.timestamp(i) - POSTGRES_EPOCH_MILLIS) * 1000);
+            buffer.putInt(8).putDouble(batch.value(i));
+        }
+        // Trailer
+        buffer.putShort((short) -1);
+        copy.writeToCopy(buffer.array(), 0, buffer.position());
+    }
+
+    /**
+     * Passes the newest stored reading of every sensor that has one to {@code sink}.
+     * A sensor may be passed twice, newest raw and newest compressed reading;
+     * the sink keeps the later one.
+     */
+    public void forEachLatest(ReadingListener sink) {
+        RowCallbackHandler handler = rs -> {
+            OffsetDateTime recordedAt = rs.getObject(4, OffsetDateTime.class);
+            if (recordedAt != null) {
+                SensorRef ref = new SensorRef(rs.getString(1), rs.getLong(2), rs.getLong(3));
+                sink.onReading(ref, recordedAt.toInstant().toEpochMilli(), rs.getDouble(5));
+            }
+        };
+        jdbcTemplate.query(LATEST_SQL, handler);
+        if (partitions.isPartitioned()) {
+            jdbcTemplate.query(LATEST_BLOCK_SQL, handler);
+        }
+    }
+}
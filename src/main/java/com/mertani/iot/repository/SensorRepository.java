@@ -1,16 +1,76 @@
 package com.mertani.iot.repository;
 
+import com.mertani.iot.dto.SensorResponse;
 import com.mertani.iot.model.Sensor;
+import com.mertani.iot.telemetry.SensorRef;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SensorRepository extends JpaRepository<Sensor, Long> {
     Optional<Sensor> findBySensorId(String sensorId);
+
+    // See DeviceRepository.existsBySerialNumber
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
     boolean existsBySensorId(String sensorId);
+
     List<Sensor> findByDeviceId(Long deviceId);
     boolean existsByDeviceId(Long deviceId);
+
+    // Read-side projections: rows are built straight into the response DTO, so no
+    // managed entities, snapshots or device proxies are created. The argument
+    // order follows the SensorResponse all-args constructor.
+    String SELECT_RESPONSE = "select new com.mertani.iot.dto.SensorResponse(s.id, s.name, s.sensorId, s.type, "
+            + "s.unit, s.minValue, s.maxValue, s.active, s.device.id, s.createdAt, s.updatedAt) from Sensor s ";
+
+    @Query(SELECT_RESPONSE + "where s.id = :id")
+    Optional<SensorResponse> findResponseById(@Param("id") Long id);
+
+    @Query(SELECT_RESPONSE + "order by s.id")
+    List<SensorResponse> findAllResponses();
+
+    @Query(SELECT_RESPONSE + "where s.device.id = :deviceId order by s.id")
+    List<SensorResponse> findResponsesByDeviceId(@Param("deviceId") Long deviceId);
+
+    @Query(SELECT_RESPONSE + "where s.device.id in :deviceIds order by s.id")
+    List<SensorResponse> findResponsesByDeviceIdIn(@Param("deviceIds") Collection<Long> deviceIds);
+
+    @Query(SELECT_RESPONSE + "where s.id > :after order by s.id")
+    List<SensorResponse> findResponsesAfter(@Param("after") Long after, Limit limit);
+
+    // Cursor-backed streams for exports; consume within a transaction and close
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(SELECT_RESPONSE + "order by s.id")
+    Stream<SensorResponse> streamAllResponses();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(SELECT_RESPONSE + "order by s.device.id, s.id")
+    Stream<SensorResponse> streamAllResponsesOrderByDeviceId();
+
+    @Query("select s.sensorId from Sensor s where s.sensorId in :sensorIds")
+    List<String> findExistingSensorIds(@Param("sensorIds") Collection<String> sensorIds);
+
+    @Query("select new com.mertani.iot.telemetry.SensorRef(s.sensorId, s.id, s.device.id) from Sensor s where s.id = :id")
+    Optional<SensorRef> findRefById(@Param("id") Long id);
+
+    @Query("select new com.mertani.iot.telemetry.SensorRef(s.sensorId, s.id, s.device.id) from Sensor s where s.id in :ids")
+    List<SensorRef> findRefsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.mertani.iot.telemetry.SensorRef(s.sensorId, s.id, s.device.id) from Sensor s")
+    List<SensorRef> findAllRefs();
+
+    @Query("select new com.mertani.iot.telemetry.SensorRef(s.sensorId, s.id, s.device.id) "
+            + "from Sensor s where s.active = true and s.sensorId in :sensorIds")
+    List<SensorRef> findActiveRefsBySensorIdIn(@Param("sensorIds") Collection<String> sensorIds);
 }
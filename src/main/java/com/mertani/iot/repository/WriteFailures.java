@@ -0,0 +1,26 @@
+package com.mertani.iot.repository;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Tells failed background writes worth retrying as they are (the database or
+ * disk was unavailable) from writes that failed on the data itself.
+ */
+public final class WriteFailures {
+
+    private WriteFailures() {
+    }
+
+    public static boolean isTransient(RuntimeException ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof RecoverableDataAccessException
+                || ex instanceof DataAccessResourceFailureException
+                || ex instanceof CannotCreateTransactionException
+                || ex instanceof UncheckedIOException;
+    }
+}
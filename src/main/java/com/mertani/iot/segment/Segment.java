@@ -0,0 +1,356 @@
+package com.mertani.iot.segment;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * One append-only segment file holding readings of one UTC day, memory-mapped
+ * through a {@link FileChannel}. The file is a header followed by frames, one
+ * per write:
+ * <pre>
+ * header  int magic, int version, long epoch day
+ * frame   int magic, int runs, int readings, int CRC32C of everything after it up to the next frame
+ *         runs x     (long sensor, int readings, long first timestamp, long last timestamp)
+ *         readings x (long timestamp, double value), run by run, each run in timestamp order
+ * </pre>
+ * Every run is added to a sparse per-sensor index as it is written, so a range
+ * scan reads only the runs of the sensors asked for whose time span overlaps.
+ * <p>
+ * One thread appends; any number may read. Readers only see runs that have been
+ * indexed, which happens after their bytes are in place.
+ */
+@Slf4j
+final class Segment {
+
+    static final int HEADER_BYTES = 16;
+    static final int FRAME_HEADER_BYTES = 16;
+    static final int RUN_BYTES = 28;
+    static final int READING_BYTES = 16;
+
+    private static final int MAGIC = 0x494F5453;
+    private static final int FRAME_MAGIC = 0x46524D31;
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private final long day;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Map<Long, Runs> index = new ConcurrentHashMap<>();
+    private final CRC32C crc = new CRC32C();
+
+    private volatile int end;
+    private volatile boolean sealed;
+
+    private Segment(Path path, long day, FileChannel channel, MappedByteBuffer buffer, int end, boolean sealed) {
+        this.path = path;
+        this.day = day;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.end = end;
+        this.sealed = sealed;
+    }
+
+    /**
+     * Creates an empty segment of {@code capacity} bytes, open for appending.
+     */
+    static Segment create(Path path, long day, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, day);
+        return new Segment(path, day, channel, buffer, HEADER_BYTES, false);
+    }
+
+    /**
+     * Opens an existing segment read-only. Frames are checked in order and the
+     * file is cut after the last intact one, dropping a write torn by a crash.
+     *
+     * @return null if not even the header is intact
+     */
+    static Segment recover(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+            channel.close();
+            return null;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            return null;
+        }
+        Segment segment = new Segment(path, buffer.getLong(8), channel, buffer, HEADER_BYTES, true);
+        int end = HEADER_BYTES;
+        int next;
+        while ((next = segment.checkFrame(end, (int) size)) > 0) {
+            segment.indexFrame(end);
+            end = next;
+        }
+        segment.end = end;
+        if (end < size) {
+            // Unused preallocated space is zeros; anything else is a write cut short
+            if (hasData(buffer, end, (int) size)) {
+                log.warn("Truncating torn tail of reading segment {} from {} to {} bytes", path, size, end);
+            }
+            // Nothing reads past end, so the mapping may outlive the cut
+            channel.truncate(end);
+            channel.force(true);
+        }
+        return segment;
+    }
+
+    long day() {
+        return day;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int size() {
+        return end;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    /** Bytes still free for frames. */
+    int remaining() {
+        return sealed ? 0 : buffer.capacity() - end;
+    }
+
+    /**
+     * Appends one frame and indexes its runs.
+     *
+     * @param sensors  sensor of each run
+     * @param counts   readings in each run
+     * @param times    timestamps, run by run, each run ascending
+     * @param values   values matching {@code times}
+     */
+    void append(long[] sensors, int[] counts, int runs, long[] times, double[] values, int readings) {
+        int start = end;
+        int runTable = start + FRAME_HEADER_BYTES;
+        int data = runTable + runs * RUN_BYTES;
+        int next = data + readings * READING_BYTES;
+        if (sealed || next > buffer.capacity()) {
+            throw new IllegalStateException("Frame of " + (next - start) + " bytes does not fit segment " + path);
+        }
+        int reading = 0;
+        for (int r = 0; r < runs; r++) {
+            int run = runTable + r * RUN_BYTES;
+            buffer.putLong(run, sensors[r]);
+            buffer.putInt(run + 8, counts[r]);
+            buffer.putLong(run + 12, times[reading]);
+            buffer.putLong(run + 20, times[reading + counts[r] - 1]);
+            reading += counts[r];
+        }
+        for (int i = 0; i < readings; i++) {
+            buffer.putLong(data + i * READING_BYTES, times[i]);
+            buffer.putDouble(data + i * READING_BYTES + 8, values[i]);
+        }
+        buffer.putInt(start + 4, runs);
+        buffer.putInt(start + 8, readings);
+        buffer.putInt(start + 12, checksum(start, next));
+        // Written last: a frame without it is never taken for a complete one
+        buffer.putInt(start, FRAME_MAGIC);
+        indexFrame(start);
+        end = next;
+    }
+
+    /**
+     * Flushes to disk, trims the file to what was written and stops appending.
+     */
+    void seal() throws IOException {
+        if (sealed) {
+            return;
+        }
+        sealed = true;
+        buffer.force(0, end);
+        channel.truncate(end);
+        channel.force(true);
+    }
+
+    void close() throws IOException {
+        seal();
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        sealed = true;
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    /** The sparse index of one sensor, or null if it has no readings here. */
+    Runs runs(long sensorId) {
+        return index.get(sensorId);
+    }
+
+    void forEachSensor(BiConsumer<Long, Runs> action) {
+        index.forEach(action);
+    }
+
+    long timestamp(int position) {
+        return buffer.getLong(position);
+    }
+
+    double value(int position) {
+        return buffer.getDouble(position + 8);
+    }
+
+    /**
+     * Whether the sensor has a reading with exactly this timestamp.
+     */
+    boolean contains(long sensorId, long timestamp) {
+        Runs runs = index.get(sensorId);
+        if (runs == null || timestamp > runs.last) {
+            return false;
+        }
+        int size = runs.size;
+        for (int r = 0; r < size; r++) {
+            if (runs.first[r] <= timestamp && timestamp <= runs.lastOf[r]) {
+                int position = firstAtOrAfter(runs.position[r], runs.count[r], timestamp);
+                if (position < runs.position[r] + runs.count[r] * READING_BYTES && timestamp(position) == timestamp) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Position of the first reading at or after {@code timestamp} in a run,
+     * or the end of the run if there is none.
+     */
+    int firstAtOrAfter(int position, int count, long timestamp) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamp(position + mid * READING_BYTES) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return position + low * READING_BYTES;
+    }
+
+    /**
+     * @return the end of the intact frame at {@code start}, or 0 if there is none
+     */
+    private int checkFrame(int start, int size) {
+        if (start + FRAME_HEADER_BYTES > size || buffer.getInt(start) != FRAME_MAGIC) {
+            return 0;
+        }
+        long runs = buffer.getInt(start + 4);
+        long readings = buffer.getInt(start + 8);
+        long next = start + FRAME_HEADER_BYTES + runs * RUN_BYTES + readings * READING_BYTES;
+        if (runs <= 0 || readings < runs || next > size) {
+            return 0;
+        }
+        return checksum(start, (int) next) == buffer.getInt(start + 12) ? (int) next : 0;
+    }
+
+    private void indexFrame(int start) {
+        int runs = buffer.getInt(start + 4);
+        int runTable = start + FRAME_HEADER_BYTES;
+        int position = runTable + runs * RUN_BYTES;
+        for (int r = 0; r < runs; r++) {
+            int run = runTable + r * RUN_BYTES;
+            int count = buffer.getInt(run + 8);
+            index.computeIfAbsent(buffer.getLong(run), sensor -> new Runs())
+                    .add(position, count, buffer.getLong(run + 12), buffer.getLong(run + 20));
+            position += count * READING_BYTES;
+        }
+    }
+
+    private int checksum(int start, int next) {
+        ByteBuffer frame = buffer.slice(start + 4, next - start - 4);
+        // Skips the checksum field itself
+        crc.reset();
+        crc.update(frame.slice(0, 8));
+        crc.update(frame.slice(12, frame.capacity() - 12));
+        return (int) crc.getValue();
+    }
+
+    private static boolean hasData(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One sensor's runs in a segment, in write order: where each starts, how
+     * many readings it has and its first and last timestamp. Appended by the
+     * writer only; a reader sees every run up to the {@code size} it read.
+     */
+    static final class Runs {
+
+        private int[] position = new int[8];
+        private int[] count = new int[8];
+        private long[] first = new long[8];
+        private long[] lastOf = new long[8];
+        private volatile int size;
+        // Latest timestamp over all runs
+        private volatile long last = Long.MIN_VALUE;
+
+        private void add(int position, int count, long first, long last) {
+            int i = size;
+            if (i == this.position.length) {
+                this.position = Arrays.copyOf(this.position, i * 2);
+                this.count = Arrays.copyOf(this.count, i * 2);
+                this.first = Arrays.copyOf(this.first, i * 2);
+                this.lastOf = Arrays.copyOf(this.lastOf, i * 2);
+            }
+            this.position[i] = position;
+            this.count[i] = count;
+            this.first[i] = first;
+            this.lastOf[i] = last;
+            this.last = Math.max(this.last, last);
+            size = i + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int position(int run) {
+            return position[run];
+        }
+
+        int count(int run) {
+            return count[run];
+        }
+
+        long first(int run) {
+            return first[run];
+        }
+
+        long last(int run) {
+            return lastOf[run];
+        }
+
+        long last() {
+            return last;
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package com.mertani.iot.segment;
+
+import com.mertani.iot.dto.AggregateSeries;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.ReadingListener;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.timeseries.Rollup;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps readings in append-only {@link Segment} files instead of the database,
+ * for installs that should not need PostgreSQL to hold telemetry
+ * ({@code iot.readings.store=segment}). Each UTC day has its own segments; a
+ * batch is sorted by day, sensor and time and appended as frames to the open
+ * segment of each day it touches, rolling over to a new file when one is full.
+ * Readings already stored are skipped, like the database ignores them.
+ * <p>
+ * On startup every segment is recovered read-only, cutting off a frame torn by
+ * a crash; writes after that go to new segments. Segments are flushed to disk
+ * when sealed and on shutdown, so a power loss can lose recent frames but
+ * never leaves a partial one behind. There are no rollups; aggregates are
+ * computed from the readings.
+ */
+@Slf4j
+public class SegmentReadingStore implements ReadingStore {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    // Bounds a frame to a few hundred kilobytes, well inside any segment
+    private static final int FRAME_READINGS = 8192;
+    private static final int MAX_FRAME_BYTES = Segment.FRAME_HEADER_BYTES
+            + FRAME_READINGS * (Segment.RUN_BYTES + Segment.READING_BYTES);
+
+    private final SegmentStoreProperties properties;
+    private final SensorRepository sensorRepository;
+    private final int retentionDays;
+
+    // Serializes appends, closing and expiry
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Segments by epoch day, oldest first within a day
+    private final NavigableMap<Long, List<Segment>> segments = new ConcurrentSkipListMap<>();
+    // Open for appending, least recently written first; only touched by the writer
+    private final LinkedHashMap<Long, Segment> open = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Frame being built
+    private final long[] runSensors = new long[FRAME_READINGS];
+    private final int[] runCounts = new int[FRAME_READINGS];
+    private final long[] times = new long[FRAME_READINGS];
+    private final double[] values = new double[FRAME_READINGS];
+    private int runs;
+    private int readings;
+    private int[] order = new int[0];
+    private int[] scratch = new int[0];
+
+    public SegmentReadingStore(SegmentStoreProperties properties, SensorRepository sensorRepository,
+                               int retentionDays) {
+        if (properties.getSegmentBytes() < 2 * MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("iot.readings.segment.segment-bytes must be at least "
+                    + 2 * MAX_FRAME_BYTES);
+        }
+        this.properties = properties;
+        this.sensorRepository = sensorRepository;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path directory = Path.of(properties.getDirectory());
+        Files.createDirectories(directory);
+        long startedAt = System.nanoTime();
+        int recovered = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "readings-*.seg")) {
+            List<Path> paths = new ArrayList<>();
+            files.forEach(paths::add);
+            // Names sort by day, then sequence
+            paths.sort(null);
+            for (Path path : paths) {
+                Segment segment = Segment.recover(path);
+                if (segment == null) {
+                    log.warn("Skipping unreadable reading segment {}", path);
+                    continue;
+                }
+                segments.computeIfAbsent(segment.day(), day -> new CopyOnWriteArrayList<>()).add(segment);
+                recovered++;
+            }
+        }
+        log.info("Opened {} reading segments in {} in {} ms", recovered, directory,
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void close() {
+        writeLock.lock();
+        try {
+            for (List<Segment> daySegments : segments.values()) {
+                for (Segment segment : daySegments) {
+                    try {
+                        segment.close();
+                    } catch (IOException ex) {
+                        log.error("Closing reading segment {} failed", segment.path(), ex);
+                    }
+                }
+            }
+            open.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void insertAll(ReadingBatch batch) {
+        writeLock.lock();
+        try {
+            int size = batch.size();
+            sort(batch);
+            int i = 0;
+            while (i < size) {
+                long day = Math.floorDiv(batch.timestamp(order[i]), DAY_MILLIS);
+                runs = 0;
+                readings = 0;
+                long previousSensor = 0;
+                long previousTime = 0;
+                for (; i < size && Math.floorDiv(batch.timestamp(order[i]), DAY_MILLIS) == day; i++) {
+                    int index = order[i];
+                    long sensorId = batch.sensorId(index);
+                    long timestamp = batch.timestamp(index);
+                    boolean sameRun = readings > 0 && sensorId == previousSensor;
+                    if ((sameRun && timestamp == previousTime) || stored(day, sensorId, timestamp)) {
+                        continue;
+                    }
+                    if (readings == FRAME_READINGS) {
+                        write(day);
+                        sameRun = false;
+                    }
+                    if (sameRun) {
+                        runCounts[runs - 1]++;
+                    } else {
+                        runSensors[runs] = sensorId;
+                        runCounts[runs] = 1;
+                        runs++;
+                    }
+                    times[readings] = timestamp;
+                    values[readings] = batch.value(index);
+                    readings++;
+                    previousSensor = sensorId;
+                    previousTime = timestamp;
+                }
+                if (readings > 0) {
+                    write(day);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void forEachLatest(ReadingListener sink) {
+        Map<Long, long[]> latest = new HashMap<>();
+        for (List<Segment> daySegments : segments.values()) {
+            for (Segment segment : daySegments) {
+                segment.forEachSensor((sensorId, runs) -> {
+                    int size = runs.size();
+                    for (int r = 0; r < size; r++) {
+                        long[] newest = latest.get(sensorId);
+                        if (newest == null || runs.last(r) > newest[0]) {
+                            int position = runs.position(r) + (runs.count(r) - 1) * Segment.READING_BYTES;
+                            latest.put(sensorId, new long[]{runs.last(r),
+                                    Double.doubleToRawLongBits(segment.value(position))});
+                        }
+                    }
+                });
+            }
+        }
+        List<Long> ids = new ArrayList<>(latest.keySet());
+        // Chunked to keep the IN list reasonable
+        for (int from = 0; from < ids.size(); from += 1000) {
+            for (SensorRef ref : sensorRepository.findRefsByIdIn(ids.subList(from, Math.min(from + 1000, ids.size())))) {
+                long[] newest = latest.get(ref.id());
+                sink.onReading(ref, newest[0], Double.longBitsToDouble(newest[1]));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasRollups() {
+        return false;
+    }
+
+    /**
+     * @param source must be null; segments have no rollups
+     */
+    @Override
+    public Map<Long, AggregateSeries> aggregate(Rollup source, long[] sensorIds, Instant from, Instant to,
+                                                long resolutionMillis) {
+        if (source != null) {
+            throw new IllegalArgumentException("Reading segments have no " + source + " rollup");
+        }
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        long firstBucket = Math.floorDiv(fromMillis, resolutionMillis) * resolutionMillis;
+        int buckets = (int) ((toMillis - firstBucket + resolutionMillis - 1) / resolutionMillis);
+        Map<Long, AggregateSeries> series = new HashMap<>();
+        Buckets sensorBuckets = new Buckets(buckets);
+        NavigableMap<Long, List<Segment>> days = segments.subMap(
+                Math.floorDiv(fromMillis, DAY_MILLIS), true, Math.floorDiv(toMillis - 1, DAY_MILLIS), true);
+        for (long sensorId : sensorIds) {
+            sensorBuckets.clear();
+            for (List<Segment> daySegments : days.values()) {
+                for (Segment segment : daySegments) {
+                    Segment.Runs runs = segment.runs(sensorId);
+                    if (runs == null) {
+                        continue;
+                    }
+                    int size = runs.size();
+                    for (int r = 0; r < size; r++) {
+                        if (runs.last(r) < fromMillis || runs.first(r) >= toMillis) {
+                            continue;
+                        }
+                        int end = runs.position(r) + runs.count(r) * Segment.READING_BYTES;
+                        for (int position = segment.firstAtOrAfter(runs.position(r), runs.count(r), fromMillis);
+                             position < end; position += Segment.READING_BYTES) {
+                            long timestamp = segment.timestamp(position);
+                            if (timestamp >= toMillis) {
+                                break;
+                            }
+                            sensorBuckets.add((int) ((timestamp - firstBucket) / resolutionMillis), timestamp,
+                                    segment.value(position));
+                        }
+                    }
+                }
+            }
+            if (sensorBuckets.nonEmpty > 0) {
+                series.put(sensorId, sensorBuckets.toSeries(sensorId, firstBucket, resolutionMillis));
+            }
+        }
+        return series;
+    }
+
+    /**
+     * A sensor's readings of one day can be spread over several frames and
+     * segments, late ones after later ones, so each day's are gathered and
+     * sorted by time unless they already are.
+     */
+    @Override
+    public void export(long[] sensorIds, Instant from, Instant to, ReadingBatch chunk, Consumer<ReadingBatch> sink) {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        NavigableMap<Long, List<Segment>> days = segments.subMap(
+                Math.floorDiv(fromMillis, DAY_MILLIS), true, Math.floorDiv(toMillis - 1, DAY_MILLIS), true);
+        long[] dayTimes = new long[1024];
+        double[] dayValues = new double[1024];
+        for (long sensorId : sensorIds) {
+            for (Map.Entry<Long, List<Segment>> day : days.entrySet()) {
+                int size = 0;
+                boolean sorted = true;
+                for (Segment segment : day.getValue()) {
+                    Segment.Runs runs = segment.runs(sensorId);
+                    if (runs == null) {
+                        continue;
+                    }
+                    int runCount = runs.size();
+                    for (int r = 0; r < runCount; r++) {
+                        if (runs.last(r) < fromMillis || runs.first(r) >= toMillis) {
+                            continue;
+                        }
+                        int end = runs.position(r) + runs.count(r) * Segment.READING_BYTES;
+                        for (int position = segment.firstAtOrAfter(runs.position(r), runs.count(r), fromMillis);
+                             position < end; position += Segment.READING_BYTES) {
+                            long timestamp = segment.timestamp(position);
+                            if (timestamp >= toMillis) {
+                                break;
+                            }
+                            if (size == dayTimes.length) {
+                                dayTimes = Arrays.copyOf(dayTimes, size * 2);
+                                dayValues = Arrays.copyOf(dayValues, size * 2);
+                            }
+                            sorted &= size == 0 || timestamp > dayTimes[size - 1];
+                            dayTimes[size] = timestamp;
+                            dayValues[size] = segment.value(position);
+                            size++;
+                        }
+                    }
+                }
+                if (sorted) {
+                    for (int i = 0; i < size; i++) {
+                        add(chunk, sink, sensorId, dayTimes[i], dayValues[i]);
+                    }
+                    continue;
+                }
+                // Time into the day in the high half, index in the low half: sorting these sorts both
+                long dayStart = day.getKey() * DAY_MILLIS;
+                long[] byTime = new long[size];
+                for (int i = 0; i < size; i++) {
+                    byTime[i] = (dayTimes[i] - dayStart) << 32 | i;
+                }
+                Arrays.sort(byTime);
+                for (long entry : byTime) {
+                    int i = (int) entry;
+                    add(chunk, sink, sensorId, dayTimes[i], dayValues[i]);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(chunk);
+            chunk.clear();
+        }
+    }
+
+    /**
+     * Deletes the segments of days past {@code iot.readings.retention-days}.
+     */
+    @Scheduled(fixedDelayString = "${iot.readings.partition-check-interval-ms:3600000}",
+            initialDelayString = "${iot.readings.partition-check-interval-ms:3600000}")
+    public void dropExpired() {
+        writeLock.lock();
+        try {
+            if (retentionDays <= 0) {
+                return;
+            }
+            long firstKeptDay = Math.floorDiv(System.currentTimeMillis(), DAY_MILLIS) - retentionDays;
+            NavigableMap<Long, List<Segment>> expired = segments.headMap(firstKeptDay, false);
+            for (Map.Entry<Long, List<Segment>> day : new ArrayList<>(expired.entrySet())) {
+                segments.remove(day.getKey());
+                open.remove(day.getKey());
+                for (Segment segment : day.getValue()) {
+                    try {
+                        segment.delete();
+                    } catch (IOException ex) {
+                        log.error("Deleting reading segment {} failed", segment.path(), ex);
+                    }
+                }
+                log.info("Dropped reading segments of {} past {} days of retention",
+                        LocalDate.ofEpochDay(day.getKey()), retentionDays);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Whether a reading is already in one of the day's segments. Only readings
+     * at or before the sensor's latest one there need the index probe.
+     */
+    private boolean stored(long day, long sensorId, long timestamp) {
+        List<Segment> daySegments = segments.get(day);
+        if (daySegments == null) {
+            return false;
+        }
+        for (Segment segment : daySegments) {
+            if (segment.contains(sensorId, timestamp)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(long day) {
+        int bytes = Segment.FRAME_HEADER_BYTES + runs * Segment.RUN_BYTES + readings * Segment.READING_BYTES;
+        Segment segment = open.get(day);
+        try {
+            if (segment == null || segment.remaining() < bytes) {
+                if (segment != null) {
+                    segment.seal();
+                }
+                segment = create(day);
+            }
+            segment.append(runSensors, runCounts, runs, times, values, readings);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Writing readings of " + LocalDate.ofEpochDay(day) + " failed", ex);
+        }
+        runs = 0;
+        readings = 0;
+    }
+
+    private Segment create(long day) throws IOException {
+        List<Segment> daySegments = segments.computeIfAbsent(day, key -> new CopyOnWriteArrayList<>());
+        // Past unreadable files left behind too
+        Path path;
+        int sequence = daySegments.size();
+        do {
+            path = Path.of(properties.getDirectory(), String.format("readings-%s-%04d.seg",
+                    LocalDate.ofEpochDay(day).format(DAY_FORMAT), sequence++));
+        } while (Files.exists(path));
+        Segment segment = Segment.create(path, day, properties.getSegmentBytes());
+        daySegments.add(segment);
+        open.put(day, segment);
+        if (open.size() > properties.getOpenSegments()) {
+            Map.Entry<Long, Segment> eldest = open.entrySet().iterator().next();
+            open.remove(eldest.getKey());
+            eldest.getValue().seal();
+        }
+        return segment;
+    }
+
+    private static void add(ReadingBatch chunk, Consumer<ReadingBatch> sink, long sensorId, long timestamp,
+                            double value) {
+        chunk.add(sensorId, timestamp, value);
+        if (chunk.size() == chunk.capacity()) {
+            sink.accept(chunk);
+            chunk.clear();
+        }
+    }
+
+    /**
+     * Orders the batch by day, sensor and time into {@link #order}; a merge
+     * sort on indexes, stable and without boxing.
+     */
+    private void sort(ReadingBatch batch) {
+        int size = batch.size();
+        if (order.length < size) {
+            order = new int[size];
+            scratch = new int[size];
+        }
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] from = order;
+        int[] to = scratch;
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                int mid = Math.min(low + width, size);
+                int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = mid;
+                for (int k = low; k < high; k++) {
+                    if (left < mid && (right >= high || compare(batch, from[left], from[right]) <= 0)) {
+                        to[k] = from[left++];
+                    } else {
+                        to[k] = from[right++];
+                    }
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        order = from;
+        scratch = to;
+    }
+
+    private static int compare(ReadingBatch batch, int a, int b) {
+        long timeA = batch.timestamp(a);
+        long timeB = batch.timestamp(b);
+        int byDay = Long.compare(Math.floorDiv(timeA, DAY_MILLIS), Math.floorDiv(timeB, DAY_MILLIS));
+        if (byDay != 0) {
+            return byDay;
+        }
+        int bySensor = Long.compare(batch.sensorId(a), batch.sensorId(b));
+        return bySensor != 0 ? bySensor : Long.compare(timeA, timeB);
+    }
+
+    /** Dense per-bucket accumulators for one sensor, reused across sensors. */
+    private static final class Buckets {
+
+        private final double[] min;
+        private final double[] max;
+        private final double[] sum;
+        private final long[] count;
+        private final double[] last;
+        private final long[] lastAt;
+        private int nonEmpty;
+
+        Buckets(int size) {
+            min = new double[size];
+            max = new double[size];
+            sum = new double[size];
+            count = new long[size];
+            last = new double[size];
+            lastAt = new long[size];
+        }
+
+        void clear() {
+            Arrays.fill(count, 0);
+            nonEmpty = 0;
+        }
+
+        void add(int bucket, long timestamp, double value) {
+            if (count[bucket] == 0) {
+                min[bucket] = value;
+                max[bucket] = value;
+                sum[bucket] = value;
+                last[bucket] = value;
+                lastAt[bucket] = timestamp;
+                nonEmpty++;
+            } else {
+                min[bucket] = Math.min(min[bucket], value);
+                max[bucket] = Math.max(max[bucket], value);
+                sum[bucket] += value;
+                if (timestamp >= lastAt[bucket]) {
+                    last[bucket] = value;
+                    lastAt[bucket] = timestamp;
+                }
+            }
+            count[bucket]++;
+        }
+
+        AggregateSeries toSeries(long id, long firstBucket, long resolutionMillis) {
+            long[] starts = new long[nonEmpty];
+            double[] mins = new double[nonEmpty];
+            double[] maxes = new double[nonEmpty];
+            double[] avgs = new double[nonEmpty];
+            long[] counts = new long[nonEmpty];
+            double[] lasts = new double[nonEmpty];
+            int j = 0;
+            for (int i = 0; i < count.length; i++) {
+                if (count[i] > 0) {
+                    starts[j] = firstBucket + i * resolutionMillis;
+                    mins[j] = min[i];
+                    maxes[j] = max[i];
+                    avgs[j] = sum[i] / count[i];
+                    counts[j] = count[i];
+                    lasts[j] = last[i];
+                    j++;
+                }
+            }
+            return AggregateSeries.builder()
+                    .id(id)
+                    .buckets(starts)
+                    .min(mins)
+                    .max(maxes)
+                    .avg(avgs)
+                    .count(counts)
+                    .last(lasts)
+                    .build();
+        }
+    }
+}
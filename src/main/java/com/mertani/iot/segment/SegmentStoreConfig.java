@@ -0,0 +1,24 @@
+package com.mertani.iot.segment;
+
+import com.mertani.iot.repository.SensorRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Readings in segment files ({@code iot.readings.store=segment}), see {@link SegmentReadingStore}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "iot.readings.store", havingValue = "segment")
+@EnableConfigurationProperties(SegmentStoreProperties.class)
+public class SegmentStoreConfig {
+
+    @Bean
+    SegmentReadingStore segmentReadingStore(SegmentStoreProperties properties,
+                                            SensorRepository sensorRepository,
+                                            @Value("${iot.readings.retention-days:0}") int retentionDays) {
+        return new SegmentReadingStore(properties, sensorRepository, retentionDays);
+    }
+}
@@ -0,0 +1,21 @@
+package com.mertani.iot.segment;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Segment files of the {@link SegmentReadingStore}, bound from {@code iot.readings.segment.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "iot.readings.segment")
+public class SegmentStoreProperties {
+
+    /** Directory the segment files live in. */
+    private String directory = "data/readings";
+
+    /** Size a segment is mapped at; a full one is sealed and trimmed to its contents. */
+    private int segmentBytes = 64 * 1024 * 1024;
+
+    /** Segments kept open for appending, one per recently written day. */
+    private int openSegments = 4;
+}
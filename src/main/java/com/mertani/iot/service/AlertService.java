@@ -0,0 +1,40 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.dto.AlertResponse;
+import com.mertani.iot.dto.CursorPageResponse;
+import com.mertani.iot.mapper.AlertMapper;
+import com.mertani.iot.repository.AlertRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Read access to the alerts raised by {@link com.mertani.iot.alert.AlertEngine}.
+ */
+@Service
+@RequiredArgsConstructor
+@Timed(value = "iot.service", histogram = true)
+public class AlertService {
+
+    private final AlertRepository alertRepository;
+    private final AlertMapper alertMapper;
+
+    /**
+     * @param open null for all alerts, true for open ones only, false for resolved ones only
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<AlertResponse> getAlertsPage(Boolean open, Long deviceId, Long sensorId,
+                                                           Long after, int limit) {
+        int pageSize = CursorPageResponse.clampLimit(limit);
+        List<AlertResponse> rows = alertRepository
+                .findPageAfter(after == null ? 0L : after, open, deviceId, sensorId, Limit.of(pageSize + 1))
+                .stream()
+                .map(alertMapper::toDto)
+                .toList();
+        return CursorPageResponse.of(rows, pageSize, AlertResponse::getId);
+    }
+}
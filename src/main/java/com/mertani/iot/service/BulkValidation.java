@@ -0,0 +1,34 @@
+package com.mertani.iot.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bean validation for items of bulk requests, which are validated one by one so
+ * a single bad item doesn't reject the whole batch.
+ */
+final class BulkValidation {
+
+    private BulkValidation() {
+    }
+
+    /**
+     * @return the violations formatted like the single-item validation error, or null if the item is valid
+     */
+    static String violations(Validator validator, Object item) {
+        if (item == null) {
+            return "Item is required";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -1,5 +1,9 @@
 package com.mertani.iot.service;
 
+import com.mertani.iot.cache.InventoryCache;
+import com.mertani.iot.dto.BulkCreateResponse;
+import com.mertani.iot.dto.BulkItemError;
+import com.mertani.iot.dto.CursorPageResponse;
 import com.mertani.iot.dto.DeviceRequest;
 import com.mertani.iot.dto.DeviceResponse;
 import com.mertani.iot.dto.SensorResponse;
@@ -8,20 +12,39 @@ import com.mertani.iot.exception.DuplicateSerialNumberException;
 import com.mertani.iot.mapper.DeviceMapper;
 import com.mertani.iot.model.Device;
 import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.stream.SensorChangedEvent;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "iot.service", histogram = true)
 public class DeviceService {
 
     private final DeviceRepository deviceRepository;
     private final SensorService sensorService;
     private final DeviceMapper deviceMapper;
+    private final InventoryCache inventoryCache;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public DeviceResponse createDevice(DeviceRequest request) {
@@ -37,26 +60,100 @@ public class DeviceService {
         return deviceMapper.toDto(savedDevice);
     }
 
+    /**
+     * Creates many devices in one transaction. Serial numbers are checked with a
+     * single query for the whole batch and rows are inserted in JDBC batches;
+     * invalid or duplicate items are reported per index and skipped.
+     */
+    @Transactional
+    public BulkCreateResponse<DeviceResponse> createDevices(List<DeviceRequest> requests) {
+        List<BulkItemError> errors = new ArrayList<>();
+        Set<String> existing = new HashSet<>(deviceRepository.findExistingSerialNumbers(
+                requests.stream().filter(Objects::nonNull)
+                        .map(DeviceRequest::getSerialNumber).filter(Objects::nonNull).toList()));
+
+        Set<String> seen = new HashSet<>();
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            DeviceRequest request = requests.get(i);
+            String violations = BulkValidation.violations(validator, request);
+            if (violations != null) {
+                errors.add(new BulkItemError(i, violations));
+            } else if (existing.contains(request.getSerialNumber()) || !seen.add(request.getSerialNumber())) {
+                errors.add(new BulkItemError(i, "Device with serial number " + request.getSerialNumber() + " already exists"));
+            } else {
+                devices.add(deviceMapper.toEntity(request));
+            }
+        }
+
+        List<DeviceResponse> created = deviceRepository.saveAll(devices).stream()
+                .map(deviceMapper::toDto)
+                .collect(Collectors.toList());
+        return new BulkCreateResponse<>(created, errors);
+    }
+
+    @Cacheable(cacheNames = InventoryCache.DEVICES, key = "#id")
+    @Transactional(readOnly = true)
     public DeviceResponse getDeviceById(Long id) {
-        Device device = deviceRepository.findById(id)
+        DeviceResponse response = deviceRepository.findResponseById(id)
                 .orElseThrow(() -> new DeviceNotFoundException("Device not found with id: " + id));
         
         // Get sensors for this device
-        List<SensorResponse> sensors = sensorService.getSensorsByDeviceId(device.getId());
-        DeviceResponse response = deviceMapper.toDto(device);
-        response.setSensors(sensors);
+        response.setSensors(sensorService.getSensorsByDeviceId(id));
         
         return response;
     }
 
+    @Transactional(readOnly = true)
     public List<DeviceResponse> getAllDevices() {
-        return deviceRepository.findAll().stream()
-                .map(device -> {
-                    DeviceResponse response = deviceMapper.toDto(device);
-                    response.setSensors(sensorService.getSensorsByDeviceId(device.getId()));
-                    return response;
-                })
-                .collect(Collectors.toList());
+        // Two queries in total: all devices, then all sensors grouped by device in memory
+        List<DeviceResponse> devices = deviceRepository.findAllResponses();
+        Map<Long, List<SensorResponse>> sensorsByDevice = sensorService.getSensorsGroupedByDeviceId();
+
+        devices.forEach(device ->
+                device.setSensors(sensorsByDevice.getOrDefault(device.getId(), Collections.emptyList())));
+        return devices;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponse<DeviceResponse> getDevicesPage(Long after, int limit) {
+        int pageSize = CursorPageResponse.clampLimit(limit);
+        List<DeviceResponse> devices = deviceRepository
+                .findResponsesAfter(after == null ? 0L : after, Limit.of(pageSize + 1));
+
+        // Sensors for the whole page come from one IN query
+        Map<Long, List<SensorResponse>> sensorsByDevice = sensorService.getSensorsByDeviceIds(
+                devices.stream().limit(pageSize).map(DeviceResponse::getId).collect(Collectors.toList()));
+
+        devices.forEach(device ->
+                device.setSensors(sensorsByDevice.getOrDefault(device.getId(), Collections.emptyList())));
+        return CursorPageResponse.of(devices, pageSize, DeviceResponse::getId);
+    }
+
+    /**
+     * Streams every device with its sensors to {@code sink}. Devices and sensors
+     * come from two cursors ordered by device id and are merged as they are read,
+     * so only one device's sensors are held in memory at a time.
+     */
+    @Transactional(readOnly = true)
+    public void exportDevices(Consumer<DeviceResponse> sink) {
+        try (Stream<DeviceResponse> devices = deviceRepository.streamAllResponses();
+             Stream<SensorResponse> sensors = sensorService.streamSensorsOrderedByDeviceId()) {
+            Iterator<SensorResponse> sensorCursor = sensors.iterator();
+            SensorResponse next = sensorCursor.hasNext() ? sensorCursor.next() : null;
+            for (Iterator<DeviceResponse> deviceCursor = devices.iterator(); deviceCursor.hasNext(); ) {
+                DeviceResponse device = deviceCursor.next();
+                List<SensorResponse> deviceSensors = new ArrayList<>();
+                while (next != null && next.getDeviceId() <= device.getId()) {
+                    if (next.getDeviceId().equals(device.getId())) {
+                        deviceSensors.add(next);
+                    }
+                    next = sensorCursor.hasNext() ? sensorCursor.next() : null;
+                }
+                device.setSensors(deviceSensors);
+                sink.accept(device);
+            }
+        }
     }
 
     @Transactional
@@ -78,7 +175,10 @@ public class DeviceService {
         device.setActive(request.isActive());
 
         Device updatedDevice = deviceRepository.save(device);
-        return deviceMapper.toDto(updatedDevice);
+        inventoryCache.evictDevice(id);
+        DeviceResponse response = deviceMapper.toDto(updatedDevice);
+        response.setSensors(sensorService.getSensorsByDeviceId(updatedDevice.getId()));
+        return response;
     }
 
     @Transactional
@@ -86,6 +186,10 @@ public class DeviceService {
         if (!deviceRepository.existsById(id)) {
             throw new DeviceNotFoundException("Device not found with id: " + id);
         }
+        List<SensorResponse> sensors = sensorService.getSensorsByDeviceId(id);
         deviceRepository.deleteById(id);
+        inventoryCache.evictDeviceWithSensors(id);
+        // The sensors go with the device by cascade, without SensorService seeing them removed
+        sensors.forEach(sensor -> eventPublisher.publishEvent(SensorChangedEvent.removed(id, sensor.getId())));
     }
 }
@@ -0,0 +1,62 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.LatestReadingResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.telemetry.LatestReading;
+import com.mertani.iot.telemetry.LatestReadings;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Current sensor values, served from {@link LatestReadings} rather than the
+ * readings table.
+ */
+@Service
+@RequiredArgsConstructor
+@Timed(value = "iot.service", histogram = true)
+public class LatestReadingService {
+
+    private final DeviceService deviceService;
+    private final LatestReadings latestReadings;
+
+    /**
+     * @return the newest reading of each of the device's sensors that has one
+     */
+    public List<LatestReadingResponse> getDeviceLatest(Long deviceId) {
+        // Cached, and fails with DeviceNotFoundException for unknown devices
+        DeviceResponse device = deviceService.getDeviceById(deviceId);
+        List<LatestReadingResponse> readings = new ArrayList<>(device.getSensors().size());
+        for (SensorResponse sensor : device.getSensors()) {
+            LatestReading reading = latestReadings.get(sensor.getId());
+            if (reading != null) {
+                readings.add(toDto(reading));
+            }
+        }
+        return readings;
+    }
+
+    /**
+     * @return the newest reading of every sensor that has one, in no particular order
+     */
+    public List<LatestReadingResponse> getFleetLatest() {
+        List<LatestReadingResponse> readings = new ArrayList<>(latestReadings.size());
+        latestReadings.forEach(reading -> readings.add(toDto(reading)));
+        return readings;
+    }
+
+    private static LatestReadingResponse toDto(LatestReading reading) {
+        return LatestReadingResponse.builder()
+                .id(reading.sensor().id())
+                .sensorId(reading.sensor().sensorId())
+                .deviceId(reading.sensor().deviceId())
+                .timestamp(Instant.ofEpochMilli(reading.timestamp()))
+                .value(reading.value())
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.exception.InvalidReadingQueryException;
+import com.mertani.iot.exception.SensorNotFoundException;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.SensorRef;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Exports the raw readings of a set of sensors over any time range for
+ * analytics. Readings are streamed from the {@link ReadingStore} in columnar
+ * chunks of {@code iot.readings.export-chunk-size}, each passed on before the
+ * next is read, so memory use does not grow with the range.
+ */
+@Service
+@Timed(value = "iot.service", histogram = true)
+public class ReadingExportService {
+
+    public static final int MAX_SENSORS = 1000;
+
+    private final SensorRepository sensorRepository;
+    private final ReadingStore readingStore;
+    private final int chunkSize;
+
+    public ReadingExportService(SensorRepository sensorRepository,
+                                ReadingStore readingStore,
+                                @Value("${iot.readings.export-chunk-size:65536}") int chunkSize) {
+        this.sensorRepository = sensorRepository;
+        this.readingStore = readingStore;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Checks an export before anything is written, so that a bad request gets an
+     * error status rather than a stream cut short.
+     *
+     * @return the sensors' primary keys in the order given, without repeats
+     * @throws InvalidReadingQueryException if the range is empty, or there are no or too many sensors
+     * @throws SensorNotFoundException      if a sensor doesn't exist
+     */
+    @Transactional(readOnly = true)
+    public long[] checkExport(List<Long> sensorIds, Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            throw new InvalidReadingQueryException("'from' must be before 'to'");
+        }
+        Set<Long> ids = new LinkedHashSet<>(sensorIds);
+        if (ids.isEmpty() || ids.size() > MAX_SENSORS) {
+            throw new InvalidReadingQueryException("An export takes 1 to " + MAX_SENSORS + " sensors, not "
+                    + ids.size());
+        }
+        Set<Long> found = sensorRepository.findRefsByIdIn(ids).stream()
+                .map(SensorRef::id)
+                .collect(Collectors.toSet());
+        for (Long id : ids) {
+            if (!found.contains(id)) {
+                throw new SensorNotFoundException("Sensor not found with id: " + id);
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Passes the readings of {@code [from, to)} to {@code sink} in chunks,
+     * sensor by sensor in the order given and each sensor's in time order. A
+     * chunk is reused once the sink returns.
+     */
+    @Transactional(readOnly = true)
+    public void exportReadings(long[] sensorIds, Instant from, Instant to, Consumer<ReadingBatch> sink) {
+        readingStore.export(sensorIds, from, to, new ReadingBatch(chunkSize), sink);
+    }
+}
@@ -0,0 +1,210 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.dto.ReadingImportResponse;
+import com.mertani.iot.exception.InvalidReadingImportException;
+import com.mertani.iot.exception.ReadingImportInProgressException;
+import com.mertani.iot.exception.ReadingImportNotFoundException;
+import com.mertani.iot.model.ReadingImport;
+import com.mertani.iot.repository.ReadingImportRepository;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.LatestReadings;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.ReadingCsvReader;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.timeseries.ReadingTimeWindow;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Imports historical readings from CSV (see {@link ReadingCsvReader}), e.g. when
+ * migrating a customer from another platform. The file is read line by line
+ * and sensor IDs are mapped through a dictionary of every sensor, inactive
+ * ones included, loaded once per import, so neither memory nor queries grow
+ * with its size. Readings are written in chunks through
+ * {@link ReadingStore#load}, a binary COPY on PostgreSQL, and the progress in
+ * {@link ReadingImport} is saved after each chunk. Sending the same file under
+ * the same import ID resumes after the last chunk saved; a chunk written just
+ * before a crash may be written twice, which stores nothing new.
+ * <p>
+ * Imported readings skip the ingest listeners, so history raises no alerts;
+ * only {@link LatestReadings} sees them, in case they are newer than what is
+ * stored. Readings outside the {@link ReadingTimeWindow} are rejected, though
+ * an import reaches further back than ingest.
+ */
+@Slf4j
+@Timed(value = "iot.service", histogram = true)
+@Service
+public class ReadingImportService {
+
+    private static final Pattern IMPORT_ID = Pattern.compile("[A-Za-z0-9._-]{1,100}");
+    private static final int MAX_UNKNOWN_SENSOR_IDS = 100;
+
+    private final SensorRepository sensorRepository;
+    private final ReadingImportRepository importRepository;
+    private final ReadingStore readingStore;
+    private final LatestReadings latestReadings;
+    private final ReadingTimeWindow window;
+    private final int chunkSize;
+
+    // Imports running on this instance; a second request for one of them is turned away
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public ReadingImportService(SensorRepository sensorRepository,
+                                ReadingImportRepository importRepository,
+                                ReadingStore readingStore,
+                                LatestReadings latestReadings,
+                                ReadingTimeWindow window,
+                                @Value("${iot.readings.import-chunk-size:50000}") int chunkSize) {
+        this.sensorRepository = sensorRepository;
+        this.importRepository = importRepository;
+        this.readingStore = readingStore;
+        this.latestReadings = latestReadings;
+        this.window = window;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports a CSV file, or resumes importing it.
+     *
+     * @param importId names the import; letters, digits, {@code .}, {@code _} and {@code -}
+     * @throws InvalidReadingImportException     if the ID or CSV header is invalid, or the CSV is
+     *                                           shorter than what was already imported under the ID
+     * @throws ReadingImportInProgressException if the import is already running
+     */
+    public ReadingImportResponse importCsv(String importId, InputStream csv) throws IOException {
+        if (!IMPORT_ID.matcher(importId).matches()) {
+            throw new InvalidReadingImportException(
+                    "Import ID must be 1 to 100 letters, digits, '.', '_' or '-': " + importId);
+        }
+        if (!running.add(importId)) {
+            throw new ReadingImportInProgressException("Import is already running: " + importId);
+        }
+        try {
+            ReadingImport progress = importRepository.findById(importId).orElse(null);
+            if (progress != null && progress.getStatus() == ReadingImport.Status.COMPLETED) {
+                return toDto(progress, progress.getLines(), Set.of());
+            }
+            Instant now = Instant.now();
+            if (progress == null) {
+                progress = ReadingImport.builder().id(importId).startedAt(now).build();
+            }
+            progress.setStatus(ReadingImport.Status.RUNNING);
+            progress.setUpdatedAt(now);
+            progress = importRepository.save(progress);
+
+            long resumedFrom = progress.getLines();
+            Set<String> unknownSensorIds = new LinkedHashSet<>();
+            try {
+                progress = load(progress, csv, unknownSensorIds);
+            } catch (RuntimeException | IOException ex) {
+                // As of the last chunk saved
+                ReadingImport failed = importRepository.findById(importId).orElse(progress);
+                failed.setStatus(ReadingImport.Status.FAILED);
+                failed.setUpdatedAt(Instant.now());
+                importRepository.save(failed);
+                throw ex;
+            }
+            log.info("Imported {} readings ({} rejected) from {} lines of {}", progress.getAccepted(),
+                    progress.getRejected(), progress.getLines(), importId);
+            return toDto(progress, resumedFrom, unknownSensorIds);
+        } finally {
+            running.remove(importId);
+        }
+    }
+
+    public ReadingImportResponse getImport(String importId) {
+        return importRepository.findById(importId)
+                .map(progress -> toDto(progress, progress.getLines(), null))
+                .orElseThrow(() -> new ReadingImportNotFoundException("Import not found with id: " + importId));
+    }
+
+    private ReadingImport load(ReadingImport progress, InputStream csv, Set<String> unknownSensorIds)
+            throws IOException {
+        ReadingCsvReader reader = new ReadingCsvReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        if (reader.skip(progress.getLines()) < progress.getLines()) {
+            throw new InvalidReadingImportException("CSV has fewer lines than were already imported under "
+                    + progress.getId() + " (" + progress.getLines() + ")");
+        }
+        Map<String, SensorRef> dictionary = new HashMap<>();
+        for (SensorRef ref : sensorRepository.findAllRefs()) {
+            dictionary.put(ref.sensorId(), ref);
+        }
+        long from = window.importFrom();
+        long to = window.to();
+
+        ReadingBatch chunk = new ReadingBatch(chunkSize);
+        SensorRef[] refs = new SensorRef[chunkSize];
+        long accepted = progress.getAccepted();
+        long rejected = progress.getRejected();
+        while (reader.next()) {
+            SensorRef ref = reader.isValid() ? dictionary.get(reader.sensorId()) : null;
+            if (ref == null || reader.timestamp() < from || reader.timestamp() > to) {
+                if (reader.isValid() && ref == null && unknownSensorIds.size() < MAX_UNKNOWN_SENSOR_IDS) {
+                    unknownSensorIds.add(reader.sensorId());
+                }
+                rejected++;
+                continue;
+            }
+            refs[chunk.size()] = ref;
+            chunk.add(ref.id(), reader.timestamp(), reader.value());
+            accepted++;
+            if (chunk.size() == chunkSize) {
+                write(chunk, refs);
+                progress = saveProgress(progress, reader.lines(), accepted, rejected, ReadingImport.Status.RUNNING);
+            }
+        }
+        write(chunk, refs);
+        return saveProgress(progress, reader.lines(), accepted, rejected, ReadingImport.Status.COMPLETED);
+    }
+
+    private void write(ReadingBatch chunk, SensorRef[] refs) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        readingStore.load(chunk);
+        for (int i = 0; i < chunk.size(); i++) {
+            latestReadings.onReading(refs[i], chunk.timestamp(i), chunk.value(i));
+        }
+        chunk.clear();
+    }
+
+    private ReadingImport saveProgress(ReadingImport progress, long lines, long accepted, long rejected,
+                                       ReadingImport.Status status) {
+        progress.setLines(lines);
+        progress.setAccepted(accepted);
+        progress.setRejected(rejected);
+        progress.setStatus(status);
+        progress.setUpdatedAt(Instant.now());
+        return importRepository.save(progress);
+    }
+
+    private static ReadingImportResponse toDto(ReadingImport progress, long resumedFrom,
+                                               Set<String> unknownSensorIds) {
+        return ReadingImportResponse.builder()
+                .importId(progress.getId())
+                .status(progress.getStatus())
+                .lines(progress.getLines())
+                .resumedFrom(resumedFrom)
+                .accepted(progress.getAccepted())
+                .rejected(progress.getRejected())
+                .unknownSensorIds(unknownSensorIds)
+                .startedAt(progress.getStartedAt())
+                .updatedAt(progress.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,195 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.dto.AggregateResponse;
+import com.mertani.iot.dto.AggregateSeries;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.ReadingAggregate;
+import com.mertani.iot.dto.ReadingSeriesResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.exception.InvalidReadingQueryException;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.timeseries.Rollup;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Historical readings of a sensor or device at a requested resolution, read
+ * from the coarsest {@link Rollup} that can answer exactly and from the raw
+ * readings only when none can, or when the {@link ReadingStore} has no rollups.
+ */
+@Service
+@Timed(value = "iot.service", histogram = true)
+public class ReadingQueryService {
+
+    private static final List<Rollup> COARSEST_FIRST = List.of(Rollup.DAY, Rollup.HOUR, Rollup.MINUTE);
+
+    private final SensorService sensorService;
+    private final DeviceService deviceService;
+    private final ReadingStore readingStore;
+    private final int maxPoints;
+
+    public ReadingQueryService(SensorService sensorService,
+                               DeviceService deviceService,
+                               ReadingStore readingStore,
+                               @Value("${iot.readings.max-points:10000}") int maxPoints) {
+        this.sensorService = sensorService;
+        this.deviceService = deviceService;
+        this.readingStore = readingStore;
+        this.maxPoints = maxPoints;
+    }
+
+    /**
+     * @param resolution bucket size, ISO-8601 ({@code PT1H}) or simple ({@code 1h}); whole seconds
+     * @throws InvalidReadingQueryException if the range or resolution is unusable
+     */
+    @Transactional(readOnly = true)
+    public ReadingSeriesResponse getSeries(Long sensorId, Instant from, Instant to, String resolution) {
+        Duration bucket = validate(from, to, resolution);
+        // Fails with SensorNotFoundException for unknown sensors
+        sensorService.getSensorById(sensorId);
+
+        Rollup source = readingStore.hasRollups() ? source(from, to, bucket) : null;
+        AggregateSeries found = readingStore.aggregate(source, new long[]{sensorId}, from, to, bucket.toMillis())
+                .get(sensorId);
+        List<ReadingAggregate> points = found == null ? List.of() : points(found);
+        return ReadingSeriesResponse.builder()
+                .sensorId(sensorId)
+                .from(from)
+                .to(to)
+                .resolution(bucket.toString())
+                .source(label(source))
+                .points(points)
+                .build();
+    }
+
+    /**
+     * Like {@link #getSeries}, with the newest value of each bucket, as arrays.
+     *
+     * @throws InvalidReadingQueryException if the range or resolution is unusable
+     */
+    @Transactional(readOnly = true)
+    public AggregateResponse getSensorAggregate(Long sensorId, Instant from, Instant to, String resolution) {
+        Duration bucket = validate(from, to, resolution);
+        // Fails with SensorNotFoundException for unknown sensors
+        SensorResponse sensor = sensorService.getSensorById(sensorId);
+        return aggregate(List.of(sensor), from, to, bucket);
+    }
+
+    /**
+     * {@link #getSensorAggregate} for every sensor of a device at once, in one
+     * query. Sensors without readings in the range get empty arrays.
+     *
+     * @throws InvalidReadingQueryException if the range or resolution is unusable
+     */
+    @Transactional(readOnly = true)
+    public AggregateResponse getDeviceAggregate(Long deviceId, Instant from, Instant to, String resolution) {
+        Duration bucket = validate(from, to, resolution);
+        // Cached, and fails with DeviceNotFoundException for unknown devices
+        DeviceResponse device = deviceService.getDeviceById(deviceId);
+        return aggregate(device.getSensors(), from, to, bucket);
+    }
+
+    private AggregateResponse aggregate(List<SensorResponse> sensors, Instant from, Instant to, Duration bucket) {
+        Rollup source = readingStore.hasRollups() ? source(from, to, bucket) : null;
+        long[] ids = sensors.stream().mapToLong(SensorResponse::getId).toArray();
+        Map<Long, AggregateSeries> found = ids.length == 0
+                ? Map.of()
+                : readingStore.aggregate(source, ids, from, to, bucket.toMillis());
+        List<AggregateSeries> series = new ArrayList<>(sensors.size());
+        for (SensorResponse sensor : sensors) {
+            AggregateSeries sensorSeries = found.getOrDefault(sensor.getId(), empty(sensor.getId()));
+            sensorSeries.setSensorId(sensor.getSensorId());
+            series.add(sensorSeries);
+        }
+        return AggregateResponse.builder()
+                .from(from)
+                .to(to)
+                .resolution(bucket.toString())
+                .source(label(source))
+                .series(series)
+                .build();
+    }
+
+    /**
+     * The coarsest rollup whose buckets divide the requested ones and line up
+     * with both ends of the range, so no rollup bucket straddles a boundary.
+     *
+     * @return null if only the raw readings can answer exactly
+     */
+    static Rollup source(Instant from, Instant to, Duration resolution) {
+        for (Rollup rollup : COARSEST_FIRST) {
+            long size = rollup.bucketMillis();
+            if (resolution.toMillis() % size == 0
+                    && from.toEpochMilli() % size == 0
+                    && to.toEpochMilli() % size == 0) {
+                return rollup;
+            }
+        }
+        return null;
+    }
+
+    private Duration validate(Instant from, Instant to, String resolution) {
+        Duration bucket = parseResolution(resolution);
+        if (!from.isBefore(to)) {
+            throw new InvalidReadingQueryException("'from' must be before 'to'");
+        }
+        long buckets = Duration.between(from, to).toMillis() / bucket.toMillis();
+        if (buckets > maxPoints) {
+            throw new InvalidReadingQueryException("Range and resolution give " + buckets
+                    + " buckets, more than the limit of " + maxPoints);
+        }
+        return bucket;
+    }
+
+    private static String label(Rollup source) {
+        return source == null ? "raw" : source.label();
+    }
+
+    private static List<ReadingAggregate> points(AggregateSeries series) {
+        List<ReadingAggregate> points = new ArrayList<>(series.getBuckets().length);
+        for (int i = 0; i < series.getBuckets().length; i++) {
+            points.add(ReadingAggregate.builder()
+                    .bucket(Instant.ofEpochMilli(series.getBuckets()[i]))
+                    .min(series.getMin()[i])
+                    .max(series.getMax()[i])
+                    .avg(series.getAvg()[i])
+                    .count(series.getCount()[i])
+                    .build());
+        }
+        return points;
+    }
+
+    private static AggregateSeries empty(Long id) {
+        return AggregateSeries.builder()
+                .id(id)
+                .buckets(new long[0])
+                .min(new double[0])
+                .max(new double[0])
+                .avg(new double[0])
+                .count(new long[0])
+                .last(new double[0])
+                .build();
+    }
+
+    private static Duration parseResolution(String resolution) {
+        Duration bucket;
+        try {
+            bucket = DurationStyle.detectAndParse(resolution);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidReadingQueryException("Invalid resolution: " + resolution);
+        }
+        if (bucket.compareTo(Duration.ofSeconds(1)) < 0 || bucket.getNano() != 0) {
+            throw new InvalidReadingQueryException("Resolution must be a whole number of seconds: " + resolution);
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.cache.InventoryCache;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.SensorRef;
+import org.springframework.cache.Cache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps external {@code sensorId} strings to active sensors. Hits are served from
+ * the {@link InventoryCache#SENSOR_IDS} cache; all misses of one call are resolved
+ * together with a single {@code IN} query, so ingest never issues a lookup per
+ * reading. Entries are evicted by {@link InventoryCache} whenever a sensor changes.
+ * <p>
+ * Misses are looked up in a read-write transaction: with read replicas configured
+ * that keeps them on the primary, so readings for a sensor created a moment ago
+ * aren't rejected as unknown. Calls served from the cache open no transaction.
+ */
+@Component
+public class SensorIdResolver {
+
+    private final SensorRepository sensorRepository;
+    private final InventoryCache inventoryCache;
+    private final TransactionTemplate transactionTemplate;
+
+    public SensorIdResolver(SensorRepository sensorRepository,
+                            InventoryCache inventoryCache,
+                            PlatformTransactionManager transactionManager) {
+        this.sensorRepository = sensorRepository;
+        this.inventoryCache = inventoryCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * @return refs of the given sensor IDs that exist and are active; unknown or
+     * inactive sensors are absent from the result
+     */
+    public Map<String, SensorRef> resolve(Collection<String> sensorIds) {
+        Cache refs = inventoryCache.sensorIds();
+        Map<String, SensorRef> resolved = new HashMap<>();
+        Set<String> misses = null;
+        for (String sensorId : sensorIds) {
+            SensorRef ref = refs.get(sensorId, SensorRef.class);
+            if (ref != null) {
+                resolved.put(sensorId, ref);
+            } else {
+                if (misses == null) {
+                    misses = new HashSet<>();
+                }
+                misses.add(sensorId);
+            }
+        }
+
+        if (misses != null) {
+            Set<String> missing = misses;
+            List<SensorRef> loaded = transactionTemplate.execute(
+                    status -> sensorRepository.findActiveRefsBySensorIdIn(missing));
+            for (SensorRef ref : loaded) {
+                refs.put(ref.sensorId(), ref);
+                resolved.put(ref.sensorId(), ref);
+            }
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,319 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.dto.SensorReadingIngestResponse;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.exception.ReadingBufferFullException;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.repository.WriteFailures;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.ReadingBuffer;
+import com.mertani.iot.telemetry.ReadingFrame;
+import com.mertani.iot.telemetry.ReadingFrameDecoder;
+import com.mertani.iot.telemetry.ReadingListener;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.timeseries.ReadingTimeWindow;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Accepts sensor readings into an in-memory {@link ReadingBuffer} and writes them
+ * to the {@link ReadingStore} in batches, either on a fixed schedule or as soon as the
+ * buffer fills up. A full buffer is flushed by the producing thread itself, which
+ * gives callers natural backpressure when storage falls behind. Every
+ * accepted reading is also handed to the registered {@link ReadingListener}s.
+ * Readings outside the {@link ReadingTimeWindow} are rejected.
+ * <p>
+ * A batch whose write fails because storage is unavailable is kept and written
+ * again by the following scheduled flushes, up to {@code iot.readings.write-attempts}
+ * in all; meanwhile new readings stay in the buffer, and once it is full ingest
+ * fails with {@link ReadingBufferFullException} rather than retrying from the
+ * producing thread. A batch the store rejects is split until the offending
+ * readings are found, and only those are dropped.
+ */
+@Slf4j
+@Timed(value = "iot.service", histogram = true)
+@Service
+public class SensorReadingService {
+
+    private final SensorIdResolver sensorIdResolver;
+    private final ReadingStore readingStore;
+    private final ReadingBuffer buffer;
+    private final ReadingListener[] listeners;
+    private final ReadingTimeWindow window;
+    private final int writeAttempts;
+    private final Counter dropped;
+
+    // Guards the spare and retried batches; only one flush writes at a time
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ReadingBatch spare;
+    private ReadingBatch retry;
+    private int retryAttempts;
+
+    public SensorReadingService(SensorIdResolver sensorIdResolver,
+                                ReadingStore readingStore,
+                                @Value("${iot.readings.buffer-size:10000}") int bufferSize,
+                                List<ReadingListener> listeners,
+                                ReadingTimeWindow window,
+                                @Value("${iot.readings.write-attempts:5}") int writeAttempts,
+                                MeterRegistry meterRegistry) {
+        this.sensorIdResolver = sensorIdResolver;
+        this.readingStore = readingStore;
+        this.listeners = listeners.toArray(new ReadingListener[0]);
+        this.window = window;
+        this.writeAttempts = writeAttempts;
+        this.buffer = new ReadingBuffer(bufferSize);
+        this.spare = new ReadingBatch(bufferSize);
+        this.dropped = Counter.builder("iot.readings.dropped")
+                .description("Accepted sensor readings that could not be written")
+                .register(meterRegistry);
+    }
+
+    public SensorReadingIngestResponse ingest(List<SensorReadingRequest> readings) {
+        Set<String> sensorIds = new HashSet<>();
+        for (SensorReadingRequest reading : readings) {
+            if (reading.getSensorId() != null) {
+                sensorIds.add(reading.getSensorId());
+            }
+        }
+        Map<String, SensorRef> refs = sensorIdResolver.resolve(sensorIds);
+        long from = window.from();
+        long to = window.to();
+
+        int accepted = 0;
+        Set<String> unknownSensorIds = new LinkedHashSet<>();
+        for (SensorReadingRequest reading : readings) {
+            if (reading.getSensorId() == null || reading.getTimestamp() == null || reading.getValue() == null) {
+                continue;
+            }
+            SensorRef ref = refs.get(reading.getSensorId());
+            if (ref == null) {
+                unknownSensorIds.add(reading.getSensorId());
+                continue;
+            }
+            long timestamp = reading.getTimestamp().toEpochMilli();
+            if (timestamp < from || timestamp > to) {
+                continue;
+            }
+            append(ref, timestamp, reading.getValue());
+            accepted++;
+        }
+
+        return SensorReadingIngestResponse.builder()
+                .accepted(accepted)
+                .rejected(readings.size() - accepted)
+                .unknownSensorIds(unknownSensorIds)
+                .build();
+    }
+
+    /**
+     * Ingests a body in the binary frame format of {@link ReadingFrameDecoder}.
+     * Each frame's sensor dictionary is resolved once and its readings are
+     * appended straight from the decoded arrays. Frames before a malformed one
+     * stay accepted; the readings table ignores repeats, so clients can resend.
+     *
+     * @throws com.mertani.iot.exception.MalformedReadingFrameException if a frame cannot be decoded
+     */
+    public SensorReadingIngestResponse ingestFrames(ByteBuffer body) {
+        ReadingFrameDecoder decoder = new ReadingFrameDecoder(body);
+        ReadingFrame frame = new ReadingFrame();
+        SensorRef[] refs = new SensorRef[16];
+        long from = window.from();
+        long to = window.to();
+
+        int accepted = 0;
+        int total = 0;
+        Set<String> unknownSensorIds = new LinkedHashSet<>();
+        while (decoder.next(frame)) {
+            List<String> sensorIds = frame.sensorIds();
+            Map<String, SensorRef> resolved = sensorIdResolver.resolve(sensorIds);
+            if (refs.length < sensorIds.size()) {
+                refs = new SensorRef[sensorIds.size()];
+            }
+            for (int i = 0; i < sensorIds.size(); i++) {
+                refs[i] = resolved.get(sensorIds.get(i));
+            }
+
+            for (int i = 0; i < frame.size(); i++) {
+                SensorRef ref = refs[frame.sensorIndex(i)];
+                if (ref == null) {
+                    unknownSensorIds.add(sensorIds.get(frame.sensorIndex(i)));
+                    continue;
+                }
+                if (frame.timestamp(i) < from || frame.timestamp(i) > to) {
+                    continue;
+                }
+                append(ref, frame.timestamp(i), frame.value(i));
+                accepted++;
+            }
+            total += frame.size();
+        }
+
+        return SensorReadingIngestResponse.builder()
+                .accepted(accepted)
+                .rejected(total - accepted)
+                .unknownSensorIds(unknownSensorIds)
+                .build();
+    }
+
+    /**
+     * Buffers one reading for an already resolved sensor.
+     *
+     * @param timestamp epoch milliseconds
+     * @throws ReadingBufferFullException if the buffer is full while an earlier
+     *                                    batch waits to be written again
+     */
+    public void append(SensorRef ref, long timestamp, double value) {
+        while (!buffer.offer(ref.id(), timestamp, value)) {
+            if (!flushFull()) {
+                throw new ReadingBufferFullException("Reading buffer is full while storage is unavailable, please retry");
+            }
+        }
+        for (ReadingListener listener : listeners) {
+            listener.onReading(ref, timestamp, value);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${iot.readings.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (retry == null || retry()) {
+                writeBuffer();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes a full buffer from the producing thread. A batch kept back is
+     * left to the scheduled flush, so producers don't use up its attempts
+     * back to back.
+     *
+     * @return false if a batch is kept back and the buffer can't be emptied
+     */
+    private boolean flushFull() {
+        flushLock.lock();
+        try {
+            if (retry != null) {
+                return false;
+            }
+            writeBuffer();
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBuffer() {
+        ReadingBatch filled = buffer.swap(spare);
+        spare = null;
+        if (filled.isEmpty() || write(filled)) {
+            recycle(filled);
+        } else {
+            retry = filled;
+            retryAttempts = 1;
+        }
+    }
+
+    /**
+     * Writes the batch kept back by an earlier failed flush, dropping it once
+     * it has used up its attempts.
+     *
+     * @return false while the batch is still kept back
+     */
+    private boolean retry() {
+        if (!write(retry)) {
+            if (++retryAttempts < writeAttempts) {
+                return false;
+            }
+            log.error("Dropping {} buffered sensor readings after {} failed writes", retry.size(), retryAttempts);
+            dropped.increment(retry.size());
+        }
+        recycle(retry);
+        retry = null;
+        return true;
+    }
+
+    private void recycle(ReadingBatch batch) {
+        batch.clear();
+        spare = batch;
+    }
+
+    /**
+     * @return false if storage was unavailable and the batch should be written again
+     */
+    private boolean write(ReadingBatch batch) {
+        try {
+            readingStore.insertAll(batch);
+            return true;
+        } catch (RuntimeException ex) {
+            if (WriteFailures.isTransient(ex)) {
+                log.warn("Failed to write {} buffered sensor readings, keeping them for another attempt",
+                        batch.size(), ex);
+                return false;
+            }
+            try {
+                int rejected = isolate(batch, 0, batch.size());
+                dropped.increment(rejected);
+                log.error("Dropped {} of {} buffered sensor readings that could not be written",
+                        rejected, batch.size(), ex);
+                return true;
+            } catch (RuntimeException unavailable) {
+                // Only transient failures get here; the store ignores the repeats of parts already written
+                log.warn("Failed to write {} buffered sensor readings, keeping them for another attempt",
+                        batch.size(), unavailable);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Writes readings {@code [from, to)} of a batch that failed as a whole, in halves
+     * down to single readings.
+     *
+     * @return the number of readings the store rejected
+     */
+    private int isolate(ReadingBatch batch, int from, int to) {
+        if (to - from == 1) {
+            return 1;
+        }
+        int middle = (from + to) >>> 1;
+        return writePart(batch, from, middle) + writePart(batch, middle, to);
+    }
+
+    private int writePart(ReadingBatch batch, int from, int to) {
+        ReadingBatch part = new ReadingBatch(to - from);
+        for (int i = from; i < to; i++) {
+            part.add(batch.sensorId(i), batch.timestamp(i), batch.value(i));
+        }
+        try {
+            readingStore.insertAll(part);
+            return 0;
+        } catch (RuntimeException ex) {
+            if (WriteFailures.isTransient(ex)) {
+                throw ex;
+            }
+            return isolate(batch, from, to);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -1,5 +1,9 @@
 package com.mertani.iot.service;
 
+import com.mertani.iot.cache.InventoryCache;
+import com.mertani.iot.dto.BulkCreateResponse;
+import com.mertani.iot.dto.BulkItemError;
+import com.mertani.iot.dto.CursorPageResponse;
 import com.mertani.iot.dto.SensorRequest;
 import com.mertani.iot.dto.SensorResponse;
 import com.mertani.iot.exception.DeviceNotFoundException;
@@ -10,20 +14,41 @@ import com.mertani.iot.model.Device;
 import com.mertani.iot.model.Sensor;
 import com.mertani.iot.repository.DeviceRepository;
 import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.stream.SensorChangedEvent;
+import com.mertani.iot.telemetry.SensorRef;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
+@Timed(value = "iot.service", histogram = true)
 public class SensorService {
 
     private final SensorRepository sensorRepository;
     private final DeviceRepository deviceRepository;
     private final SensorMapper sensorMapper;
+    private final InventoryCache inventoryCache;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public SensorResponse createSensor(SensorRequest request) {
@@ -40,26 +65,122 @@ public class SensorService {
         Sensor sensor = sensorMapper.toEntity(request);
         sensor.setDevice(device);
         Sensor savedSensor = sensorRepository.save(sensor);
-        
-        return sensorMapper.toDto(savedSensor);
+        // The device's cached response lists its sensors
+        inventoryCache.evictDevice(device.getId());
+
+        SensorResponse response = sensorMapper.toDto(savedSensor);
+        eventPublisher.publishEvent(SensorChangedEvent.updated(response));
+        return response;
+    }
+
+    /**
+     * Creates many sensors in one transaction. Sensor IDs are checked and parent
+     * devices loaded with one query each for the whole batch, and rows are
+     * inserted in JDBC batches; invalid items are reported per index and skipped.
+     */
+    @Transactional
+    public BulkCreateResponse<SensorResponse> createSensors(List<SensorRequest> requests) {
+        List<SensorRequest> items = requests.stream().filter(Objects::nonNull).toList();
+        Set<String> existing = new HashSet<>(sensorRepository.findExistingSensorIds(
+                items.stream().map(SensorRequest::getSensorId).filter(Objects::nonNull).toList()));
+        Map<Long, Device> devices = deviceRepository.findAllById(
+                        items.stream().map(SensorRequest::getDeviceId).filter(Objects::nonNull).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Device::getId, Function.identity()));
+
+        List<BulkItemError> errors = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            SensorRequest request = requests.get(i);
+            String violations = BulkValidation.violations(validator, request);
+            if (violations != null) {
+                errors.add(new BulkItemError(i, violations));
+            } else if (!devices.containsKey(request.getDeviceId())) {
+                errors.add(new BulkItemError(i, "Device not found with id: " + request.getDeviceId()));
+            } else if (existing.contains(request.getSensorId()) || !seen.add(request.getSensorId())) {
+                errors.add(new BulkItemError(i, "Sensor with ID " + request.getSensorId() + " already exists"));
+            } else {
+                Sensor sensor = sensorMapper.toEntity(request);
+                sensor.setDevice(devices.get(request.getDeviceId()));
+                sensors.add(sensor);
+            }
+        }
+
+        List<SensorResponse> created = sensorRepository.saveAll(sensors).stream()
+                .map(sensorMapper::toDto)
+                .collect(Collectors.toList());
+        created.stream().map(SensorResponse::getDeviceId).distinct().forEach(inventoryCache::evictDevice);
+        created.forEach(sensor -> eventPublisher.publishEvent(SensorChangedEvent.updated(sensor)));
+        return new BulkCreateResponse<>(created, errors);
     }
 
+    @Cacheable(cacheNames = InventoryCache.SENSORS, key = "#id")
+    @Transactional(readOnly = true)
     public SensorResponse getSensorById(Long id) {
-        Sensor sensor = sensorRepository.findById(id)
+        return sensorRepository.findResponseById(id)
                 .orElseThrow(() -> new SensorNotFoundException("Sensor not found with id: " + id));
-        return sensorMapper.toDto(sensor);
     }
 
+    @Transactional(readOnly = true)
     public List<SensorResponse> getSensorsByDeviceId(Long deviceId) {
-        return sensorRepository.findByDeviceId(deviceId).stream()
-                .map(sensorMapper::toDto)
-                .collect(Collectors.toList());
+        return sensorRepository.findResponsesByDeviceId(deviceId);
     }
 
+    @Transactional(readOnly = true)
     public List<SensorResponse> getAllSensors() {
-        return sensorRepository.findAll().stream()
-                .map(sensorMapper::toDto)
-                .collect(Collectors.toList());
+        return sensorRepository.findAllResponses();
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponse<SensorResponse> getSensorsPage(Long after, int limit) {
+        int pageSize = CursorPageResponse.clampLimit(limit);
+        List<SensorResponse> rows = sensorRepository
+                .findResponsesAfter(after == null ? 0L : after, Limit.of(pageSize + 1));
+        return CursorPageResponse.of(rows, pageSize, SensorResponse::getId);
+    }
+
+    /**
+     * Loads the sensors of the given devices with a single {@code IN} query,
+     * grouped by owning device.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<SensorResponse>> getSensorsByDeviceIds(Collection<Long> deviceIds) {
+        if (deviceIds.isEmpty()) {
+            return Map.of();
+        }
+        return sensorRepository.findResponsesByDeviceIdIn(deviceIds).stream()
+                .collect(Collectors.groupingBy(SensorResponse::getDeviceId));
+    }
+
+    /**
+     * Loads every sensor in a single query and groups them by owning device,
+     * so callers listing many devices don't need one query per device.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<SensorResponse>> getSensorsGroupedByDeviceId() {
+        return sensorRepository.findAllResponses().stream()
+                .collect(Collectors.groupingBy(SensorResponse::getDeviceId));
+    }
+
+    /**
+     * Streams every sensor from a database cursor to {@code sink}, one row at a
+     * time, so memory use does not grow with the inventory.
+     */
+    @Transactional(readOnly = true)
+    public void exportSensors(Consumer<SensorResponse> sink) {
+        try (Stream<SensorResponse> sensors = sensorRepository.streamAllResponses()) {
+            sensors.forEach(sink);
+        }
+    }
+
+    /**
+     * Cursor over all sensors ordered by owning device, for merging with a device
+     * cursor. Must be consumed and closed inside the caller's transaction.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public Stream<SensorResponse> streamSensorsOrderedByDeviceId() {
+        return sensorRepository.streamAllResponsesOrderByDeviceId();
     }
 
     @Transactional
@@ -73,6 +194,9 @@ public class SensorService {
             throw new DuplicateSensorIdException("Sensor with ID " + request.getSensorId() + " already exists");
         }
 
+        String previousSensorId = sensor.getSensorId();
+        Long previousDeviceId = sensor.getDevice().getId();
+
         // Update sensor fields
         sensor.setName(request.getName());
         sensor.setSensorId(request.getSensorId());
@@ -90,14 +214,22 @@ public class SensorService {
         }
 
         Sensor updatedSensor = sensorRepository.save(sensor);
-        return sensorMapper.toDto(updatedSensor);
+        inventoryCache.evictSensor(id, previousSensorId, previousDeviceId, updatedSensor.getDevice().getId());
+
+        SensorResponse response = sensorMapper.toDto(updatedSensor);
+        if (!previousDeviceId.equals(updatedSensor.getDevice().getId())) {
+            eventPublisher.publishEvent(SensorChangedEvent.removed(previousDeviceId, id));
+        }
+        eventPublisher.publishEvent(SensorChangedEvent.updated(response));
+        return response;
     }
 
     @Transactional
     public void deleteSensor(Long id) {
-        if (!sensorRepository.existsById(id)) {
-            throw new SensorNotFoundException("Sensor not found with id: " + id);
-        }
+        SensorRef sensor = sensorRepository.findRefById(id)
+                .orElseThrow(() -> new SensorNotFoundException("Sensor not found with id: " + id));
         sensorRepository.deleteById(id);
+        inventoryCache.evictSensor(id, sensor.sensorId(), sensor.deviceId());
+        eventPublisher.publishEvent(SensorChangedEvent.removed(sensor.deviceId(), id));
     }
 }
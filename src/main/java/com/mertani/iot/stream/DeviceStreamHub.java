@@ -0,0 +1,197 @@
+package com.mertani.iot.stream;
+
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorReadingEvent;
+import com.mertani.iot.telemetry.ReadingListener;
+import com.mertani.iot.telemetry.SensorRef;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process fan-out of live device events to Server-Sent Events subscribers.
+ * Readings arrive through {@link ReadingListener} on the ingest thread and
+ * sensor changes as {@link SensorChangedEvent}s after their transaction commits.
+ * Each event is built once and queued to every subscriber of the device; a
+ * small sender pool writes the queues out, so a slow client only ever loses
+ * its own oldest events and never holds up ingest.
+ * <p>
+ * A write blocked on a stalled connection for longer than
+ * {@code iot.stream.send-timeout-ms} evicts its subscriber. The sender thread
+ * stays blocked until the container times the connection out, so the pool
+ * grows by one thread for each such send meanwhile, and other subscribers
+ * keep their full share of senders.
+ */
+@Slf4j
+@Component
+public class DeviceStreamHub implements ReadingListener {
+
+    private final Map<Long, Set<DeviceSubscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ThreadPoolExecutor sender;
+    private final int senderThreads;
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final Counter dropped;
+    private final Counter evicted;
+
+    // Evicted subscriptions whose send is still blocked; only touched by evictStalled()
+    private final Set<DeviceSubscription> stalled = new HashSet<>();
+
+    public DeviceStreamHub(@Value("${iot.stream.buffer-size:256}") int bufferSize,
+                           @Value("${iot.stream.sender-threads:4}") int senderThreads,
+                           @Value("${iot.stream.send-timeout-ms:10000}") long sendTimeoutMillis,
+                           MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.senderThreads = senderThreads;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "device-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dropped = Counter.builder("iot.stream.dropped")
+                .description("Device stream events dropped because a subscriber's buffer was full")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("iot.stream.evicted")
+                .description("Device stream subscribers closed because a write stalled past the deadline")
+                .register(meterRegistry);
+        Gauge.builder("iot.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open device stream subscriptions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for a device, starting with {@code snapshot} as a
+     * {@code device} event so clients don't need a separate fetch.
+     */
+    public SseEmitter subscribe(long deviceId, DeviceResponse snapshot) {
+        SseEmitter emitter = new SseEmitter();
+        DeviceSubscription subscription = new DeviceSubscription(
+                deviceId, emitter, bufferSize, sender, dropped::increment, this::remove);
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(ex -> subscription.close());
+
+        subscriptions.compute(deviceId, (id, current) -> {
+            Set<DeviceSubscription> subscribers = current != null ? current : ConcurrentHashMap.newKeySet();
+            subscribers.add(subscription);
+            return subscribers;
+        });
+        subscriberCount.incrementAndGet();
+        subscription.offer(event("device", snapshot));
+        return emitter;
+    }
+
+    @Override
+    public void onReading(SensorRef ref, long timestamp, double value) {
+        Set<DeviceSubscription> subscribers = subscriptions.get(ref.deviceId());
+        if (subscribers == null) {
+            return;
+        }
+        publish(subscribers, event("reading",
+                new SensorReadingEvent(ref.id(), ref.sensorId(), Instant.ofEpochMilli(timestamp), value)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSensorChanged(SensorChangedEvent change) {
+        Set<DeviceSubscription> subscribers = subscriptions.get(change.deviceId());
+        if (subscribers == null) {
+            return;
+        }
+        publish(subscribers, change.isRemoved()
+                ? event("sensor-removed", Map.of("id", change.id()))
+                : event("sensor", change.sensor()));
+    }
+
+    /**
+     * Keeps idle connections open through proxies and detects clients that
+     * disconnected while their device was quiet.
+     */
+    @Scheduled(fixedDelayString = "${iot.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        subscriptions.values().forEach(subscribers -> publish(subscribers, ping));
+    }
+
+    /**
+     * Evicts subscribers whose send has been blocked past the write deadline and
+     * sizes the sender pool to make up for the threads those sends still hold.
+     */
+    @Scheduled(fixedDelayString = "${iot.stream.send-check-interval-ms:1000}")
+    public void evictStalled() {
+        long now = System.nanoTime();
+        subscriptions.values().forEach(subscribers -> {
+            for (DeviceSubscription subscription : subscribers) {
+                if (subscription.evictIfStalled(now, sendTimeoutNanos)) {
+                    stalled.add(subscription);
+                    evicted.increment();
+                    log.warn("Evicted stream subscriber of device {} after a send blocked for over {} ms",
+                            subscription.deviceId(), TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                }
+            }
+        });
+        stalled.removeIf(subscription -> !subscription.sending());
+        int size = senderThreads + stalled.size();
+        if (size > sender.getMaximumPoolSize()) {
+            sender.setMaximumPoolSize(size);
+            sender.setCorePoolSize(size);
+        } else if (size < sender.getCorePoolSize()) {
+            sender.setCorePoolSize(size);
+            sender.setMaximumPoolSize(size);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        new ArrayList<>(subscriptions.values()).forEach(subscribers ->
+                new ArrayList<>(subscribers).forEach(DeviceSubscription::close));
+        sender.shutdownNow();
+    }
+
+    private void publish(Set<DeviceSubscription> subscribers, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        for (DeviceSubscription subscription : subscribers) {
+            subscription.offer(event);
+        }
+    }
+
+    private void remove(DeviceSubscription subscription) {
+        subscriptions.computeIfPresent(subscription.deviceId(), (id, subscribers) -> {
+            if (subscribers.remove(subscription)) {
+                subscriberCount.decrementAndGet();
+            }
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        log.debug("Closed stream subscription for device {}", subscription.deviceId());
+    }
+
+    private static Set<ResponseBodyEmitter.DataWithMediaType> event(String name, Object data) {
+        return SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON).build();
+    }
+}
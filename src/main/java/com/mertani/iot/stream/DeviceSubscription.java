@@ -0,0 +1,154 @@
+package com.mertani.iot.stream;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * One SSE client of a device stream. Events are queued in a bounded buffer and
+ * written by at most one sender task at a time; when the client reads slower
+ * than events arrive, the oldest queued events are dropped so the publisher
+ * never waits on the connection. A send that blocks on a stalled connection
+ * longer than the hub's write deadline gets the subscription evicted; the
+ * emitter is then completed by the sender once that send returns, as
+ * completing it from another thread would wait on the same write.
+ */
+class DeviceSubscription {
+
+    private final long deviceId;
+    private final SseEmitter emitter;
+    private final ArrayBlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+    private final Executor sender;
+    private final Runnable onDropped;
+    private final Consumer<DeviceSubscription> onClosed;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean completed = new AtomicBoolean();
+    // System.nanoTime() when the send in progress started, 0 between sends
+    private volatile long sendStartedAt;
+
+    DeviceSubscription(long deviceId, SseEmitter emitter, int bufferSize, Executor sender,
+                       Runnable onDropped, Consumer<DeviceSubscription> onClosed) {
+        this.deviceId = deviceId;
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.sender = sender;
+        this.onDropped = onDropped;
+        this.onClosed = onClosed;
+    }
+
+    long deviceId() {
+        return deviceId;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Queues an already built event without blocking, evicting the oldest
+     * queued event if the buffer is full.
+     */
+    void offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (closed.get()) {
+            return;
+        }
+        while (!queue.offer(event)) {
+            if (queue.poll() != null) {
+                onDropped.run();
+            }
+        }
+        scheduleDrain();
+    }
+
+    /**
+     * @return whether a send is still blocked, which may outlive the subscription
+     */
+    boolean sending() {
+        return sendStartedAt != 0;
+    }
+
+    /**
+     * Closes the subscription if its current send has been blocked for longer
+     * than {@code timeoutNanos}.
+     *
+     * @return true if it was evicted
+     */
+    boolean evictIfStalled(long now, long timeoutNanos) {
+        long startedAt = sendStartedAt;
+        if (startedAt == 0 || now - startedAt < timeoutNanos || closed.get()) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            queue.clear();
+            onClosed.accept(this);
+            // A running sender completes the emitter once its send returns
+            if (!draining.get()) {
+                complete();
+            }
+        }
+    }
+
+    private void complete() {
+        if (completed.compareAndSet(false, true)) {
+            emitter.complete();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                draining.set(false);
+                close();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while (!closed.get() && (event = queue.poll()) != null) {
+                sendStartedAt = System.nanoTime();
+                try {
+                    emitter.send(event);
+                } finally {
+                    sendStartedAt = 0;
+                }
+            }
+        } catch (IOException | IllegalStateException ex) {
+            // Client went away or the async request already completed
+            draining.set(false);
+            close();
+            complete();
+            return;
+        }
+        draining.set(false);
+        if (closed.get()) {
+            complete();
+            return;
+        }
+        // An event offered between the last poll and resetting the flag found
+        // draining still set and did not schedule a sender
+        if (!queue.isEmpty()) {
+            scheduleDrain();
+        }
+    }
+}
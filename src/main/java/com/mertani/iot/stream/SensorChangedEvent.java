@@ -0,0 +1,23 @@
+package com.mertani.iot.stream;
+
+import com.mertani.iot.dto.SensorResponse;
+
+/**
+ * Published by the sensor service when a sensor is created, changed or removed
+ * from a device. {@code sensor} is null when the sensor no longer belongs to
+ * {@code deviceId}, because it was deleted or moved to another device.
+ */
+public record SensorChangedEvent(long deviceId, long id, SensorResponse sensor) {
+
+    public static SensorChangedEvent updated(SensorResponse sensor) {
+        return new SensorChangedEvent(sensor.getDeviceId(), sensor.getId(), sensor);
+    }
+
+    public static SensorChangedEvent removed(long deviceId, long id) {
+        return new SensorChangedEvent(deviceId, id, null);
+    }
+
+    public boolean isRemoved() {
+        return sensor == null;
+    }
+}
@@ -0,0 +1,9 @@
+package com.mertani.iot.telemetry;
+
+/**
+ * The newest reading of a sensor as held by {@link LatestReadings}.
+ *
+ * @param timestamp epoch milliseconds
+ */
+public record LatestReading(SensorRef sensor, long timestamp, double value) {
+}
@@ -0,0 +1,150 @@
+package com.mertani.iot.telemetry;
+
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.stream.SensorChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Newest reading of every sensor, kept as it is ingested so "what does each
+ * sensor read right now" never has to search the readings table.
+ * <p>
+ * Each {@link SensorSlots} slot holds an immutable {@link LatestReading},
+ * replaced with a compare-and-set: a writer that loses the race reads the
+ * winner and tries again only if its own reading is still newer, so no writer
+ * waits on another and readers just load the slot. A reading older than the
+ * stored one is ignored, so out-of-order delivery does not roll a sensor back.
+ */
+@Slf4j
+@Component
+public class LatestReadings implements ReadingListener {
+
+    private static final VarHandle READINGS = MethodHandles.arrayElementVarHandle(LatestReading[].class);
+
+    private final SensorSlots slots;
+    private final ReadingStore readingStore;
+
+    private final SlotPages<LatestReading[]> readings = new SlotPages<>(LatestReading[]::new);
+    private final AtomicInteger sensors = new AtomicInteger();
+
+    public LatestReadings(SensorSlots slots,
+                          ReadingStore readingStore,
+                          MeterRegistry meterRegistry) {
+        this.slots = slots;
+        this.readingStore = readingStore;
+        Gauge.builder("iot.readings.latest.sensors", sensors, AtomicInteger::get)
+                .description("Sensors with a latest reading in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds the index from the newest stored reading of every sensor.
+     */
+    @PostConstruct
+    public void load() {
+        long startedAt = System.nanoTime();
+        readingStore.forEachLatest(this::onReading);
+        log.info("Loaded latest readings of {} sensors in {} ms",
+                sensors.get(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @Override
+    public void onReading(SensorRef ref, long timestamp, double value) {
+        int slot = slots.getOrAssign(ref.id());
+        LatestReading[] page = readings.page(slot);
+        int offset = SlotPages.offset(slot);
+        LatestReading next = new LatestReading(ref, timestamp, value);
+        while (true) {
+            LatestReading current = (LatestReading) READINGS.getAcquire(page, offset);
+            if (current != null && timestamp <= current.timestamp()) {
+                return;
+            }
+            if (READINGS.compareAndSet(page, offset, current, next)) {
+                if (current == null) {
+                    sensors.incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forgets removed sensors and keeps the sensor ID and device of renamed or
+     * moved ones current.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSensorChanged(SensorChangedEvent change) {
+        int slot = slots.get(change.id());
+        LatestReading[] page = slot < 0 ? null : readings.pageIfPresent(slot);
+        if (page == null) {
+            return;
+        }
+        int offset = SlotPages.offset(slot);
+        while (true) {
+            LatestReading current = (LatestReading) READINGS.getAcquire(page, offset);
+            if (current == null) {
+                return;
+            }
+            SensorResponse sensor = change.sensor();
+            LatestReading next;
+            if (change.isRemoved()) {
+                next = null;
+            } else if (!Objects.equals(current.sensor().sensorId(), sensor.getSensorId())
+                    || current.sensor().deviceId() != sensor.getDeviceId()) {
+                next = new LatestReading(new SensorRef(sensor.getSensorId(), sensor.getId(), sensor.getDeviceId()),
+                        current.timestamp(), current.value());
+            } else {
+                return;
+            }
+            if (READINGS.compareAndSet(page, offset, current, next)) {
+                if (next == null) {
+                    sensors.decrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the newest reading of the sensor, or null if it has none
+     */
+    public LatestReading get(long sensorId) {
+        int slot = slots.get(sensorId);
+        return slot < 0 ? null : read(slot);
+    }
+
+    /**
+     * Passes the newest reading of every sensor that has one to {@code sink}.
+     * Each reading is consistent on its own; readings ingested meanwhile may or
+     * may not be included.
+     */
+    public void forEach(Consumer<LatestReading> sink) {
+        int assigned = slots.size();
+        for (int slot = 0; slot < assigned; slot++) {
+            LatestReading reading = read(slot);
+            if (reading != null) {
+                sink.accept(reading);
+            }
+        }
+    }
+
+    public int size() {
+        return sensors.get();
+    }
+
+    private LatestReading read(int slot) {
+        LatestReading[] page = readings.pageIfPresent(slot);
+        return page == null ? null : (LatestReading) READINGS.getAcquire(page, SlotPages.offset(slot));
+    }
+}
@@ -0,0 +1,341 @@
+package com.mertani.iot.telemetry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes readings as an Apache Arrow IPC stream, which pyarrow, pandas,
+ * Polars, DuckDB and Spark read as a table without parsing: a schema of
+ * {@code sensor_id} (int64, the sensor's primary key), {@code recorded_at}
+ * (timestamp in milliseconds, UTC) and {@code reading_value} (float64), then
+ * one record batch per {@link #write} with each column of the
+ * {@link ReadingBatch} copied out as it is, and an end-of-stream marker from
+ * {@link #finish}.
+ * <p>
+ * The format is written directly rather than through the Arrow libraries, which
+ * need off-heap buffers and Netty for what are three fixed-width columns without
+ * nulls. Each message is a FlatBuffers header, see {@link FlatBuffer}, followed
+ * by the column buffers; only the few header tables these columns need are
+ * encoded.
+ */
+public class ReadingArrowWriter {
+
+    public static final String MEDIA_TYPE = "application/vnd.apache.arrow.stream";
+
+    // Schema.fbs and Message.fbs enum and union values
+    private static final short METADATA_V5 = 4;
+    private static final byte HEADER_SCHEMA = 1;
+    private static final byte HEADER_RECORD_BATCH = 3;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_FLOATING_POINT = 3;
+    private static final byte TYPE_TIMESTAMP = 10;
+    private static final short PRECISION_DOUBLE = 2;
+    private static final short UNIT_MILLISECOND = 1;
+
+    private static final int CONTINUATION = 0xFFFFFFFF;
+    private static final int COLUMNS = 3;
+
+    private final OutputStream out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Writes the schema.
+     */
+    public ReadingArrowWriter(OutputStream out) throws IOException {
+        this.out = out;
+        writeMessage(schema());
+    }
+
+    /**
+     * Writes the readings in {@code batch} as one record batch; empty batches are skipped.
+     */
+    public void write(ReadingBatch batch) throws IOException {
+        int rows = batch.size();
+        if (rows == 0) {
+            return;
+        }
+        long column = 8L * rows;
+        writeMessage(recordBatch(rows, column));
+        for (int i = 0; i < rows; i++) {
+            reserve(8).putLong(batch.sensorId(i));
+        }
+        for (int i = 0; i < rows; i++) {
+            reserve(8).putLong(batch.timestamp(i));
+        }
+        for (int i = 0; i < rows; i++) {
+            reserve(8).putDouble(batch.value(i));
+        }
+    }
+
+    /**
+     * Ends the stream and flushes it; {@code out} is left open.
+     */
+    public void finish() throws IOException {
+        reserve(8).putInt(CONTINUATION).putInt(0);
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes a continuation marker, the header's length and the header, padded so that the
+     * body that follows starts 8-byte aligned.
+     */
+    private void writeMessage(FlatBuffer header) throws IOException {
+        byte[] bytes = header.bytes();
+        int padded = (bytes.length + 7) & ~7;
+        reserve(8).putInt(CONTINUATION).putInt(padded);
+        drain();
+        out.write(bytes);
+        out.write(new byte[padded - bytes.length]);
+    }
+
+    private ByteBuffer reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+        return buffer;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    private static FlatBuffer schema() {
+        FlatBuffer header = new FlatBuffer();
+        int[] message = message(header, HEADER_SCHEMA, 0);
+        // endianness (Little, the default), fields
+        int[] schema = header.table(2, 4);
+        header.offset(message[3], schema[0]);
+        int[] fields = header.offsets(COLUMNS);
+        header.offset(schema[2], fields[0]);
+
+        // Types follow their fields: bitWidth and is_signed, unit and timezone, precision
+        int sensorIdType = field(header, fields[1], "sensor_id", TYPE_INT);
+        int[] int64 = header.table(4, 1);
+        header.offset(sensorIdType, int64[0]);
+        header.putInt(int64[1], 64);
+        header.putByte(int64[2], (byte) 1);
+
+        int recordedAtType = field(header, fields[2], "recorded_at", TYPE_TIMESTAMP);
+        int[] timestamp = header.table(2, 4);
+        header.offset(recordedAtType, timestamp[0]);
+        header.putShort(timestamp[1], UNIT_MILLISECOND);
+        header.offset(timestamp[2], header.string("UTC"));
+
+        int valueType = field(header, fields[3], "reading_value", TYPE_FLOATING_POINT);
+        int[] float64 = header.table(2);
+        header.offset(valueType, float64[0]);
+        header.putShort(float64[1], PRECISION_DOUBLE);
+        return header;
+    }
+
+    /**
+     * Writes a non-nullable field without children into {@code slot}.
+     *
+     * @return the position of its type offset, to point at the type's table
+     */
+    private static int field(FlatBuffer header, int slot, String name, byte type) {
+        // name, nullable, type_type, type, dictionary (none), children
+        int[] field = header.table(4, 1, 1, 4, 0, 4);
+        header.offset(slot, field[0]);
+        header.offset(field[1], header.string(name));
+        header.putByte(field[3], type);
+        // Readers expect the vector even when it is empty
+        header.offset(field[6], header.offsets(0)[0]);
+        return field[4];
+    }
+
+    /**
+     * Three columns of {@code rows} values each, without nulls, laid out one after
+     * another in the body; each has an empty validity buffer and a data buffer.
+     */
+    private static FlatBuffer recordBatch(int rows, long column) {
+        FlatBuffer header = new FlatBuffer();
+        int[] message = message(header, HEADER_RECORD_BATCH, COLUMNS * column);
+        // length, nodes, buffers
+        int[] batch = header.table(8, 4, 4);
+        header.offset(message[3], batch[0]);
+        header.putLong(batch[1], rows);
+        // length and null count per column
+        header.offset(batch[2], header.structs(rows, 0, rows, 0, rows, 0));
+        // offset and length per buffer
+        header.offset(batch[3], header.structs(
+                0, 0, 0, column,
+                column, 0, column, column,
+                2 * column, 0, 2 * column, column));
+        return header;
+    }
+
+    /**
+     * Writes the root Message table.
+     *
+     * @return its position and its fields' positions, the header's offset at index 3
+     */
+    private static int[] message(FlatBuffer header, byte type, long bodyLength) {
+        // version, header_type, header, bodyLength
+        int[] message = header.table(2, 1, 4, 8);
+        header.root(message[0]);
+        header.putShort(message[1], METADATA_V5);
+        header.putByte(message[2], type);
+        header.putLong(message[4], bodyLength);
+        return message;
+    }
+
+    /**
+     * Encodes a FlatBuffer front to back, unlike the reference builders: a table
+     * is written before the strings, vectors and tables it refers to, so every
+     * offset points forward and is filled in once its target is written. Tables
+     * are 8-byte aligned and their fields aligned to their size within them.
+     */
+    static final class FlatBuffer {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+        FlatBuffer() {
+            // Offset to the root table, see root()
+            buffer.putInt(0);
+        }
+
+        void root(int table) {
+            offset(0, table);
+        }
+
+        /**
+         * Appends a table whose fields have the given sizes in bytes, 0 for an
+         * absent field, all zero.
+         *
+         * @return the table's position, then each field's (0 if absent)
+         */
+        int[] table(int... sizes) {
+            int[] positions = new int[sizes.length + 1];
+            // The table starts with the offset to its vtable
+            int size = 4;
+            for (int i = 0; i < sizes.length; i++) {
+                if (sizes[i] > 0) {
+                    size = (size + sizes[i] - 1) / sizes[i] * sizes[i];
+                    positions[i + 1] = size;
+                    size += sizes[i];
+                }
+            }
+            int vtableSize = 4 + 2 * sizes.length;
+            pad(8, vtableSize);
+            int vtable = buffer.position();
+            reserve(vtableSize + size);
+            buffer.putShort((short) vtableSize).putShort((short) size);
+            for (int i = 0; i < sizes.length; i++) {
+                buffer.putShort((short) positions[i + 1]);
+            }
+            int table = buffer.position();
+            buffer.putInt(table - vtable);
+            buffer.put(new byte[size - 4]);
+            positions[0] = table;
+            for (int i = 0; i < sizes.length; i++) {
+                if (sizes[i] > 0) {
+                    positions[i + 1] += table;
+                }
+            }
+            return positions;
+        }
+
+        /**
+         * Appends a vector of {@code count} offsets to fill in.
+         *
+         * @return the vector's position, then each element's
+         */
+        int[] offsets(int count) {
+            pad(4, 0);
+            reserve(4 + 4 * count);
+            int[] positions = new int[count + 1];
+            positions[0] = buffer.position();
+            buffer.putInt(count);
+            for (int i = 0; i < count; i++) {
+                positions[i + 1] = buffer.position();
+                buffer.putInt(0);
+            }
+            return positions;
+        }
+
+        /**
+         * Appends a vector of structs of two longs, given as consecutive pairs.
+         *
+         * @return the vector's position
+         */
+        int structs(long... pairs) {
+            // The longs must be 8-byte aligned, after the 4-byte length
+            pad(8, 4);
+            reserve(4 + 8 * pairs.length);
+            int position = buffer.position();
+            buffer.putInt(pairs.length / 2);
+            for (long value : pairs) {
+                buffer.putLong(value);
+            }
+            return position;
+        }
+
+        /**
+         * Appends a null-terminated UTF-8 string.
+         *
+         * @return its position
+         */
+        int string(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            pad(4, 0);
+            reserve(4 + bytes.length + 1);
+            int position = buffer.position();
+            buffer.putInt(bytes.length).put(bytes).put((byte) 0);
+            return position;
+        }
+
+        /**
+         * Points the offset at {@code position} to {@code target}, which follows it.
+         */
+        void offset(int position, int target) {
+            buffer.putInt(position, target - position);
+        }
+
+        void putByte(int position, byte value) {
+            buffer.put(position, value);
+        }
+
+        void putShort(int position, short value) {
+            buffer.putShort(position, value);
+        }
+
+        void putInt(int position, int value) {
+            buffer.putInt(position, value);
+        }
+
+        void putLong(int position, long value) {
+            buffer.putLong(position, value);
+        }
+
+        byte[] bytes() {
+            byte[] bytes = new byte[buffer.position()];
+            buffer.get(0, bytes);
+            return bytes;
+        }
+
+        /**
+         * Pads with zeros until {@code before} more bytes would end aligned.
+         */
+        private void pad(int alignment, int before) {
+            int padding = Math.floorMod(-(buffer.position() + before), alignment);
+            reserve(padding);
+            buffer.put(new byte[padding]);
+        }
+
+        private void reserve(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mertani.iot.telemetry;
+
+/**
+ * Fixed-capacity columnar batch of readings held in primitive arrays, so
+ * buffering a reading allocates nothing. Not thread-safe; see {@link ReadingBuffer}.
+ */
+public class ReadingBatch {
+
+    private final long[] sensorIds;
+    private final long[] timestamps;
+    private final double[] values;
+    private int size;
+
+    public ReadingBatch(int capacity) {
+        this.sensorIds = new long[capacity];
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    public boolean add(long sensorId, long timestamp, double value) {
+        if (size == sensorIds.length) {
+            return false;
+        }
+        sensorIds[size] = sensorId;
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+        return true;
+    }
+
+    public long sensorId(int index) {
+        return sensorIds[index];
+    }
+
+    /** Epoch milliseconds. */
+    public long timestamp(int index) {
+        return timestamps[index];
+    }
+
+    public double value(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return sensorIds.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.mertani.iot.telemetry;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Double-buffered ingest queue. Producers append into the active batch under a
+ * short lock; the flusher swaps in an empty batch and writes the filled one
+ * outside the lock, so producers never wait on the database.
+ */
+public class ReadingBuffer {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final int capacity;
+    private ReadingBatch active;
+
+    public ReadingBuffer(int capacity) {
+        this.capacity = capacity;
+        this.active = new ReadingBatch(capacity);
+    }
+
+    /**
+     * @return false if the buffer is full and has to be flushed first
+     */
+    public boolean offer(long sensorId, long timestamp, double value) {
+        lock.lock();
+        try {
+            return active.add(sensorId, timestamp, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the active batch with {@code empty} and returns the previously
+     * active one. The caller owns the returned batch until it hands it back.
+     */
+    public ReadingBatch swap(ReadingBatch empty) {
+        lock.lock();
+        try {
+            ReadingBatch filled = active;
+            active = empty;
+            return filled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return active.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,258 @@
+package com.mertani.iot.telemetry;
+
+import com.mertani.iot.exception.InvalidReadingImportException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Reads sensor readings from CSV one line at a time, so an import of any size
+ * holds only the current line. The first line is a header naming the columns:
+ * {@code sensorId}, {@code timestamp} and {@code value} are required, in any
+ * order and case, and other columns are ignored. Timestamps are ISO-8601
+ * instants ({@code 2024-01-01T00:00:00Z}, or with an offset) or epoch
+ * milliseconds. Fields may be double-quoted, with {@code ""} for a quote, but
+ * not span lines. Blank lines are skipped and not counted.
+ * <p>
+ * A line that can't be parsed doesn't stop the reader: {@link #next()} still
+ * returns true and {@link #isValid()} false.
+ */
+public class ReadingCsvReader {
+
+    private final BufferedReader reader;
+    private final int sensorColumn;
+    private final int timestampColumn;
+    private final int valueColumn;
+    private final StringBuilder quoted = new StringBuilder();
+
+    private long lines;
+    private boolean valid;
+    private String sensorId;
+    private long timestamp;
+    private double value;
+
+    /**
+     * Reads the header line.
+     *
+     * @throws InvalidReadingImportException if the input is empty or the header lacks a required column
+     */
+    public ReadingCsvReader(Reader reader) throws IOException {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 64 * 1024);
+        String header = this.reader.readLine();
+        if (header == null) {
+            throw new InvalidReadingImportException("CSV is empty");
+        }
+        // Byte order mark, as spreadsheet exports tend to start with
+        if (!header.isEmpty() && header.charAt(0) == '\uFEFF') {
+            header = header.substring(1);
+        }
+        int sensor = -1;
+        int time = -1;
+        int number = -1;
+        String[] names = header.split(",", -1);
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i].trim().replace("\"", "");
+            if (name.equalsIgnoreCase("sensorId")) {
+                sensor = i;
+            } else if (name.equalsIgnoreCase("timestamp")) {
+                time = i;
+            } else if (name.equalsIgnoreCase("value")) {
+                number = i;
+            }
+        }
+        if (sensor < 0 || time < 0 || number < 0) {
+            throw new InvalidReadingImportException(
+                    "CSV header must name the sensorId, timestamp and value columns, was: " + header);
+        }
+        this.sensorColumn = sensor;
+        this.timestampColumn = time;
+        this.valueColumn = number;
+    }
+
+    /**
+     * Moves to the next line.
+     *
+     * @return false at the end of the input
+     */
+    public boolean next() throws IOException {
+        String line = nextLine();
+        if (line == null) {
+            return false;
+        }
+        valid = parse(line);
+        return true;
+    }
+
+    /**
+     * Skips lines without parsing them, e.g. those already imported.
+     *
+     * @return the number skipped, less than {@code count} only at the end of the input
+     */
+    public long skip(long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count && nextLine() != null) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    /** Lines read or skipped so far, not counting the header. */
+    public long lines() {
+        return lines;
+    }
+
+    /** Whether the current line is a well-formed reading. */
+    public boolean isValid() {
+        return valid;
+    }
+
+    public String sensorId() {
+        return sensorId;
+    }
+
+    /** @return epoch milliseconds */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public double value() {
+        return value;
+    }
+
+    private String nextLine() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        lines++;
+        return line;
+    }
+
+    private boolean parse(String line) {
+        String sensor = null;
+        String time = null;
+        String number = null;
+        int column = 0;
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            String field;
+            if (i < length && line.charAt(i) == '"') {
+                quoted.setLength(0);
+                i++;
+                while (true) {
+                    if (i == length) {
+                        return false;
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        quoted.append(c);
+                    } else if (i < length && line.charAt(i) == '"') {
+                        quoted.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < length && line.charAt(i) != ',') {
+                    return false;
+                }
+                field = quoted.toString();
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? length : comma;
+                field = column == sensorColumn || column == timestampColumn || column == valueColumn
+                        ? line.substring(i, end).trim() : null;
+                i = end;
+            }
+            if (column == sensorColumn) {
+                sensor = field;
+            } else if (column == timestampColumn) {
+                time = field;
+            } else if (column == valueColumn) {
+                number = field;
+            }
+            if (i >= length) {
+                break;
+            }
+            i++;
+            column++;
+        }
+        if (sensor == null || sensor.isEmpty() || time == null || number == null) {
+            return false;
+        }
+        try {
+            timestamp = isInteger(time) ? Long.parseLong(time) : parseInstant(time);
+            value = Double.parseDouble(number);
+        } catch (NumberFormatException | DateTimeException | ArithmeticException ex) {
+            return false;
+        }
+        if (!Double.isFinite(value)) {
+            return false;
+        }
+        // Dumps are usually grouped by sensor; keeping the same instance keeps its hash cached
+        if (!sensor.equals(sensorId)) {
+            sensorId = sensor;
+        }
+        return true;
+    }
+
+    /**
+     * Parses {@code yyyy-MM-ddTHH:mm:ss[.SSS]Z}, the usual form in dumps, by hand;
+     * anything else goes to {@link Instant#parse}, which is several times slower.
+     */
+    private static long parseInstant(String text) {
+        int length = text.length();
+        if ((length == 20 || length == 24) && text.charAt(length - 1) == 'Z' && text.charAt(4) == '-'
+                && text.charAt(7) == '-' && text.charAt(10) == 'T' && text.charAt(13) == ':'
+                && text.charAt(16) == ':' && (length == 20 || text.charAt(19) == '.')) {
+            int year = digits(text, 0, 4);
+            int month = digits(text, 5, 2);
+            int day = digits(text, 8, 2);
+            int hour = digits(text, 11, 2);
+            int minute = digits(text, 14, 2);
+            int second = digits(text, 17, 2);
+            int millis = length == 24 ? digits(text, 20, 3) : 0;
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59
+                    && second >= 0 && second <= 59 && millis >= 0) {
+                // Rejects days past the end of the month
+                long days = LocalDate.of(year, month, day).toEpochDay();
+                return (((days * 24 + hour) * 60 + minute) * 60 + second) * 1000 + millis;
+            }
+        }
+        return Instant.parse(text).toEpochMilli();
+    }
+
+    /** @return the number in {@code count} digits at {@code start}, or -1 if they aren't all digits */
+    private static int digits(String text, int start, int count) {
+        int number = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private static boolean isInteger(String text) {
+        int start = text.startsWith("-") ? 1 : 0;
+        if (start == text.length()) {
+            return false;
+        }
+        for (int i = start; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
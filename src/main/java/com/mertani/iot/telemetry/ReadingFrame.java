@@ -0,0 +1,59 @@
+package com.mertani.iot.telemetry;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One decoded binary frame: a sensor ID dictionary and readings that refer to
+ * it by index, held in primitive arrays that are reused from frame to frame.
+ * Not thread-safe; see {@link ReadingFrameDecoder}.
+ */
+public class ReadingFrame {
+
+    private List<String> sensorIds = List.of();
+    private int[] sensorIndexes = new int[16];
+    private long[] timestamps = new long[16];
+    private double[] values = new double[16];
+    private int size;
+
+    /**
+     * Sensor IDs of the dictionary, in index order; a new list for every frame.
+     */
+    public List<String> sensorIds() {
+        return sensorIds;
+    }
+
+    /** Dictionary index of the reading's sensor. */
+    public int sensorIndex(int index) {
+        return sensorIndexes[index];
+    }
+
+    /** Epoch milliseconds. */
+    public long timestamp(int index) {
+        return timestamps[index];
+    }
+
+    public double value(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    void reset(String[] sensorIds, int size) {
+        this.sensorIds = Arrays.asList(sensorIds);
+        if (sensorIndexes.length < size) {
+            sensorIndexes = new int[size];
+            timestamps = new long[size];
+            values = new double[size];
+        }
+        this.size = size;
+    }
+
+    void set(int index, int sensorIndex, long timestamp, double value) {
+        sensorIndexes[index] = sensorIndex;
+        timestamps[index] = timestamp;
+        values[index] = value;
+    }
+}
@@ -0,0 +1,153 @@
+package com.mertani.iot.telemetry;
+
+import com.mertani.iot.exception.MalformedReadingFrameException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the compact binary reading format ({@value #MEDIA_TYPE}): a sequence
+ * of length-prefixed frames, each with its own sensor ID dictionary. All
+ * numbers are big-endian; varints are unsigned LEB128 and signed ones zigzag
+ * encoded.
+ * <pre>
+ * frame     := length:u32 payload
+ * payload   := version:u8 (=1)
+ *              sensors:varint (sensorIdLength:varint sensorId:utf8)*
+ *              readings:varint baseTimestamp:i64
+ *              (sensorIndex:varint timestampDelta:zigzag-varint value:f64)*
+ * </pre>
+ * Timestamps are epoch milliseconds; each delta is relative to the previous
+ * reading of the frame, the first one to {@code baseTimestamp}. Decoding
+ * allocates only the dictionary strings.
+ */
+public class ReadingFrameDecoder {
+
+    public static final String MEDIA_TYPE = "application/x-iot-readings";
+    public static final int VERSION = 1;
+
+    static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+    static final int MAX_SENSOR_ID_LENGTH = 255;
+
+    // Smallest encoding of one reading: 1-byte index, 1-byte delta, 8-byte value
+    private static final int MIN_READING_LENGTH = 10;
+
+    private final ByteBuffer in;
+
+    public ReadingFrameDecoder(ByteBuffer in) {
+        this.in = in;
+    }
+
+    /**
+     * Decodes the next frame into {@code frame}.
+     *
+     * @return false once the input is exhausted
+     * @throws MalformedReadingFrameException if the frame is truncated or inconsistent;
+     * frames returned before it are unaffected
+     */
+    public boolean next(ReadingFrame frame) {
+        if (!in.hasRemaining()) {
+            return false;
+        }
+        if (in.remaining() < Integer.BYTES) {
+            throw new MalformedReadingFrameException("Truncated frame length");
+        }
+        int length = in.getInt();
+        if (length <= 0 || length > MAX_FRAME_LENGTH || length > in.remaining()) {
+            throw new MalformedReadingFrameException("Invalid frame length " + length);
+        }
+        try {
+            decodePayload(in.slice(in.position(), length), frame);
+        } catch (BufferUnderflowException ex) {
+            throw new MalformedReadingFrameException("Frame ends before its declared content");
+        }
+        in.position(in.position() + length);
+        return true;
+    }
+
+    /**
+     * Counts the bytes from the buffer's position that make up whole frames, for
+     * stream transports where a frame may arrive in pieces. Nothing is consumed.
+     *
+     * @throws MalformedReadingFrameException if a frame declares a length outside 1..maxFrameLength
+     */
+    public static int completeLength(ByteBuffer in, int maxFrameLength) {
+        int position = in.position();
+        while (in.limit() - position >= Integer.BYTES) {
+            int length = in.getInt(position);
+            if (length <= 0 || length > maxFrameLength) {
+                throw new MalformedReadingFrameException("Invalid frame length " + length);
+            }
+            if (in.limit() - position - Integer.BYTES < length) {
+                break;
+            }
+            position += Integer.BYTES + length;
+        }
+        return position - in.position();
+    }
+
+    private static void decodePayload(ByteBuffer payload, ReadingFrame frame) {
+        int version = payload.get() & 0xFF;
+        if (version != VERSION) {
+            throw new MalformedReadingFrameException("Unsupported frame version " + version);
+        }
+        int sensorCount = readLength(payload, payload.remaining(), "dictionary size");
+        String[] sensorIds = new String[sensorCount];
+        for (int i = 0; i < sensorCount; i++) {
+            int idLength = readLength(payload, Math.min(MAX_SENSOR_ID_LENGTH, payload.remaining()), "sensor ID length");
+            sensorIds[i] = decodeUtf8(payload, idLength);
+        }
+        int readings = readLength(payload, payload.remaining() / MIN_READING_LENGTH, "reading count");
+
+        frame.reset(sensorIds, readings);
+
+        long timestamp = payload.getLong();
+        for (int i = 0; i < readings; i++) {
+            long sensorIndex = readVarint(payload);
+            // A ten-byte varint can set the sign bit
+            if (sensorIndex < 0 || sensorIndex >= sensorCount) {
+                throw new MalformedReadingFrameException("Sensor index " + sensorIndex + " outside dictionary");
+            }
+            long zigzag = readVarint(payload);
+            timestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+            frame.set(i, (int) sensorIndex, timestamp, payload.getDouble());
+        }
+        if (payload.hasRemaining()) {
+            throw new MalformedReadingFrameException(payload.remaining() + " trailing bytes in frame");
+        }
+    }
+
+    private static int readLength(ByteBuffer payload, int max, String name) {
+        long value = readVarint(payload);
+        if (value < 0 || value > max) {
+            throw new MalformedReadingFrameException("Invalid " + name + " " + value);
+        }
+        return (int) value;
+    }
+
+    private static String decodeUtf8(ByteBuffer payload, int length) {
+        String value;
+        if (payload.hasArray()) {
+            value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, StandardCharsets.UTF_8);
+            payload.position(payload.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            payload.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new MalformedReadingFrameException("Varint longer than 10 bytes");
+    }
+}
@@ -0,0 +1,106 @@
+package com.mertani.iot.telemetry;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds frames in the format read by {@link ReadingFrameDecoder}. Readings are
+ * collected with {@link #add} and written out as one frame by
+ * {@link #writeFrame}, which also clears the encoder for the next frame.
+ */
+public class ReadingFrameEncoder {
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> sensorIds = new ArrayList<>();
+    private int[] sensorIndexes = new int[64];
+    private long[] timestamps = new long[64];
+    private double[] values = new double[64];
+    private int size;
+
+    public ReadingFrameEncoder add(String sensorId, long timestamp, double value) {
+        Integer index = dictionary.computeIfAbsent(sensorId, id -> {
+            sensorIds.add(id);
+            return sensorIds.size() - 1;
+        });
+        if (size == values.length) {
+            sensorIndexes = Arrays.copyOf(sensorIndexes, size * 2);
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        sensorIndexes[size] = index;
+        timestamps[size] = timestamp;
+        values[size] = value;
+        size++;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends the collected readings to {@code out} as one frame and resets.
+     */
+    public void writeFrame(ByteArrayOutputStream out) {
+        ByteBuffer payload = ByteBuffer.allocate(payloadUpperBound());
+        payload.put((byte) ReadingFrameDecoder.VERSION);
+        writeVarint(payload, sensorIds.size());
+        for (String sensorId : sensorIds) {
+            byte[] bytes = sensorId.getBytes(StandardCharsets.UTF_8);
+            writeVarint(payload, bytes.length);
+            payload.put(bytes);
+        }
+        writeVarint(payload, size);
+        long previous = size > 0 ? timestamps[0] : 0;
+        payload.putLong(previous);
+        for (int i = 0; i < size; i++) {
+            long delta = timestamps[i] - previous;
+            previous = timestamps[i];
+            writeVarint(payload, sensorIndexes[i]);
+            writeVarint(payload, (delta << 1) ^ (delta >> 63));
+            payload.putDouble(values[i]);
+        }
+
+        int length = payload.position();
+        out.write(length >>> 24);
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+        out.write(payload.array(), 0, length);
+
+        dictionary.clear();
+        sensorIds.clear();
+        size = 0;
+    }
+
+    /**
+     * Encodes the collected readings as a single-frame body.
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeFrame(out);
+        return out.toByteArray();
+    }
+
+    private int payloadUpperBound() {
+        int bound = 1 + 5 + 5 + Long.BYTES + size * (5 + 10 + Double.BYTES);
+        for (String sensorId : sensorIds) {
+            bound += 5 + sensorId.length() * 3;
+        }
+        return bound;
+    }
+
+    private static void writeVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
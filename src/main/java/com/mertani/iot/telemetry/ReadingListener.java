@@ -0,0 +1,14 @@
+package com.mertani.iot.telemetry;
+
+/**
+ * Callback for every reading accepted on the ingest path. Called on the
+ * producing thread right after the reading is buffered, so implementations
+ * must return quickly and must not block.
+ */
+public interface ReadingListener {
+
+    /**
+     * @param timestamp epoch milliseconds
+     */
+    void onReading(SensorRef ref, long timestamp, double value);
+}
@@ -0,0 +1,8 @@
+package com.mertani.iot.telemetry;
+
+/**
+ * Resolved identity of an active sensor: the external {@code sensorId} string
+ * together with the primary keys needed on the ingest path.
+ */
+public record SensorRef(String sensorId, long id, long deviceId) {
+}
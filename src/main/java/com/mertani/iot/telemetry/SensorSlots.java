@@ -0,0 +1,119 @@
+package com.mertani.iot.telemetry;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Dense {@code int} slots for sensor primary keys, so per-sensor state can be
+ * kept in primitive arrays indexed by slot (see {@link SlotPages}) instead of
+ * boxed maps. Lookups are lock-free probes of an open-addressing table; new
+ * keys are added under a lock and the table is replaced by a grown copy when it
+ * gets half full. Slots are never reused, and sensor IDs must be positive.
+ */
+@Component
+public class SensorSlots {
+
+    private static final int MISSING = -1;
+
+    private volatile Table table = new Table(1024);
+    private int size;
+
+    /**
+     * @return the slot of {@code sensorId}, or -1 if it has none yet
+     */
+    public int get(long sensorId) {
+        return table.get(sensorId);
+    }
+
+    /**
+     * @return the slot of {@code sensorId}, assigning the next free one on first use
+     */
+    public int getOrAssign(long sensorId) {
+        int slot = table.get(sensorId);
+        return slot != MISSING ? slot : assign(sensorId);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized int assign(long sensorId) {
+        if (sensorId <= 0) {
+            throw new IllegalArgumentException("Sensor IDs must be positive: " + sensorId);
+        }
+        Table current = table;
+        int slot = current.get(sensorId);
+        if (slot != MISSING) {
+            return slot;
+        }
+        if ((size + 1) * 2 > current.capacity()) {
+            current = current.grow();
+            table = current;
+        }
+        slot = size++;
+        current.put(sensorId, slot);
+        return slot;
+    }
+
+    /**
+     * Linear probing over {@code keys}, 0 marking a free entry. A slot is written
+     * before its key, so a reader that sees the key also sees the slot.
+     */
+    private static final class Table {
+
+        private final AtomicLongArray keys;
+        private final int[] slots;
+        private final int mask;
+
+        private Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.slots = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        private int capacity() {
+            return slots.length;
+        }
+
+        private int get(long key) {
+            if (key <= 0) {
+                return MISSING;
+            }
+            for (int i = index(key); ; i = (i + 1) & mask) {
+                long candidate = keys.get(i);
+                if (candidate == key) {
+                    return slots[i];
+                }
+                if (candidate == 0) {
+                    return MISSING;
+                }
+            }
+        }
+
+        private void put(long key, int slot) {
+            int i = index(key);
+            while (keys.get(i) != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = slot;
+            keys.set(i, key);
+        }
+
+        private Table grow() {
+            Table grown = new Table(capacity() * 2);
+            for (int i = 0; i < capacity(); i++) {
+                long key = keys.get(i);
+                if (key != 0) {
+                    grown.put(key, slots[i]);
+                }
+            }
+            return grown;
+        }
+
+        private int index(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
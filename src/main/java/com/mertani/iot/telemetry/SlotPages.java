@@ -0,0 +1,66 @@
+package com.mertani.iot.telemetry;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Per-slot primitive values (one array type per instance) split into fixed-size
+ * pages that are allocated on first use. Pages never move once allocated, so a
+ * write to one slot can't be lost to another slot's growth, and readers need
+ * no lock.
+ *
+ * @param <A> the page array type, e.g. {@code double[]}
+ */
+public class SlotPages<A> {
+
+    public static final int PAGE_SIZE = 1024;
+
+    private static final int PAGE_SHIFT = Integer.numberOfTrailingZeros(PAGE_SIZE);
+
+    private final IntFunction<A> pageFactory;
+    private volatile Object[] pages = new Object[0];
+
+    /**
+     * @param pageFactory creates a page of {@link #PAGE_SIZE} initial values
+     */
+    public SlotPages(IntFunction<A> pageFactory) {
+        this.pageFactory = pageFactory;
+    }
+
+    /** Index of {@code slot} within its page. */
+    public static int offset(int slot) {
+        return slot & (PAGE_SIZE - 1);
+    }
+
+    /**
+     * @return the page holding {@code slot}, or null if nothing was stored for it yet
+     */
+    @SuppressWarnings("unchecked")
+    public A pageIfPresent(int slot) {
+        Object[] current = pages;
+        int index = slot >>> PAGE_SHIFT;
+        return index < current.length ? (A) current[index] : null;
+    }
+
+    /**
+     * @return the page holding {@code slot}, allocating it if needed
+     */
+    public A page(int slot) {
+        A page = pageIfPresent(slot);
+        return page != null ? page : allocate(slot >>> PAGE_SHIFT);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized A allocate(int index) {
+        Object[] current = pages;
+        if (index < current.length && current[index] != null) {
+            return (A) current[index];
+        }
+        // Published as a new array, so readers never see a half-filled page table
+        Object[] grown = Arrays.copyOf(current, Math.max(current.length, index + 1));
+        A page = pageFactory.apply(PAGE_SIZE);
+        grown[index] = page;
+        pages = grown;
+        return page;
+    }
+}
@@ -0,0 +1,122 @@
+package com.mertani.iot.timeseries;
+
+/**
+ * Iterates over a block written by {@link ReadingBlockEncoder}:
+ * <pre>
+ * ReadingBlockDecoder decoder = new ReadingBlockDecoder(data, count);
+ * while (decoder.next()) {
+ *     use(decoder.timestamp(), decoder.value());
+ * }
+ * </pre>
+ */
+public class ReadingBlockDecoder {
+
+    private final byte[] data;
+    private final int count;
+    private int next;
+    // Unread bits, left-aligned
+    private long buffer;
+    private int bufferBits;
+
+    private int read;
+    private long timestamp;
+    private long delta;
+    private long valueBits;
+    private int leading;
+    private int trailing;
+
+    /**
+     * @param count number of readings in the block
+     */
+    public ReadingBlockDecoder(byte[] data, int count) {
+        this.data = data;
+        this.count = count;
+    }
+
+    /**
+     * Advances to the next reading.
+     *
+     * @return false once all {@code count} readings have been read
+     */
+    public boolean next() {
+        if (read == count) {
+            return false;
+        }
+        if (read == 0) {
+            timestamp = readLong();
+            valueBits = readLong();
+        } else {
+            delta += readDeltaOfDelta();
+            timestamp += delta;
+            readXor();
+        }
+        read++;
+        return true;
+    }
+
+    /** Epoch milliseconds of the current reading. */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    public double value() {
+        return Double.longBitsToDouble(valueBits);
+    }
+
+    private long readDeltaOfDelta() {
+        if (readBits(1) == 0) {
+            return 0;
+        }
+        if (readBits(1) == 0) {
+            return readBits(7) - 63;
+        }
+        if (readBits(1) == 0) {
+            return readBits(9) - 255;
+        }
+        if (readBits(1) == 0) {
+            return readBits(12) - 2047;
+        }
+        return readLong();
+    }
+
+    private void readXor() {
+        if (readBits(1) == 0) {
+            return;
+        }
+        if (readBits(1) == 1) {
+            leading = (int) readBits(5);
+            int length = (int) readBits(6);
+            trailing = 64 - leading - (length == 0 ? 64 : length);
+        }
+        int length = 64 - leading - trailing;
+        long meaningful = length > 32 ? (readBits(length - 32) << 32) | readBits(32) : readBits(length);
+        valueBits ^= meaningful << trailing;
+    }
+
+    private long readLong() {
+        return (readBits(32) << 32) | readBits(32);
+    }
+
+    /**
+     * @param bits 1 to 32
+     */
+    private long readBits(int bits) {
+        if (bufferBits < bits) {
+            refill();
+            if (bufferBits < bits) {
+                throw new IllegalArgumentException("Reading block ends after " + read + " of " + count + " readings");
+            }
+        }
+        long value = buffer >>> (64 - bits);
+        buffer <<= bits;
+        bufferBits -= bits;
+        return value;
+    }
+
+    private void refill() {
+        while (bufferBits <= 56 && next < data.length) {
+            buffer |= (data[next++] & 0xFFL) << (56 - bufferBits);
+            bufferBits += 8;
+        }
+    }
+}
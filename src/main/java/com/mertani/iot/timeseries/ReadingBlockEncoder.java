@@ -0,0 +1,173 @@
+package com.mertani.iot.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Packs one sensor's readings, in ascending timestamp order, into a block in
+ * the Gorilla format read by {@link ReadingBlockDecoder}. The block starts
+ * with the first timestamp and value in 64 bits each; every further reading
+ * stores the change of its timestamp delta and the XOR of its value with the
+ * previous one, so a sensor reporting at a fixed interval with a repeating
+ * value costs 2 bits per reading. Bits are written most significant first.
+ * <p>
+ * Delta-of-delta timestamps (milliseconds):
+ * <pre>
+ * 0                     dod = 0
+ * 10   + 7 bits         dod in [-63, 64]
+ * 110  + 9 bits         dod in [-255, 256]
+ * 1110 + 12 bits        dod in [-2047, 2048]
+ * 1111 + 64 bits        anything else
+ * </pre>
+ * XOR of the IEEE 754 bits of each value with the previous one:
+ * <pre>
+ * 0                     xor = 0
+ * 10   + meaningful bits   within the previous leading/trailing zero window
+ * 11   + 5 bits leading zeros + 6 bits length (64 as 0) + meaningful bits
+ * </pre>
+ */
+public class ReadingBlockEncoder {
+
+    private byte[] bytes = new byte[256];
+    private int byteCount;
+    // Pending bits, right-aligned
+    private long pending;
+    private int pendingBits;
+
+    private int size;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private long lastValueBits;
+    private int lastLeading = -1;
+    private int lastTrailing;
+
+    /**
+     * @param timestamp epoch milliseconds, greater than the previous reading's
+     */
+    public void add(long timestamp, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (size == 0) {
+            firstTimestamp = timestamp;
+            write(timestamp, 64);
+            write(valueBits, 64);
+        } else {
+            long delta = timestamp - lastTimestamp;
+            writeDeltaOfDelta(delta - lastDelta);
+            writeXor(valueBits ^ lastValueBits);
+            lastDelta = delta;
+        }
+        lastTimestamp = timestamp;
+        lastValueBits = valueBits;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public double lastValue() {
+        return Double.longBitsToDouble(lastValueBits);
+    }
+
+    /**
+     * The encoded block; the decoder also needs {@link #size()}.
+     */
+    public byte[] toByteArray() {
+        int tailBytes = (pendingBits + 7) / 8;
+        byte[] block = Arrays.copyOf(bytes, byteCount + tailBytes);
+        long tail = pendingBits == 0 ? 0 : pending << (64 - pendingBits);
+        for (int i = 0; i < tailBytes; i++) {
+            block[byteCount + i] = (byte) (tail >>> (56 - 8 * i));
+        }
+        return block;
+    }
+
+    public void reset() {
+        byteCount = 0;
+        pending = 0;
+        pendingBits = 0;
+        size = 0;
+        lastDelta = 0;
+        lastLeading = -1;
+        lastTrailing = 0;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            write(0, 1);
+        } else if (dod >= -63 && dod <= 64) {
+            write(0b10, 2);
+            write(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            write(0b110, 3);
+            write(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            write(0b1110, 4);
+            write(dod + 2047, 12);
+        } else {
+            write(0b1111, 4);
+            write(dod, 64);
+        }
+    }
+
+    private void writeXor(long xor) {
+        if (xor == 0) {
+            write(0, 1);
+            return;
+        }
+        // Capped to fit in 5 bits
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+            write(0b10, 2);
+            write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+        } else {
+            int length = 64 - leading - trailing;
+            write(0b11, 2);
+            write(leading, 5);
+            write(length & 63, 6);
+            write(xor >>> trailing, length);
+            lastLeading = leading;
+            lastTrailing = trailing;
+        }
+    }
+
+    private void write(long value, int bits) {
+        if (bits < 64) {
+            value &= (1L << bits) - 1;
+        }
+        int free = 64 - pendingBits;
+        if (bits < free) {
+            pending = (pending << bits) | value;
+            pendingBits += bits;
+            return;
+        }
+        // Fill the word, flush it, keep the rest
+        int rest = bits - free;
+        long word = free == 64 ? value : (pending << free) | (value >>> rest);
+        flushWord(word);
+        pending = rest == 0 ? 0 : value & ((1L << rest) - 1);
+        pendingBits = rest;
+    }
+
+    private void flushWord(long word) {
+        if (byteCount + 8 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        for (int i = 0; i < 8; i++) {
+            bytes[byteCount++] = (byte) (word >>> (56 - 8 * i));
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.mertani.iot.timeseries;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compresses closed readings partitions older than
+ * {@code iot.readings.compress-after-days} into {@code sensor_reading_blocks}:
+ * per sensor, runs of up to {@value #BLOCK_SIZE} readings within one UTC day
+ * are packed by {@link ReadingBlockEncoder} into a single row, and the
+ * partition is dropped in the same transaction. Timestamps keep millisecond
+ * precision, as ingested.
+ * <p>
+ * Compressed time is read-only: {@link #writableFrom()} is the end of the
+ * last compressed partition. Readings before it are rejected at ingest, and
+ * dropped when a batch accepted earlier is written after all.
+ * Raw queries decode the blocks they cover; rollups are computed before
+ * compression and stay as they are, though a rebuild of empty rollups only
+ * sees readings that are still raw.
+ */
+@Slf4j
+@Component
+public class ReadingCompactor {
+
+    static final int BLOCK_SIZE = 3600;
+
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final int FETCH_SIZE = 10_000;
+    private static final int INSERT_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadingPartitions partitions;
+    private final int compressAfterDays;
+
+    // One compaction at a time
+    private final ReentrantLock compactLock = new ReentrantLock();
+
+    private volatile long writableFrom = Long.MIN_VALUE;
+
+    public ReadingCompactor(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            ReadingPartitions partitions,
+                            @Value("${iot.readings.compress-after-days:0}") int compressAfterDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitions = partitions;
+        this.compressAfterDays = compressAfterDays;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        if (!partitions.isPartitioned()) {
+            return;
+        }
+        OffsetDateTime last = jdbcTemplate.queryForObject(
+                "SELECT max(last_at) FROM " + ReadingPartitions.BLOCKS_TABLE, OffsetDateTime.class);
+        writableFrom = last == null
+                ? Long.MIN_VALUE
+                : partitions.periodEnd(last.toInstant().toEpochMilli()).toEpochMilli();
+    }
+
+    /**
+     * Epoch milliseconds before which readings are compressed and can no longer be written.
+     */
+    public long writableFrom() {
+        return writableFrom;
+    }
+
+    @Scheduled(fixedDelayString = "${iot.readings.partition-check-interval-ms:3600000}",
+            initialDelayString = "${iot.readings.partition-check-interval-ms:3600000}")
+    public void compact() {
+        if (compressAfterDays > 0) {
+            compactBefore(Instant.ofEpochMilli(System.currentTimeMillis() - compressAfterDays * DAY_MILLIS));
+        }
+    }
+
+    /**
+     * Compresses every partition that ends at or before {@code cutoff}.
+     *
+     * @return number of partitions compressed
+     */
+    public int compactBefore(Instant cutoff) {
+        compactLock.lock();
+        try {
+            if (!partitions.isPartitioned()) {
+                return 0;
+            }
+            List<ReadingPartitions.Partition> closed = partitions.partitionsBefore(cutoff);
+            for (ReadingPartitions.Partition partition : closed) {
+                // Raised first, so ingest stops writing to the partition before it is read
+                writableFrom = Math.max(writableFrom, partition.end().toEpochMilli());
+                long startedAt = System.nanoTime();
+                int[] counts = transactionTemplate.execute(status -> compact(partition.name()));
+                log.info("Compressed readings partition {}: {} readings into {} blocks in {} ms",
+                        partition.name(), counts[0], counts[1], (System.nanoTime() - startedAt) / 1_000_000);
+            }
+            return closed.size();
+        } finally {
+            compactLock.unlock();
+        }
+    }
+
+    private int[] compact(String partition) {
+        // Waits for writes in flight and holds off new ones until the partition is dropped
+        jdbcTemplate.execute("LOCK TABLE " + partition + " IN SHARE MODE");
+        BlockWriter writer = new BlockWriter();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT sensor_id, recorded_at, reading_value FROM "
+                    + partition + " ORDER BY sensor_id, recorded_at");
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> writer.add(rs.getLong(1), rs.getTimestamp(2).getTime(), rs.getDouble(3)));
+        writer.finish();
+        partitions.drop(partition);
+        return new int[]{writer.readings, writer.blocks};
+    }
+
+    /** Cuts one sensor's ordered readings into blocks and inserts them in batches. */
+    private final class BlockWriter {
+
+        private final ReadingBlockEncoder encoder = new ReadingBlockEncoder();
+        private final List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        private long sensorId;
+        private long day;
+        private int readings;
+        private int blocks;
+
+        void add(long sensorId, long timestamp, double value) {
+            long readingDay = Math.floorDiv(timestamp, DAY_MILLIS);
+            if (!encoder.isEmpty()
+                    && (sensorId != this.sensorId || readingDay != day || encoder.size() == BLOCK_SIZE)) {
+                close();
+            }
+            this.sensorId = sensorId;
+            day = readingDay;
+            encoder.add(timestamp, value);
+            readings++;
+        }
+
+        void finish() {
+            if (!encoder.isEmpty()) {
+                close();
+            }
+            flush();
+        }
+
+        private void close() {
+            batch.add(new Object[]{sensorId, timestamp(encoder.firstTimestamp()), timestamp(encoder.lastTimestamp()),
+                    encoder.size(), encoder.lastValue(), encoder.toByteArray()});
+            encoder.reset();
+            blocks++;
+            if (batch.size() == INSERT_BATCH) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO " + ReadingPartitions.BLOCKS_TABLE
+                    + " (sensor_id, first_at, last_at, reading_count, last_value, data) VALUES (?, ?, ?, ?, ?, ?)",
+                    batch);
+            batch.clear();
+        }
+    }
+
+    private static OffsetDateTime timestamp(long epochMillis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,348 @@
+package com.mertani.iot.timeseries;
+
+import com.mertani.iot.telemetry.ReadingBatch;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the readings schema: {@code sensor_readings} range-partitioned by
+ * {@code recorded_at} into one table per day or week, plus the {@link Rollup}
+ * tables. Partitions are created ahead of time by {@link #maintain()} and, for
+ * readings outside that window (backfills, skewed device clocks), on demand
+ * before a batch is written, up to a limit per batch. Partitions older than
+ * the retention period are dropped whole instead of deleting rows.
+ * <p>
+ * Closed partitions may be compressed into {@code sensor_reading_blocks} by
+ * {@link ReadingCompactor}; retention applies to those blocks as well.
+ * <p>
+ * An unpartitioned {@code sensor_readings} from earlier versions is kept as the
+ * partition for everything up to the end of the current period. Partitioning,
+ * rollups and compression need PostgreSQL; on other databases the readings
+ * table is created unpartitioned.
+ */
+@Slf4j
+@Component
+public class ReadingPartitions {
+
+    public static final String TABLE = "sensor_readings";
+    public static final String BLOCKS_TABLE = "sensor_reading_blocks";
+
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    // Thursday 1970-01-01 is epoch day 0, so weeks start on epoch days 4 + 7n
+    private static final long FIRST_MONDAY = 4;
+
+    // Overlaps an existing partition (e.g. the migrated one), or lost a creation race
+    private static final Set<String> ALREADY_COVERED = Set.of("42P17", "42P07", "23505");
+
+    private static final String COLUMNS = "sensor_id BIGINT NOT NULL, "
+            + "recorded_at TIMESTAMP(6) WITH TIME ZONE NOT NULL, "
+            + "reading_value DOUBLE PRECISION NOT NULL, "
+            + "PRIMARY KEY (sensor_id, recorded_at)";
+
+    private static final String ROLLUP_COLUMNS = "sensor_id BIGINT NOT NULL, "
+            + "bucket TIMESTAMP(6) WITH TIME ZONE NOT NULL, "
+            + "min_value DOUBLE PRECISION NOT NULL, "
+            + "max_value DOUBLE PRECISION NOT NULL, "
+            + "sum_value DOUBLE PRECISION NOT NULL, "
+            + "value_count BIGINT NOT NULL, "
+            + "last_at TIMESTAMP(6) WITH TIME ZONE NOT NULL, "
+            + "last_value DOUBLE PRECISION NOT NULL, "
+            + "PRIMARY KEY (sensor_id, bucket)";
+
+    // One block never spans a UTC day, see ReadingCompactor
+    private static final String BLOCK_COLUMNS = "sensor_id BIGINT NOT NULL, "
+            + "first_at TIMESTAMP(6) WITH TIME ZONE NOT NULL, "
+            + "last_at TIMESTAMP(6) WITH TIME ZONE NOT NULL, "
+            + "reading_count INTEGER NOT NULL, "
+            + "last_value DOUBLE PRECISION NOT NULL, "
+            + "data BYTEA NOT NULL, "
+            + "PRIMARY KEY (sensor_id, first_at)";
+
+    public enum Interval { DAY, WEEK }
+
+    /** A partition and the exclusive upper end of its range. */
+    record Partition(String name, Instant end) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Interval interval;
+    private final int ahead;
+    private final int retentionDays;
+
+    // Start (epoch day) of every partition known to exist or to be covered by another one
+    private final Set<Long> known = ConcurrentHashMap.newKeySet();
+    private volatile boolean partitioned;
+
+    public ReadingPartitions(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${iot.readings.partition-interval:DAY}") Interval interval,
+                             @Value("${iot.readings.partitions-ahead:7}") int ahead,
+                             @Value("${iot.readings.retention-days:0}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.interval = interval;
+        this.ahead = ahead;
+        this.retentionDays = retentionDays;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        partitioned = "PostgreSQL".equals(database);
+        if (!partitioned) {
+            log.warn("Readings are not partitioned or rolled up on {}; PostgreSQL is required", database);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (" + COLUMNS + ")");
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            String kind = jdbcTemplate.queryForObject(
+                    "SELECT (SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?))", String.class, TABLE);
+            if ("r".equals(kind)) {
+                migrate();
+            } else if (kind == null) {
+                jdbcTemplate.execute("CREATE TABLE " + TABLE + " (" + COLUMNS + ") PARTITION BY RANGE (recorded_at)");
+            }
+            for (Rollup rollup : Rollup.values()) {
+                // Rollups without the last value are dropped; RollupJob rebuilds empty rollups from the readings
+                Boolean current = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM pg_attribute "
+                        + "WHERE attrelid = to_regclass(?) AND attname = 'last_value')", Boolean.class, rollup.table());
+                if (!current) {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + rollup.table());
+                }
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + rollup.table() + " (" + ROLLUP_COLUMNS + ")");
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + BLOCKS_TABLE + " (" + BLOCK_COLUMNS + ")");
+            // Blocks are already compressed; skip TOAST's attempt to compress them again
+            jdbcTemplate.execute("ALTER TABLE " + BLOCKS_TABLE + " ALTER COLUMN data SET STORAGE EXTERNAL");
+        });
+        // Existing partitions don't count towards the limit of those created per batch
+        for (String partition : partitionNames()) {
+            known.add(startDay(partition));
+        }
+        maintain();
+    }
+
+    /**
+     * Whether the readings table is partitioned and rolled up, i.e. the database is PostgreSQL.
+     */
+    public boolean isPartitioned() {
+        return partitioned;
+    }
+
+    /**
+     * Creates the partitions of the next {@code iot.readings.partitions-ahead}
+     * periods and drops those past {@code iot.readings.retention-days}.
+     */
+    @Scheduled(fixedDelayString = "${iot.readings.partition-check-interval-ms:3600000}",
+            initialDelayString = "${iot.readings.partition-check-interval-ms:3600000}")
+    public void maintain() {
+        if (!partitioned) {
+            return;
+        }
+        long current = periodStart(Math.floorDiv(System.currentTimeMillis(), DAY_MILLIS));
+        for (int i = 0; i <= ahead; i++) {
+            ensure(current + (long) i * periodDays());
+        }
+        if (retentionDays > 0) {
+            dropBefore(Math.floorDiv(System.currentTimeMillis(), DAY_MILLIS) - retentionDays);
+        }
+    }
+
+    /**
+     * Makes sure the readings of {@code batch} have a partition to go to,
+     * creating at most {@code maxCreated} partitions. Periods before
+     * {@code writableFrom} were compressed by {@link ReadingCompactor} and are
+     * not created again.
+     *
+     * @return {@code batch}, or a copy without the readings that were left
+     *         without a partition
+     */
+    public ReadingBatch ensure(ReadingBatch batch, long writableFrom, int maxCreated) {
+        if (!partitioned) {
+            return batch;
+        }
+        int created = 0;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < batch.size(); i++) {
+            long start = periodStart(Math.floorDiv(batch.timestamp(i), DAY_MILLIS));
+            if (start != last && start * DAY_MILLIS >= writableFrom && !known.contains(start)
+                    && created < maxCreated) {
+                ensure(start);
+                created++;
+            }
+            last = start;
+        }
+
+        int kept = 0;
+        last = Long.MIN_VALUE;
+        boolean covered = false;
+        for (int i = 0; i < batch.size(); i++) {
+            long start = periodStart(Math.floorDiv(batch.timestamp(i), DAY_MILLIS));
+            if (start != last) {
+                covered = covered(start, writableFrom);
+                last = start;
+            }
+            if (covered) {
+                kept++;
+            }
+        }
+        if (kept == batch.size()) {
+            return batch;
+        }
+        ReadingBatch writable = new ReadingBatch(kept);
+        last = Long.MIN_VALUE;
+        for (int i = 0; i < batch.size(); i++) {
+            long start = periodStart(Math.floorDiv(batch.timestamp(i), DAY_MILLIS));
+            if (start != last) {
+                covered = covered(start, writableFrom);
+                last = start;
+            }
+            if (covered) {
+                writable.add(batch.sensorId(i), batch.timestamp(i), batch.value(i));
+            }
+        }
+        log.warn("Dropped {} readings without a partition: compressed, or past the {} partitions created per write",
+                batch.size() - kept, maxCreated);
+        return writable;
+    }
+
+    private boolean covered(long startDay, long writableFrom) {
+        return startDay * DAY_MILLIS >= writableFrom && known.contains(startDay);
+    }
+
+    private void ensure(long startDay) {
+        if (known.contains(startDay)) {
+            return;
+        }
+        String sql = "CREATE TABLE IF NOT EXISTS " + partitionName(startDay) + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + literal(startDay) + "') TO ('" + literal(startDay + periodDays()) + "')";
+        try {
+            jdbcTemplate.execute(sql);
+            log.debug("Created readings partition {}", partitionName(startDay));
+        } catch (DataAccessException ex) {
+            if (!(ex.getMostSpecificCause() instanceof SQLException cause)
+                    || !ALREADY_COVERED.contains(cause.getSQLState())) {
+                throw ex;
+            }
+        }
+        known.add(startDay);
+    }
+
+    /**
+     * Turns the unpartitioned table into the first partition, covering
+     * everything before the next period.
+     */
+    private void migrate() {
+        long end = periodStart(Math.floorDiv(System.currentTimeMillis(), DAY_MILLIS)) + periodDays();
+        String legacy = TABLE + "_legacy";
+        log.info("Partitioning {}: existing rows become partition {}", TABLE, legacy);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + legacy);
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (" + COLUMNS + ") PARTITION BY RANGE (recorded_at)");
+        // The old key is (recorded_at, sensor_id); attaching builds the parent's in its place
+        String oldKey = jdbcTemplate.queryForObject(
+                "SELECT conname FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'p'",
+                String.class, legacy);
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " DROP CONSTRAINT " + oldKey);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + legacy
+                + " FOR VALUES FROM (MINVALUE) TO ('" + literal(end) + "')");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_sensor_readings_sensor_time");
+    }
+
+    private void dropBefore(long firstKeptDay) {
+        for (String partition : partitionNames()) {
+            long startDay = startDay(partition);
+            // Only once its last day is past retention
+            if (startDay + periodDays() <= firstKeptDay) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                known.remove(startDay);
+                log.info("Dropped readings partition {} past {} days of retention", partition, retentionDays);
+            }
+        }
+        int blocks = jdbcTemplate.update("DELETE FROM " + BLOCKS_TABLE + " WHERE last_at < ?",
+                OffsetDateTime.ofInstant(Instant.ofEpochSecond(firstKeptDay * 86_400L), ZoneOffset.UTC));
+        if (blocks > 0) {
+            log.info("Deleted {} compressed reading blocks past {} days of retention", blocks, retentionDays);
+        }
+    }
+
+    /**
+     * Names of the per-period partitions, i.e. all but the migrated one.
+     */
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = to_regclass(?) AND c.relname ~ '_p[0-9]{8}$'", String.class, TABLE);
+    }
+
+    private static long startDay(String partition) {
+        return LocalDate.parse(partition.substring(partition.length() - 8), SUFFIX).toEpochDay();
+    }
+
+    /**
+     * Partitions whose whole range lies before {@code cutoff}, oldest first.
+     */
+    List<Partition> partitionsBefore(Instant cutoff) {
+        // Upper bounds are parsed back in the same session they are printed in, so the time zone matches
+        return jdbcTemplate.query("SELECT name, upper FROM (SELECT c.relname AS name, "
+                        + "(regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]"
+                        + "::timestamptz AS upper FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = to_regclass(?)) p WHERE upper <= ? ORDER BY upper",
+                (rs, row) -> new Partition(rs.getString(1), rs.getObject(2, OffsetDateTime.class).toInstant()),
+                TABLE, OffsetDateTime.ofInstant(cutoff, ZoneOffset.UTC));
+    }
+
+    /**
+     * Drops a partition; call within the transaction that moved its rows elsewhere.
+     */
+    void drop(String partition) {
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        if (partition.matches(".*_p[0-9]{8}$")) {
+            known.remove(startDay(partition));
+        }
+    }
+
+    /**
+     * End of the partition period containing {@code epochMillis}.
+     */
+    Instant periodEnd(long epochMillis) {
+        long end = periodStart(Math.floorDiv(epochMillis, DAY_MILLIS)) + periodDays();
+        return Instant.ofEpochSecond(end * 86_400L);
+    }
+
+    private long periodStart(long epochDay) {
+        return interval == Interval.DAY ? epochDay : epochDay - Math.floorMod(epochDay - FIRST_MONDAY, 7);
+    }
+
+    private int periodDays() {
+        return interval == Interval.DAY ? 1 : 7;
+    }
+
+    private static String partitionName(long startDay) {
+        return TABLE + "_p" + LocalDate.ofEpochDay(startDay).format(SUFFIX);
+    }
+
+    private static String literal(long epochDay) {
+        return Instant.ofEpochSecond(epochDay * 86_400L).atOffset(ZoneOffset.UTC).toString();
+    }
+}
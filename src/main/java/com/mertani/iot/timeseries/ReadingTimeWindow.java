@@ -0,0 +1,60 @@
+package com.mertani.iot.timeseries;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Timestamps that readings are accepted at, checked before they are buffered:
+ * no older than {@code iot.readings.max-age-days} at ingest or
+ * {@code iot.readings.import-max-age-days} in a CSV import, no further ahead of
+ * the clock than {@code iot.readings.max-future-skew-ms}, and not in time
+ * already compressed by {@link ReadingCompactor}. Every day or week a reading
+ * falls in gets a partition, so a stray device clock must not be able to
+ * create tables for arbitrary years, or fail the batch it is written with;
+ * backfilling older history is left to imports.
+ */
+@Component
+public class ReadingTimeWindow {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final ReadingCompactor compactor;
+    private final long maxAgeMillis;
+    private final long importMaxAgeMillis;
+    private final long maxFutureSkewMillis;
+
+    public ReadingTimeWindow(ReadingCompactor compactor,
+                             @Value("${iot.readings.max-age-days:7}") int maxAgeDays,
+                             @Value("${iot.readings.import-max-age-days:3650}") int importMaxAgeDays,
+                             @Value("${iot.readings.max-future-skew-ms:86400000}") long maxFutureSkewMillis) {
+        this.compactor = compactor;
+        this.maxAgeMillis = maxAgeDays * DAY_MILLIS;
+        this.importMaxAgeMillis = importMaxAgeDays * DAY_MILLIS;
+        this.maxFutureSkewMillis = maxFutureSkewMillis;
+    }
+
+    /**
+     * Epoch milliseconds of the earliest timestamp accepted at ingest now.
+     */
+    public long from() {
+        return from(maxAgeMillis);
+    }
+
+    /**
+     * Epoch milliseconds of the earliest timestamp accepted in an import now.
+     */
+    public long importFrom() {
+        return from(importMaxAgeMillis);
+    }
+
+    /**
+     * Epoch milliseconds of the latest timestamp accepted now.
+     */
+    public long to() {
+        return System.currentTimeMillis() + maxFutureSkewMillis;
+    }
+
+    private long from(long maxAge) {
+        return Math.max(System.currentTimeMillis() - maxAge, compactor.writableFrom());
+    }
+}
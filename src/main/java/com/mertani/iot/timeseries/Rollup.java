@@ -0,0 +1,55 @@
+package com.mertani.iot.timeseries;
+
+import java.time.Duration;
+
+/**
+ * Pre-aggregated reading tables, finest first. Each row holds the min, max,
+ * sum, count and newest reading of one sensor's readings in one UTC bucket;
+ * each level is computed from the one before it.
+ */
+public enum Rollup {
+
+    MINUTE("1m", "sensor_readings_1m", "minute", Duration.ofMinutes(1)),
+    HOUR("1h", "sensor_readings_1h", "hour", Duration.ofHours(1)),
+    DAY("1d", "sensor_readings_1d", "day", Duration.ofDays(1));
+
+    private final String label;
+    private final String table;
+    private final String truncateTo;
+    private final Duration bucket;
+
+    Rollup(String label, String table, String truncateTo, Duration bucket) {
+        this.label = label;
+        this.table = table;
+        this.truncateTo = truncateTo;
+        this.bucket = bucket;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public String table() {
+        return table;
+    }
+
+    /** The {@code date_trunc} field for this level's buckets. */
+    public String truncateTo() {
+        return truncateTo;
+    }
+
+    public Duration bucket() {
+        return bucket;
+    }
+
+    public long bucketMillis() {
+        return bucket.toMillis();
+    }
+
+    /**
+     * @return the level this one is computed from, or null for the raw readings
+     */
+    public Rollup finer() {
+        return ordinal() == 0 ? null : values()[ordinal() - 1];
+    }
+}
@@ -0,0 +1,159 @@
+package com.mertani.iot.timeseries;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the {@link Rollup} tables up to date. Each run takes the sensor time
+ * ranges that {@link RollupTracker} saw written and recomputes just the
+ * affected buckets: minutes from the raw readings, hours from minutes, days
+ * from hours. Buckets are recomputed rather than added to, so late, repeated
+ * or re-delivered readings never count twice, and a failed run is simply
+ * retried.
+ * <p>
+ * Ranges are held in memory; after a restart the last
+ * {@code iot.rollups.recovery-window-ms} of readings is recomputed for every
+ * sensor, and everything is when the rollups are still empty (a new or
+ * migrated database).
+ */
+@Slf4j
+@Component
+public class RollupJob {
+
+    private static final String UPSERT = " ON CONFLICT (sensor_id, bucket) DO UPDATE SET "
+            + "min_value = excluded.min_value, max_value = excluded.max_value, "
+            + "sum_value = excluded.sum_value, value_count = excluded.value_count, "
+            + "last_at = excluded.last_at, last_value = excluded.last_value";
+
+    private static final OffsetDateTime END_OF_TIME = OffsetDateTime.of(9999, 12, 31, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadingPartitions partitions;
+    private final RollupTracker tracker;
+    private final long recoveryWindowMillis;
+    private final Timer runs;
+
+    // One run at a time
+    private final ReentrantLock runLock = new ReentrantLock();
+    private boolean recovered;
+
+    public RollupJob(JdbcTemplate jdbcTemplate,
+                     ReadingPartitions partitions,
+                     RollupTracker tracker,
+                     @Value("${iot.rollups.recovery-window-ms:3600000}") long recoveryWindowMillis,
+                     MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitions = partitions;
+        this.tracker = tracker;
+        this.recoveryWindowMillis = recoveryWindowMillis;
+        this.runs = Timer.builder("iot.rollups.run")
+                .description("Time to bring the reading rollups up to date")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${iot.rollups.interval-ms:10000}")
+    public void run() {
+        runLock.lock();
+        try {
+            if (!partitions.isPartitioned()) {
+                return;
+            }
+            if (!recovered) {
+                runs.record(this::recover);
+                recovered = true;
+            }
+            RollupTracker.DirtyRanges dirty = tracker.drain();
+            if (dirty.isEmpty()) {
+                return;
+            }
+            try {
+                runs.record(() -> {
+                    for (Rollup rollup : Rollup.values()) {
+                        refresh(rollup, dirty);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                for (int i = 0; i < dirty.size(); i++) {
+                    tracker.markDirty(dirty.sensorId(i), dirty.from(i), dirty.to(i));
+                }
+                log.error("Rolling up readings of {} sensors failed, retrying on the next run", dirty.size(), ex);
+            }
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private void refresh(Rollup rollup, RollupTracker.DirtyRanges dirty) {
+        long bucket = rollup.bucketMillis();
+        jdbcTemplate.batchUpdate(aggregateSql(rollup, "sensor_id = ? AND "), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, dirty.sensorId(i));
+                // Whole buckets, so every bucket touched is recomputed from all of its rows
+                ps.setObject(2, timestamp(Math.floorDiv(dirty.from(i), bucket) * bucket));
+                ps.setObject(3, timestamp(-Math.floorDiv(-dirty.to(i), bucket) * bucket));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return dirty.size();
+            }
+        });
+    }
+
+    private void recover() {
+        Instant from = Instant.ofEpochMilli(System.currentTimeMillis() - recoveryWindowMillis);
+        boolean empty = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM " + Rollup.MINUTE.table() + ")", Boolean.class);
+        if (empty) {
+            OffsetDateTime first = jdbcTemplate.queryForObject(
+                    "SELECT min(recorded_at) FROM " + ReadingPartitions.TABLE, OffsetDateTime.class);
+            if (first == null) {
+                return;
+            }
+            from = first.toInstant();
+        }
+        log.info("Rolling up readings since {}", from);
+        for (Rollup rollup : Rollup.values()) {
+            long bucket = rollup.bucketMillis();
+            long start = Math.floorDiv(from.toEpochMilli(), bucket) * bucket;
+            jdbcTemplate.update(aggregateSql(rollup, ""), timestamp(start), END_OF_TIME);
+        }
+    }
+
+    /**
+     * Recomputes the buckets of {@code rollup} in a time range, from the level
+     * below it. Takes the range (and, if {@code filter} has one, the sensor
+     * first) as parameters.
+     */
+    private static String aggregateSql(Rollup rollup, String filter) {
+        String select = rollup == Rollup.MINUTE
+                ? "SELECT sensor_id, date_trunc('minute', recorded_at, 'UTC'), min(reading_value), "
+                + "max(reading_value), sum(reading_value), count(*), max(recorded_at), "
+                + "(array_agg(reading_value ORDER BY recorded_at DESC))[1] FROM " + ReadingPartitions.TABLE
+                + " WHERE " + filter + "recorded_at >= ? AND recorded_at < ?"
+                : "SELECT sensor_id, date_trunc('" + rollup.truncateTo() + "', bucket, 'UTC'), min(min_value), "
+                + "max(max_value), sum(sum_value), sum(value_count), max(last_at), "
+                + "(array_agg(last_value ORDER BY last_at DESC))[1] FROM " + rollup.finer().table()
+                + " WHERE " + filter + "bucket >= ? AND bucket < ?";
+        return "INSERT INTO " + rollup.table() + " (sensor_id, bucket, min_value, max_value, sum_value, value_count, "
+                + "last_at, last_value) " + select + " GROUP BY 1, 2" + UPSERT;
+    }
+
+    private static OffsetDateTime timestamp(long epochMillis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,132 @@
+package com.mertani.iot.timeseries;
+
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.SensorSlots;
+import com.mertani.iot.telemetry.SlotPages;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Remembers, per sensor, the range of minutes that received readings since the
+ * rollups were last brought up to date. Kept per {@link SensorSlots} slot in
+ * primitive arrays, so marking a written batch allocates nothing; a sensor
+ * reporting every second costs one range update per reading, not a queued
+ * entry.
+ */
+@Component
+public class RollupTracker {
+
+    private static final long MINUTE_MILLIS = 60_000L;
+
+    // Longs per slot: sensor ID (0 while clean), first dirty minute, end of last dirty minute
+    private static final int STRIDE = 3;
+    private static final int SENSOR = 0;
+    private static final int FROM = 1;
+    private static final int TO = 2;
+
+    private final SensorSlots slots;
+    private final SlotPages<long[]> ranges = new SlotPages<>(size -> new long[size * STRIDE]);
+
+    private int[] dirty = new int[256];
+    private int dirtyCount;
+
+    public RollupTracker(SensorSlots slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Marks the minutes of every reading in a written batch.
+     */
+    public synchronized void markDirty(ReadingBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            long minute = Math.floorDiv(batch.timestamp(i), MINUTE_MILLIS) * MINUTE_MILLIS;
+            mark(batch.sensorId(i), minute, minute + MINUTE_MILLIS);
+        }
+    }
+
+    /**
+     * Marks {@code [from, to)} of one sensor, e.g. to retry a failed rollup.
+     */
+    public synchronized void markDirty(long sensorId, long from, long to) {
+        mark(sensorId, from, to);
+    }
+
+    /**
+     * Hands out everything marked so far and starts over.
+     */
+    public synchronized DirtyRanges drain() {
+        DirtyRanges drained = new DirtyRanges(dirtyCount);
+        for (int i = 0; i < dirtyCount; i++) {
+            int slot = dirty[i];
+            long[] page = ranges.page(slot);
+            int base = SlotPages.offset(slot) * STRIDE;
+            drained.add(page[base + SENSOR], page[base + FROM], page[base + TO]);
+            page[base + SENSOR] = 0;
+        }
+        dirtyCount = 0;
+        return drained;
+    }
+
+    private void mark(long sensorId, long from, long to) {
+        int slot = slots.getOrAssign(sensorId);
+        long[] page = ranges.page(slot);
+        int base = SlotPages.offset(slot) * STRIDE;
+        if (page[base + SENSOR] == 0) {
+            page[base + SENSOR] = sensorId;
+            page[base + FROM] = from;
+            page[base + TO] = to;
+            if (dirtyCount == dirty.length) {
+                dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+            }
+            dirty[dirtyCount++] = slot;
+        } else {
+            page[base + FROM] = Math.min(page[base + FROM], from);
+            page[base + TO] = Math.max(page[base + TO], to);
+        }
+    }
+
+    /**
+     * Per-sensor time ranges (epoch milliseconds, end exclusive) in parallel arrays.
+     */
+    public static final class DirtyRanges {
+
+        private final long[] sensorIds;
+        private final long[] froms;
+        private final long[] tos;
+        private int size;
+
+        DirtyRanges(int capacity) {
+            this.sensorIds = new long[capacity];
+            this.froms = new long[capacity];
+            this.tos = new long[capacity];
+        }
+
+        void add(long sensorId, long from, long to) {
+            sensorIds[size] = sensorId;
+            froms[size] = from;
+            tos[size] = to;
+            size++;
+        }
+
+        public long sensorId(int index) {
+            return sensorIds[index];
+        }
+
+        public long from(int index) {
+            return froms[index];
+        }
+
+        public long to(int index) {
+            return tos[index];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
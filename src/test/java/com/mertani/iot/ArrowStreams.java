@@ -0,0 +1,140 @@
+package com.mertani.iot;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads back the Arrow IPC streams of readings written by
+ * {@link com.mertani.iot.telemetry.ReadingArrowWriter}, following each
+ * FlatBuffers header the way Arrow readers do: from the root offset through
+ * each table's vtable, checking the alignment they rely on.
+ */
+public final class ArrowStreams {
+
+    private ArrowStreams() {
+    }
+
+    public record Field(String name, int type, boolean nullable) {
+    }
+
+    /**
+     * The schema, the number of record batches and their columns concatenated;
+     * {@code timeUnit} and {@code timeZone} are those of the timestamp column.
+     */
+    public record Readings(List<Field> fields, int timeUnit, String timeZone, int batches, long[] sensorIds,
+                           long[] timestamps, double[] values) {
+    }
+
+    public static Readings read(byte[] stream) {
+        ByteBuffer in = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+        List<Field> fields = new ArrayList<>();
+        int timeUnit = -1;
+        String timeZone = null;
+        int batches = 0;
+        long[] sensorIds = new long[0];
+        long[] timestamps = new long[0];
+        double[] values = new double[0];
+        while (true) {
+            check(in.getInt() == -1, "continuation marker");
+            int length = in.getInt();
+            if (length == 0) {
+                check(!in.hasRemaining(), "nothing after the end of the stream");
+                break;
+            }
+            check(in.position() % 8 == 0 && length % 8 == 0, "8-byte aligned header");
+            ByteBuffer header = in.slice(in.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+            in.position(in.position() + length);
+
+            int message = header.getInt(0);
+            check(header.getShort(field(header, message, 0)) == 4, "metadata version V5");
+            byte type = header.get(field(header, message, 1));
+            int body = in.position();
+            long bodyLength = header.getLong(aligned(field(header, message, 3), 8));
+            int table = indirect(header, field(header, message, 2));
+            in.position(body + (int) bodyLength);
+
+            if (type == 1) {
+                check(fields.isEmpty(), "one schema");
+                int vector = indirect(header, field(header, table, 1));
+                for (int i = 0; i < header.getInt(vector); i++) {
+                    int field = indirect(header, vector + 4 + 4 * i);
+                    int typeTable = indirect(header, field(header, field, 3));
+                    fields.add(new Field(string(header, indirect(header, field(header, field, 0))),
+                            header.get(field(header, field, 2)), header.get(field(header, field, 1)) != 0));
+                    check(header.getInt(indirect(header, field(header, field, 5))) == 0, "no children");
+                    if (header.get(field(header, field, 2)) == 10) {
+                        timeUnit = header.getShort(field(header, typeTable, 0));
+                        timeZone = string(header, indirect(header, field(header, typeTable, 1)));
+                    }
+                }
+            } else {
+                check(type == 3, "record batch");
+                int rows = (int) header.getLong(aligned(field(header, table, 0), 8));
+                int nodes = indirect(header, field(header, table, 1));
+                int buffers = indirect(header, field(header, table, 2));
+                check((nodes + 4) % 8 == 0 && (buffers + 4) % 8 == 0, "8-byte aligned structs");
+                check(header.getInt(nodes) == 3 && header.getInt(buffers) == 6, "three columns");
+                for (int column = 0; column < 3; column++) {
+                    check(header.getLong(nodes + 4 + 16 * column) == rows, "column length");
+                    check(header.getLong(nodes + 12 + 16 * column) == 0, "no nulls");
+                    check(header.getLong(buffers + 4 + 32 * column + 8) == 0, "no validity buffer");
+                    check(header.getLong(buffers + 4 + 32 * column + 24) == 8L * rows, "column size");
+                }
+                ByteBuffer data = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                int size = sensorIds.length;
+                sensorIds = Arrays.copyOf(sensorIds, size + rows);
+                timestamps = Arrays.copyOf(timestamps, size + rows);
+                values = Arrays.copyOf(values, size + rows);
+                int sensorData = body + (int) header.getLong(buffers + 4 + 16);
+                int timestampData = body + (int) header.getLong(buffers + 4 + 48);
+                int valueData = body + (int) header.getLong(buffers + 4 + 80);
+                for (int i = 0; i < rows; i++) {
+                    sensorIds[size + i] = data.getLong(sensorData + 8 * i);
+                    timestamps[size + i] = data.getLong(timestampData + 8 * i);
+                    values[size + i] = data.getDouble(valueData + 8 * i);
+                }
+                batches++;
+            }
+        }
+        return new Readings(fields, timeUnit, timeZone, batches, sensorIds, timestamps, values);
+    }
+
+    /**
+     * The position of a table's field, looked up in its vtable.
+     */
+    private static int field(ByteBuffer header, int table, int index) {
+        check(table % 4 == 0, "4-byte aligned table");
+        int vtable = table - header.getInt(table);
+        int entry = 4 + 2 * index;
+        check(entry < header.getShort(vtable) && header.getShort(vtable + entry) != 0, "field " + index);
+        return table + header.getShort(vtable + entry);
+    }
+
+    private static int indirect(ByteBuffer header, int position) {
+        check(position % 4 == 0, "4-byte aligned offset");
+        return position + header.getInt(position);
+    }
+
+    private static int aligned(int position, int alignment) {
+        check(position % alignment == 0, alignment + "-byte aligned field");
+        return position;
+    }
+
+    private static String string(ByteBuffer header, int position) {
+        int length = header.getInt(position);
+        check(header.get(position + 4 + length) == 0, "null-terminated string");
+        byte[] bytes = new byte[length];
+        header.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void check(boolean condition, String expected) {
+        if (!condition) {
+            throw new IllegalStateException("Invalid Arrow stream, expected " + expected);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.mertani.iot.alert;
+
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.model.Alert;
+import com.mertani.iot.model.AlertType;
+import com.mertani.iot.repository.AlertRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.stream.SensorChangedEvent;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.telemetry.SensorSlots;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertEngineTest {
+
+    private static final SensorRef SENSOR = new SensorRef("SENSOR-123", 7L, 1L);
+    private static final long T0 = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    @Mock
+    private AlertWriter writer;
+
+    @Mock
+    private SensorRepository sensorRepository;
+
+    @Mock
+    private AlertRepository alertRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AlertEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        // Hysteresis of 10% of the 0..100 range: alerts resolve at 90 and 10
+        engine = new AlertEngine(new SensorSlots(), writer, sensorRepository, alertRepository,
+                transactionManager, 0.1, new SimpleMeterRegistry());
+        engine.onSensorChanged(SensorChangedEvent.updated(sensor(0.0, 100.0)));
+    }
+
+    @Test
+    void onReading_ShouldRaiseOneAlert_WhileReadingsStayAboveMax() {
+        // Act
+        engine.onReading(SENSOR, T0, 50.0);
+        engine.onReading(SENSOR, T0 + 1, 101.0);
+        engine.onReading(SENSOR, T0 + 2, 120.0);
+        engine.onReading(SENSOR, T0 + 3, 105.0);
+
+        // Assert
+        verify(writer).enqueue(AlertEvent.raised(7L, 1L, AlertType.ABOVE_MAX, 100.0, 101.0, T0 + 1));
+        verifyNoMoreInteractions(writer);
+        assertEquals(1, engine.openCount());
+    }
+
+    @Test
+    void onReading_ShouldResolveOnlyOutsideHysteresisMargin() {
+        // Arrange
+        engine.onReading(SENSOR, T0, 101.0);
+
+        // Act: back under max but within the margin, then clearly inside
+        engine.onReading(SENSOR, T0 + 1, 95.0);
+        engine.onReading(SENSOR, T0 + 2, 101.0);
+        engine.onReading(SENSOR, T0 + 3, 89.0);
+
+        // Assert
+        verify(writer).enqueue(AlertEvent.raised(7L, 1L, AlertType.ABOVE_MAX, 100.0, 101.0, T0));
+        verify(writer).enqueue(AlertEvent.resolved(7L, AlertType.ABOVE_MAX, T0, T0 + 3));
+        verifyNoMoreInteractions(writer);
+        assertEquals(0, engine.openCount());
+    }
+
+    @Test
+    void onReading_ShouldSwitchAlert_WhenReadingJumpsBelowMin() {
+        // Arrange
+        engine.onReading(SENSOR, T0, 150.0);
+
+        // Act
+        engine.onReading(SENSOR, T0 + 1, -5.0);
+
+        // Assert
+        verify(writer).enqueue(AlertEvent.resolved(7L, AlertType.ABOVE_MAX, T0, T0 + 1));
+        verify(writer).enqueue(AlertEvent.raised(7L, 1L, AlertType.BELOW_MIN, 0.0, -5.0, T0 + 1));
+        assertEquals(1, engine.openCount());
+    }
+
+    @Test
+    void onReading_ShouldIgnoreSensorsWithoutBounds() {
+        // Act
+        engine.onReading(new SensorRef("OTHER", 8L, 1L), T0, 1e9);
+
+        // Assert
+        verifyNoInteractions(writer);
+    }
+
+    @Test
+    void onSensorChanged_ShouldApplyNewBoundsToNextReading() {
+        // Arrange
+        engine.onReading(SENSOR, T0, 120.0);
+
+        // Act
+        engine.onSensorChanged(SensorChangedEvent.updated(sensor(0.0, 200.0)));
+        engine.onReading(SENSOR, T0 + 1, 120.0);
+
+        // Assert
+        verify(writer).enqueue(AlertEvent.resolved(7L, AlertType.ABOVE_MAX, T0, T0 + 1));
+        assertEquals(0, engine.openCount());
+    }
+
+    @Test
+    void onSensorChanged_ShouldResolveOpenAlert_WhenSensorIsRemoved() {
+        // Arrange
+        engine.onReading(SENSOR, T0, 120.0);
+
+        // Act
+        engine.onSensorChanged(SensorChangedEvent.removed(1L, 7L));
+        engine.onReading(SENSOR, T0 + 1, 120.0);
+
+        // Assert
+        ArgumentCaptor<AlertEvent> events = ArgumentCaptor.forClass(AlertEvent.class);
+        verify(writer, times(2)).enqueue(events.capture());
+        assertTrue(events.getAllValues().get(1).isResolution());
+        assertEquals(0, engine.openCount());
+    }
+
+    @Test
+    void load_ShouldRestoreBoundsAndOpenAlerts() {
+        // Arrange
+        engine = new AlertEngine(new SensorSlots(), writer, sensorRepository, alertRepository,
+                transactionManager, 0.1, new SimpleMeterRegistry());
+        when(sensorRepository.findAllResponses()).thenReturn(List.of(sensor(0.0, 100.0)));
+        when(alertRepository.findByResolvedAtIsNull()).thenReturn(List.of(Alert.builder()
+                .sensorId(7L).deviceId(1L).type(AlertType.ABOVE_MAX)
+                .threshold(100.0).value(130.0).raisedAt(Instant.ofEpochMilli(T0)).build()));
+
+        // Act
+        engine.load();
+        engine.onReading(SENSOR, T0 + 1, 110.0);
+        engine.onReading(SENSOR, T0 + 2, 50.0);
+
+        // Assert: no second alert for the breach that was open before the restart
+        verify(writer, never()).enqueue(argThatIsRaise());
+        verify(writer).enqueue(AlertEvent.resolved(7L, AlertType.ABOVE_MAX, T0, T0 + 2));
+        verify(transactionManager).commit(any());
+    }
+
+    private static AlertEvent argThatIsRaise() {
+        return argThat(event -> !event.isResolution());
+    }
+
+    private static SensorResponse sensor(Double min, Double max) {
+        return SensorResponse.builder()
+                .id(SENSOR.id())
+                .sensorId(SENSOR.sensorId())
+                .deviceId(SENSOR.deviceId())
+                .minValue(min)
+                .maxValue(max)
+                .active(true)
+                .build();
+    }
+}
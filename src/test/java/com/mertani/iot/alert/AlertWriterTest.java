@@ -0,0 +1,99 @@
+package com.mertani.iot.alert;
+
+import com.mertani.iot.model.AlertType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AlertWriterTest {
+
+    private static final long T0 = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AlertWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writer = new AlertWriter(jdbcTemplate, 100, 3, meterRegistry);
+    }
+
+    @Test
+    void flush_ShouldKeepEventsForNextFlush_WhenDatabaseIsUnavailable() {
+        // Arrange
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenReturn(new int[]{1});
+        writer.enqueue(AlertEvent.raised(7L, 1L, AlertType.ABOVE_MAX, 100.0, 101.0, T0));
+        writer.flush();
+        writer.enqueue(AlertEvent.resolved(7L, AlertType.ABOVE_MAX, T0, T0 + 1));
+
+        // Act
+        writer.flush();
+
+        // Assert: the insert is written again before the resolution that follows it
+        var order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT"), anyList());
+        order.verify(jdbcTemplate).batchUpdate(startsWith("UPDATE"), anyList());
+        assertEquals(0.0, meterRegistry.counter("iot.alerts.dropped").count());
+    }
+
+    @Test
+    void flush_ShouldDropEvents_AfterLastAttempt() {
+        // Arrange
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        writer.enqueue(AlertEvent.raised(7L, 1L, AlertType.ABOVE_MAX, 100.0, 101.0, T0));
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            writer.flush();
+        }
+
+        // Assert
+        verify(jdbcTemplate, times(3)).batchUpdate(anyString(), anyList());
+        assertEquals(1.0, meterRegistry.counter("iot.alerts.dropped").count());
+    }
+
+    @Test
+    void flush_ShouldWriteEventsOneAtATime_WhenBatchIsRejected() {
+        // Arrange: the database rejects the raise of sensor 8
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList()))
+                .thenThrow(new DataIntegrityViolationException("violates check constraint"));
+        when(jdbcTemplate.update(startsWith("INSERT"), any(Object[].class))).thenAnswer(invocation -> {
+            Object[] args = (Object[]) invocation.getRawArguments()[1];
+            if (args[0].equals(8L)) {
+                throw new DataIntegrityViolationException("violates check constraint");
+            }
+            return 1;
+        });
+        writer.enqueue(AlertEvent.raised(7L, 1L, AlertType.ABOVE_MAX, 100.0, 101.0, T0));
+        writer.enqueue(AlertEvent.raised(8L, 1L, AlertType.ANOMALY, 24.0, 35.0, T0));
+
+        // Act
+        writer.flush();
+        writer.flush();
+
+        // Assert
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT"), any(Object[].class));
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("INSERT"), anyList());
+        assertEquals(1.0, meterRegistry.counter("iot.alerts.dropped").count());
+    }
+}
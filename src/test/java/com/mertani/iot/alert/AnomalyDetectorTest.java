@@ -0,0 +1,236 @@
+package com.mertani.iot.alert;
+
+import com.mertani.iot.model.Alert;
+import com.mertani.iot.model.AlertType;
+import com.mertani.iot.model.SensorAnomalyModel;
+import com.mertani.iot.repository.AlertRepository;
+import com.mertani.iot.repository.SensorAnomalyModelRepository;
+import com.mertani.iot.stream.SensorChangedEvent;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.telemetry.SensorSlots;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnomalyDetectorTest {
+
+    private static final SensorRef SENSOR = new SensorRef("SENSOR-123", 7L, 1L);
+    private static final long T0 = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    @Mock
+    private AlertWriter writer;
+
+    @Mock
+    private SensorAnomalyModelRepository modelRepository;
+
+    @Mock
+    private AlertRepository alertRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AnomalyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        detector = newDetector();
+    }
+
+    @Test
+    void onReading_ShouldRaiseAndResolveAlert_ForSpike() {
+        // Arrange: readings of 19 and 21 in turn, so a mean of 20 and a deviation of 1
+        long time = train(T0, 200);
+
+        // Act
+        detector.onReading(SENSOR, time, 30.0);
+        detector.onReading(SENSOR, time + 1, 20.5);
+
+        // Assert
+        ArgumentCaptor<AlertEvent> events = ArgumentCaptor.forClass(AlertEvent.class);
+        verify(writer, times(2)).enqueue(events.capture());
+        AlertEvent raised = events.getAllValues().get(0);
+        assertEquals(AlertType.ANOMALY, raised.type());
+        assertEquals(1L, raised.deviceId());
+        assertEquals(30.0, raised.value());
+        assertEquals(24.0, raised.threshold(), 0.1);
+        assertEquals(time, raised.raisedAt());
+        assertEquals(AlertEvent.resolved(7L, AlertType.ANOMALY, time, time + 1), events.getAllValues().get(1));
+        assertEquals(0, detector.openCount());
+    }
+
+    @Test
+    void onReading_ShouldNotRaise_ForReadingsWithinTheirUsualSpread() {
+        // Act: a slow swing of ±5 that the model follows
+        for (int i = 0; i < 10_000; i++) {
+            detector.onReading(SENSOR, T0 + i, 20 + 5 * Math.sin(i / 500.0));
+        }
+
+        // Assert
+        verifyNoInteractions(writer);
+    }
+
+    @Test
+    void onReading_ShouldNotRaise_BeforeModelHasMinSamples() {
+        // Act
+        train(T0, 10);
+        detector.onReading(SENSOR, T0 + 10, 1000.0);
+
+        // Assert
+        verifyNoInteractions(writer);
+    }
+
+    @Test
+    void onReading_ShouldKeepOneAlertOpen_UntilLastingShiftIsLearned() {
+        // Arrange
+        long time = train(T0, 200);
+
+        // Act: readings move from around 20 to around 27 and stay there
+        int resolvedAfter = -1;
+        for (int i = 0; i < 2_000 && resolvedAfter < 0; i++) {
+            detector.onReading(SENSOR, time + i, i % 2 == 0 ? 26.0 : 28.0);
+            if (i > 0 && detector.openCount() == 0) {
+                resolvedAfter = i;
+            }
+        }
+
+        // Assert: the shift is anomalous for a while, then the new normal
+        assertTrue(resolvedAfter > 10, "resolved after " + resolvedAfter);
+        verify(writer).enqueue(argThat(event -> !event.isResolution() && event.raisedAt() == time));
+        verify(writer).enqueue(AlertEvent.resolved(7L, AlertType.ANOMALY, time, time + resolvedAfter));
+        verifyNoMoreInteractions(writer);
+    }
+
+    @Test
+    void onSensorChanged_ShouldResolveOpenAlert_WhenSensorIsRemoved() {
+        // Arrange
+        long time = train(T0, 200);
+        detector.onReading(SENSOR, time, 100.0);
+
+        // Act
+        detector.onSensorChanged(SensorChangedEvent.removed(1L, 7L));
+
+        // Assert
+        ArgumentCaptor<AlertEvent> events = ArgumentCaptor.forClass(AlertEvent.class);
+        verify(writer, times(2)).enqueue(events.capture());
+        assertTrue(events.getAllValues().get(1).isResolution());
+        assertEquals(time, events.getAllValues().get(1).raisedAt());
+        assertEquals(0, detector.openCount());
+    }
+
+    @Test
+    void load_ShouldRestoreModelsAndOpenAlerts() {
+        // Arrange
+        when(modelRepository.findAllOfActiveSensors()).thenReturn(List.of(
+                model(7L, 20.0, 1.0, 5_000), model(8L, 50.0, 4.0, 5_000)));
+        when(alertRepository.findByTypeAndResolvedAtIsNull(AlertType.ANOMALY)).thenReturn(List.of(Alert.builder()
+                .sensorId(8L).deviceId(1L).type(AlertType.ANOMALY)
+                .threshold(58.0).value(70.0).raisedAt(Instant.ofEpochMilli(T0)).build()));
+
+        // Act
+        detector.load();
+        detector.onReading(SENSOR, T0 + 1, 30.0);
+        detector.onReading(new SensorRef("OTHER", 8L, 1L), T0 + 2, 50.5);
+
+        // Assert: no warm-up after the restart, and the open alert is resolved rather than raised again
+        verify(writer).enqueue(AlertEvent.raised(7L, 1L, AlertType.ANOMALY, 24.0, 30.0, T0 + 1));
+        verify(writer).enqueue(AlertEvent.resolved(8L, AlertType.ANOMALY, T0, T0 + 2));
+        verifyNoMoreInteractions(writer);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkpoint_ShouldSaveOnlyModelsChangedSinceLastCheckpoint() {
+        // Arrange
+        train(T0, 100);
+        detector.onReading(new SensorRef("OTHER", 8L, 1L), T0, 5.0);
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+
+        // Act
+        detector.checkpoint();
+        detector.checkpoint();
+        detector.onReading(SENSOR, T0 + 100, 20.0);
+        detector.checkpoint();
+
+        // Assert
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+        List<Object[]> first = rows.getAllValues().get(0);
+        assertEquals(2, first.size());
+        assertEquals(7L, first.get(0)[0]);
+        assertEquals(20.0, (double) first.get(0)[1], 0.01);
+        assertEquals(1.0, (double) first.get(0)[2], 0.01);
+        assertEquals(100L, first.get(0)[3]);
+        assertEquals(8L, first.get(1)[0]);
+        List<Object[]> second = rows.getAllValues().get(1);
+        assertEquals(1, second.size());
+        assertEquals(101L, second.get(0)[3]);
+    }
+
+    @Test
+    void checkpoint_ShouldRetryModels_WhenWriteFails() {
+        // Arrange
+        train(T0, 100);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(new int[]{1});
+
+        // Act
+        detector.checkpoint();
+        detector.checkpoint();
+        detector.checkpoint();
+
+        // Assert
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+    }
+
+    /**
+     * Ingests readings of 19 and 21 in turn, one per millisecond.
+     *
+     * @return the time after the last one
+     */
+    private long train(long from, int readings) {
+        for (int i = 0; i < readings; i++) {
+            detector.onReading(SENSOR, from + i, i % 2 == 0 ? 19.0 : 21.0);
+        }
+        return from + readings;
+    }
+
+    private AnomalyDetector newDetector() {
+        AnomalyProperties properties = new AnomalyProperties();
+        properties.setAlpha(0.01);
+        properties.setRaiseZScore(4.0);
+        properties.setResolveZScore(2.0);
+        properties.setMinSamples(30);
+        return new AnomalyDetector(properties, new SensorSlots(), writer, modelRepository, alertRepository,
+                jdbcTemplate, transactionManager, new SimpleMeterRegistry());
+    }
+
+    private static SensorAnomalyModel model(long sensorId, double mean, double variance, long samples) {
+        return SensorAnomalyModel.builder()
+                .sensorId(sensorId)
+                .mean(mean)
+                .variance(variance)
+                .samples(samples)
+                .updatedAt(Instant.ofEpochMilli(T0))
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.alert.AlertWriter;
+import com.mertani.iot.alert.AnomalyDetector;
+import com.mertani.iot.alert.AnomalyProperties;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.AlertRepository;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorAnomalyModelRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.telemetry.SensorSlots;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times the anomaly detector on the ingest path, from one thread and from
+ * several threads each ingesting its own sensors, then checkpointing and
+ * reloading the models of 10,000 sensors. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class AnomalyDetectionBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SENSORS = 10_000;
+    private static final int READINGS_PER_SENSOR = 500;
+    private static final int THREADS = 4;
+    private static final long T0 = 1_704_067_200_000L;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private AlertWriter alertWriter;
+
+    @Autowired
+    private SensorAnomalyModelRepository modelRepository;
+
+    @Autowired
+    private AlertRepository alertRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void tenThousandSensors_IngestCheckpointAndLoad() throws Exception {
+        jdbcTemplate.update("DELETE FROM sensor_anomaly_models");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < SENSORS; i++) {
+            Sensor sensor = TestUtils.createTestSensor(device);
+            sensor.setId(null);
+            sensor.setSensorId("ANOMALY-BENCH-" + System.nanoTime() + "-" + i);
+            sensors.add(sensor);
+        }
+        sensors = sensorRepository.saveAll(sensors);
+        SensorRef[] refs = new SensorRef[SENSORS];
+        for (int i = 0; i < SENSORS; i++) {
+            refs[i] = new SensorRef(sensors.get(i).getSensorId(), sensors.get(i).getId(), device.getId());
+        }
+
+        // Once first, so neither run pays for compilation
+        ingest(detector(), refs, 1);
+        AnomalyDetector detector = detector();
+        double oneThread = ingest(detector, refs, 1);
+        double threads = ingest(detector(), refs, THREADS);
+        long readings = (long) SENSORS * READINGS_PER_SENSOR;
+        System.out.printf("anomaly ingest %d readings: 1 thread %.0f ns/reading (%.0f readings/s), "
+                        + "%d threads %.0f ns/reading (%.0f readings/s)%n",
+                readings, oneThread * 1e9 / readings, readings / oneThread,
+                THREADS, threads * 1e9 / readings, readings / threads);
+
+        long startedAt = System.nanoTime();
+        detector.checkpoint();
+        double checkpoint = (System.nanoTime() - startedAt) / 1e9;
+        startedAt = System.nanoTime();
+        detector().load();
+        double load = (System.nanoTime() - startedAt) / 1e9;
+        assertThat(modelRepository.count()).isEqualTo(SENSORS);
+        System.out.printf("anomaly models of %d sensors: checkpoint %.0f ms, load %.0f ms%n",
+                SENSORS, checkpoint * 1e3, load * 1e3);
+    }
+
+    private AnomalyDetector detector() {
+        return new AnomalyDetector(new AnomalyProperties(), new SensorSlots(), alertWriter, modelRepository,
+                alertRepository, jdbcTemplate, transactionManager, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Ingests a reading of every sensor per second, each thread taking its own block of the sensors.
+     *
+     * @return seconds taken
+     */
+    private static double ingest(AnomalyDetector detector, SensorRef[] refs, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long startedAt = System.nanoTime();
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t * refs.length / threads;
+                int end = (t + 1) * refs.length / threads;
+                done.add(executor.submit(() -> {
+                    for (int r = 0; r < READINGS_PER_SENSOR; r++) {
+                        for (int s = first; s < end; s++) {
+                            detector.onReading(refs[s], T0 + r * 1000L, 20 + 5 * Math.sin(r / 50.0 + s));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+            return (System.nanoTime() - startedAt) / 1e9;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives {@code GET /api/devices/{id}} from many concurrent clients and reports
+ * throughput, latency percentiles and server CPU per request. The device cache
+ * is disabled so every request reaches the database. Subclasses choose the
+ * thread mode or endpoint.
+ */
+@TestPropertySource(properties = {"spring.cache.type=none", "spring.jpa.show-sql=false"})
+abstract class DeviceEndpointLoadBenchmark extends BaseIntegrationTest {
+
+    private static final int CLIENTS = 1_000;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(15);
+    private static final String CLIENT_THREAD_PREFIX = "load-client-";
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Test
+    void getDeviceUnderHighConcurrency() throws Exception {
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        for (int i = 0; i < 5; i++) {
+            Sensor sensor = TestUtils.createTestSensor(device);
+            sensor.setId(null);
+            sensor.setSensorId("LOAD-" + i);
+            sensorRepository.save(sensor);
+        }
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        // getBaseUrl() already ends in the /api context path
+        HttpRequest request = HttpRequest.newBuilder(URI.create(getBaseUrl() + path() + device.getId())).build();
+
+        run(client, request, WARMUP, new ConcurrentLinkedQueue<>(), new AtomicLong());
+        ConcurrentLinkedQueue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong failures = new AtomicLong();
+        Map<Long, Long> cpuBefore = serverThreadCpu();
+        run(client, request, MEASUREMENT, latencies, failures);
+        double serverCpuSeconds = cpuDelta(cpuBefore, serverThreadCpu()) / 1e9;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("load %-8s %d clients: %.0f req/s, p50 %.1f ms, p99 %.1f ms, max %.1f ms, %d failed, "
+                        + "%.0f req per server CPU-second%n",
+                mode(), CLIENTS, all.length / (double) MEASUREMENT.toSeconds(),
+                percentile(all, 0.50), percentile(all, 0.99), all[all.length - 1] / 1e6, failures.get(),
+                all.length / serverCpuSeconds);
+        assertThat(all).isNotEmpty();
+    }
+
+    protected abstract String mode();
+
+    /**
+     * Endpoint under test, followed by the device id.
+     */
+    protected String path() {
+        return "/api/devices/";
+    }
+
+    /**
+     * CPU time of every live thread except the load generator's own, so the
+     * per-request cost is comparable across modes that use different server
+     * threads. Threads that exit during the run are not counted.
+     */
+    private static Map<Long, Long> serverThreadCpu() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Map<Long, Long> cpu = new HashMap<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            String name = thread.getName();
+            if (name.startsWith(CLIENT_THREAD_PREFIX) || name.startsWith("HttpClient")) {
+                continue;
+            }
+            long nanos = threads.getThreadCpuTime(thread.getId());
+            if (nanos >= 0) {
+                cpu.put(thread.getId(), nanos);
+            }
+        }
+        return cpu;
+    }
+
+    private static long cpuDelta(Map<Long, Long> before, Map<Long, Long> after) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : after.entrySet()) {
+            total += entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static void run(HttpClient client, HttpRequest request, Duration duration,
+                            ConcurrentLinkedQueue<long[]> latencies, AtomicLong failures) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+        List<Thread> clients = new ArrayList<>(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            Thread thread = new Thread(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long startedAt = System.nanoTime();
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                            continue;
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - startedAt;
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    latencies.add(Arrays.copyOf(samples, count));
+                    done.countDown();
+                }
+            });
+            thread.setName(CLIENT_THREAD_PREFIX + c);
+            thread.setDaemon(true);
+            clients.add(thread);
+        }
+        clients.forEach(Thread::start);
+        done.await();
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+}
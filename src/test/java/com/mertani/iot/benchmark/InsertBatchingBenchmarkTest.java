@@ -0,0 +1,155 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.DeviceRequest;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorRequest;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.DeviceService;
+import com.mertani.iot.service.SensorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Creates devices and sensors through the regular service methods inside one
+ * transaction and counts the INSERT round trips sent over JDBC. With IDENTITY
+ * ids every row was its own round trip; with pooled sequences the rows are sent
+ * in {@code hibernate.jdbc.batch_size} batches.
+ */
+@Tag("benchmark")
+class InsertBatchingBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int ROWS = 1_000;
+    private static final int BATCH_SIZE = 50;
+    private static final AtomicInteger INSERT_ROUND_TRIPS = new AtomicInteger();
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private SensorService sensorService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+    }
+
+    @Test
+    void bulkCreationBatchesInserts() {
+        INSERT_ROUND_TRIPS.set(0);
+        long startedAt = System.nanoTime();
+        DeviceResponse device = transactionTemplate.execute(status -> {
+            DeviceResponse first = null;
+            for (int i = 0; i < ROWS; i++) {
+                DeviceRequest request = TestUtils.createTestDeviceRequest();
+                request.setSerialNumber("BATCH-" + i);
+                DeviceResponse created = deviceService.createDevice(request);
+                first = first == null ? created : first;
+            }
+            return first;
+        });
+        report("devices", startedAt);
+        assertThat(INSERT_ROUND_TRIPS.get()).isEqualTo(ROWS / BATCH_SIZE);
+
+        INSERT_ROUND_TRIPS.set(0);
+        startedAt = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ROWS; i++) {
+                SensorRequest request = TestUtils.createTestSensorRequest(device.getId());
+                request.setSensorId("BATCH-SENSOR-" + i);
+                sensorService.createSensor(request);
+            }
+        });
+        report("sensors", startedAt);
+        assertThat(INSERT_ROUND_TRIPS.get()).isEqualTo(ROWS / BATCH_SIZE);
+    }
+
+    private static void report(String entity, long startedAt) {
+        double millis = (System.nanoTime() - startedAt) / 1e6;
+        System.out.printf("%s: %d rows, %d INSERT round trips, %.0f ms%n",
+                entity, ROWS, INSERT_ROUND_TRIPS.get(), millis);
+    }
+
+    @TestConfiguration
+    static class InsertCountingConfig {
+
+        /**
+         * Wraps the pool so every executeBatch/executeUpdate of an INSERT counts as
+         * one round trip.
+         */
+        @Bean
+        static BeanPostProcessor insertCountingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) {
+                        return bean;
+                    }
+                    return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                        Object result = method.invoke(target, args);
+                        return result instanceof Connection connection
+                                ? proxy(Connection.class, connection, InsertCountingConfig::countInserts)
+                                : result;
+                    });
+                }
+            };
+        }
+
+        private static Object countInserts(Connection connection, java.lang.reflect.Method method, Object[] args)
+                throws Exception {
+            Object result = method.invoke(connection, args);
+            if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement
+                    && ((String) args[0]).regionMatches(true, 0, "insert", 0, 6)) {
+                return proxy(PreparedStatement.class, statement, (target, m, a) -> {
+                    if (m.getName().equals("executeBatch") || m.getName().equals("executeUpdate")) {
+                        INSERT_ROUND_TRIPS.incrementAndGet();
+                    }
+                    return m.invoke(target, a);
+                });
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+                try {
+                    return handler.invoke(target, method, args);
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            });
+        }
+
+        private interface Handler<T> {
+            Object invoke(T target, java.lang.reflect.Method method, Object[] args) throws Exception;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.mertani.iot.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.SensorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports a large sensor inventory through the NDJSON endpoint and through the
+ * previous build-the-whole-list approach, reporting time to first byte and peak
+ * old-generation growth while each runs. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class InventoryExportBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int DEVICES = 2_000;
+    private static final int SENSORS_PER_DEVICE = 100;
+    private static final long ID_OFFSET = 100_000_000L;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorService sensorService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        sensorRepository.deleteAllInBatch();
+        deviceRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void exportSensors_StreamingVersusBuffered() throws Exception {
+        sensorRepository.deleteAllInBatch();
+        deviceRepository.deleteAllInBatch();
+        jdbcTemplate.update("INSERT INTO devices (id, name, serial_number, active, created_at, updated_at) "
+                + "SELECT ? + g, 'Device ' || g, 'EXPORT-BENCH-' || g, true, now(), now() "
+                + "FROM generate_series(1, ?) g", ID_OFFSET, DEVICES);
+        jdbcTemplate.update("INSERT INTO sensors (id, name, sensor_id, type, unit, min_value, max_value, active, "
+                + "device_id, created_at, updated_at) "
+                + "SELECT ? + g, 'Sensor ' || g, 'EXPORT-BENCH-' || g, 'DHT22', 'C', -20, 60, true, "
+                + "? + 1 + (g - 1) / ?, now(), now() FROM generate_series(1, ?) g",
+                ID_OFFSET, ID_OFFSET, SENSORS_PER_DEVICE, DEVICES * SENSORS_PER_DEVICE);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(getBaseUrl() + "/api/sensors/export")).build();
+
+        Callable<Long> streamed = () -> {
+            long startedAt = System.nanoTime();
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                System.out.printf("export ndjson stream time to first row: %.1f ms%n",
+                        (System.nanoTime() - startedAt) / 1e6);
+                long count = 0;
+                while (line != null) {
+                    count++;
+                    line = reader.readLine();
+                }
+                return count;
+            }
+        };
+        Callable<Long> buffered = () -> (long) objectMapper.writeValueAsBytes(sensorService.getAllSensors()).length;
+
+        // Warm-up, unmeasured
+        streamed.call();
+        buffered.call();
+
+        long lines = measure("ndjson stream", streamed);
+        long bytes = measure("buffered list", buffered);
+
+        assertThat(lines).isEqualTo((long) DEVICES * SENSORS_PER_DEVICE);
+        assertThat(bytes).isPositive();
+    }
+
+    // Old-generation growth tracks what an export retains; short-lived row
+    // garbage is collected young and would only add noise to total heap use
+    private static long measure(String name, Callable<Long> export) throws Exception {
+        MemoryPoolMXBean oldGen = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getName().contains("Old Gen") || pool.getName().contains("Tenured"))
+                .findFirst().orElseThrow();
+        System.gc();
+        long baseline = oldGen.getUsage().getUsed();
+        AtomicLong peak = new AtomicLong(baseline);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peak.accumulateAndGet(oldGen.getUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.start();
+        long startedAt = System.nanoTime();
+        long result = export.call();
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        running.set(false);
+        sampler.join();
+        System.out.printf("export %-14s %d sensors: %.2f s, peak old-gen growth %d MB%n",
+                name, DEVICES * SENSORS_PER_DEVICE, seconds, (peak.get() - baseline) / (1024 * 1024));
+        return result;
+    }
+}
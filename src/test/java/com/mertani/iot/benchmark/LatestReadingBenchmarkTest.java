@@ -0,0 +1,102 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.LatestReadingService;
+import com.mertani.iot.telemetry.LatestReadings;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the fleet-wide "current value of every sensor" answered by a
+ * {@code DISTINCT ON} query over the readings table with the in-memory
+ * {@link LatestReadings} snapshot, and times rebuilding the index at startup.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class LatestReadingBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SENSORS = 2_000;
+    private static final int READINGS_PER_SENSOR = 500;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    private static final String DISTINCT_ON_SQL =
+            "SELECT DISTINCT ON (sensor_id) sensor_id, recorded_at, reading_value FROM sensor_readings "
+                    + "ORDER BY sensor_id, recorded_at DESC";
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private LatestReadings latestReadings;
+
+    @Autowired
+    private LatestReadingService latestReadingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void fleetLatest_DistinctOnVersusInMemory() {
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < SENSORS; i++) {
+            Sensor sensor = TestUtils.createTestSensor(device);
+            sensor.setId(null);
+            sensor.setSensorId("LATEST-BENCH-" + System.nanoTime() + "-" + i);
+            sensors.add(sensor);
+        }
+        sensorRepository.saveAll(sensors);
+        jdbcTemplate.update("INSERT INTO sensor_readings (sensor_id, recorded_at, reading_value) "
+                + "SELECT s.id, timestamptz '2024-01-01' + n * interval '1 minute', n FROM sensors s, "
+                + "generate_series(1, ?) n", READINGS_PER_SENSOR);
+        jdbcTemplate.execute("ANALYZE sensor_readings");
+
+        long startedAt = System.nanoTime();
+        latestReadings.load();
+        System.out.printf("latest rebuild: %d sensors x %d readings in %.1f ms%n",
+                SENSORS, READINGS_PER_SENSOR, (System.nanoTime() - startedAt) / 1e6);
+
+        IntSupplier distinctOn = () -> jdbcTemplate.query(DISTINCT_ON_SQL, (rs, row) -> rs.getDouble(3)).size();
+        IntSupplier inMemory = () -> latestReadingService.getFleetLatest().size();
+        assertThat(distinctOn.getAsInt()).isEqualTo(SENSORS);
+        assertThat(inMemory.getAsInt()).isGreaterThanOrEqualTo(SENSORS);
+
+        measure("distinct-on", distinctOn);
+        measure("in-memory", inMemory);
+    }
+
+    private static void measure(String name, IntSupplier path) {
+        for (int i = 0; i < WARMUP; i++) {
+            path.getAsInt();
+        }
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            path.getAsInt();
+        }
+        System.out.printf("latest %-12s %d sensors x %d readings: %.2f ms/op%n",
+                name, SENSORS, READINGS_PER_SENSOR, (System.nanoTime() - startedAt) / 1e6 / ITERATIONS);
+    }
+}
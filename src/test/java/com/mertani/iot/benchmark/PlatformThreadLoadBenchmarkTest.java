@@ -0,0 +1,16 @@
+package com.mertani.iot.benchmark;
+
+import org.junit.jupiter.api.Tag;
+
+/**
+ * {@link DeviceEndpointLoadBenchmark} on the default Tomcat platform-thread
+ * pool. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class PlatformThreadLoadBenchmarkTest extends DeviceEndpointLoadBenchmark {
+
+    @Override
+    protected String mode() {
+        return "platform";
+    }
+}
@@ -0,0 +1,24 @@
+package com.mertani.iot.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link DeviceEndpointLoadBenchmark} against the R2DBC read endpoint
+ * ({@code /api/reactive/devices/{id}}); compare with
+ * {@link PlatformThreadLoadBenchmarkTest}. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = "iot.reactive.enabled=true")
+class ReactiveReadLoadBenchmarkTest extends DeviceEndpointLoadBenchmark {
+
+    @Override
+    protected String mode() {
+        return "reactive";
+    }
+
+    @Override
+    protected String path() {
+        return "/api/reactive/devices/";
+    }
+}
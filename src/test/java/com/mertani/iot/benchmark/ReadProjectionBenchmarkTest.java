@@ -0,0 +1,119 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.mapper.DeviceMapper;
+import com.mertani.iot.mapper.SensorMapper;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.DeviceService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares listing all devices through managed entities plus MapStruct (the
+ * previous read path) with the DTO projection queries in read-only
+ * transactions. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ReadProjectionBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int DEVICES = 200;
+    private static final int SENSORS_PER_DEVICE = 10;
+    private static final int WARMUP = 30;
+    private static final int ITERATIONS = 100;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private DeviceMapper deviceMapper;
+
+    @Autowired
+    private SensorMapper sensorMapper;
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void getAllDevices_EntityMappingVersusProjection() {
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+        for (int i = 0; i < DEVICES; i++) {
+            Device device = TestUtils.createTestDevice();
+            device.setId(null);
+            device.setSerialNumber("PROJ-" + i);
+            device = deviceRepository.save(device);
+            List<Sensor> sensors = new ArrayList<>();
+            for (int j = 0; j < SENSORS_PER_DEVICE; j++) {
+                Sensor sensor = TestUtils.createTestSensor(device);
+                sensor.setId(null);
+                sensor.setSensorId("PROJ-" + i + "-" + j);
+                sensors.add(sensor);
+            }
+            sensorRepository.saveAll(sensors);
+        }
+
+        Supplier<List<DeviceResponse>> entityPath = () -> transactionTemplate.execute(status -> {
+            Map<Long, List<SensorResponse>> sensorsByDevice = sensorRepository.findAll().stream()
+                    .map(sensorMapper::toDto)
+                    .collect(Collectors.groupingBy(SensorResponse::getDeviceId));
+            return deviceRepository.findAll().stream()
+                    .map(device -> {
+                        DeviceResponse response = deviceMapper.toDto(device);
+                        response.setSensors(sensorsByDevice.getOrDefault(device.getId(), Collections.emptyList()));
+                        return response;
+                    })
+                    .collect(Collectors.toList());
+        });
+        Supplier<List<DeviceResponse>> projectionPath = deviceService::getAllDevices;
+
+        assertThat(sensorCount(projectionPath.get())).isEqualTo(DEVICES * SENSORS_PER_DEVICE);
+        assertThat(sensorCount(projectionPath.get())).isEqualTo(sensorCount(entityPath.get()));
+
+        measure("entity+mapper", entityPath);
+        measure("projection", projectionPath);
+    }
+
+    private static void measure(String name, Supplier<List<DeviceResponse>> path) {
+        for (int i = 0; i < WARMUP; i++) {
+            path.get();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            path.get();
+        }
+        double millisPerOp = (System.nanoTime() - startedAt) / 1e6 / ITERATIONS;
+        double kbPerOp = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / 1024.0 / ITERATIONS;
+        System.out.printf("read %-14s %d devices x %d sensors: %.2f ms/op, %.0f KB allocated/op%n",
+                name, DEVICES, SENSORS_PER_DEVICE, millisPerOp, kbPerOp);
+    }
+
+    private static long sensorCount(List<DeviceResponse> devices) {
+        return devices.stream().mapToLong(device -> device.getSensors().size()).sum();
+    }
+}
@@ -0,0 +1,146 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.AggregateResponse;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.ReadingQueryService;
+import com.mertani.iot.timeseries.Rollup;
+import com.mertani.iot.timeseries.RollupJob;
+import com.mertani.iot.timeseries.RollupTracker;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares 5-minute aggregates of every sensor of a device over a week
+ * computed by the client from the raw readings with the device aggregate
+ * endpoint's service. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ReadingAggregateBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SENSORS = 20;
+    private static final Instant FROM = Instant.parse("2099-02-02T00:00:00Z");
+    private static final Instant TO = Instant.parse("2099-02-09T00:00:00Z");
+    private static final long WINDOW_MILLIS = 300_000;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private ReadingQueryService readingQueryService;
+
+    @Autowired
+    private RollupTracker rollupTracker;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void deviceWeekBy5Minutes_ClientSideVersusEndpoint() {
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        for (Rollup rollup : Rollup.values()) {
+            jdbcTemplate.update("DELETE FROM " + rollup.table());
+        }
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < SENSORS; i++) {
+            Sensor sensor = TestUtils.createTestSensor(device);
+            sensor.setId(null);
+            sensor.setSensorId("AGGREGATE-BENCH-" + System.nanoTime() + "-" + i);
+            sensors.add(sensor);
+        }
+        sensors = sensorRepository.saveAll(sensors);
+        long deviceId = device.getId();
+
+        // One reading every 10 seconds per sensor; the partitions are created ahead like ingest would
+        for (Instant day = FROM; day.isBefore(TO); day = day.plusSeconds(86_400)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS sensor_readings_p"
+                    + day.toString().substring(0, 10).replace("-", "") + " PARTITION OF sensor_readings "
+                    + "FOR VALUES FROM ('" + day + "') TO ('" + day.plusSeconds(86_400) + "')");
+        }
+        jdbcTemplate.update("INSERT INTO sensor_readings (sensor_id, recorded_at, reading_value) "
+                + "SELECT s.id, timestamptz '" + FROM + "' + n * interval '10 seconds', n % 100 "
+                + "FROM sensors s, generate_series(0, ?) n WHERE s.device_id = ?",
+                (TO.getEpochSecond() - FROM.getEpochSecond()) / 10 - 1, deviceId);
+        jdbcTemplate.execute("ANALYZE sensor_readings");
+        for (Sensor sensor : sensors) {
+            rollupTracker.markDirty(sensor.getId(), FROM.toEpochMilli(), TO.toEpochMilli());
+        }
+        rollupJob.run();
+
+        long[] ids = sensors.stream().mapToLong(Sensor::getId).toArray();
+        IntSupplier clientSide = () -> clientSide(ids);
+        IntSupplier endpoint = () -> {
+            AggregateResponse response = readingQueryService.getDeviceAggregate(deviceId, FROM, TO, "5m");
+            return response.getSeries().stream().mapToInt(series -> series.getBuckets().length).sum();
+        };
+        assertThat(clientSide.getAsInt()).isEqualTo(SENSORS * 2016);
+        assertThat(endpoint.getAsInt()).isEqualTo(SENSORS * 2016);
+
+        measure("client-side", clientSide);
+        measure("endpoint", endpoint);
+    }
+
+    /** What a client does without the endpoint: fetch every reading and bucket it itself. */
+    private int clientSide(long[] ids) {
+        Map<Long, Map<Long, double[]>> buckets = new HashMap<>();
+        for (long id : ids) {
+            Map<Long, double[]> sensorBuckets = buckets.computeIfAbsent(id, key -> new HashMap<>());
+            jdbcTemplate.query("SELECT recorded_at, reading_value FROM sensor_readings "
+                    + "WHERE sensor_id = ? AND recorded_at >= ? AND recorded_at < ?", rs -> {
+                long bucket = Math.floorDiv(rs.getObject(1, OffsetDateTime.class).toInstant().toEpochMilli(),
+                        WINDOW_MILLIS) * WINDOW_MILLIS;
+                double value = rs.getDouble(2);
+                double[] aggregate = sensorBuckets.computeIfAbsent(bucket,
+                        key -> new double[]{Double.MAX_VALUE, -Double.MAX_VALUE, 0, 0});
+                aggregate[0] = Math.min(aggregate[0], value);
+                aggregate[1] = Math.max(aggregate[1], value);
+                aggregate[2] += value;
+                aggregate[3]++;
+            }, id, OffsetDateTime.ofInstant(FROM, ZoneOffset.UTC), OffsetDateTime.ofInstant(TO, ZoneOffset.UTC));
+        }
+        return buckets.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private static void measure(String name, IntSupplier path) {
+        for (int i = 0; i < WARMUP; i++) {
+            path.getAsInt();
+        }
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            path.getAsInt();
+        }
+        System.out.printf("aggregate %-12s %d sensors, week by 5m: %.2f ms/op%n",
+                name, SENSORS, (System.nanoTime() - startedAt) / 1e6 / ITERATIONS);
+    }
+}
@@ -0,0 +1,161 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.AggregateSeries;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.ReadingSeriesJdbcRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.timeseries.ReadingBlockDecoder;
+import com.mertani.iot.timeseries.ReadingCompactor;
+import com.mertani.iot.timeseries.Rollup;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stores a week of 10-second readings from 20 sensors, compresses it and
+ * compares storage size and raw 5-minute aggregate queries before and after,
+ * plus block decode throughput. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ReadingCompactionBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SENSORS = 20;
+    // Before every other test's readings, which compressing must leave writable
+    private static final Instant FROM = Instant.parse("2000-01-03T00:00:00Z");
+    private static final Instant TO = Instant.parse("2000-01-10T00:00:00Z");
+    private static final long READINGS = SENSORS * (TO.getEpochSecond() - FROM.getEpochSecond()) / 10;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private ReadingSeriesJdbcRepository seriesRepository;
+
+    @Autowired
+    private ReadingCompactor compactor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void weekOf10SecondReadings_RawVersusCompressed() {
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        jdbcTemplate.update("DELETE FROM sensor_reading_blocks");
+        for (Rollup rollup : Rollup.values()) {
+            jdbcTemplate.update("DELETE FROM " + rollup.table());
+        }
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < SENSORS; i++) {
+            Sensor sensor = TestUtils.createTestSensor(device);
+            sensor.setId(null);
+            sensor.setSensorId("COMPACTION-BENCH-" + System.nanoTime() + "-" + i);
+            sensors.add(sensor);
+        }
+        sensors = sensorRepository.saveAll(sensors);
+        long[] ids = sensors.stream().mapToLong(Sensor::getId).toArray();
+
+        // A slowly drifting temperature to one decimal with a little clock jitter, like a real sensor
+        List<String> partitions = new ArrayList<>();
+        for (Instant day = FROM; day.isBefore(TO); day = day.plusSeconds(86_400)) {
+            String partition = "sensor_readings_p" + day.toString().substring(0, 10).replace("-", "");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF sensor_readings "
+                    + "FOR VALUES FROM ('" + day + "') TO ('" + day.plusSeconds(86_400) + "')");
+            partitions.add(partition);
+        }
+        jdbcTemplate.update("INSERT INTO sensor_readings (sensor_id, recorded_at, reading_value) "
+                + "SELECT s.id, timestamptz '" + FROM + "' + n * interval '10 seconds' "
+                + "+ (hashint8(n * 31 + s.id) & 15) * interval '1 millisecond', "
+                + "round((20 + 5 * sin(n / 2000.0 + s.id) + (hashint8(n + s.id) & 7) / 20.0)::numeric, 1) "
+                + "FROM sensors s, generate_series(0, ?) n WHERE s.device_id = ?",
+                READINGS / SENSORS - 1, device.getId());
+        jdbcTemplate.execute("VACUUM ANALYZE sensor_readings");
+        long rawBytes = 0;
+        for (String partition : partitions) {
+            rawBytes += jdbcTemplate.queryForObject("SELECT pg_total_relation_size(?)", Long.class, partition);
+        }
+
+        IntSupplier query = () -> {
+            Map<Long, AggregateSeries> series = seriesRepository.aggregateColumns(null, ids, FROM, TO, 300_000);
+            return series.values().stream().mapToInt(sensorSeries -> sensorSeries.getBuckets().length).sum();
+        };
+        assertThat(query.getAsInt()).isEqualTo(SENSORS * 2016);
+        double rawQuery = measure(query);
+
+        long startedAt = System.nanoTime();
+        assertThat(compactor.compactBefore(TO)).isEqualTo(partitions.size());
+        double compactSeconds = (System.nanoTime() - startedAt) / 1e9;
+        long blockBytes = jdbcTemplate.queryForObject(
+                "SELECT pg_total_relation_size('sensor_reading_blocks')", Long.class);
+        long dataBytes = jdbcTemplate.queryForObject(
+                "SELECT sum(octet_length(data)) FROM sensor_reading_blocks", Long.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT sum(reading_count) FROM sensor_reading_blocks",
+                Long.class)).isEqualTo(READINGS);
+
+        assertThat(query.getAsInt()).isEqualTo(SENSORS * 2016);
+        double compressedQuery = measure(query);
+
+        List<byte[]> blocks = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        jdbcTemplate.query("SELECT reading_count, data FROM sensor_reading_blocks", rs -> {
+            counts.add(rs.getInt(1));
+            blocks.add(rs.getBytes(2));
+        });
+        IntSupplier decode = () -> {
+            int decoded = 0;
+            for (int i = 0; i < blocks.size(); i++) {
+                ReadingBlockDecoder decoder = new ReadingBlockDecoder(blocks.get(i), counts.get(i));
+                while (decoder.next()) {
+                    decoded++;
+                }
+            }
+            return decoded;
+        };
+        assertThat(decode.getAsInt()).isEqualTo(READINGS);
+        double decodeMillis = measure(decode);
+
+        System.out.printf("compaction %d readings: raw %.1f B/reading, blocks %.1f B/reading "
+                        + "(%.2f B/reading encoded), %.1fx smaller, compressed in %.1f s (%.0f readings/s)%n",
+                READINGS, (double) rawBytes / READINGS, (double) blockBytes / READINGS,
+                (double) dataBytes / READINGS, (double) rawBytes / blockBytes, compactSeconds,
+                READINGS / compactSeconds);
+        System.out.printf("compaction decode: %.2f ms/op, %.1fM readings/s%n",
+                decodeMillis, READINGS / decodeMillis / 1000);
+        System.out.printf("compaction week by 5m, %d sensors, raw path: %.2f ms/op uncompressed, "
+                + "%.2f ms/op compressed%n", SENSORS, rawQuery, compressedQuery);
+    }
+
+    private static double measure(IntSupplier path) {
+        for (int i = 0; i < WARMUP; i++) {
+            path.getAsInt();
+        }
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            path.getAsInt();
+        }
+        return (System.nanoTime() - startedAt) / 1e6 / ITERATIONS;
+    }
+}
@@ -0,0 +1,190 @@
+package com.mertani.iot.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorReadingJdbcRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.ReadingExportService;
+import com.mertani.iot.telemetry.ReadingArrowWriter;
+import com.mertani.iot.telemetry.ReadingBatch;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports two million readings of 20 sensors over a month through the export
+ * endpoint's service as Arrow, and the same readings as one JSON object per
+ * row read through a JDBC cursor, both written to a stream that only counts
+ * bytes. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ReadingExportBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SENSORS = 20;
+    private static final int READINGS = 2_000_000;
+    // After the time the compaction tests compress
+    private static final Instant FROM = Instant.parse("2003-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2003-02-01T00:00:00Z");
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorReadingJdbcRepository readingRepository;
+
+    @Autowired
+    private ReadingExportService readingExportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void twoMillionReadings_ArrowVersusJsonRows() throws Exception {
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < SENSORS; i++) {
+            Sensor sensor = TestUtils.createTestSensor(device);
+            sensor.setId(null);
+            sensor.setSensorId("EXPORT-BENCH-" + System.nanoTime() + "-" + i);
+            sensors.add(sensor);
+        }
+        sensors = sensorRepository.saveAll(sensors);
+        long[] ids = sensors.stream().mapToLong(Sensor::getId).toArray();
+
+        // A reading about every 27 seconds for a month, in chunks as an import writes them
+        ReadingBatch batch = new ReadingBatch(50_000);
+        for (int s = 0; s < SENSORS; s++) {
+            for (int i = 0; i < READINGS / SENSORS; i++) {
+                batch.add(ids[s], FROM.toEpochMilli() + i * 26_784L, Math.round((20 + 5 * Math.sin(i / 500.0 + s))
+                        * 100) / 100.0);
+                if (batch.size() == batch.capacity()) {
+                    readingRepository.copyAll(batch);
+                    batch.clear();
+                }
+            }
+        }
+        readingRepository.copyAll(batch);
+        jdbcTemplate.execute("ANALYZE sensor_readings");
+
+        // Once each first, so neither pays for compilation
+        arrow(ids);
+        json(ids);
+
+        long startedAt = System.nanoTime();
+        long[] arrow = arrow(ids);
+        double arrowSeconds = (System.nanoTime() - startedAt) / 1e9;
+        startedAt = System.nanoTime();
+        long[] json = json(ids);
+        double jsonSeconds = (System.nanoTime() - startedAt) / 1e9;
+        assertThat(arrow[0]).isEqualTo(READINGS);
+        assertThat(json[0]).isEqualTo(READINGS);
+
+        System.out.printf("export %d readings: Arrow %.2f s (%.0f rows/s, %.1f bytes/row), "
+                        + "JSON rows %.2f s (%.0f rows/s, %.1f bytes/row), %.1fx faster, %.1fx smaller%n",
+                READINGS, arrowSeconds, READINGS / arrowSeconds, (double) arrow[1] / READINGS,
+                jsonSeconds, READINGS / jsonSeconds, (double) json[1] / READINGS,
+                jsonSeconds / arrowSeconds, (double) json[1] / arrow[1]);
+    }
+
+    /**
+     * @return rows and bytes written
+     */
+    private long[] arrow(long[] ids) throws IOException {
+        CountingStream out = new CountingStream();
+        long[] rows = {0};
+        ReadingArrowWriter writer = new ReadingArrowWriter(out);
+        readingExportService.exportReadings(ids, FROM, TO, chunk -> {
+            rows[0] += chunk.size();
+            try {
+                writer.write(chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.finish();
+        return new long[]{rows[0], out.bytes};
+    }
+
+    private long[] json(long[] ids) throws IOException {
+        CountingStream out = new CountingStream();
+        long[] rows = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setRootValueSeparator(null);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement("SELECT sensor_id, recorded_at, reading_value "
+                        + "FROM sensor_readings WHERE sensor_id = ANY(?) AND recorded_at >= ? AND recorded_at < ? "
+                        + "ORDER BY sensor_id, recorded_at");
+                statement.setFetchSize(10_000);
+                statement.setArray(1, con.createArrayOf("bigint", Arrays.stream(ids).boxed().toArray()));
+                statement.setObject(2, OffsetDateTime.ofInstant(FROM, ZoneOffset.UTC));
+                statement.setObject(3, OffsetDateTime.ofInstant(TO, ZoneOffset.UTC));
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("sensorId", rs.getLong(1));
+                    generator.writeStringField("recordedAt", rs.getObject(2, OffsetDateTime.class).toInstant().toString());
+                    generator.writeNumberField("value", rs.getDouble(3));
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            }));
+        }
+        return new long[]{rows[0], out.bytes};
+    }
+
+    private static final class CountingStream extends OutputStream {
+
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
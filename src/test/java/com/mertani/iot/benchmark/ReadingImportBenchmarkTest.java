@@ -0,0 +1,153 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.ReadingImportResponse;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.ReadingImportRepository;
+import com.mertani.iot.repository.SensorReadingJdbcRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.ReadingImportService;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.ReadingCsvReader;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports a CSV of a million readings from 20 sensors through the import
+ * endpoint's service, which writes chunks with COPY, then again under another
+ * import ID, which finds every reading already stored, and compares both with
+ * the same file written with the batched INSERTs of live ingest. Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+// The readings are from 2002, older than the import window allows by default
+@TestPropertySource(properties = "iot.readings.import-max-age-days=36500")
+class ReadingImportBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SENSORS = 20;
+    private static final int READINGS = 1_000_000;
+    private static final int CHUNK_SIZE = 50_000;
+    // After the time the compaction tests compress
+    private static final Instant FROM = Instant.parse("2002-01-01T00:00:00Z");
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private ReadingImportRepository importRepository;
+
+    @Autowired
+    private ReadingImportService readingImportService;
+
+    @Autowired
+    private SensorReadingJdbcRepository readingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void millionReadings_CopyVersusBatchedInsert() throws Exception {
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        importRepository.deleteAll();
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < SENSORS; i++) {
+            Sensor sensor = TestUtils.createTestSensor(device);
+            sensor.setId(null);
+            sensor.setSensorId("IMPORT-BENCH-" + System.nanoTime() + "-" + i);
+            sensors.add(sensor);
+        }
+        sensors = sensorRepository.saveAll(sensors);
+        long startedAt;
+        Map<String, Long> ids = new HashMap<>();
+        sensors.forEach(sensor -> ids.put(sensor.getSensorId(), sensor.getId()));
+
+        // Sorted by sensor, then time, as database dumps usually are
+        StringBuilder text = new StringBuilder(READINGS * 64).append("sensorId,timestamp,value\n");
+        for (int s = 0; s < SENSORS; s++) {
+            String sensorId = sensors.get(s).getSensorId();
+            for (int i = 0; i < READINGS / SENSORS; i++) {
+                text.append(sensorId).append(',').append(FROM.plusSeconds(i * 10L)).append(',')
+                        .append(Math.round((20 + 5 * Math.sin(i / 2000.0 + s)) * 10) / 10.0).append('\n');
+            }
+        }
+        byte[] csv = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        // Parsed once first, so that neither path pays for compiling the reader
+        ReadingCsvReader warmup = new ReadingCsvReader(new InputStreamReader(new ByteArrayInputStream(csv),
+                StandardCharsets.UTF_8));
+        long parsed = 0;
+        startedAt = System.nanoTime();
+        while (warmup.next()) {
+            parsed += warmup.isValid() ? 1 : 0;
+        }
+        double parseSeconds = (System.nanoTime() - startedAt) / 1e9;
+        assertThat(parsed).isEqualTo(READINGS);
+
+        startedAt = System.nanoTime();
+        ReadingImportResponse response = readingImportService.importCsv("benchmark",
+                new ByteArrayInputStream(csv));
+        double copySeconds = (System.nanoTime() - startedAt) / 1e9;
+        assertThat(response.getAccepted()).isEqualTo(READINGS);
+        assertThat(stored()).isEqualTo(READINGS);
+
+        startedAt = System.nanoTime();
+        response = readingImportService.importCsv("benchmark-again", new ByteArrayInputStream(csv));
+        double repeatSeconds = (System.nanoTime() - startedAt) / 1e9;
+        assertThat(response.getAccepted()).isEqualTo(READINGS);
+        assertThat(stored()).isEqualTo(READINGS);
+
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        startedAt = System.nanoTime();
+        ReadingCsvReader reader = new ReadingCsvReader(new InputStreamReader(new ByteArrayInputStream(csv),
+                StandardCharsets.UTF_8));
+        ReadingBatch chunk = new ReadingBatch(CHUNK_SIZE);
+        while (reader.next()) {
+            chunk.add(ids.get(reader.sensorId()), reader.timestamp(), reader.value());
+            if (chunk.size() == CHUNK_SIZE) {
+                readingRepository.insertAll(chunk);
+                chunk.clear();
+            }
+        }
+        readingRepository.insertAll(chunk);
+        double insertSeconds = (System.nanoTime() - startedAt) / 1e9;
+        assertThat(stored()).isEqualTo(READINGS);
+
+        System.out.printf("import %d readings (%.0f MB of CSV): parse only %.1f s, COPY %.1f s (%.0f readings/s), "
+                        + "again with all stored %.1f s (%.0f readings/s), batched INSERT %.1f s "
+                        + "(%.0f readings/s), %.1fx faster%n",
+                READINGS, csv.length / 1e6, parseSeconds, copySeconds, READINGS / copySeconds, repeatSeconds,
+                READINGS / repeatSeconds, insertSeconds, READINGS / insertSeconds, insertSeconds / copySeconds);
+    }
+
+    private long stored() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM sensor_readings WHERE recorded_at >= ?",
+                Long.class, FROM.atOffset(ZoneOffset.UTC));
+    }
+}
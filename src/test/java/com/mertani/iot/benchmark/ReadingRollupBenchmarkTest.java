@@ -0,0 +1,110 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.ReadingSeriesJdbcRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.timeseries.Rollup;
+import com.mertani.iot.timeseries.RollupJob;
+import com.mertani.iot.timeseries.RollupTracker;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares a month of one sensor's readings bucketed by day from the raw
+ * (partitioned) readings with the same series from each rollup, and times
+ * rolling the month up. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class ReadingRollupBenchmarkTest extends BaseIntegrationTest {
+
+    private static final Instant FROM = Instant.parse("2099-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2099-01-31T00:00:00Z");
+    private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private ReadingSeriesJdbcRepository seriesRepository;
+
+    @Autowired
+    private RollupTracker rollupTracker;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void monthByDay_RawVersusRollups() {
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        for (Rollup rollup : Rollup.values()) {
+            jdbcTemplate.update("DELETE FROM " + rollup.table());
+        }
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        Sensor sensor = TestUtils.createTestSensor(device);
+        sensor.setId(null);
+        sensor.setSensorId("ROLLUP-BENCH-" + System.nanoTime());
+        long sensorId = sensorRepository.save(sensor).getId();
+
+        // One reading a second; the partitions are created ahead like ingest would
+        for (long day = FROM.toEpochMilli(); day < TO.toEpochMilli(); day += DAY_MILLIS) {
+            Instant start = Instant.ofEpochMilli(day);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS sensor_readings_p"
+                    + start.toString().substring(0, 10).replace("-", "") + " PARTITION OF sensor_readings "
+                    + "FOR VALUES FROM ('" + start + "') TO ('" + start.plusMillis(DAY_MILLIS) + "')");
+        }
+        jdbcTemplate.update("INSERT INTO sensor_readings (sensor_id, recorded_at, reading_value) "
+                + "SELECT ?, timestamptz '" + FROM + "' + n * interval '1 second', n % 100 "
+                + "FROM generate_series(0, ?) n", sensorId, (TO.toEpochMilli() - FROM.toEpochMilli()) / 1000 - 1);
+        jdbcTemplate.execute("ANALYZE sensor_readings");
+
+        long startedAt = System.nanoTime();
+        rollupTracker.markDirty(sensorId, FROM.toEpochMilli(), TO.toEpochMilli());
+        rollupJob.run();
+        System.out.printf("rollup month of 1/s readings: %.1f ms%n", (System.nanoTime() - startedAt) / 1e6);
+
+        measure("raw", sensorId, null);
+        for (Rollup rollup : Rollup.values()) {
+            measure(rollup.label(), sensorId, rollup);
+        }
+    }
+
+    private void measure(String name, long sensorId, Rollup source) {
+        IntSupplier query = () -> seriesRepository.aggregateColumns(source, new long[]{sensorId}, FROM, TO, DAY_MILLIS)
+                .get(sensorId).getBuckets().length;
+        assertThat(query.getAsInt()).isEqualTo(30);
+        for (int i = 0; i < WARMUP; i++) {
+            query.getAsInt();
+        }
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            query.getAsInt();
+        }
+        System.out.printf("rollup %-4s month by day: %.2f ms/op%n",
+                name, (System.nanoTime() - startedAt) / 1e6 / ITERATIONS);
+    }
+}
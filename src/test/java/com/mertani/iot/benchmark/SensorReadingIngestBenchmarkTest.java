@@ -0,0 +1,79 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.SensorReadingIngestResponse;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.SensorReadingService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures sustained ingest throughput through the buffer and JDBC batch writer
+ * against a real PostgreSQL. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class SensorReadingIngestBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SENSORS = 200;
+    private static final int REQUESTS = 1_000;
+    private static final int READINGS_PER_REQUEST = 1_000;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorReadingService sensorReadingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sustainedIngestThroughput() {
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        List<String> sensorIds = new ArrayList<>();
+        for (int i = 0; i < SENSORS; i++) {
+            Sensor sensor = TestUtils.createTestSensor(device);
+            sensor.setId(null);
+            sensor.setSensorId("BENCH-" + i);
+            sensorIds.add(sensorRepository.save(sensor).getSensorId());
+        }
+
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        long startedAt = System.nanoTime();
+        long accepted = 0;
+        for (int r = 0; r < REQUESTS; r++) {
+            List<SensorReadingRequest> request = new ArrayList<>(READINGS_PER_REQUEST);
+            for (int i = 0; i < READINGS_PER_REQUEST; i++) {
+                int n = r * READINGS_PER_REQUEST + i;
+                request.add(new SensorReadingRequest(
+                        sensorIds.get(n % SENSORS), start.plusMillis(n / SENSORS * 1000L), n * 0.01));
+            }
+            SensorReadingIngestResponse response = sensorReadingService.ingest(request);
+            accepted += response.getAccepted();
+        }
+        sensorReadingService.flush();
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+
+        Long stored = jdbcTemplate.queryForObject("SELECT count(*) FROM sensor_readings", Long.class);
+        System.out.printf("ingest: %d readings in %.2fs = %.0f readings/s%n", accepted, seconds, accepted / seconds);
+        assertThat(stored).isEqualTo(accepted);
+    }
+}
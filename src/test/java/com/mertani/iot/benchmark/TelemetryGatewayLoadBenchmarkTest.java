@@ -0,0 +1,251 @@
+package com.mertani.iot.benchmark;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.gateway.TelemetryGateway;
+import com.mertani.iot.integration.BaseIntegrationTest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.SensorReadingService;
+import com.mertani.iot.telemetry.ReadingFrameEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Small-packet throughput of the telemetry gateway: many sensors each sending
+ * a frame of a few readings per packet, over UDP and over many concurrent TCP
+ * connections, all the way into PostgreSQL. The sender and the database share
+ * the machine, so the rates are a lower bound; the gateway thread's CPU time per
+ * packet gives its capacity per core. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = {
+        "iot.gateway.enabled=true",
+        "iot.gateway.bind-address=127.0.0.1",
+        "iot.gateway.udp-port=0",
+        "iot.gateway.tcp-port=0"
+})
+class TelemetryGatewayLoadBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SENSORS = 1_000;
+    private static final int PACKETS = 100_000;
+    private static final int READINGS_PER_PACKET = 4;
+    private static final int TCP_CONNECTIONS = 200;
+    private static final int[] UDP_RATES = {10_000, 20_000, 40_000};
+    private static final int UDP_SECONDS_PER_RATE = 3;
+    private static final long START = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    @Autowired
+    private TelemetryGateway gateway;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorReadingService sensorReadingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<String> sensorIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < SENSORS; i++) {
+            Sensor sensor = TestUtils.createTestSensor(device);
+            sensor.setId(null);
+            sensor.setSensorId("GW-BENCH-" + System.nanoTime() + "-" + i);
+            sensors.add(sensor);
+        }
+        sensorRepository.saveAll(sensors).forEach(sensor -> sensorIds.add(sensor.getSensorId()));
+    }
+
+    /**
+     * UDP has no flow control, so datagrams are sent at fixed rates and the loss
+     * at each rate shows how much the gateway sustains.
+     */
+    @Test
+    void udpPacketThroughput() throws Exception {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(new InetSocketAddress("127.0.0.1", gateway.udpPort()));
+            warmUp(channel);
+
+            int offset = PACKETS;
+            for (int rate : UDP_RATES) {
+                List<ByteBuffer> packets = packets(offset, rate * UDP_SECONDS_PER_RATE);
+                offset += packets.size();
+                double acceptedBefore = accepted("udp");
+                long cpuBefore = gatewayCpuNanos();
+
+                long startedAt = System.nanoTime();
+                for (int i = 0; i < packets.size(); i++) {
+                    // Pace in bursts of 100 packets
+                    if (i % 100 == 0) {
+                        long wait = startedAt + (long) (i * 1e9 / rate) - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    channel.write(packets.get(i));
+                }
+                long received = awaitAccepted("udp", acceptedBefore,
+                        (long) packets.size() * READINGS_PER_PACKET) / READINGS_PER_PACKET;
+
+                double cpuMicrosPerPacket = (gatewayCpuNanos() - cpuBefore) / 1e3 / received;
+
+                System.out.printf("gateway udp: %d packets/s offered, %d of %d received, %.1f%% lost, "
+                                + "%.1f us gateway CPU per packet%n", rate, received, packets.size(),
+                        100.0 * (packets.size() - received) / packets.size(), cpuMicrosPerPacket);
+                assertThat(received).isPositive();
+            }
+        }
+    }
+
+    @Test
+    void tcpPacketThroughput() throws Exception {
+        List<ByteBuffer> packets = packets(0, PACKETS);
+        List<SocketChannel> connections = new ArrayList<>();
+        try {
+            for (int i = 0; i < TCP_CONNECTIONS; i++) {
+                connections.add(SocketChannel.open(new InetSocketAddress("127.0.0.1", gateway.tcpPort())));
+            }
+            warmUp(connections.get(0));
+            double acceptedBefore = accepted("tcp");
+            long cpuBefore = gatewayCpuNanos();
+
+            long startedAt = System.nanoTime();
+            for (int i = 0; i < packets.size(); i++) {
+                ByteBuffer packet = packets.get(i);
+                SocketChannel connection = connections.get(i % TCP_CONNECTIONS);
+                while (packet.hasRemaining()) {
+                    connection.write(packet);
+                }
+            }
+            long received = awaitAccepted("tcp", acceptedBefore,
+                    (long) PACKETS * READINGS_PER_PACKET) / READINGS_PER_PACKET;
+            double seconds = (System.nanoTime() - startedAt) / 1e9;
+            double cpuMicrosPerPacket = (gatewayCpuNanos() - cpuBefore) / 1e3 / received;
+
+            System.out.printf("gateway tcp: %d packets over %d connections in %.2fs = %.0f packets/s, "
+                            + "%.1f us gateway CPU per packet%n",
+                    received, TCP_CONNECTIONS, seconds, received / seconds, cpuMicrosPerPacket);
+            assertThat(received).isEqualTo(PACKETS);
+            assertThat(storedReadings()).isEqualTo((long) (PACKETS + SENSORS) * READINGS_PER_PACKET);
+        } finally {
+            for (SocketChannel connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Sends one packet per sensor and waits for them, so sensor lookups are
+     * cached and the decode path is compiled before measuring.
+     */
+    private void warmUp(WritableByteChannel channel) throws Exception {
+        String transport = channel instanceof DatagramChannel ? "udp" : "tcp";
+        double acceptedBefore = accepted(transport);
+        // Offset past every measured packet, so warm-up readings never collide with them
+        for (ByteBuffer packet : packets(Integer.MAX_VALUE / 2, SENSORS)) {
+            while (packet.hasRemaining()) {
+                channel.write(packet);
+            }
+            if (channel instanceof DatagramChannel) {
+                Thread.sleep(0, 200_000);
+            }
+        }
+        awaitAccepted(transport, acceptedBefore, (long) SENSORS * READINGS_PER_PACKET);
+    }
+
+    /**
+     * One packet per sensor report: a frame of that sensor's next few readings.
+     */
+    private List<ByteBuffer> packets(int offset, int count) {
+        ReadingFrameEncoder encoder = new ReadingFrameEncoder();
+        List<ByteBuffer> packets = new ArrayList<>(count);
+        for (int p = offset; p < offset + count; p++) {
+            String sensorId = sensorIds.get(p % SENSORS);
+            long timestamp = START + (long) (p / SENSORS) * READINGS_PER_PACKET * 1000L;
+            for (int i = 0; i < READINGS_PER_PACKET; i++) {
+                encoder.add(sensorId, timestamp + i * 1000L, 20 + i * 0.25);
+            }
+            packets.add(ByteBuffer.wrap(encoder.toByteArray()));
+        }
+        return packets;
+    }
+
+    private double accepted(String transport) {
+        return meterRegistry.get("iot.gateway.readings")
+                .tags("transport", transport, "outcome", "accepted")
+                .counter().count();
+    }
+
+    /**
+     * Waits until {@code expected} readings were accepted, or the count has not
+     * moved for a few seconds (UDP loses packets), then flushes.
+     */
+    private long awaitAccepted(String transport, double before, long expected) throws InterruptedException {
+        double current = accepted(transport);
+        long lastProgress = System.nanoTime();
+        while (current - before < expected && System.nanoTime() - lastProgress < 3_000_000_000L) {
+            Thread.sleep(10);
+            double next = accepted(transport);
+            if (next != current) {
+                current = next;
+                lastProgress = System.nanoTime();
+            }
+        }
+        sensorReadingService.flush();
+        return (long) (current - before);
+    }
+
+    /**
+     * CPU time of the gateway's selector thread, which decodes, resolves and
+     * buffers every packet and writes the batches that fill up on it.
+     */
+    private static long gatewayCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("telemetry-gateway"))
+                .mapToLong(thread -> threads.getThreadCpuTime(thread.getId()))
+                .sum();
+    }
+
+    private long storedReadings() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM sensor_readings", Long.class);
+    }
+}
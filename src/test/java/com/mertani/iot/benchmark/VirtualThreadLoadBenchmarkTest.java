@@ -0,0 +1,21 @@
+package com.mertani.iot.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * {@link DeviceEndpointLoadBenchmark} with virtual threads and the bounded
+ * data source. Needs Java 21; run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@EnabledForJreRange(min = JRE.JAVA_21)
+@TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadLoadBenchmarkTest extends DeviceEndpointLoadBenchmark {
+
+    @Override
+    protected String mode() {
+        return "virtual";
+    }
+}
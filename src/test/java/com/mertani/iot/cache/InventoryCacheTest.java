@@ -0,0 +1,92 @@
+package com.mertani.iot.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.telemetry.SensorRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryCacheTest {
+
+    private CaffeineCacheManager cacheManager;
+    private InventoryCache inventoryCache;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new CaffeineCacheManager(InventoryCache.DEVICES, InventoryCache.SENSORS, InventoryCache.SENSOR_IDS);
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(100));
+        inventoryCache = new InventoryCache(cacheManager);
+
+        put(InventoryCache.DEVICES, 1L, DeviceResponse.builder().id(1L).build());
+        put(InventoryCache.DEVICES, 2L, DeviceResponse.builder().id(2L).build());
+        put(InventoryCache.SENSORS, 10L, SensorResponse.builder().id(10L).sensorId("S-10").deviceId(1L).build());
+        put(InventoryCache.SENSORS, 20L, SensorResponse.builder().id(20L).sensorId("S-20").deviceId(2L).build());
+        put(InventoryCache.SENSOR_IDS, "S-10", new SensorRef("S-10", 10L, 1L));
+        put(InventoryCache.SENSOR_IDS, "S-20", new SensorRef("S-20", 20L, 2L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evictSensor_ShouldEvictSensorAndListingDevicesOnly() {
+        // Act
+        inventoryCache.evictSensor(10L, "S-10", 1L);
+
+        // Assert
+        assertNull(get(InventoryCache.SENSORS, 10L));
+        assertNull(get(InventoryCache.SENSOR_IDS, "S-10"));
+        assertNull(get(InventoryCache.DEVICES, 1L));
+        assertNotNull(get(InventoryCache.SENSORS, 20L));
+        assertNotNull(get(InventoryCache.SENSOR_IDS, "S-20"));
+        assertNotNull(get(InventoryCache.DEVICES, 2L));
+    }
+
+    @Test
+    void evictDeviceWithSensors_ShouldEvictDeviceAndItsSensorsOnly() {
+        // Act
+        inventoryCache.evictDeviceWithSensors(1L);
+
+        // Assert
+        assertNull(get(InventoryCache.DEVICES, 1L));
+        assertNull(get(InventoryCache.SENSORS, 10L));
+        assertNull(get(InventoryCache.SENSOR_IDS, "S-10"));
+        assertNotNull(get(InventoryCache.DEVICES, 2L));
+        assertNotNull(get(InventoryCache.SENSORS, 20L));
+        assertNotNull(get(InventoryCache.SENSOR_IDS, "S-20"));
+    }
+
+    @Test
+    void evictDevice_ShouldWaitForCommit_WhenTransactionIsActive() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        inventoryCache.evictDevice(1L);
+
+        // Assert
+        assertNotNull(get(InventoryCache.DEVICES, 1L));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertNull(get(InventoryCache.DEVICES, 1L));
+    }
+
+    private void put(String cache, Object key, Object value) {
+        cacheManager.getCache(cache).put(key, value);
+    }
+
+    private Object get(String cache, Object key) {
+        var wrapper = cacheManager.getCache(cache).get(key);
+        return wrapper == null ? null : wrapper.get();
+    }
+}
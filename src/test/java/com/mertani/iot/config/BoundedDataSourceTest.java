@@ -0,0 +1,73 @@
+package com.mertani.iot.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BoundedDataSourceTest {
+
+    @Mock
+    private DataSource target;
+
+    @Mock
+    private Connection connection;
+
+    private BoundedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new BoundedDataSource(target, 2, 10);
+    }
+
+    @Test
+    void getConnection_ShouldFailFast_WhenLimitReached() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenReturn(connection);
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        // Act & Assert
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        assertEquals(2, dataSource.getActive());
+        verify(target, times(2)).getConnection();
+    }
+
+    @Test
+    void close_ShouldReleasePermitOnce() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenReturn(connection);
+        Connection first = dataSource.getConnection();
+        dataSource.getConnection();
+
+        // Act
+        first.close();
+        first.close();
+
+        // Assert
+        assertEquals(1, dataSource.getActive());
+        verify(connection, times(1)).close();
+        assertNotNull(dataSource.getConnection());
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+    }
+
+    @Test
+    void getConnection_ShouldReleasePermit_WhenTargetFails() throws SQLException {
+        // Arrange
+        when(target.getConnection()).thenThrow(new SQLException("refused"));
+
+        // Act & Assert
+        assertThrows(SQLException.class, () -> dataSource.getConnection());
+        assertEquals(0, dataSource.getActive());
+    }
+}
@@ -0,0 +1,138 @@
+package com.mertani.iot.config;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.DeviceRequest;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.service.DeviceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Read/write routing against two in-memory H2 databases: the primary, whose
+ * schema Hibernate creates, and a replica seeded with a copy of it. A third
+ * configured replica does not exist and must be skipped.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.cache.type=none",
+        "iot.datasource.replicas[0].url=" + ReadReplicaRoutingTest.REPLICA_URL + ";IFEXISTS=TRUE",
+        "iot.datasource.replicas[0].username=sa",
+        "iot.datasource.replicas[1].url=jdbc:h2:mem:missing;IFEXISTS=TRUE",
+        "iot.datasource.replicas[1].username=sa",
+        "iot.datasource.health-check-interval-ms=3600000"
+})
+class ReadReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+
+    static {
+        // The replica has to exist before the context starts checking it
+        openReplica();
+    }
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReplicaPool replicaPool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private JdbcTemplate replica;
+    private Long deviceId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        jdbcTemplate.update("DELETE FROM sensors");
+        jdbcTemplate.update("DELETE FROM devices");
+        DeviceRequest request = TestUtils.createTestDeviceRequest();
+        request.setName("On primary");
+        deviceId = deviceService.createDevice(request).getId();
+
+        // Snapshot the primary into the replica, as replication would
+        replica = new JdbcTemplate(new SingleConnectionDataSource(openReplica(), true));
+        replica.execute("DROP ALL OBJECTS");
+        jdbcTemplate.queryForList("SCRIPT", String.class).forEach(replica::execute);
+        replica.update("UPDATE devices SET name = 'On replica' WHERE id = ?", deviceId);
+        replicaPool.checkHealth();
+    }
+
+    @Test
+    void readOnlyTransactions_ShouldBeServedByHealthyReplica() {
+        // Act
+        DeviceResponse device = deviceService.getDeviceById(deviceId);
+
+        // Assert
+        assertThat(device.getName()).isEqualTo("On replica");
+        assertThat(replicaPool.healthyCount()).isEqualTo(1);
+        assertThat(routedConnections("replica-1")).isPositive();
+        assertThat(routedConnections("replica-2")).isZero();
+    }
+
+    @Test
+    void writes_ShouldGoToPrimary() {
+        // Arrange
+        DeviceRequest update = TestUtils.createTestDeviceRequest();
+        update.setName("Updated");
+
+        // Act
+        deviceService.updateDevice(deviceId, update);
+
+        // Assert
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM devices WHERE id = ?", String.class, deviceId))
+                .isEqualTo("Updated");
+        assertThat(replica.queryForObject("SELECT name FROM devices WHERE id = ?", String.class, deviceId))
+                .isEqualTo("On replica");
+    }
+
+    @Test
+    @DirtiesContext
+    void readOnlyTransactions_ShouldFallBackToPrimary_WhenNoReplicaIsHealthy() {
+        // Arrange
+        replica.execute("SHUTDOWN");
+        replicaPool.checkHealth();
+        double fallbacksBefore = routedConnections("primary-fallback");
+
+        // Act
+        DeviceResponse device = deviceService.getDeviceById(deviceId);
+
+        // Assert
+        assertThat(replicaPool.healthyCount()).isZero();
+        assertThat(device.getName()).isEqualTo("On primary");
+        assertThat(routedConnections("primary-fallback")).isGreaterThan(fallbacksBefore);
+    }
+
+    private double routedConnections(String target) {
+        return meterRegistry.get("iot.db.routing.connections").tag("target", target).functionCounter().count();
+    }
+
+    private static Connection openReplica() {
+        try {
+            return DriverManager.getConnection(REPLICA_URL, "sa", "");
+        } catch (SQLException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mertani.iot.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaPoolTest {
+
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica-pool;DB_CLOSE_DELAY=-1";
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private Connection primaryConnection;
+
+    private Connection keepAlive;
+    private ReplicaPool pool;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        keepAlive = DriverManager.getConnection(REPLICA_URL, "sa", "");
+        ReplicaProperties.Replica replica = new ReplicaProperties.Replica();
+        replica.setUrl(REPLICA_URL + ";IFEXISTS=TRUE");
+        replica.setUsername("sa");
+        ReplicaProperties properties = new ReplicaProperties();
+        properties.getReplicas().add(replica);
+        properties.setReplicaPoolSize(1);
+        properties.setReplicaConnectionTimeoutMs(250);
+        pool = new ReplicaPool(properties);
+        pool.checkHealth();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        pool.close();
+        if (!keepAlive.isClosed()) {
+            keepAlive.close();
+        }
+    }
+
+    @Test
+    void getConnection_ShouldKeepReplicaHealthy_WhenItsPoolIsExhausted() throws SQLException {
+        // Arrange
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        try (Connection held = pool.getConnection(primary)) {
+            // Act
+            Connection connection = pool.getConnection(primary);
+
+            // Assert: the read moves on, but the replica is not taken out
+            assertNotSame(held, connection);
+            assertSame(primaryConnection, connection);
+            assertEquals(1, pool.healthyCount());
+        }
+    }
+
+    @Test
+    void checkHealth_ShouldMarkReplicaDown_WhenItCannotConnect() throws SQLException {
+        // Arrange
+        assertEquals(1, pool.healthyCount());
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+
+        // Act
+        pool.checkHealth();
+
+        // Assert
+        assertEquals(0, pool.healthyCount());
+    }
+}
@@ -0,0 +1,132 @@
+package com.mertani.iot.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.alert.AlertWriter;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.dto.SensorRequest;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+class AlertIntegrationTest extends BaseIntegrationTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private AlertWriter alertWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SensorResponse sensor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Clear the database before each test
+        jdbcTemplate.update("DELETE FROM alerts");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+
+        // Created through the API so the alert engine picks up its -20..60 bounds
+        SensorRequest request = TestUtils.createTestSensorRequest(device.getId());
+        request.setSensorId("ALERT-SENSOR-" + System.nanoTime());
+        String body = mockMvc.perform(post("/api/sensors")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        sensor = objectMapper.readValue(body, SensorResponse.class);
+    }
+
+    @Test
+    void readingsAboveMax_ShouldRaiseAndResolveOneAlert() throws Exception {
+        // Given: 61-75 is one breach; 59 is within the hysteresis margin, 50 ends it
+        ingest(20.0, 61.0, 75.0, 59.0, 70.0, 50.0);
+
+        // When
+        alertWriter.flush();
+
+        // Then
+        mockMvc.perform(get("/api/alerts").param("sensorId", sensor.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].type").value("ABOVE_MAX"))
+                .andExpect(jsonPath("$.items[0].deviceId").value(sensor.getDeviceId()))
+                .andExpect(jsonPath("$.items[0].threshold").value(60.0))
+                .andExpect(jsonPath("$.items[0].value").value(61.0))
+                .andExpect(jsonPath("$.items[0].raisedAt").value(NOW.plusSeconds(1).toString()))
+                .andExpect(jsonPath("$.items[0].resolvedAt").value(NOW.plusSeconds(5).toString()));
+        mockMvc.perform(get("/api/alerts").param("open", "true").param("sensorId", sensor.getId().toString()))
+                .andExpect(jsonPath("$.items", empty()));
+    }
+
+    @Test
+    void updatedBounds_ShouldApplyToLaterReadings() throws Exception {
+        // Given
+        SensorRequest update = TestUtils.createTestSensorRequest(sensor.getDeviceId());
+        update.setSensorId(sensor.getSensorId());
+        update.setMaxValue(100.0);
+        mockMvc.perform(put("/api/sensors/{id}", sensor.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isOk());
+
+        // When
+        ingest(80.0, -30.0);
+        alertWriter.flush();
+
+        // Then
+        mockMvc.perform(get("/api/alerts").param("open", "true")
+                        .param("deviceId", sensor.getDeviceId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].type").value("BELOW_MIN"))
+                .andExpect(jsonPath("$.items[0].value").value(-30.0));
+    }
+
+    private void ingest(double... values) throws Exception {
+        List<SensorReadingRequest> readings = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            readings.add(new SensorReadingRequest(sensor.getSensorId(), NOW.plusSeconds(i), values[i]));
+        }
+        mockMvc.perform(post("/api/sensors/readings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(readings)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(values.length));
+    }
+}
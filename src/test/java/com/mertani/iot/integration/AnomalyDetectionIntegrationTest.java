@@ -0,0 +1,187 @@
+package com.mertani.iot.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.alert.AlertWriter;
+import com.mertani.iot.alert.AnomalyDetector;
+import com.mertani.iot.alert.AnomalyProperties;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.dto.SensorRequest;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.repository.AlertRepository;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorAnomalyModelRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.telemetry.SensorSlots;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "iot.alerts.anomaly.enabled=true",
+        "iot.alerts.anomaly.raise-z-score=4",
+        "iot.alerts.anomaly.min-samples=30"
+})
+class AnomalyDetectionIntegrationTest extends BaseIntegrationTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private AnomalyDetector anomalyDetector;
+
+    @Autowired
+    private AnomalyProperties anomalyProperties;
+
+    @Autowired
+    private SensorAnomalyModelRepository modelRepository;
+
+    @Autowired
+    private AlertRepository alertRepository;
+
+    @Autowired
+    private AlertWriter alertWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SensorResponse sensor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Clear the database before each test
+        jdbcTemplate.update("DELETE FROM alerts");
+        jdbcTemplate.update("DELETE FROM sensor_anomaly_models");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+
+        // Bounds of -20..60, which none of the readings below leave
+        SensorRequest request = TestUtils.createTestSensorRequest(device.getId());
+        request.setSensorId("ANOMALY-SENSOR-" + System.nanoTime());
+        String body = mockMvc.perform(post("/api/sensors")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        sensor = objectMapper.readValue(body, SensorResponse.class);
+    }
+
+    @Test
+    void spikeWithinBounds_ShouldRaiseAndResolveAnomalyAlert() throws Exception {
+        // Given: readings of 19 and 21 in turn, then a spike to 35 and back
+        List<Double> values = usualReadings(100);
+        values.add(35.0);
+        values.add(20.0);
+        ingest(values);
+
+        // When
+        alertWriter.flush();
+
+        // Then
+        mockMvc.perform(get("/api/alerts").param("sensorId", sensor.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].type").value("ANOMALY"))
+                .andExpect(jsonPath("$.items[0].value").value(35.0))
+                .andExpect(jsonPath("$.items[0].threshold").value(closeTo(24.0, 0.1)))
+                .andExpect(jsonPath("$.items[0].raisedAt").value(NOW.plusSeconds(100).toString()))
+                .andExpect(jsonPath("$.items[0].resolvedAt").value(NOW.plusSeconds(101).toString()));
+    }
+
+    @Test
+    void checkpoint_ShouldLetRestartedDetectorResumeModel() throws Exception {
+        // Given
+        ingest(usualReadings(100));
+
+        // When
+        anomalyDetector.checkpoint();
+        AnomalyDetector restarted = new AnomalyDetector(anomalyProperties, new SensorSlots(), alertWriter,
+                modelRepository, alertRepository, jdbcTemplate, transactionManager, new SimpleMeterRegistry());
+        restarted.load();
+        restarted.onReading(new SensorRef(sensor.getSensorId(), sensor.getId(), sensor.getDeviceId()),
+                NOW.plusSeconds(100).toEpochMilli(), 35.0);
+
+        // Then: the saved model raises at once instead of warming up again
+        Map<String, Object> saved = jdbcTemplate.queryForMap(
+                "SELECT mean, variance, samples FROM sensor_anomaly_models WHERE sensor_id = ?", sensor.getId());
+        assertThat((Double) saved.get("mean")).isCloseTo(20.0, offset(0.1));
+        assertThat((Double) saved.get("variance")).isCloseTo(1.0, offset(0.1));
+        assertThat(saved.get("samples")).isEqualTo(100L);
+        assertThat(restarted.openCount()).isEqualTo(1);
+    }
+
+    @Test
+    void checkpoint_ShouldDropModelsOfDeletedSensors() throws Exception {
+        // Given
+        ingest(usualReadings(40));
+        anomalyDetector.checkpoint();
+        assertThat(modelRepository.existsById(sensor.getId())).isTrue();
+
+        // When
+        mockMvc.perform(delete("/api/sensors/{id}", sensor.getId()))
+                .andExpect(status().isNoContent());
+        anomalyDetector.checkpoint();
+
+        // Then
+        assertThat(modelRepository.existsById(sensor.getId())).isFalse();
+    }
+
+    private static List<Double> usualReadings(int count) {
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(i % 2 == 0 ? 19.0 : 21.0);
+        }
+        return values;
+    }
+
+    private void ingest(List<Double> values) throws Exception {
+        List<SensorReadingRequest> readings = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            readings.add(new SensorReadingRequest(sensor.getSensorId(), NOW.plusSeconds(i), values.get(i)));
+        }
+        mockMvc.perform(post("/api/sensors/readings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(readings)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(values.size()));
+    }
+}
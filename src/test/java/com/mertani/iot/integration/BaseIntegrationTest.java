@@ -27,7 +27,16 @@ public abstract class BaseIntegrationTest {
         registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
         registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
         registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
-        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.r2dbc.url", () -> "r2dbc:postgresql://" + postgreSQLContainer.getHost() + ":"
+                + postgreSQLContainer.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/"
+                + postgreSQLContainer.getDatabaseName());
+        registry.add("spring.r2dbc.username", postgreSQLContainer::getUsername);
+        registry.add("spring.r2dbc.password", postgreSQLContainer::getPassword);
+        // Not create-drop: every cached context would recreate the schema, resetting the id
+        // sequences under contexts that still hold a preallocated block. Tests clean up instead.
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+        // Fixtures ingest readings at fixed dates, years back by now
+        registry.add("iot.readings.max-age-days", () -> "36500");
     }
 
     protected String getBaseUrl() {
@@ -0,0 +1,123 @@
+package com.mertani.iot.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.DeviceRequest;
+import com.mertani.iot.dto.SensorRequest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+class BulkProvisioningIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    private Device testDevice;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        testDevice = TestUtils.createTestDevice();
+        testDevice.setId(null);
+        testDevice = deviceRepository.save(testDevice);
+    }
+
+    @Test
+    void createDevices_ShouldCreateAllDevices() throws Exception {
+        // Given
+        List<DeviceRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            DeviceRequest request = TestUtils.createTestDeviceRequest();
+            request.setSerialNumber("BULK-" + i);
+            requests.add(request);
+        }
+
+        // When/Then
+        mockMvc.perform(post("/api/devices/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created", hasSize(120)))
+                .andExpect(jsonPath("$.errors", empty()));
+
+        assertThat(deviceRepository.count()).isEqualTo(121);
+    }
+
+    @Test
+    void createDevices_ShouldReportDuplicateAndInvalidItems() throws Exception {
+        // Given
+        DeviceRequest duplicate = TestUtils.createTestDeviceRequest();
+        DeviceRequest valid = TestUtils.createTestDeviceRequest();
+        valid.setSerialNumber("BULK-NEW");
+        DeviceRequest invalid = TestUtils.createTestDeviceRequest();
+        invalid.setSerialNumber("BULK-INVALID");
+        invalid.setName("");
+
+        // When/Then
+        mockMvc.perform(post("/api/devices/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(duplicate, valid, invalid))))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.created", hasSize(1)))
+                .andExpect(jsonPath("$.created[0].serialNumber").value("BULK-NEW"))
+                .andExpect(jsonPath("$.errors[0].index").value(0))
+                .andExpect(jsonPath("$.errors[0].message").value(containsString("already exists")))
+                .andExpect(jsonPath("$.errors[1].index").value(2))
+                .andExpect(jsonPath("$.errors[1].message").value(containsString("Name is required")));
+    }
+
+    @Test
+    void createSensors_ShouldCreateSensorsAndReportUnknownDevices() throws Exception {
+        // Given
+        List<SensorRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            SensorRequest request = TestUtils.createTestSensorRequest(testDevice.getId());
+            request.setSensorId("BULK-SENSOR-" + i);
+            requests.add(request);
+        }
+        SensorRequest orphan = TestUtils.createTestSensorRequest(testDevice.getId() + 1000);
+        orphan.setSensorId("BULK-ORPHAN");
+        requests.add(orphan);
+
+        // When/Then
+        mockMvc.perform(post("/api/sensors/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.created", hasSize(200)))
+                .andExpect(jsonPath("$.created[0].deviceId").value(testDevice.getId()))
+                .andExpect(jsonPath("$.errors", hasSize(1)))
+                .andExpect(jsonPath("$.errors[0].index").value(200))
+                .andExpect(jsonPath("$.errors[0].message").value(containsString("Device not found")));
+
+        assertThat(sensorRepository.findByDeviceId(testDevice.getId())).hasSize(200);
+    }
+}
@@ -99,8 +99,31 @@ class DeviceControllerIntegrationTest extends BaseIntegrationTest {
         // When/Then
         mockMvc.perform(get("/devices"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].id").value(testDevice.getId()));
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(testDevice.getId()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void getAllDevices_ShouldPageWithCursor() throws Exception {
+        // Given
+        Device second = TestUtils.createTestDevice();
+        second.setId(null);
+        second.setSerialNumber("TEST-456");
+        second = deviceRepository.save(second);
+
+        // When/Then
+        mockMvc.perform(get("/devices").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(testDevice.getId()))
+                .andExpect(jsonPath("$.nextCursor").value(testDevice.getId()));
+
+        mockMvc.perform(get("/devices").param("limit", "1").param("after", testDevice.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(second.getId()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
     }
 
     @Test
@@ -0,0 +1,100 @@
+package com.mertani.iot.integration;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.DeviceService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class DeviceQueryCountIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getAllDevices_ShouldUseConstantNumberOfQueries_RegardlessOfDeviceCount() {
+        // Given
+        createDevicesWithSensors(0, 1);
+        long queriesForOneDevice = countQueries();
+
+        createDevicesWithSensors(1, 50);
+        long queriesForFiftyDevices = countQueries();
+
+        // Then
+        assertThat(queriesForOneDevice).isEqualTo(2);
+        assertThat(queriesForFiftyDevices).isEqualTo(queriesForOneDevice);
+    }
+
+    @Test
+    void getAllDevices_ShouldAttachSensorsToOwningDevice() {
+        // Given
+        createDevicesWithSensors(0, 3);
+
+        // When
+        List<DeviceResponse> devices = deviceService.getAllDevices();
+
+        // Then
+        assertThat(devices).hasSize(3);
+        assertThat(devices).allSatisfy(device -> {
+            assertThat(device.getSensors()).hasSize(2);
+            assertThat(device.getSensors()).allSatisfy(sensor ->
+                    assertThat(sensor.getDeviceId()).isEqualTo(device.getId()));
+        });
+    }
+
+    private long countQueries() {
+        statistics.clear();
+        deviceService.getAllDevices();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void createDevicesWithSensors(int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            Device device = TestUtils.createTestDevice();
+            device.setId(null);
+            device.setSerialNumber("QC-DEVICE-" + i);
+            device = deviceRepository.save(device);
+
+            for (int j = 0; j < 2; j++) {
+                Sensor sensor = TestUtils.createTestSensor(device);
+                sensor.setId(null);
+                sensor.setSensorId("QC-SENSOR-" + i + "-" + j);
+                sensorRepository.save(sensor);
+            }
+        }
+    }
+}
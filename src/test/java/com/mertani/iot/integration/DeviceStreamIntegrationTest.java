@@ -0,0 +1,239 @@
+package com.mertani.iot.integration;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.dto.SensorRequest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.SensorReadingService;
+import com.mertani.iot.service.SensorService;
+import com.mertani.iot.stream.DeviceStreamHub;
+import com.mertani.iot.telemetry.SensorRef;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// One sender thread, so a stalled client would hold up every other one
+@TestPropertySource(properties = {
+        "iot.stream.sender-threads=1",
+        "iot.stream.send-timeout-ms=500"
+})
+class DeviceStreamIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorService sensorService;
+
+    @Autowired
+    private SensorReadingService sensorReadingService;
+
+    @Autowired
+    private DeviceStreamHub deviceStreamHub;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    private Stream<String> stream;
+    private Device device;
+    private Sensor sensor;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        device = TestUtils.createTestDevice();
+        device.setId(null);
+        device = deviceRepository.save(device);
+
+        sensor = TestUtils.createTestSensor(device);
+        sensor.setId(null);
+        sensor.setSensorId("STREAM-" + System.nanoTime());
+        sensor = sensorRepository.save(sensor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    @Test
+    void streamDevice_ShouldPushSnapshotReadingsAndSensorChanges() throws Exception {
+        // Given
+        int status = subscribe(device.getId());
+        assertThat(status).isEqualTo(200);
+        assertThat(nextEvent()).startsWith("device:").contains("\"serialNumber\":\"" + device.getSerialNumber() + "\"");
+
+        // When
+        sensorReadingService.ingest(List.of(new SensorReadingRequest(
+                sensor.getSensorId(), Instant.parse("2024-01-01T00:00:00Z"), 21.5)));
+
+        // Then
+        assertThat(nextEvent())
+                .startsWith("reading:")
+                .contains("\"sensorId\":\"" + sensor.getSensorId() + "\"")
+                .contains("\"value\":21.5");
+
+        // When
+        SensorRequest rename = TestUtils.createTestSensorRequest(device.getId());
+        rename.setSensorId(sensor.getSensorId());
+        rename.setName("Renamed sensor");
+        sensorService.updateSensor(sensor.getId(), rename);
+
+        // Then
+        assertThat(nextEvent()).startsWith("sensor:").contains("\"name\":\"Renamed sensor\"");
+
+        // When
+        sensorService.deleteSensor(sensor.getId());
+
+        // Then
+        assertThat(nextEvent()).isEqualTo("sensor-removed:{\"id\":" + sensor.getId() + "}");
+    }
+
+    @Test
+    void streamDevice_ShouldUnsubscribe_WhenClientDisconnects() throws Exception {
+        // Given
+        int before = deviceStreamHub.subscriberCount();
+        subscribe(device.getId());
+        nextEvent();
+        assertThat(deviceStreamHub.subscriberCount()).isEqualTo(before + 1);
+
+        // When
+        stream.close();
+        stream = null;
+
+        // Then: the next heartbeats fail to write and drop the subscription; streams
+        // closed by earlier tests may be detected too, so the count can fall below before
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (deviceStreamHub.subscriberCount() > before && System.nanoTime() < deadline) {
+            deviceStreamHub.heartbeat();
+            Thread.sleep(50);
+        }
+        assertThat(deviceStreamHub.subscriberCount()).isLessThanOrEqualTo(before);
+    }
+
+    @Test
+    void streamDevice_ShouldEvictStalledSubscriber_AndKeepServingOthers() throws Exception {
+        // Given: a client that subscribes and then never reads, with a small receive window
+        Device other = TestUtils.createTestDevice();
+        other.setId(null);
+        other.setSerialNumber("STREAM-OTHER-" + System.nanoTime());
+        other = deviceRepository.save(other);
+        double evictedBefore = meterRegistry.counter("iot.stream.evicted").count();
+        URI uri = URI.create(getBaseUrl() + "/api/devices/" + other.getId() + "/stream");
+        try (Socket stalled = new Socket()) {
+            stalled.setReceiveBufferSize(1024);
+            stalled.connect(new InetSocketAddress("localhost", port));
+            OutputStream out = stalled.getOutputStream();
+            out.write(("GET " + uri.getRawPath() + " HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Accept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            subscribe(device.getId());
+            nextEvent();
+
+            // When: events pile up until the stalled client's send blocks past the deadline
+            SensorRef ref = new SensorRef("STALLED", 1L, other.getId());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (meterRegistry.counter("iot.stream.evicted").count() == evictedBefore
+                    && System.nanoTime() < deadline) {
+                for (int i = 0; i < 1000; i++) {
+                    deviceStreamHub.onReading(ref, i, i);
+                }
+                Thread.sleep(20);
+                deviceStreamHub.evictStalled();
+            }
+
+            // Then: the send is still blocked, yet the other subscriber is served
+            assertThat(meterRegistry.counter("iot.stream.evicted").count()).isEqualTo(evictedBefore + 1);
+            sensorReadingService.ingest(List.of(new SensorReadingRequest(
+                    sensor.getSensorId(), Instant.parse("2024-01-01T00:00:00Z"), 21.5)));
+            assertThat(nextEvent()).startsWith("reading:").contains("\"value\":21.5");
+        }
+    }
+
+    @Test
+    void streamDevice_ShouldReturnNotFound_WhenDeviceDoesNotExist() throws Exception {
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create(getBaseUrl() + "/api/devices/999999/stream")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(404);
+    }
+
+    private int subscribe(Long deviceId) throws Exception {
+        HttpResponse<Stream<String>> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create(getBaseUrl() + "/api/devices/" + deviceId + "/stream"))
+                        .header("Accept", "text/event-stream")
+                        .timeout(Duration.ofSeconds(30))
+                        .build(),
+                HttpResponse.BodyHandlers.ofLines());
+        stream = response.body();
+        Stream<String> lines = stream;
+        Thread reader = new Thread(() -> {
+            try {
+                lines.forEach(this.lines::add);
+            } catch (RuntimeException ignored) {
+                // Stream closed by the test
+            }
+        });
+        reader.setDaemon(true);
+        reader.start();
+        return response.statusCode();
+    }
+
+    /**
+     * @return the next event as {@code name:data}
+     */
+    private String nextEvent() throws InterruptedException {
+        String name = null;
+        StringBuilder data = new StringBuilder();
+        while (true) {
+            String line = lines.poll(10, TimeUnit.SECONDS);
+            assertThat(line).as("next stream line").isNotNull();
+            if (line.startsWith("event:")) {
+                name = line.substring("event:".length());
+            } else if (line.startsWith("data:")) {
+                data.append(line.substring("data:".length()));
+            } else if (line.isEmpty() && name != null) {
+                return name + ":" + data;
+            }
+        }
+    }
+}
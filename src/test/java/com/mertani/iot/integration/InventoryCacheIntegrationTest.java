@@ -0,0 +1,121 @@
+package com.mertani.iot.integration;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorRequest;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.exception.SensorNotFoundException;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.DeviceService;
+import com.mertani.iot.service.SensorIdResolver;
+import com.mertani.iot.service.SensorService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class InventoryCacheIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private SensorService sensorService;
+
+    @Autowired
+    private SensorIdResolver sensorIdResolver;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private DeviceResponse device;
+    private SensorResponse sensor;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        device = deviceService.createDevice(TestUtils.createTestDeviceRequest());
+        sensor = sensorService.createSensor(TestUtils.createTestSensorRequest(device.getId()));
+    }
+
+    @Test
+    void getDeviceById_ShouldServeRepeatedReadsFromCache() {
+        // Given
+        deviceService.getDeviceById(device.getId());
+        double hitsBefore = hits("devices");
+
+        // When
+        statistics.clear();
+        DeviceResponse cached = deviceService.getDeviceById(device.getId());
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(cached.getSensors()).extracting(SensorResponse::getSensorId).containsExactly("SENSOR-123");
+        assertThat(hits("devices")).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    void updateSensor_ShouldInvalidateSensorAndOwningDevice() {
+        // Given
+        deviceService.getDeviceById(device.getId());
+        sensorService.getSensorById(sensor.getId());
+        assertThat(sensorIdResolver.resolve(List.of("SENSOR-123"))).containsKey("SENSOR-123");
+
+        // When
+        SensorRequest request = TestUtils.createTestSensorRequest(device.getId());
+        request.setSensorId("SENSOR-456");
+        request.setName("Renamed Sensor");
+        sensorService.updateSensor(sensor.getId(), request);
+
+        // Then
+        assertThat(sensorService.getSensorById(sensor.getId()).getName()).isEqualTo("Renamed Sensor");
+        assertThat(deviceService.getDeviceById(device.getId()).getSensors())
+                .extracting(SensorResponse::getSensorId).containsExactly("SENSOR-456");
+        assertThat(sensorIdResolver.resolve(List.of("SENSOR-123", "SENSOR-456"))).containsOnlyKeys("SENSOR-456");
+    }
+
+    @Test
+    void deleteSensor_ShouldInvalidateCachedEntries() {
+        // Given
+        deviceService.getDeviceById(device.getId());
+        sensorService.getSensorById(sensor.getId());
+        sensorIdResolver.resolve(List.of("SENSOR-123"));
+
+        // When
+        sensorService.deleteSensor(sensor.getId());
+
+        // Then
+        assertThatThrownBy(() -> sensorService.getSensorById(sensor.getId())).isInstanceOf(SensorNotFoundException.class);
+        assertThat(deviceService.getDeviceById(device.getId()).getSensors()).isEmpty();
+        assertThat(sensorIdResolver.resolve(List.of("SENSOR-123"))).isEmpty();
+    }
+
+    private double hits(String cache) {
+        return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", "hit").functionCounter().count();
+    }
+}
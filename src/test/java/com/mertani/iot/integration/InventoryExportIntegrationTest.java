@@ -0,0 +1,107 @@
+package com.mertani.iot.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+class InventoryExportIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        // Sensors of device 0 and 2 only, created out of device order
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Device device = TestUtils.createTestDevice();
+            device.setId(null);
+            device.setSerialNumber("EXPORT-" + i);
+            devices.add(deviceRepository.save(device));
+        }
+        for (int i : new int[]{2, 0, 2}) {
+            Sensor sensor = TestUtils.createTestSensor(devices.get(i));
+            sensor.setId(null);
+            sensor.setSensorId("EXPORT-" + i + "-" + System.nanoTime());
+            sensorRepository.save(sensor);
+        }
+    }
+
+    @Test
+    void exportSensors_ShouldStreamOneJsonObjectPerLine() throws Exception {
+        // When
+        List<String> lines = export("/api/sensors/export");
+
+        // Then
+        assertThat(lines).hasSize(3);
+        List<SensorResponse> sensors = new ArrayList<>();
+        for (String line : lines) {
+            sensors.add(objectMapper.readValue(line, SensorResponse.class));
+        }
+        assertThat(sensors).extracting(SensorResponse::getId).isSorted();
+    }
+
+    @Test
+    void exportDevices_ShouldStreamDevicesWithTheirSensors() throws Exception {
+        // When
+        List<String> lines = export("/api/devices/export");
+
+        // Then
+        assertThat(lines).hasSize(3);
+        List<DeviceResponse> devices = new ArrayList<>();
+        for (String line : lines) {
+            devices.add(objectMapper.readValue(line, DeviceResponse.class));
+        }
+        assertThat(devices).extracting(device -> device.getSensors().size()).containsExactly(1, 0, 2);
+        assertThat(devices).allSatisfy(device -> assertThat(device.getSensors())
+                .allSatisfy(sensor -> assertThat(sensor.getDeviceId()).isEqualTo(device.getId())));
+    }
+
+    private List<String> export(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(body).endsWith("\n");
+        return List.of(body.split("\n"));
+    }
+}
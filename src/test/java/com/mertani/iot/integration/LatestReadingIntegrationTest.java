@@ -0,0 +1,138 @@
+package com.mertani.iot.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.LatestReadings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+class LatestReadingIntegrationTest extends BaseIntegrationTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private LatestReadings latestReadings;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Device testDevice;
+    private Sensor testSensor;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        testDevice = TestUtils.createTestDevice();
+        testDevice.setId(null);
+        testDevice = deviceRepository.save(testDevice);
+
+        // Unique per test: repository deletes above bypass the InventoryCache eviction
+        testSensor = TestUtils.createTestSensor(testDevice);
+        testSensor.setId(null);
+        testSensor.setSensorId("LATEST-SENSOR-" + System.nanoTime());
+        testSensor = sensorRepository.save(testSensor);
+    }
+
+    @Test
+    void getDeviceLatest_ShouldReturnNewestReading_WhenIngestedOutOfOrder() throws Exception {
+        // Given
+        ingest(List.of(
+                new SensorReadingRequest(testSensor.getSensorId(), NOW.plusSeconds(2), 22.0),
+                new SensorReadingRequest(testSensor.getSensorId(), NOW, 20.0),
+                new SensorReadingRequest(testSensor.getSensorId(), NOW.plusSeconds(1), 21.0)));
+
+        // When & Then
+        mockMvc.perform(get("/api/devices/{id}/latest", testDevice.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(testSensor.getId()))
+                .andExpect(jsonPath("$[0].sensorId").value(testSensor.getSensorId()))
+                .andExpect(jsonPath("$[0].deviceId").value(testDevice.getId()))
+                .andExpect(jsonPath("$[0].timestamp").value(NOW.plusSeconds(2).toString()))
+                .andExpect(jsonPath("$[0].value").value(22.0));
+        mockMvc.perform(get("/api/sensors/readings/latest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == %d)].value", testSensor.getId()).value(contains(22.0)));
+    }
+
+    @Test
+    void getDeviceLatest_ShouldReturnNotFound_WhenDeviceDoesNotExist() throws Exception {
+        mockMvc.perform(get("/api/devices/{id}/latest", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void load_ShouldPickUpNewestStoredReadings() throws Exception {
+        // Given: a reading stored without going through ingest, as before a restart
+        ingest(List.of(new SensorReadingRequest(testSensor.getSensorId(), NOW, 20.0)));
+        jdbcTemplate.update("INSERT INTO sensor_readings (sensor_id, recorded_at, reading_value) VALUES (?, ?, ?)",
+                testSensor.getId(), OffsetDateTime.ofInstant(NOW.plusSeconds(60), ZoneOffset.UTC), 25.0);
+
+        // When
+        latestReadings.load();
+
+        // Then
+        mockMvc.perform(get("/api/devices/{id}/latest", testDevice.getId()))
+                .andExpect(jsonPath("$[0].timestamp").value(NOW.plusSeconds(60).toString()))
+                .andExpect(jsonPath("$[0].value").value(25.0));
+    }
+
+    @Test
+    void getFleetLatest_ShouldOmitSensorsOfDeletedDevices() throws Exception {
+        // Given
+        ingest(List.of(new SensorReadingRequest(testSensor.getSensorId(), NOW, 20.0)));
+
+        // When
+        mockMvc.perform(delete("/api/devices/{id}", testDevice.getId()))
+                .andExpect(status().isNoContent());
+
+        // Then
+        mockMvc.perform(get("/api/sensors/readings/latest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == %d)]", testSensor.getId()).isEmpty());
+    }
+
+    private void ingest(List<SensorReadingRequest> readings) throws Exception {
+        mockMvc.perform(post("/api/sensors/readings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(readings)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(readings.size()));
+    }
+}
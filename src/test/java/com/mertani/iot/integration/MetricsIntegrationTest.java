@@ -0,0 +1,88 @@
+package com.mertani.iot.integration;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MetricsIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        for (int i = 0; i < 3; i++) {
+            Device device = TestUtils.createTestDevice();
+            device.setId(null);
+            device.setSerialNumber("METRICS-" + i);
+            deviceRepository.save(device);
+        }
+    }
+
+    @Test
+    void getDevices_ShouldRecordStatementCountPerRequest() throws Exception {
+        // Given
+        mockMvc.perform(get("/api/devices")).andExpect(status().isOk());
+        DistributionSummary queries = meterRegistry.get("iot.db.queries")
+                .tag("method", "GET").tag("uri", "/api/devices").summary();
+        long countBefore = queries.count();
+        double totalBefore = queries.totalAmount();
+
+        // When
+        mockMvc.perform(get("/api/devices")).andExpect(status().isOk());
+
+        // Then: one page of devices plus one IN query for their sensors
+        assertThat(queries.count()).isEqualTo(countBefore + 1);
+        assertThat(queries.totalAmount() - totalBefore).isEqualTo(2);
+    }
+
+    @Test
+    void prometheusEndpoint_ShouldExposeRequestServiceAndPoolMetrics() throws Exception {
+        // Given
+        mockMvc.perform(get("/api/devices")).andExpect(status().isOk());
+
+        // When
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket{")
+                .contains("iot_service_seconds_bucket{")
+                .contains("method=\"getDevicesPage\"")
+                .contains("spring_data_repository_invocations_seconds_bucket{")
+                .contains("iot_db_queries_statements_bucket{")
+                .contains("hikaricp_connections_acquire_seconds")
+                .contains("hikaricp_connections_pending")
+                .contains("cache_gets_total");
+    }
+}
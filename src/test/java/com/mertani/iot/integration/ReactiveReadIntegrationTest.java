@@ -0,0 +1,110 @@
+package com.mertani.iot.integration;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The reactive read endpoints must return exactly what their servlet
+ * counterparts return for the same data.
+ */
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "iot.reactive.enabled=true")
+class ReactiveReadIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    private final List<Device> devices = new ArrayList<>();
+    private final List<Sensor> sensors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+        devices.clear();
+        sensors.clear();
+
+        for (int i = 0; i < 3; i++) {
+            Device device = TestUtils.createTestDevice();
+            device.setId(null);
+            device.setSerialNumber("REACTIVE-" + i);
+            devices.add(deviceRepository.save(device));
+        }
+        for (int i : new int[]{2, 0, 2}) {
+            Sensor sensor = TestUtils.createTestSensor(devices.get(i));
+            sensor.setId(null);
+            sensor.setSensorId("REACTIVE-" + i + "-" + System.nanoTime());
+            sensors.add(sensorRepository.save(sensor));
+        }
+    }
+
+    @Test
+    void getDevice_ShouldMatchServletEndpoint() throws Exception {
+        for (Device device : devices) {
+            assertSameBody("/api/devices/" + device.getId());
+        }
+    }
+
+    @Test
+    void getAllDevices_ShouldMatchServletEndpoint() throws Exception {
+        assertSameBody("/api/devices?limit=2");
+        assertSameBody("/api/devices?limit=2&after=" + devices.get(1).getId());
+    }
+
+    @Test
+    void getSensors_ShouldMatchServletEndpoints() throws Exception {
+        assertSameBody("/api/sensors/" + sensors.get(0).getId());
+        assertSameBody("/api/sensors?limit=2");
+        assertSameBody("/api/sensors/device/" + devices.get(2).getId());
+    }
+
+    @Test
+    void getDevice_ShouldReturnNotFound_WhenDeviceDoesNotExist() throws Exception {
+        MvcResult pending = mockMvc.perform(get("/api/reactive/devices/999999"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isNotFound());
+    }
+
+    private void assertSameBody(String servletPath) throws Exception {
+        String expected = mockMvc.perform(get(servletPath))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        MvcResult pending = mockMvc.perform(get(servletPath.replaceFirst("^/api/", "/api/reactive/")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String actual = mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(actual).as(servletPath).isEqualTo(expected);
+    }
+}
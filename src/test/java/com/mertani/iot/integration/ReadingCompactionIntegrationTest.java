@@ -0,0 +1,230 @@
+package com.mertani.iot.integration;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.SensorReadingIngestResponse;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.ReadingSeriesJdbcRepository;
+import com.mertani.iot.repository.SensorReadingJdbcRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.SensorReadingService;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.timeseries.ReadingCompactor;
+import com.mertani.iot.timeseries.RollupJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Readings in 2001, so compressing them leaves every other test's time writable.
+ * They are stored past ingest, which rejects them once a test has compressed them.
+ */
+@AutoConfigureMockMvc
+class ReadingCompactionIntegrationTest extends BaseIntegrationTest {
+
+    private static final Instant DAY = Instant.parse("2001-01-01T00:00:00Z");
+    private static final Instant CUTOFF = Instant.parse("2001-01-03T00:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorReadingService sensorReadingService;
+
+    @Autowired
+    private SensorReadingJdbcRepository readingRepository;
+
+    @Autowired
+    private ReadingSeriesJdbcRepository seriesRepository;
+
+    @Autowired
+    private ReadingCompactor compactor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Sensor testSensor;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        jdbcTemplate.update("DELETE FROM sensor_reading_blocks");
+        for (String rollup : List.of("sensor_readings_1m", "sensor_readings_1h", "sensor_readings_1d")) {
+            jdbcTemplate.update("DELETE FROM " + rollup);
+        }
+        // Compressed time is read again from the emptied blocks table
+        compactor.initialize();
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device testDevice = TestUtils.createTestDevice();
+        testDevice.setId(null);
+        testDevice = deviceRepository.save(testDevice);
+
+        // Unique per test: repository deletes above bypass the InventoryCache eviction
+        testSensor = TestUtils.createTestSensor(testDevice);
+        testSensor.setId(null);
+        testSensor.setSensorId("COMPACT-SENSOR-" + System.nanoTime());
+        testSensor = sensorRepository.save(testSensor);
+    }
+
+    @Test
+    void compactBefore_ShouldKeepQueryResultsAndRejectLateReadings() throws Exception {
+        // Given: a reading every minute for two days and a morning, in halves so sums stay exact
+        ReadingBatch batch = new ReadingBatch(3 * 1440);
+        for (int minute = 0; minute < 3 * 1440 - 720; minute++) {
+            batch.add(testSensor.getId(), DAY.toEpochMilli() + minute * 60_000L, (minute % 37) * 0.5);
+        }
+        readingRepository.insertAll(batch);
+        rollupJob.run();
+        // 3.5-minute buckets come from the raw readings, and one of them spans the cutoff
+        String raw = readings("210s");
+        String hourly = readings("1h");
+        assertThat(raw).contains("\"source\":\"raw\"", "\"count\":4");
+        assertThat(hourly).contains("\"source\":\"1h\"", "\"count\":60");
+
+        // When
+        int compacted = compactor.compactBefore(CUTOFF);
+
+        // Then
+        assertThat(compacted).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('sensor_readings_p20010101') IS NULL "
+                + "AND to_regclass('sensor_readings_p20010102') IS NULL", Boolean.class)).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM sensor_reading_blocks WHERE sensor_id = ?",
+                Long.class, testSensor.getId())).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT sum(reading_count) FROM sensor_reading_blocks",
+                Long.class)).isEqualTo(2 * 1440);
+        assertThat(readings("210s")).isEqualTo(raw);
+        assertThat(readings("1h")).isEqualTo(hourly);
+        assertThat(compactor.writableFrom()).isEqualTo(CUTOFF.toEpochMilli());
+
+        SensorReadingIngestResponse late = sensorReadingService.ingest(List.of(
+                reading(DAY.plusSeconds(30), 1.0), reading(CUTOFF.plusSeconds(30), 2.0)));
+        assertThat(late.getAccepted()).isEqualTo(1);
+        assertThat(late.getRejected()).isEqualTo(1);
+        assertThat(late.getUnknownSensorIds()).isEmpty();
+        sensorReadingService.flush();
+    }
+
+    @Test
+    void flush_ShouldDropReadingsCompressedSinceTheyWereAccepted() {
+        // Given: readings accepted into the buffer before their day is compressed
+        ReadingBatch stored = new ReadingBatch(2);
+        stored.add(testSensor.getId(), DAY.toEpochMilli(), 1.0);
+        stored.add(testSensor.getId(), DAY.plusSeconds(86_400).toEpochMilli(), 2.0);
+        readingRepository.insertAll(stored);
+        SensorReadingIngestResponse accepted = sensorReadingService.ingest(List.of(
+                reading(DAY.plusSeconds(30), 3.0), reading(CUTOFF.plusSeconds(30), 4.0)));
+        assertThat(accepted.getAccepted()).isEqualTo(2);
+        compactor.compactBefore(CUTOFF);
+
+        // When: the buffer is flushed, and a load into the same time follows
+        sensorReadingService.flush();
+        ReadingBatch loaded = new ReadingBatch(2);
+        loaded.add(testSensor.getId(), DAY.plusSeconds(60).toEpochMilli(), 5.0);
+        loaded.add(testSensor.getId(), CUTOFF.plusSeconds(60).toEpochMilli(), 6.0);
+        readingRepository.copyAll(loaded);
+
+        // Then: the compressed partition is not created again, and only the later readings are stored
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('sensor_readings_p20010101') IS NULL",
+                Boolean.class)).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT sum(reading_count) FROM sensor_reading_blocks "
+                + "WHERE sensor_id = ?", Long.class, testSensor.getId())).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForList("SELECT reading_value FROM sensor_readings WHERE sensor_id = ? "
+                + "ORDER BY recorded_at", Double.class, testSensor.getId())).containsExactly(4.0, 6.0);
+        assertThat(compactor.compactBefore(CUTOFF)).isZero();
+    }
+
+    @Test
+    void forEachLatest_ShouldFallBackToCompressedReadings() {
+        // Given
+        ReadingBatch batch = new ReadingBatch(2);
+        batch.add(testSensor.getId(), DAY.toEpochMilli(), 1.0);
+        batch.add(testSensor.getId(), DAY.plusSeconds(3600).toEpochMilli(), 2.5);
+        readingRepository.insertAll(batch);
+
+        // When
+        compactor.compactBefore(CUTOFF);
+
+        // Then
+        Map<Long, Double> latest = new HashMap<>();
+        readingRepository.forEachLatest((ref, timestamp, value) -> {
+            if (timestamp == DAY.plusSeconds(3600).toEpochMilli()) {
+                latest.put(ref.id(), value);
+            }
+        });
+        assertThat(latest).containsEntry(testSensor.getId(), 2.5);
+    }
+
+    @Test
+    void export_ShouldPassCompressedReadingsBeforeRawOnes() {
+        // Given: a reading an hour for three days, the first two compressed
+        ReadingBatch batch = new ReadingBatch(72);
+        for (int hour = 0; hour < 72; hour++) {
+            batch.add(testSensor.getId(), DAY.toEpochMilli() + hour * 3_600_000L, hour);
+        }
+        readingRepository.insertAll(batch);
+        compactor.compactBefore(CUTOFF);
+
+        // When: from half past the first hour, in chunks of 10
+        List<Double> values = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                seriesRepository.export(new long[]{testSensor.getId()}, DAY.plusSeconds(1800),
+                        DAY.plusSeconds(3 * 86_400), new ReadingBatch(10), chunk -> {
+                            for (int i = 0; i < chunk.size(); i++) {
+                                timestamps.add(chunk.timestamp(i));
+                                values.add(chunk.value(i));
+                            }
+                        }));
+
+        // Then
+        assertThat(values).hasSize(71);
+        assertThat(values.get(0)).isEqualTo(1.0);
+        assertThat(values.get(70)).isEqualTo(71.0);
+        assertThat(timestamps).isSorted();
+    }
+
+    private String readings(String resolution) throws Exception {
+        return mockMvc.perform(get("/api/sensors/{id}/readings", testSensor.getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(3 * 86_400).toString())
+                        .param("resolution", resolution))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private SensorReadingRequest reading(Instant timestamp, double value) {
+        return new SensorReadingRequest(testSensor.getSensorId(), timestamp, value);
+    }
+}
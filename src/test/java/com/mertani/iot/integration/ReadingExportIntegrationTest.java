@@ -0,0 +1,122 @@
+package com.mertani.iot.integration;
+
+import com.mertani.iot.ArrowStreams;
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorReadingJdbcRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.ReadingArrowWriter;
+import com.mertani.iot.telemetry.ReadingBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+class ReadingExportIntegrationTest extends BaseIntegrationTest {
+
+    private static final Instant DAY = Instant.parse("2024-03-01T00:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorReadingJdbcRepository readingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Sensor first;
+    private Sensor second;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device testDevice = TestUtils.createTestDevice();
+        testDevice.setId(null);
+        testDevice = deviceRepository.save(testDevice);
+        first = sensor(testDevice, "EXPORT-A-");
+        second = sensor(testDevice, "EXPORT-B-");
+    }
+
+    @Test
+    void exportReadings_ShouldStreamSensorsReadingsAsArrow() throws Exception {
+        // Given: one reading before the range and one at its end, which are left out
+        long t = DAY.toEpochMilli();
+        ReadingBatch batch = new ReadingBatch(6);
+        batch.add(first.getId(), t + 86_400_000L, 3.0);
+        batch.add(first.getId(), t, 1.0);
+        batch.add(second.getId(), t + 1, 2.5);
+        batch.add(first.getId(), t + 1500, 2.0);
+        batch.add(first.getId(), t - 1, 9.0);
+        batch.add(second.getId(), t + 2 * 86_400_000L, 9.0);
+        readingRepository.insertAll(batch);
+
+        // When
+        MvcResult started = mockMvc.perform(get("/api/sensors/readings/export")
+                        .param("sensorIds", second.getId() + "," + first.getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(2 * 86_400).toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ReadingArrowWriter.MEDIA_TYPE))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"readings.arrows\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then: sensors in the order asked for, each in time order
+        ArrowStreams.Readings readings = ArrowStreams.read(body);
+        assertThat(readings.sensorIds()).containsExactly(second.getId(), first.getId(), first.getId(),
+                first.getId());
+        assertThat(readings.timestamps()).containsExactly(t + 1, t, t + 1500, t + 86_400_000L);
+        assertThat(readings.values()).containsExactly(2.5, 1.0, 2.0, 3.0);
+    }
+
+    @Test
+    void exportReadings_ShouldReturnNotFound_WhenSensorDoesNotExist() throws Exception {
+        mockMvc.perform(get("/api/sensors/readings/export")
+                        .param("sensorIds", first.getId() + "," + (second.getId() + 1000))
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(86_400).toString()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportReadings_ShouldReturnBadRequest_WhenRangeIsEmpty() throws Exception {
+        mockMvc.perform(get("/api/sensors/readings/export")
+                        .param("sensorIds", String.valueOf(first.getId()))
+                        .param("from", DAY.toString())
+                        .param("to", DAY.toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Sensor sensor(Device device, String prefix) {
+        Sensor sensor = TestUtils.createTestSensor(device);
+        sensor.setId(null);
+        sensor.setSensorId(prefix + System.nanoTime());
+        return sensorRepository.save(sensor);
+    }
+}
@@ -0,0 +1,141 @@
+package com.mertani.iot.integration;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.ReadingImport;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.ReadingImportRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.timeseries.RollupJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+class ReadingImportIntegrationTest extends BaseIntegrationTest {
+
+    private static final Instant DAY = Instant.parse("2024-02-01T00:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private ReadingImportRepository importRepository;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Sensor testSensor;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        importRepository.deleteAll();
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device testDevice = TestUtils.createTestDevice();
+        testDevice.setId(null);
+        testDevice = deviceRepository.save(testDevice);
+
+        testSensor = TestUtils.createTestSensor(testDevice);
+        testSensor.setId(null);
+        testSensor.setSensorId("IMPORT-SENSOR-" + System.nanoTime());
+        testSensor = sensorRepository.save(testSensor);
+    }
+
+    @Test
+    void importReadings_ShouldCopyReadingsAndRollThemUp() throws Exception {
+        // Given: a repeated line and an unknown sensor
+        String csv = "sensorId,timestamp,value\n"
+                + line(DAY, 1.0) + line(DAY.plusSeconds(30), 3.0) + line(DAY.plusSeconds(30), 3.0)
+                + "UNKNOWN-SENSOR," + DAY + ",9.0\n" + line(DAY.plusSeconds(86_400), 5.0);
+
+        // When/Then
+        mockMvc.perform(put("/api/sensors/readings/imports/{id}", "customer-1")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("COMPLETED")))
+                .andExpect(jsonPath("$.lines", is(5)))
+                .andExpect(jsonPath("$.accepted", is(4)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.unknownSensorIds", contains("UNKNOWN-SENSOR")));
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM sensor_readings WHERE sensor_id = ?",
+                Integer.class, testSensor.getId())).isEqualTo(3);
+        rollupJob.run();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT sum_value FROM sensor_readings_1d WHERE sensor_id = ? AND bucket = ?",
+                Double.class, testSensor.getId(), DAY.atOffset(ZoneOffset.UTC))).isEqualTo(4.0);
+        mockMvc.perform(get("/api/sensors/readings/imports/{id}", "customer-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("COMPLETED")))
+                .andExpect(jsonPath("$.lines", is(5)));
+        mockMvc.perform(get("/api/sensors/readings/latest"))
+                .andExpect(jsonPath("$[?(@.sensorId == '" + testSensor.getSensorId() + "')].value", contains(5.0)));
+    }
+
+    @Test
+    void importReadings_ShouldResumeAfterLinesAlreadyImported() throws Exception {
+        // Given: an import that stopped after two lines
+        importRepository.save(ReadingImport.builder().id("customer-2").status(ReadingImport.Status.FAILED)
+                .lines(2).accepted(2).rejected(0).startedAt(DAY).updatedAt(DAY).build());
+        String csv = "sensorId,timestamp,value\n"
+                + line(DAY, 1.0) + line(DAY.plusSeconds(1), 2.0) + line(DAY.plusSeconds(2), 3.0);
+
+        // When/Then
+        mockMvc.perform(put("/api/sensors/readings/imports/{id}", "customer-2")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.resumedFrom", is(2)))
+                .andExpect(jsonPath("$.lines", is(3)))
+                .andExpect(jsonPath("$.accepted", is(3)));
+
+        assertThat(jdbcTemplate.queryForList("SELECT reading_value FROM sensor_readings WHERE sensor_id = ?",
+                Double.class, testSensor.getId())).containsExactly(3.0);
+    }
+
+    @Test
+    void importReadings_ShouldReturnBadRequest_WhenHeaderLacksAColumn() throws Exception {
+        mockMvc.perform(put("/api/sensors/readings/imports/{id}", "customer-3")
+                        .contentType("text/csv")
+                        .content("sensor,time,value\n" + line(DAY, 1.0)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("sensorId")));
+    }
+
+    @Test
+    void getImport_ShouldReturnNotFound_WhenImportIsUnknown() throws Exception {
+        mockMvc.perform(get("/api/sensors/readings/imports/{id}", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    private String line(Instant timestamp, double value) {
+        return testSensor.getSensorId() + "," + timestamp + "," + value + "\n";
+    }
+}
@@ -0,0 +1,299 @@
+package com.mertani.iot.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.SensorReadingService;
+import com.mertani.iot.timeseries.RollupJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+// Partitions are checked in 2099, after any that exist already: accept 100 years ahead
+@TestPropertySource(properties = "iot.readings.max-future-skew-ms=3155760000000")
+class ReadingSeriesIntegrationTest extends BaseIntegrationTest {
+
+    private static final Instant DAY = Instant.parse("2024-03-01T00:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorReadingService sensorReadingService;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Sensor testSensor;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        for (String rollup : List.of("sensor_readings_1m", "sensor_readings_1h", "sensor_readings_1d")) {
+            jdbcTemplate.update("DELETE FROM " + rollup);
+        }
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device testDevice = TestUtils.createTestDevice();
+        testDevice.setId(null);
+        testDevice = deviceRepository.save(testDevice);
+
+        // Unique per test: repository deletes above bypass the InventoryCache eviction
+        testSensor = TestUtils.createTestSensor(testDevice);
+        testSensor.setId(null);
+        testSensor.setSensorId("SERIES-SENSOR-" + System.nanoTime());
+        testSensor = sensorRepository.save(testSensor);
+    }
+
+    @Test
+    void readings_ShouldBeStoredInDailyPartitions() throws Exception {
+        // Given: past the partition a migrated table's rows live in
+        Instant day = Instant.parse("2099-03-01T00:00:00Z");
+
+        // When
+        ingest(List.of(reading(day, 1.0), reading(day.plusSeconds(86_400 * 2), 2.0)));
+        sensorReadingService.flush();
+
+        // Then
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM sensor_readings r JOIN pg_class c ON c.oid = r.tableoid "
+                        + "WHERE r.sensor_id = ? ORDER BY r.recorded_at", String.class, testSensor.getId());
+        assertThat(partitions).containsExactly("sensor_readings_p20990301", "sensor_readings_p20990303");
+    }
+
+    @Test
+    void flush_ShouldCreateAtMostMaxNewPartitions() throws Exception {
+        // Given: one reading on each of 20 days without a partition
+        Instant first = Instant.parse("2098-03-01T00:00:00Z");
+        List<SensorReadingRequest> readings = new ArrayList<>();
+        for (int day = 0; day < 20; day++) {
+            readings.add(reading(first.plusSeconds(86_400L * day), day));
+        }
+
+        try {
+            // When
+            ingest(readings);
+            sensorReadingService.flush();
+
+            // Then: the first 16 days are stored, the rest dropped without tables
+            List<Double> stored = jdbcTemplate.queryForList("SELECT reading_value FROM sensor_readings "
+                    + "WHERE sensor_id = ? ORDER BY recorded_at", Double.class, testSensor.getId());
+            assertThat(stored).hasSize(16).endsWith(15.0);
+            assertThat(partitionsIn2098()).hasSize(16);
+        } finally {
+            // So that a rerun against the same database starts without them
+            for (String partition : partitionsIn2098()) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            }
+        }
+    }
+
+    @Test
+    void getReadings_ShouldAnswerFromRollupsAndRawReadingsAlike() throws Exception {
+        // Given: one reading every 10s for two hours, value = minute of the day
+        List<SensorReadingRequest> readings = new ArrayList<>();
+        for (int s = 0; s < 7200; s += 10) {
+            readings.add(reading(DAY.plusSeconds(s), s / 60));
+        }
+        ingest(readings);
+        sensorReadingService.flush();
+        rollupJob.run();
+
+        // When & Then: hourly buckets come from the hour rollup
+        mockMvc.perform(get("/api/sensors/{id}/readings", testSensor.getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(86_400).toString())
+                        .param("resolution", "1h"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.source").value("1h"))
+                .andExpect(jsonPath("$.resolution").value("PT1H"))
+                .andExpect(jsonPath("$.points", hasSize(2)))
+                .andExpect(jsonPath("$.points[0].bucket").value(DAY.toString()))
+                .andExpect(jsonPath("$.points[0].min").value(0.0))
+                .andExpect(jsonPath("$.points[0].max").value(59.0))
+                .andExpect(jsonPath("$.points[0].avg").value(29.5))
+                .andExpect(jsonPath("$.points[0].count").value(360))
+                .andExpect(jsonPath("$.points[1].count").value(360));
+
+        // 30s buckets can only come from the raw readings
+        mockMvc.perform(get("/api/sensors/{id}/readings", testSensor.getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(120).toString())
+                        .param("resolution", "30s"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.source").value("raw"))
+                .andExpect(jsonPath("$.points", hasSize(4)))
+                .andExpect(jsonPath("$.points[*].count", everyItem(is(3))));
+
+        // The whole range in one day bucket
+        mockMvc.perform(get("/api/sensors/{id}/readings", testSensor.getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(86_400).toString())
+                        .param("resolution", "1d"))
+                .andExpect(jsonPath("$.source").value("1d"))
+                .andExpect(jsonPath("$.points[0].count").value(720))
+                .andExpect(jsonPath("$.points[0].max").value(119.0));
+    }
+
+    @Test
+    void rollups_ShouldNotCountRedeliveredReadingsTwice() throws Exception {
+        // Given
+        ingest(List.of(reading(DAY, 10.0), reading(DAY.plusSeconds(30), 20.0)));
+        sensorReadingService.flush();
+        rollupJob.run();
+
+        // When: the same readings again, plus a late one for the same minute
+        ingest(List.of(reading(DAY, 10.0), reading(DAY.plusSeconds(30), 20.0), reading(DAY.plusSeconds(45), 60.0)));
+        sensorReadingService.flush();
+        rollupJob.run();
+
+        // Then
+        mockMvc.perform(get("/api/sensors/{id}/readings", testSensor.getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(3600).toString())
+                        .param("resolution", "1m"))
+                .andExpect(jsonPath("$.source").value("1m"))
+                .andExpect(jsonPath("$.points", hasSize(1)))
+                .andExpect(jsonPath("$.points[0].count").value(3))
+                .andExpect(jsonPath("$.points[0].avg").value(30.0));
+    }
+
+    @Test
+    void getAggregate_ShouldReturnArraysWithLastValue() throws Exception {
+        // Given: one reading every 10s for two hours, value = second of the day
+        List<SensorReadingRequest> readings = new ArrayList<>();
+        for (int s = 0; s < 7200; s += 10) {
+            readings.add(reading(DAY.plusSeconds(s), s));
+        }
+        ingest(readings);
+        sensorReadingService.flush();
+        rollupJob.run();
+
+        // When & Then: 5-minute buckets from the minute rollup
+        mockMvc.perform(get("/api/sensors/{id}/aggregate", testSensor.getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(86_400).toString())
+                        .param("resolution", "5m"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.source").value("1m"))
+                .andExpect(jsonPath("$.series", hasSize(1)))
+                .andExpect(jsonPath("$.series[0].sensorId").value(testSensor.getSensorId()))
+                .andExpect(jsonPath("$.series[0].buckets", hasSize(24)))
+                .andExpect(jsonPath("$.series[0].buckets[1]").value(DAY.toEpochMilli() + 300_000))
+                .andExpect(jsonPath("$.series[0].min[1]").value(300.0))
+                .andExpect(jsonPath("$.series[0].max[1]").value(590.0))
+                .andExpect(jsonPath("$.series[0].avg[1]").value(445.0))
+                .andExpect(jsonPath("$.series[0].count[1]").value(30))
+                .andExpect(jsonPath("$.series[0].last[1]").value(590.0));
+
+        // The same last values from the hour rollup and from the raw readings
+        mockMvc.perform(get("/api/sensors/{id}/aggregate", testSensor.getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(86_400).toString())
+                        .param("resolution", "1h"))
+                .andExpect(jsonPath("$.source").value("1h"))
+                .andExpect(jsonPath("$.series[0].last", contains(3590.0, 7190.0)));
+        mockMvc.perform(get("/api/sensors/{id}/aggregate", testSensor.getId())
+                        .param("from", DAY.plusSeconds(1).toString())
+                        .param("to", DAY.plusSeconds(7201).toString())
+                        .param("resolution", "1h"))
+                .andExpect(jsonPath("$.source").value("raw"))
+                .andExpect(jsonPath("$.series[0].last", contains(3590.0, 7190.0)));
+    }
+
+    @Test
+    void getDeviceAggregate_ShouldReturnEverySensorOfTheDevice() throws Exception {
+        // Given
+        Sensor idle = TestUtils.createTestSensor(testSensor.getDevice());
+        idle.setId(null);
+        idle.setSensorId("SERIES-IDLE-" + System.nanoTime());
+        idle = sensorRepository.save(idle);
+        ingest(List.of(reading(DAY, 1.0), reading(DAY.plusSeconds(90), 2.0)));
+        sensorReadingService.flush();
+        rollupJob.run();
+
+        // When & Then
+        mockMvc.perform(get("/api/devices/{id}/aggregate", testSensor.getDevice().getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(3600).toString())
+                        .param("resolution", "1m"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.series", hasSize(2)))
+                .andExpect(jsonPath("$.series[?(@.sensorId == '%s')].count[*]", testSensor.getSensorId())
+                        .value(contains(1, 1)))
+                .andExpect(jsonPath("$.series[?(@.sensorId == '%s')].buckets[*]", idle.getSensorId())
+                        .value(empty()));
+
+        mockMvc.perform(get("/api/devices/{id}/aggregate", Long.MAX_VALUE)
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(3600).toString()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getReadings_ShouldReturnBadRequest_WhenResolutionIsInvalid() throws Exception {
+        mockMvc.perform(get("/api/sensors/{id}/readings", testSensor.getId())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(3600).toString())
+                        .param("resolution", "1ms"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getReadings_ShouldReturnNotFound_WhenSensorDoesNotExist() throws Exception {
+        mockMvc.perform(get("/api/sensors/{id}/readings", Long.MAX_VALUE)
+                        .param("from", DAY.toString())
+                        .param("to", DAY.plusSeconds(3600).toString()))
+                .andExpect(status().isNotFound());
+    }
+
+    private List<String> partitionsIn2098() {
+        return jdbcTemplate.queryForList("SELECT relname FROM pg_class "
+                + "WHERE relkind = 'r' AND relname LIKE 'sensor_readings_p2098%'", String.class);
+    }
+
+    private SensorReadingRequest reading(Instant timestamp, double value) {
+        return new SensorReadingRequest(testSensor.getSensorId(), timestamp, value);
+    }
+
+    private void ingest(List<SensorReadingRequest> readings) throws Exception {
+        mockMvc.perform(post("/api/sensors/readings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(readings)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(readings.size()));
+    }
+}
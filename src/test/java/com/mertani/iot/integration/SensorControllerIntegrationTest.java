@@ -118,8 +118,31 @@ class SensorControllerIntegrationTest extends BaseIntegrationTest {
         // When/Then
         mockMvc.perform(get("/sensors"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].id").value(testSensor.getId()));
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(testSensor.getId()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void getAllSensors_ShouldPageWithCursor() throws Exception {
+        // Given
+        Sensor second = TestUtils.createTestSensor(testDevice);
+        second.setId(null);
+        second.setSensorId("SENSOR-456");
+        second = sensorRepository.save(second);
+
+        // When/Then
+        mockMvc.perform(get("/sensors").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(testSensor.getId()))
+                .andExpect(jsonPath("$.nextCursor").value(testSensor.getId()));
+
+        mockMvc.perform(get("/sensors").param("limit", "1").param("after", testSensor.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value(second.getId()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
     }
 
     @Test
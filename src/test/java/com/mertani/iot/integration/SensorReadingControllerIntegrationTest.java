@@ -0,0 +1,149 @@
+package com.mertani.iot.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.SensorReadingService;
+import com.mertani.iot.telemetry.ReadingFrameDecoder;
+import com.mertani.iot.telemetry.ReadingFrameEncoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@AutoConfigureMockMvc
+class SensorReadingControllerIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorReadingService sensorReadingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Sensor testSensor;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device testDevice = TestUtils.createTestDevice();
+        testDevice.setId(null);
+        testDevice = deviceRepository.save(testDevice);
+
+        // Unique per test: repository deletes above bypass the InventoryCache eviction
+        testSensor = TestUtils.createTestSensor(testDevice);
+        testSensor.setId(null);
+        testSensor.setSensorId("SENSOR-" + System.nanoTime());
+        testSensor = sensorRepository.save(testSensor);
+    }
+
+    @Test
+    void ingestReadings_ShouldBufferAndPersistReadings() throws Exception {
+        // Given
+        Instant now = Instant.parse("2024-01-01T00:00:00Z");
+        List<SensorReadingRequest> readings = List.of(
+                new SensorReadingRequest(testSensor.getSensorId(), now, 21.5),
+                new SensorReadingRequest(testSensor.getSensorId(), now.plusSeconds(1), 21.7),
+                new SensorReadingRequest("UNKNOWN-SENSOR", now, 1.0));
+
+        // When/Then
+        mockMvc.perform(post("/api/sensors/readings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(readings)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.unknownSensorIds", contains("UNKNOWN-SENSOR")));
+
+        // Verify the readings reach the database once the buffer is flushed
+        sensorReadingService.flush();
+        Integer stored = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM sensor_readings WHERE sensor_id = ?", Integer.class, testSensor.getId());
+        assertThat(stored).isEqualTo(2);
+    }
+
+    @Test
+    void ingestReadings_ShouldIgnoreRedeliveredReadings() throws Exception {
+        // Given
+        Instant now = Instant.parse("2024-01-01T00:00:00Z");
+        String body = objectMapper.writeValueAsString(
+                List.of(new SensorReadingRequest(testSensor.getSensorId(), now, 21.5)));
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/sensors/readings")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isAccepted());
+            sensorReadingService.flush();
+        }
+
+        // Then
+        Integer stored = jdbcTemplate.queryForObject("SELECT count(*) FROM sensor_readings", Integer.class);
+        assertThat(stored).isEqualTo(1);
+    }
+
+    @Test
+    void ingestReadings_ShouldAcceptBinaryFrames() throws Exception {
+        // Given
+        long now = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+        byte[] body = new ReadingFrameEncoder()
+                .add(testSensor.getSensorId(), now, 21.5)
+                .add(testSensor.getSensorId(), now + 1000, 21.7)
+                .add("UNKNOWN-SENSOR", now, 1.0)
+                .toByteArray();
+
+        // When/Then
+        mockMvc.perform(post("/api/sensors/readings")
+                        .contentType(ReadingFrameDecoder.MEDIA_TYPE)
+                        .content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.unknownSensorIds", contains("UNKNOWN-SENSOR")));
+
+        sensorReadingService.flush();
+        Integer stored = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM sensor_readings WHERE sensor_id = ?", Integer.class, testSensor.getId());
+        assertThat(stored).isEqualTo(2);
+    }
+
+    @Test
+    void ingestReadings_ShouldRejectMalformedBinaryFrames() throws Exception {
+        mockMvc.perform(post("/api/sensors/readings")
+                        .contentType(ReadingFrameDecoder.MEDIA_TYPE)
+                        .content(new byte[]{0, 0, 0, 9, 1}))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("frame length")));
+    }
+}
@@ -0,0 +1,158 @@
+package com.mertani.iot.integration;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.gateway.TelemetryGateway;
+import com.mertani.iot.model.Device;
+import com.mertani.iot.model.Sensor;
+import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.service.SensorReadingService;
+import com.mertani.iot.telemetry.ReadingFrameEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = {
+        "iot.gateway.enabled=true",
+        "iot.gateway.bind-address=127.0.0.1",
+        "iot.gateway.udp-port=0",
+        "iot.gateway.tcp-port=0"
+})
+class TelemetryGatewayIntegrationTest extends BaseIntegrationTest {
+
+    private static final long NOW = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    @Autowired
+    private TelemetryGateway gateway;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private SensorRepository sensorRepository;
+
+    @Autowired
+    private SensorReadingService sensorReadingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Sensor testSensor;
+
+    @BeforeEach
+    void setUp() {
+        // Clear the database before each test
+        jdbcTemplate.update("DELETE FROM sensor_readings");
+        sensorRepository.deleteAll();
+        deviceRepository.deleteAll();
+
+        Device testDevice = TestUtils.createTestDevice();
+        testDevice.setId(null);
+        testDevice = deviceRepository.save(testDevice);
+
+        // Unique per test: repository deletes above bypass the InventoryCache eviction
+        testSensor = TestUtils.createTestSensor(testDevice);
+        testSensor.setId(null);
+        testSensor.setSensorId("GW-SENSOR-" + System.nanoTime());
+        testSensor = sensorRepository.save(testSensor);
+    }
+
+    @Test
+    void udp_ShouldIngestEveryFrameOfADatagram() throws Exception {
+        // Given
+        ReadingFrameEncoder encoder = new ReadingFrameEncoder();
+        ByteArrayOutputStream datagram = new ByteArrayOutputStream();
+        encoder.add(testSensor.getSensorId(), NOW, 21.5).add("UNKNOWN-SENSOR", NOW, 1.0);
+        encoder.writeFrame(datagram);
+        encoder.add(testSensor.getSensorId(), NOW + 1000, 21.7);
+        encoder.writeFrame(datagram);
+        double rejectedBefore = readings("udp", "rejected");
+
+        // When
+        try (DatagramSocket socket = new DatagramSocket()) {
+            byte[] bytes = datagram.toByteArray();
+            socket.send(new DatagramPacket(bytes, bytes.length, InetAddress.getLoopbackAddress(), gateway.udpPort()));
+        }
+
+        // Then
+        assertThat(awaitStored(2)).isEqualTo(2);
+        assertThat(readings("udp", "rejected") - rejectedBefore).isEqualTo(1);
+    }
+
+    @Test
+    void tcp_ShouldReassembleFramesSplitAcrossWrites() throws Exception {
+        // Given
+        ReadingFrameEncoder encoder = new ReadingFrameEncoder();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int frame = 0; frame < 3; frame++) {
+            for (int i = 0; i < 10; i++) {
+                encoder.add(testSensor.getSensorId(), NOW + (frame * 10 + i) * 1000L, i);
+            }
+            encoder.writeFrame(stream);
+        }
+        byte[] bytes = stream.toByteArray();
+
+        // When: deliver in odd-sized pieces, so frames and length prefixes are cut
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateway.tcpPort())) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            for (int offset = 0; offset < bytes.length; offset += 37) {
+                out.write(Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + 37)));
+                out.flush();
+                Thread.sleep(5);
+            }
+
+            // Then
+            assertThat(awaitStored(30)).isEqualTo(30);
+        }
+    }
+
+    @Test
+    void tcp_ShouldCloseConnection_WhenFrameIsMalformed() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateway.tcpPort())) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            assertThat(in.read()).isEqualTo(-1);
+        }
+    }
+
+    private double readings(String transport, String outcome) {
+        return meterRegistry.get("iot.gateway.readings")
+                .tags("transport", transport, "outcome", outcome)
+                .counter().count();
+    }
+
+    private int awaitStored(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        int stored;
+        do {
+            Thread.sleep(50);
+            sensorReadingService.flush();
+            stored = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM sensor_readings WHERE sensor_id = ?", Integer.class, testSensor.getId());
+        } while (stored < expected && System.currentTimeMillis() < deadline);
+        return stored;
+    }
+}
@@ -0,0 +1,96 @@
+package com.mertani.iot.reactive;
+
+import com.mertani.iot.dto.CursorPageResponse;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.exception.DeviceNotFoundException;
+import com.mertani.iot.mapper.DeviceMapper;
+import com.mertani.iot.mapper.DeviceMapperImpl;
+import com.mertani.iot.mapper.SensorMapper;
+import com.mertani.iot.mapper.SensorMapperImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveDeviceServiceTest {
+
+    @Mock
+    private ReactiveDeviceRepository deviceRepository;
+
+    @Mock
+    private ReactiveSensorRepository sensorRepository;
+
+    private final DeviceMapper deviceMapper = new DeviceMapperImpl();
+    private final SensorMapper sensorMapper = new SensorMapperImpl();
+
+    private ReactiveDeviceService deviceService;
+
+    @BeforeEach
+    void setUp() {
+        deviceService = new ReactiveDeviceService(deviceRepository, sensorRepository, deviceMapper, sensorMapper);
+    }
+
+    @Test
+    void getDeviceById_ShouldAttachSensors() {
+        // Arrange
+        when(deviceRepository.findById(1L)).thenReturn(Mono.just(device(1L)));
+        when(sensorRepository.findByDeviceIdOrderById(1L)).thenReturn(Flux.just(sensor(10L, 1L), sensor(11L, 1L)));
+
+        // Act
+        DeviceResponse response = deviceService.getDeviceById(1L).block();
+
+        // Assert
+        assertNotNull(response);
+        assertEquals("SN-1", response.getSerialNumber());
+        assertEquals(List.of(10L, 11L), response.getSensors().stream().map(s -> s.getId()).toList());
+    }
+
+    @Test
+    void getDeviceById_ShouldFail_WhenDeviceNotFound() {
+        // Arrange
+        when(deviceRepository.findById(1L)).thenReturn(Mono.empty());
+        when(sensorRepository.findByDeviceIdOrderById(1L)).thenReturn(Flux.empty());
+
+        // Act & Assert
+        assertThrows(DeviceNotFoundException.class, () -> deviceService.getDeviceById(1L).block());
+    }
+
+    @Test
+    void getDevicesPage_ShouldLoadSensorsOfPageWithOneQuery() {
+        // Arrange
+        when(deviceRepository.findPageAfter(0L, 3)).thenReturn(Flux.just(device(1L), device(2L), device(3L)));
+        when(sensorRepository.findByDeviceIdInOrderById(List.of(1L, 2L)))
+                .thenReturn(Flux.just(sensor(10L, 2L), sensor(11L, 2L)));
+
+        // Act
+        CursorPageResponse<DeviceResponse> page = deviceService.getDevicesPage(null, 2).block();
+
+        // Assert
+        assertNotNull(page);
+        assertEquals(2L, page.getNextCursor());
+        assertEquals(List.of(), page.getItems().get(0).getSensors());
+        assertEquals(2, page.getItems().get(1).getSensors().size());
+        verify(sensorRepository, times(1)).findByDeviceIdInOrderById(anyCollection());
+    }
+
+    private static DeviceRow device(long id) {
+        LocalDateTime now = LocalDateTime.now();
+        return new DeviceRow(id, "Device " + id, "SN-" + id, null, null, true, now, now);
+    }
+
+    private static SensorRow sensor(long id, long deviceId) {
+        LocalDateTime now = LocalDateTime.now();
+        return new SensorRow(id, "Sensor " + id, "S-" + id, "TEMPERATURE", "C", 0.0, 100.0, true, deviceId, now, now);
+    }
+}
@@ -0,0 +1,243 @@
+package com.mertani.iot.segment;
+
+import com.mertani.iot.dto.AggregateSeries;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.SensorRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SegmentReadingStoreTest {
+
+    private static final Instant DAY = Instant.parse("2024-01-01T00:00:00Z");
+    private static final long HOUR = 3_600_000L;
+
+    @TempDir
+    private Path directory;
+
+    private SensorRepository sensorRepository;
+    private final List<SegmentReadingStore> stores = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        sensorRepository = mock(SensorRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stores.forEach(SegmentReadingStore::close);
+    }
+
+    @Test
+    void aggregate_ShouldBucketReadingsAcrossDaysAndBatches() throws IOException {
+        // Arrange: out of order, across midnight, for two sensors
+        SegmentReadingStore store = open();
+        store.insertAll(batch(new long[]{7, 8, 7, 7}, new long[]{DAY.toEpochMilli() + 2 * HOUR,
+                DAY.toEpochMilli(), DAY.toEpochMilli() + 25 * HOUR, DAY.toEpochMilli()}, 3.0, 100.0, 5.0, 1.0));
+        store.insertAll(batch(new long[]{7}, new long[]{DAY.toEpochMilli() + HOUR / 2}, 2.0));
+
+        // Act
+        Map<Long, AggregateSeries> series = store.aggregate(null, new long[]{7, 8, 9}, DAY,
+                DAY.plusSeconds(2 * 86_400), 24 * HOUR);
+
+        // Assert
+        AggregateSeries seven = series.get(7L);
+        assertArrayEquals(new long[]{DAY.toEpochMilli(), DAY.toEpochMilli() + 24 * HOUR}, seven.getBuckets());
+        assertArrayEquals(new long[]{3, 1}, seven.getCount());
+        assertArrayEquals(new double[]{1.0, 5.0}, seven.getMin());
+        assertArrayEquals(new double[]{3.0, 5.0}, seven.getMax());
+        assertArrayEquals(new double[]{2.0, 5.0}, seven.getAvg());
+        assertArrayEquals(new double[]{3.0, 5.0}, seven.getLast());
+        assertArrayEquals(new long[]{1}, series.get(8L).getCount());
+        assertFalse(series.containsKey(9L));
+        assertFalse(store.hasRollups());
+    }
+
+    @Test
+    void export_ShouldPassEachSensorsReadingsInTimeOrder() throws IOException {
+        // Arrange: a late reading in a later batch, across midnight, and one outside the range
+        SegmentReadingStore store = open();
+        long t = DAY.toEpochMilli();
+        store.insertAll(batch(new long[]{7, 8, 7, 7}, new long[]{t + 2 * HOUR, t, t + 25 * HOUR, t + 49 * HOUR},
+                3.0, 100.0, 5.0, 9.0));
+        store.insertAll(batch(new long[]{7}, new long[]{t + HOUR}, 2.0));
+
+        // Act: in chunks of two
+        List<String> chunks = new ArrayList<>();
+        store.export(new long[]{8, 7, 9}, DAY, DAY.plusSeconds(2 * 86_400), new ReadingBatch(2), chunk -> {
+            List<String> readings = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                readings.add(chunk.sensorId(i) + "@" + (chunk.timestamp(i) - t) / HOUR + "=" + chunk.value(i));
+            }
+            chunks.add(String.join(" ", readings));
+        });
+
+        // Assert
+        assertEquals(List.of("8@0=100.0 7@1=2.0", "7@2=3.0 7@25=5.0"), chunks);
+    }
+
+    @Test
+    void insertAll_ShouldIgnoreReadingsAlreadyStored() throws IOException {
+        // Arrange
+        SegmentReadingStore store = open();
+        long t = DAY.toEpochMilli();
+        store.insertAll(batch(new long[]{7, 7, 7}, new long[]{t, t + 1000, t + 1000}, 1.0, 2.0, 2.0));
+
+        // Act: a resend with one new reading between the stored ones
+        store.insertAll(batch(new long[]{7, 7, 7}, new long[]{t, t + 500, t + 1000}, 1.0, 9.0, 2.0));
+
+        // Assert
+        AggregateSeries series = store.aggregate(null, new long[]{7}, DAY, DAY.plusSeconds(60), 60_000).get(7L);
+        assertArrayEquals(new long[]{3}, series.getCount());
+        assertArrayEquals(new double[]{12.0 / 3}, series.getAvg());
+    }
+
+    @Test
+    void forEachLatest_ShouldReportNewestReadingOfEachSensor() throws IOException {
+        // Arrange
+        SensorRef seven = new SensorRef("SENSOR-7", 7L, 1L);
+        SensorRef eight = new SensorRef("SENSOR-8", 8L, 1L);
+        when(sensorRepository.findRefsByIdIn(anyCollection())).thenReturn(List.of(seven, eight));
+        SegmentReadingStore store = open();
+        long t = DAY.toEpochMilli();
+        store.insertAll(batch(new long[]{7, 8, 7}, new long[]{t + 25 * HOUR, t, t}, 5.0, 6.0, 1.0));
+        store.insertAll(batch(new long[]{7}, new long[]{t + HOUR}, 2.0));
+
+        // Act
+        Map<SensorRef, double[]> latest = new HashMap<>();
+        store.forEachLatest((ref, timestamp, value) -> latest.put(ref, new double[]{timestamp, value}));
+
+        // Assert
+        assertArrayEquals(new double[]{t + 25 * HOUR, 5.0}, latest.get(seven));
+        assertArrayEquals(new double[]{t, 6.0}, latest.get(eight));
+    }
+
+    @Test
+    void open_ShouldRecoverSegmentsLeftOpenByACrash() throws IOException {
+        // Arrange: written but never sealed, so the file is still at its mapped size
+        SegmentReadingStore crashed = new SegmentReadingStore(properties(), sensorRepository, 0);
+        crashed.open();
+        crashed.insertAll(batch(new long[]{7, 7}, new long[]{DAY.toEpochMilli(), DAY.toEpochMilli() + 1}, 1.0, 2.0));
+        Path segment = onlySegment();
+        assertEquals(properties().getSegmentBytes(), Files.size(segment));
+
+        // Act
+        SegmentReadingStore store = open();
+
+        // Assert
+        assertEquals(Segment.HEADER_BYTES + Segment.FRAME_HEADER_BYTES + Segment.RUN_BYTES
+                + 2 * Segment.READING_BYTES, Files.size(segment));
+        assertArrayEquals(new long[]{2}, store.aggregate(null, new long[]{7}, DAY, DAY.plusSeconds(60), 60_000)
+                .get(7L).getCount());
+    }
+
+    @Test
+    void open_ShouldTruncateTornFrame() throws IOException {
+        // Arrange: a complete frame, then the start of one cut short
+        SegmentReadingStore first = open();
+        first.insertAll(batch(new long[]{7}, new long[]{DAY.toEpochMilli()}, 1.0));
+        first.insertAll(batch(new long[]{7}, new long[]{DAY.toEpochMilli() + 1000}, 2.0));
+        first.close();
+        Path segment = onlySegment();
+        long intact = Segment.HEADER_BYTES + Segment.FRAME_HEADER_BYTES + Segment.RUN_BYTES + Segment.READING_BYTES;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Corrupt the second frame's last value and cut it off
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 2 * intact - Segment.HEADER_BYTES - 1);
+            channel.truncate(2 * intact - Segment.HEADER_BYTES - 4);
+        }
+
+        // Act
+        SegmentReadingStore store = open();
+
+        // Assert
+        assertEquals(intact, Files.size(segment));
+        AggregateSeries series = store.aggregate(null, new long[]{7}, DAY, DAY.plusSeconds(60), 60_000).get(7L);
+        assertArrayEquals(new long[]{1}, series.getCount());
+        // Recovered segments are read-only, new readings go to a new one
+        store.insertAll(batch(new long[]{7}, new long[]{DAY.toEpochMilli() + 1000}, 2.0));
+        assertArrayEquals(new long[]{2}, store.aggregate(null, new long[]{7}, DAY, DAY.plusSeconds(60), 60_000)
+                .get(7L).getCount());
+        assertEquals(2, segments().size());
+    }
+
+    @Test
+    void insertAll_ShouldRollOverToANewSegment_WhenOneIsFull() throws IOException {
+        // Arrange
+        SegmentReadingStore store = open();
+        int perBatch = 10_000;
+
+        // Act: 16 bytes a reading, so a minimum-size segment holds about 46000
+        for (int b = 0; b < 10; b++) {
+            long[] sensors = new long[perBatch];
+            long[] times = new long[perBatch];
+            double[] values = new double[perBatch];
+            for (int i = 0; i < perBatch; i++) {
+                sensors[i] = i % 10;
+                times[i] = DAY.toEpochMilli() + (long) b * perBatch + i;
+                values[i] = 1.0;
+            }
+            store.insertAll(batch(sensors, times, values));
+        }
+
+        // Assert
+        assertTrue(segments().size() >= 3, "Expected several segments, got " + segments());
+        Map<Long, AggregateSeries> series = store.aggregate(null, new long[]{0, 9}, DAY, DAY.plusSeconds(3600),
+                HOUR);
+        assertArrayEquals(new long[]{10 * perBatch / 10}, series.get(0L).getCount());
+        assertArrayEquals(new long[]{10 * perBatch / 10}, series.get(9L).getCount());
+    }
+
+    private SegmentReadingStore open() throws IOException {
+        SegmentReadingStore store = new SegmentReadingStore(properties(), sensorRepository, 0);
+        store.open();
+        stores.add(store);
+        return store;
+    }
+
+    private SegmentStoreProperties properties() {
+        SegmentStoreProperties properties = new SegmentStoreProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentBytes(750_000);
+        return properties;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private static ReadingBatch batch(long[] sensors, long[] times, double... values) {
+        ReadingBatch batch = new ReadingBatch(sensors.length);
+        for (int i = 0; i < sensors.length; i++) {
+            batch.add(sensors[i], times[i], values[i]);
+        }
+        return batch;
+    }
+}
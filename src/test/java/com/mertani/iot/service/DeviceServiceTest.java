@@ -1,27 +1,45 @@
 package com.mertani.iot.service;
 
 import com.mertani.iot.TestUtils;
+import com.mertani.iot.cache.InventoryCache;
+import com.mertani.iot.dto.BulkCreateResponse;
+import com.mertani.iot.dto.BulkItemError;
+import com.mertani.iot.dto.CursorPageResponse;
 import com.mertani.iot.dto.DeviceRequest;
 import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.SensorResponse;
 import com.mertani.iot.exception.DeviceNotFoundException;
 import com.mertani.iot.exception.DuplicateSerialNumberException;
 import com.mertani.iot.mapper.DeviceMapper;
 import com.mertani.iot.model.Device;
 import com.mertani.iot.repository.DeviceRepository;
+import com.mertani.iot.stream.SensorChangedEvent;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.validator.internal.engine.path.PathImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,6 +54,15 @@ class DeviceServiceTest {
     @Mock
     private DeviceMapper deviceMapper;
 
+    @Mock
+    private InventoryCache inventoryCache;
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private DeviceService deviceService;
 
@@ -79,24 +106,68 @@ class DeviceServiceTest {
     }
 
     @Test
-    void getDeviceById_ShouldReturnDeviceResponse_WhenDeviceExists() {
+    void createDevices_ShouldCheckSerialNumbersOnceAndReportDuplicates() {
         // Arrange
-        when(deviceRepository.findById(anyLong())).thenReturn(Optional.of(device));
+        DeviceRequest existing = TestUtils.createTestDeviceRequest();
+        DeviceRequest fresh = TestUtils.createTestDeviceRequest();
+        fresh.setSerialNumber("NEW-1");
+        DeviceRequest repeated = TestUtils.createTestDeviceRequest();
+        repeated.setSerialNumber("NEW-1");
+        when(deviceRepository.findExistingSerialNumbers(anyCollection())).thenReturn(List.of("TEST-123"));
+        when(deviceMapper.toEntity(any(DeviceRequest.class))).thenReturn(device);
+        when(deviceRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
         when(deviceMapper.toDto(any(Device.class))).thenReturn(deviceResponse);
 
+        // Act
+        BulkCreateResponse<DeviceResponse> result =
+                deviceService.createDevices(Arrays.asList(existing, fresh, repeated));
+
+        // Assert
+        assertEquals(1, result.getCreated().size());
+        assertEquals(List.of(0, 2), result.getErrors().stream().map(BulkItemError::getIndex).toList());
+        verify(deviceRepository, times(1)).findExistingSerialNumbers(anyCollection());
+        verify(deviceRepository, never()).existsBySerialNumber(anyString());
+        verify(deviceRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void createDevices_ShouldReportInvalidItems() {
+        // Arrange
+        DeviceRequest invalid = TestUtils.createTestDeviceRequest();
+        invalid.setName("");
+        @SuppressWarnings("unchecked")
+        ConstraintViolation<Object> violation = mock(ConstraintViolation.class);
+        when(violation.getPropertyPath()).thenReturn(PathImpl.createPathFromString("name"));
+        when(violation.getMessage()).thenReturn("Name is required");
+        when(validator.validate(any())).thenReturn(Set.of(violation));
+
+        // Act
+        BulkCreateResponse<DeviceResponse> result = deviceService.createDevices(List.of(invalid));
+
+        // Assert
+        assertTrue(result.getCreated().isEmpty());
+        assertEquals("name: Name is required", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void getDeviceById_ShouldReturnDeviceResponse_WhenDeviceExists() {
+        // Arrange
+        when(deviceRepository.findResponseById(anyLong())).thenReturn(Optional.of(deviceResponse));
+
         // Act
         DeviceResponse result = deviceService.getDeviceById(1L);
 
         // Assert
         assertNotNull(result);
         assertEquals(deviceResponse, result);
-        verify(deviceRepository, times(1)).findById(anyLong());
+        verify(deviceRepository, times(1)).findResponseById(anyLong());
+        verify(deviceRepository, never()).findById(anyLong());
     }
 
     @Test
     void getDeviceById_ShouldThrowException_WhenDeviceNotFound() {
         // Arrange
-        when(deviceRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(deviceRepository.findResponseById(anyLong())).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(DeviceNotFoundException.class, () -> deviceService.getDeviceById(1L));
@@ -105,9 +176,8 @@ class DeviceServiceTest {
     @Test
     void getAllDevices_ShouldReturnListOfDeviceResponses() {
         // Arrange
-        List<Device> devices = Arrays.asList(device);
-        when(deviceRepository.findAll()).thenReturn(devices);
-        when(deviceMapper.toDto(any(Device.class))).thenReturn(deviceResponse);
+        List<DeviceResponse> devices = Arrays.asList(deviceResponse);
+        when(deviceRepository.findAllResponses()).thenReturn(devices);
 
         // Act
         List<DeviceResponse> results = deviceService.getAllDevices();
@@ -116,7 +186,82 @@ class DeviceServiceTest {
         assertNotNull(results);
         assertFalse(results.isEmpty());
         assertEquals(1, results.size());
-        verify(deviceRepository, times(1)).findAll();
+        verify(deviceRepository, times(1)).findAllResponses();
+        verify(deviceMapper, never()).toDto(any(Device.class));
+    }
+
+    @Test
+    void exportDevices_ShouldMergeSensorsFromOrderedCursor() {
+        // Arrange
+        SensorResponse first = TestUtils.createTestSensorResponse(1L);
+        SensorResponse second = TestUtils.createTestSensorResponse(1L);
+        SensorResponse third = TestUtils.createTestSensorResponse(3L);
+        when(deviceRepository.streamAllResponses()).thenReturn(Stream.of(
+                DeviceResponse.builder().id(1L).build(),
+                DeviceResponse.builder().id(2L).build(),
+                DeviceResponse.builder().id(3L).build()));
+        when(sensorService.streamSensorsOrderedByDeviceId()).thenReturn(Stream.of(first, second, third));
+        List<DeviceResponse> exported = new ArrayList<>();
+
+        // Act
+        deviceService.exportDevices(exported::add);
+
+        // Assert
+        assertEquals(3, exported.size());
+        assertEquals(List.of(first, second), exported.get(0).getSensors());
+        assertTrue(exported.get(1).getSensors().isEmpty());
+        assertEquals(List.of(third), exported.get(2).getSensors());
+    }
+
+    @Test
+    void getAllDevices_ShouldLoadSensorsOnce_RegardlessOfDeviceCount() {
+        // Arrange
+        SensorResponse sensor = TestUtils.createTestSensorResponse(2L);
+        when(deviceRepository.findAllResponses()).thenReturn(Arrays.asList(
+                DeviceResponse.builder().id(1L).build(),
+                DeviceResponse.builder().id(2L).build(),
+                DeviceResponse.builder().id(3L).build()));
+        when(sensorService.getSensorsGroupedByDeviceId()).thenReturn(Map.of(2L, List.of(sensor)));
+
+        // Act
+        List<DeviceResponse> results = deviceService.getAllDevices();
+
+        // Assert
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).getSensors().isEmpty());
+        assertEquals(List.of(sensor), results.get(1).getSensors());
+        verify(sensorService, times(1)).getSensorsGroupedByDeviceId();
+        verify(sensorService, never()).getSensorsByDeviceId(anyLong());
+    }
+
+    @Test
+    void getDevicesPage_ShouldReturnNextCursor_WhenMoreDevicesExist() {
+        // Arrange
+        when(deviceRepository.findResponsesAfter(eq(0L), any(Limit.class)))
+                .thenReturn(Arrays.asList(DeviceResponse.builder().id(1L).build(), DeviceResponse.builder().id(2L).build()));
+
+        // Act
+        CursorPageResponse<DeviceResponse> page = deviceService.getDevicesPage(null, 1);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertEquals(1L, page.getNextCursor());
+        verify(deviceRepository).findResponsesAfter(0L, Limit.of(2));
+        verify(sensorService, times(1)).getSensorsByDeviceIds(List.of(1L));
+    }
+
+    @Test
+    void getDevicesPage_ShouldReturnNoCursor_OnLastPage() {
+        // Arrange
+        when(deviceRepository.findResponsesAfter(eq(1L), any(Limit.class)))
+                .thenReturn(List.of(deviceResponse));
+
+        // Act
+        CursorPageResponse<DeviceResponse> page = deviceService.getDevicesPage(1L, 10);
+
+        // Assert
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
     }
 
     @Test
@@ -141,12 +286,15 @@ class DeviceServiceTest {
     void deleteDevice_ShouldDeleteDevice_WhenDeviceExists() {
         // Arrange
         when(deviceRepository.existsById(anyLong())).thenReturn(true);
+        when(sensorService.getSensorsByDeviceId(1L)).thenReturn(List.of(SensorResponse.builder().id(5L).deviceId(1L).build()));
         doNothing().when(deviceRepository).deleteById(anyLong());
 
         // Act & Assert
         assertDoesNotThrow(() -> deviceService.deleteDevice(1L));
         verify(deviceRepository, times(1)).existsById(anyLong());
         verify(deviceRepository, times(1)).deleteById(anyLong());
+        verify(inventoryCache, times(1)).evictDeviceWithSensors(1L);
+        verify(eventPublisher).publishEvent(SensorChangedEvent.removed(1L, 5L));
     }
 
     @Test
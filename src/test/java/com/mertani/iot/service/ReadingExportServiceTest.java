@@ -0,0 +1,97 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.exception.InvalidReadingQueryException;
+import com.mertani.iot.exception.SensorNotFoundException;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.SensorRef;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingExportServiceTest {
+
+    private static final Instant FROM = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2024-04-01T00:00:00Z");
+
+    @Mock
+    private SensorRepository sensorRepository;
+
+    @Mock
+    private ReadingStore readingStore;
+
+    private ReadingExportService readingExportService;
+
+    @BeforeEach
+    void setUp() {
+        readingExportService = new ReadingExportService(sensorRepository, readingStore, 500);
+    }
+
+    @Test
+    void checkExport_ShouldReturnSensorIdsInOrderWithoutRepeats() {
+        // Arrange
+        when(sensorRepository.findRefsByIdIn(any())).thenReturn(List.of(
+                new SensorRef("SENSOR-1", 1L, 1L), new SensorRef("SENSOR-3", 3L, 1L)));
+
+        // Act
+        long[] ids = readingExportService.checkExport(List.of(3L, 1L, 3L), FROM, TO);
+
+        // Assert
+        assertArrayEquals(new long[]{3, 1}, ids);
+    }
+
+    @Test
+    void checkExport_ShouldThrow_WhenSensorDoesNotExist() {
+        // Arrange
+        when(sensorRepository.findRefsByIdIn(any())).thenReturn(List.of(new SensorRef("SENSOR-1", 1L, 1L)));
+
+        // Act & Assert
+        SensorNotFoundException ex = assertThrows(SensorNotFoundException.class,
+                () -> readingExportService.checkExport(List.of(1L, 2L), FROM, TO));
+        assertTrue(ex.getMessage().endsWith(": 2"));
+    }
+
+    @Test
+    void checkExport_ShouldThrow_WhenRangeOrSensorsAreInvalid() {
+        // Act & Assert
+        assertThrows(InvalidReadingQueryException.class,
+                () -> readingExportService.checkExport(List.of(1L), TO, FROM));
+        assertThrows(InvalidReadingQueryException.class,
+                () -> readingExportService.checkExport(Collections.emptyList(), FROM, TO));
+        List<Long> tooMany = LongStream.rangeClosed(1, ReadingExportService.MAX_SENSORS + 1).boxed().toList();
+        assertThrows(InvalidReadingQueryException.class,
+                () -> readingExportService.checkExport(tooMany, FROM, TO));
+        verifyNoInteractions(sensorRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportReadings_ShouldStreamFromStoreInChunksOfConfiguredSize() {
+        // Arrange
+        Consumer<ReadingBatch> sink = mock(Consumer.class);
+        ArgumentCaptor<ReadingBatch> chunk = ArgumentCaptor.forClass(ReadingBatch.class);
+
+        // Act
+        readingExportService.exportReadings(new long[]{1, 2}, FROM, TO, sink);
+
+        // Assert
+        verify(readingStore).export(eq(new long[]{1, 2}), eq(FROM), eq(TO), chunk.capture(), eq(sink));
+        assertEquals(500, chunk.getValue().capacity());
+    }
+}
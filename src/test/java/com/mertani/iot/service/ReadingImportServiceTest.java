@@ -0,0 +1,235 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.dto.ReadingImportResponse;
+import com.mertani.iot.exception.InvalidReadingImportException;
+import com.mertani.iot.exception.ReadingImportNotFoundException;
+import com.mertani.iot.model.ReadingImport;
+import com.mertani.iot.repository.ReadingImportRepository;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.telemetry.LatestReadings;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.timeseries.ReadingCompactor;
+import com.mertani.iot.timeseries.ReadingTimeWindow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingImportServiceTest {
+
+    private static final SensorRef SENSOR = new SensorRef("SENSOR-123", 7L, 1L);
+    private static final long TIMESTAMP = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    @Mock
+    private SensorRepository sensorRepository;
+
+    @Mock
+    private ReadingImportRepository importRepository;
+
+    @Mock
+    private ReadingStore readingStore;
+
+    @Mock
+    private LatestReadings latestReadings;
+
+    @Mock
+    private ReadingCompactor compactor;
+
+    private ReadingImportService readingImportService;
+    private final List<String> chunks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Ingest takes a week back and imports ten years, so the readings below are import-only
+        readingImportService = new ReadingImportService(sensorRepository, importRepository, readingStore,
+                latestReadings, new ReadingTimeWindow(compactor, 7, 3650, 86_400_000L), 2);
+    }
+
+    @Test
+    void importCsv_ShouldLoadReadingsInChunks() throws Exception {
+        // Arrange
+        stubRepositories(Optional.empty());
+        InputStream csv = csv(
+                "SENSOR-123," + TIMESTAMP + ",1.0",
+                "UNKNOWN," + TIMESTAMP + ",2.0",
+                "SENSOR-123," + (TIMESTAMP + 1) + ",3.0",
+                "SENSOR-123,not-a-time,4.0",
+                "SENSOR-123," + (TIMESTAMP + 2) + ",5.0");
+
+        // Act
+        ReadingImportResponse response = readingImportService.importCsv("customer-1", csv);
+
+        // Assert
+        assertEquals(ReadingImport.Status.COMPLETED, response.getStatus());
+        assertEquals(5, response.getLines());
+        assertEquals(0, response.getResumedFrom());
+        assertEquals(3, response.getAccepted());
+        assertEquals(2, response.getRejected());
+        assertEquals(Set.of("UNKNOWN"), response.getUnknownSensorIds());
+        assertEquals(List.of("7@" + TIMESTAMP + "=1.0 7@" + (TIMESTAMP + 1) + "=3.0",
+                "7@" + (TIMESTAMP + 2) + "=5.0"), chunks);
+        verify(readingStore, never()).insertAll(any(ReadingBatch.class));
+        verify(latestReadings).onReading(SENSOR, TIMESTAMP + 2, 5.0);
+        verify(sensorRepository, times(1)).findAllRefs();
+    }
+
+    @Test
+    void importCsv_ShouldResumeAfterLinesAlreadyDone() throws Exception {
+        // Arrange
+        ReadingImport progress = ReadingImport.builder().id("customer-1").status(ReadingImport.Status.FAILED)
+                .lines(2).accepted(2).rejected(0).startedAt(Instant.EPOCH).updatedAt(Instant.EPOCH).build();
+        stubRepositories(Optional.of(progress));
+        InputStream csv = csv(
+                "SENSOR-123," + TIMESTAMP + ",1.0",
+                "SENSOR-123," + (TIMESTAMP + 1) + ",2.0",
+                "SENSOR-123," + (TIMESTAMP + 2) + ",3.0");
+
+        // Act
+        ReadingImportResponse response = readingImportService.importCsv("customer-1", csv);
+
+        // Assert
+        assertEquals(ReadingImport.Status.COMPLETED, response.getStatus());
+        assertEquals(2, response.getResumedFrom());
+        assertEquals(3, response.getLines());
+        assertEquals(3, response.getAccepted());
+        assertEquals(List.of("7@" + (TIMESTAMP + 2) + "=3.0"), chunks);
+    }
+
+    @Test
+    void importCsv_ShouldRejectReadingsOutsideTimeWindow() throws Exception {
+        // Arrange
+        stubRepositories(Optional.empty());
+        long future = System.currentTimeMillis() + 2 * 86_400_000L;
+
+        // Act
+        ReadingImportResponse response = readingImportService.importCsv("customer-1", csv(
+                "SENSOR-123," + TIMESTAMP + ",1.0",
+                "SENSOR-123," + future + ",2.0",
+                "SENSOR-123,253402300800000,3.0"));
+
+        // Assert
+        assertEquals(1, response.getAccepted());
+        assertEquals(2, response.getRejected());
+        assertEquals(List.of("7@" + TIMESTAMP + "=1.0"), chunks);
+    }
+
+    @Test
+    void importCsv_ShouldRejectReadingsInCompressedTime() throws Exception {
+        // Arrange
+        stubRepositories(Optional.empty());
+        when(compactor.writableFrom()).thenReturn(TIMESTAMP + 1);
+
+        // Act
+        ReadingImportResponse response = readingImportService.importCsv("customer-1", csv(
+                "SENSOR-123," + TIMESTAMP + ",1.0",
+                "SENSOR-123," + (TIMESTAMP + 1) + ",2.0"));
+
+        // Assert
+        assertEquals(1, response.getAccepted());
+        assertEquals(1, response.getRejected());
+        assertTrue(response.getUnknownSensorIds().isEmpty());
+        assertEquals(List.of("7@" + (TIMESTAMP + 1) + "=2.0"), chunks);
+    }
+
+    @Test
+    void importCsv_ShouldKeepProgressOfWrittenChunks_WhenWriteFails() throws Exception {
+        // Arrange: the second chunk fails
+        List<ReadingImport> saved = new ArrayList<>();
+        when(importRepository.findById("customer-1")).thenAnswer(invocation ->
+                saved.isEmpty() ? Optional.empty() : Optional.of(copy(saved.get(saved.size() - 1))));
+        when(importRepository.save(any(ReadingImport.class))).thenAnswer(invocation -> {
+            saved.add(copy(invocation.getArgument(0)));
+            return invocation.getArgument(0);
+        });
+        when(sensorRepository.findAllRefs()).thenReturn(List.of(SENSOR));
+        doNothing().doThrow(new IllegalStateException("database down")).when(readingStore).load(any());
+        InputStream csv = csv(
+                "SENSOR-123," + TIMESTAMP + ",1.0",
+                "SENSOR-123," + (TIMESTAMP + 1) + ",2.0",
+                "SENSOR-123," + (TIMESTAMP + 2) + ",3.0");
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> readingImportService.importCsv("customer-1", csv));
+        ReadingImport last = saved.get(saved.size() - 1);
+        assertEquals(ReadingImport.Status.FAILED, last.getStatus());
+        assertEquals(2, last.getLines());
+        assertEquals(2, last.getAccepted());
+    }
+
+    @Test
+    void importCsv_ShouldNotReadAgain_WhenImportIsCompleted() throws Exception {
+        // Arrange
+        ReadingImport done = ReadingImport.builder().id("customer-1").status(ReadingImport.Status.COMPLETED)
+                .lines(10).accepted(10).build();
+        when(importRepository.findById("customer-1")).thenReturn(Optional.of(done));
+
+        // Act
+        ReadingImportResponse response = readingImportService.importCsv("customer-1", csv());
+
+        // Assert
+        assertEquals(ReadingImport.Status.COMPLETED, response.getStatus());
+        assertEquals(10, response.getAccepted());
+        verify(readingStore, never()).load(any());
+        verify(importRepository, never()).save(any());
+    }
+
+    @Test
+    void importCsv_ShouldReject_WhenImportIdIsInvalid() {
+        // Act & Assert
+        assertThrows(InvalidReadingImportException.class,
+                () -> readingImportService.importCsv("../customer", csv()));
+        verifyNoInteractions(importRepository);
+    }
+
+    @Test
+    void getImport_ShouldThrow_WhenImportIsUnknown() {
+        // Arrange
+        when(importRepository.findById("customer-1")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ReadingImportNotFoundException.class, () -> readingImportService.getImport("customer-1"));
+    }
+
+    private void stubRepositories(Optional<ReadingImport> progress) {
+        when(importRepository.findById("customer-1")).thenReturn(progress);
+        when(importRepository.save(any(ReadingImport.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(sensorRepository.findAllRefs()).thenReturn(List.of(SENSOR));
+        doAnswer(invocation -> {
+            ReadingBatch batch = invocation.getArgument(0);
+            List<String> chunk = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                chunk.add(batch.sensorId(i) + "@" + batch.timestamp(i) + "=" + batch.value(i));
+            }
+            chunks.add(String.join(" ", chunk));
+            return null;
+        }).when(readingStore).load(any(ReadingBatch.class));
+    }
+
+    private static ReadingImport copy(ReadingImport progress) {
+        return ReadingImport.builder().id(progress.getId()).status(progress.getStatus()).lines(progress.getLines())
+                .accepted(progress.getAccepted()).rejected(progress.getRejected())
+                .startedAt(progress.getStartedAt()).updatedAt(progress.getUpdatedAt()).build();
+    }
+
+    private static InputStream csv(String... lines) {
+        String csv = "sensorId,timestamp,value\n" + String.join("\n", lines);
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
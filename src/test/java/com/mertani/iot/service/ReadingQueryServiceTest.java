@@ -0,0 +1,177 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.TestUtils;
+import com.mertani.iot.dto.AggregateResponse;
+import com.mertani.iot.dto.AggregateSeries;
+import com.mertani.iot.dto.DeviceResponse;
+import com.mertani.iot.dto.ReadingAggregate;
+import com.mertani.iot.dto.ReadingSeriesResponse;
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.exception.DeviceNotFoundException;
+import com.mertani.iot.exception.InvalidReadingQueryException;
+import com.mertani.iot.exception.SensorNotFoundException;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.timeseries.Rollup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadingQueryServiceTest {
+
+    private static final Instant DAY = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Mock
+    private SensorService sensorService;
+
+    @Mock
+    private DeviceService deviceService;
+
+    @Mock
+    private ReadingStore readingStore;
+
+    private ReadingQueryService readingQueryService;
+
+    @BeforeEach
+    void setUp() {
+        readingQueryService = new ReadingQueryService(sensorService, deviceService, readingStore, 1000);
+    }
+
+    @Test
+    void source_ShouldPickCoarsestRollupThatFitsRangeAndResolution() {
+        assertEquals(Rollup.DAY, ReadingQueryService.source(DAY, DAY.plus(Duration.ofDays(30)), Duration.ofDays(1)));
+        assertEquals(Rollup.HOUR, ReadingQueryService.source(DAY, DAY.plus(Duration.ofDays(30)), Duration.ofHours(6)));
+        // A day bucket would include readings before 'from'
+        assertEquals(Rollup.HOUR, ReadingQueryService.source(DAY.plusSeconds(3600), DAY.plus(Duration.ofDays(3)),
+                Duration.ofDays(1)));
+        assertEquals(Rollup.MINUTE, ReadingQueryService.source(DAY, DAY.plusSeconds(600), Duration.ofMinutes(5)));
+        assertNull(ReadingQueryService.source(DAY, DAY.plusSeconds(600), Duration.ofSeconds(30)));
+        assertNull(ReadingQueryService.source(DAY.plusSeconds(1), DAY.plusSeconds(3600), Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void getSeries_ShouldReadFromChosenRollup() {
+        // Arrange
+        AggregateSeries found = AggregateSeries.builder()
+                .id(7L)
+                .buckets(new long[]{DAY.toEpochMilli()})
+                .min(new double[]{1.0})
+                .max(new double[]{3.0})
+                .avg(new double[]{2.0})
+                .count(new long[]{60})
+                .last(new double[]{3.0})
+                .build();
+        when(readingStore.hasRollups()).thenReturn(true);
+        when(readingStore.aggregate(Rollup.HOUR, new long[]{7L}, DAY, DAY.plus(Duration.ofDays(1)), 3_600_000L))
+                .thenReturn(Map.of(7L, found));
+
+        // Act
+        ReadingSeriesResponse response = readingQueryService.getSeries(7L, DAY, DAY.plus(Duration.ofDays(1)), "1h");
+
+        // Assert
+        assertEquals("1h", response.getSource());
+        assertEquals("PT1H", response.getResolution());
+        assertEquals(List.of(new ReadingAggregate(DAY, 1.0, 3.0, 2.0, 60)), response.getPoints());
+        verify(sensorService).getSensorById(7L);
+    }
+
+    @Test
+    void getSeries_ShouldReadRawReadings_WhenStoreHasNoRollups() {
+        // Arrange
+        when(readingStore.hasRollups()).thenReturn(false);
+
+        // Act
+        ReadingSeriesResponse response = readingQueryService.getSeries(7L, DAY, DAY.plus(Duration.ofDays(1)), "PT1H");
+
+        // Assert
+        assertEquals("raw", response.getSource());
+        assertEquals(List.of(), response.getPoints());
+        verify(readingStore).aggregate(isNull(), aryEq(new long[]{7L}), any(), any(), eq(3_600_000L));
+    }
+
+    @Test
+    void getSeries_ShouldRejectUnusableQueries() {
+        Instant to = DAY.plus(Duration.ofDays(1));
+        assertThrows(InvalidReadingQueryException.class, () -> readingQueryService.getSeries(7L, DAY, to, "soon"));
+        assertThrows(InvalidReadingQueryException.class, () -> readingQueryService.getSeries(7L, DAY, to, "500ms"));
+        assertThrows(InvalidReadingQueryException.class, () -> readingQueryService.getSeries(7L, to, DAY, "1h"));
+        // 1440 one-minute buckets, over the limit of 1000
+        assertThrows(InvalidReadingQueryException.class, () -> readingQueryService.getSeries(7L, DAY, to, "1m"));
+        verifyNoInteractions(sensorService, readingStore);
+    }
+
+    @Test
+    void getSeries_ShouldThrowException_WhenSensorNotFound() {
+        // Arrange
+        when(sensorService.getSensorById(7L)).thenThrow(new SensorNotFoundException("Sensor not found with id: 7"));
+
+        // Act & Assert
+        assertThrows(SensorNotFoundException.class,
+                () -> readingQueryService.getSeries(7L, DAY, DAY.plus(Duration.ofDays(1)), "1h"));
+        verifyNoInteractions(readingStore);
+    }
+
+    @Test
+    void getDeviceAggregate_ShouldQueryAllSensorsAtOnce() {
+        // Arrange
+        SensorResponse first = TestUtils.createTestSensorResponse(1L);
+        first.setId(7L);
+        first.setSensorId("TEMP-7");
+        SensorResponse second = TestUtils.createTestSensorResponse(1L);
+        second.setId(8L);
+        second.setSensorId("TEMP-8");
+        DeviceResponse device = TestUtils.createTestDeviceResponse();
+        device.setSensors(List.of(first, second));
+        AggregateSeries found = AggregateSeries.builder()
+                .id(7L)
+                .buckets(new long[]{DAY.toEpochMilli()})
+                .min(new double[]{1.0})
+                .max(new double[]{3.0})
+                .avg(new double[]{2.0})
+                .count(new long[]{3})
+                .last(new double[]{3.0})
+                .build();
+        Instant to = DAY.plus(Duration.ofDays(2));
+        when(deviceService.getDeviceById(1L)).thenReturn(device);
+        when(readingStore.hasRollups()).thenReturn(true);
+        when(readingStore.aggregate(Rollup.MINUTE, new long[]{7L, 8L}, DAY, to, 300_000L))
+                .thenReturn(Map.of(7L, found));
+
+        // Act
+        AggregateResponse response = readingQueryService.getDeviceAggregate(1L, DAY, to, "5m");
+
+        // Assert
+        assertEquals("1m", response.getSource());
+        assertEquals("PT5M", response.getResolution());
+        assertEquals(2, response.getSeries().size());
+        assertEquals("TEMP-7", response.getSeries().get(0).getSensorId());
+        assertArrayEquals(new double[]{3.0}, response.getSeries().get(0).getLast());
+        // Sensors without readings are listed with empty arrays
+        assertEquals("TEMP-8", response.getSeries().get(1).getSensorId());
+        assertEquals(0, response.getSeries().get(1).getBuckets().length);
+        verify(readingStore, times(1)).aggregate(any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void getDeviceAggregate_ShouldThrowException_WhenDeviceNotFound() {
+        // Arrange
+        when(deviceService.getDeviceById(1L)).thenThrow(new DeviceNotFoundException("Device not found with id: 1"));
+
+        // Act & Assert
+        assertThrows(DeviceNotFoundException.class,
+                () -> readingQueryService.getDeviceAggregate(1L, DAY, DAY.plus(Duration.ofDays(1)), "1h"));
+        verifyNoInteractions(readingStore);
+    }
+}
@@ -0,0 +1,341 @@
+package com.mertani.iot.service;
+
+import com.mertani.iot.dto.SensorReadingIngestResponse;
+import com.mertani.iot.dto.SensorReadingRequest;
+import com.mertani.iot.exception.ReadingBufferFullException;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.ReadingFrameEncoder;
+import com.mertani.iot.telemetry.ReadingListener;
+import com.mertani.iot.telemetry.SensorRef;
+import com.mertani.iot.timeseries.ReadingCompactor;
+import com.mertani.iot.timeseries.ReadingTimeWindow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SensorReadingServiceTest {
+
+    private static final SensorRef SENSOR = new SensorRef("SENSOR-123", 7L, 1L);
+    private static final Instant TIMESTAMP = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Mock
+    private SensorIdResolver sensorIdResolver;
+
+    @Mock
+    private ReadingStore readingStore;
+
+    @Mock
+    private ReadingListener listener;
+
+    @Mock
+    private ReadingCompactor compactor;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private SensorReadingService sensorReadingService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Readings up to 10 years old and a day ahead
+        ReadingTimeWindow window = new ReadingTimeWindow(compactor, 3650, 3650, 86_400_000L);
+        sensorReadingService = new SensorReadingService(sensorIdResolver, readingStore, 4, List.of(listener),
+                window, 3, meterRegistry);
+    }
+
+    @Test
+    void ingest_ShouldResolveAllSensorIdsWithOneLookup() {
+        // Arrange
+        when(sensorIdResolver.resolve(anyCollection())).thenReturn(Map.of(SENSOR.sensorId(), SENSOR));
+        List<SensorReadingRequest> readings = List.of(
+                reading("SENSOR-123", 1.0),
+                reading("SENSOR-123", 2.0),
+                reading("UNKNOWN", 3.0));
+
+        // Act
+        SensorReadingIngestResponse response = sensorReadingService.ingest(readings);
+
+        // Assert
+        assertEquals(2, response.getAccepted());
+        assertEquals(1, response.getRejected());
+        assertEquals(Set.of("UNKNOWN"), response.getUnknownSensorIds());
+        verify(sensorIdResolver, times(1)).resolve(Set.of("SENSOR-123", "UNKNOWN"));
+        verify(readingStore, never()).insertAll(any(ReadingBatch.class));
+    }
+
+    @Test
+    void ingest_ShouldRejectIncompleteReadings() {
+        // Arrange
+        when(sensorIdResolver.resolve(anyCollection())).thenReturn(Map.of(SENSOR.sensorId(), SENSOR));
+        SensorReadingRequest missingValue = reading("SENSOR-123", null);
+
+        // Act
+        SensorReadingIngestResponse response = sensorReadingService.ingest(List.of(missingValue));
+
+        // Assert
+        assertEquals(0, response.getAccepted());
+        assertEquals(1, response.getRejected());
+        assertTrue(response.getUnknownSensorIds().isEmpty());
+    }
+
+    @Test
+    void ingest_ShouldRejectReadingsInCompressedTime() {
+        // Arrange
+        when(sensorIdResolver.resolve(anyCollection())).thenReturn(Map.of(SENSOR.sensorId(), SENSOR));
+        when(compactor.writableFrom()).thenReturn(TIMESTAMP.toEpochMilli() + 1);
+        SensorReadingRequest late = reading("SENSOR-123", 1.0);
+        SensorReadingRequest current = SensorReadingRequest.builder()
+                .sensorId("SENSOR-123")
+                .timestamp(TIMESTAMP.plusMillis(1))
+                .value(2.0)
+                .build();
+
+        // Act
+        SensorReadingIngestResponse response = sensorReadingService.ingest(List.of(late, current));
+
+        // Assert
+        assertEquals(1, response.getAccepted());
+        assertEquals(1, response.getRejected());
+        assertTrue(response.getUnknownSensorIds().isEmpty());
+        verify(listener, never()).onReading(SENSOR, TIMESTAMP.toEpochMilli(), 1.0);
+        verify(listener).onReading(SENSOR, TIMESTAMP.toEpochMilli() + 1, 2.0);
+    }
+
+    @Test
+    void ingest_ShouldRejectReadingsOutsideTimeWindow() {
+        // Arrange
+        when(sensorIdResolver.resolve(anyCollection())).thenReturn(Map.of(SENSOR.sensorId(), SENSOR));
+        Instant now = Instant.now();
+        List<SensorReadingRequest> readings = List.of(
+                reading(now.minus(Duration.ofDays(3651))),
+                reading(now.plus(Duration.ofDays(2))),
+                reading(Instant.parse("+10000-01-01T00:00:00Z")),
+                reading(now));
+
+        // Act
+        SensorReadingIngestResponse response = sensorReadingService.ingest(readings);
+
+        // Assert
+        assertEquals(1, response.getAccepted());
+        assertEquals(3, response.getRejected());
+        verify(listener).onReading(eq(SENSOR), eq(now.toEpochMilli()), eq(1.0));
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    void ingestFrames_ShouldResolveEachDictionaryOnce() {
+        // Arrange
+        when(sensorIdResolver.resolve(anyCollection())).thenReturn(Map.of(SENSOR.sensorId(), SENSOR));
+        ReadingFrameEncoder encoder = new ReadingFrameEncoder();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        encoder.add("SENSOR-123", TIMESTAMP.toEpochMilli(), 1.0)
+                .add("UNKNOWN", TIMESTAMP.toEpochMilli(), 2.0)
+                .add("SENSOR-123", TIMESTAMP.toEpochMilli() + 1, 3.0);
+        encoder.writeFrame(body);
+        encoder.add("SENSOR-123", TIMESTAMP.toEpochMilli() + 2, 4.0);
+        encoder.writeFrame(body);
+
+        // Act
+        SensorReadingIngestResponse response =
+                sensorReadingService.ingestFrames(ByteBuffer.wrap(body.toByteArray()));
+
+        // Assert
+        assertEquals(3, response.getAccepted());
+        assertEquals(1, response.getRejected());
+        assertEquals(Set.of("UNKNOWN"), response.getUnknownSensorIds());
+        verify(sensorIdResolver).resolve(List.of("SENSOR-123", "UNKNOWN"));
+        verify(sensorIdResolver).resolve(List.of("SENSOR-123"));
+        verify(listener).onReading(SENSOR, TIMESTAMP.toEpochMilli() + 1, 3.0);
+    }
+
+    @Test
+    void append_ShouldFlushInBatches_WhenBufferIsFull() {
+        // Arrange
+        List<Integer> flushedSizes = new ArrayList<>();
+        doAnswer(invocation -> flushedSizes.add(invocation.<ReadingBatch>getArgument(0).size()))
+                .when(readingStore).insertAll(any(ReadingBatch.class));
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli() + i, i);
+        }
+        sensorReadingService.flush();
+
+        // Assert
+        assertEquals(List.of(4, 4, 2), flushedSizes);
+    }
+
+    @Test
+    void append_ShouldNotifyListenersOfEveryReading() {
+        // Act
+        sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli(), 21.5);
+        sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli() + 1, 22.0);
+
+        // Assert
+        verify(listener).onReading(SENSOR, TIMESTAMP.toEpochMilli(), 21.5);
+        verify(listener).onReading(SENSOR, TIMESTAMP.toEpochMilli() + 1, 22.0);
+    }
+
+    @Test
+    void flush_ShouldWriteBufferedReadings() {
+        // Arrange
+        List<String> written = new ArrayList<>();
+        doAnswer(invocation -> {
+            ReadingBatch batch = invocation.getArgument(0);
+            for (int i = 0; i < batch.size(); i++) {
+                written.add(batch.sensorId(i) + "@" + batch.timestamp(i) + "=" + batch.value(i));
+            }
+            return null;
+        }).when(readingStore).insertAll(any(ReadingBatch.class));
+        sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli(), 21.5);
+
+        // Act
+        sensorReadingService.flush();
+
+        // Assert
+        assertEquals(List.of("7@" + TIMESTAMP.toEpochMilli() + "=21.5"), written);
+    }
+
+    @Test
+    void flush_ShouldSkipWrite_WhenBufferIsEmpty() {
+        // Act
+        sensorReadingService.flush();
+
+        // Assert
+        verify(readingStore, never()).insertAll(any(ReadingBatch.class));
+    }
+
+    @Test
+    void flush_ShouldKeepBatchForNextFlush_WhenStoreIsUnavailable() {
+        // Arrange
+        List<Long> written = new ArrayList<>();
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .doAnswer(invocation -> {
+                    ReadingBatch batch = invocation.getArgument(0);
+                    for (int i = 0; i < batch.size(); i++) {
+                        written.add(batch.timestamp(i));
+                    }
+                    return null;
+                })
+                .when(readingStore).insertAll(any(ReadingBatch.class));
+        sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli(), 21.5);
+        sensorReadingService.flush();
+        sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli() + 1, 22.0);
+
+        // Act
+        sensorReadingService.flush();
+
+        // Assert: the kept batch goes first, then the readings buffered meanwhile
+        assertEquals(List.of(TIMESTAMP.toEpochMilli(), TIMESTAMP.toEpochMilli() + 1), written);
+        assertEquals(0.0, meterRegistry.counter("iot.readings.dropped").count());
+    }
+
+    @Test
+    void flush_ShouldDropBatch_AfterLastAttempt() {
+        // Arrange
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .when(readingStore).insertAll(any(ReadingBatch.class));
+        sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli(), 21.5);
+        sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli() + 1, 22.0);
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            sensorReadingService.flush();
+        }
+
+        // Assert
+        verify(readingStore, times(3)).insertAll(any(ReadingBatch.class));
+        assertEquals(2.0, meterRegistry.counter("iot.readings.dropped").count());
+    }
+
+    @Test
+    void append_ShouldRejectReading_WhenBufferIsFullWhileStoreIsUnavailable() {
+        // Arrange: the first full buffer fails to write and is kept, then the buffer fills again
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .doNothing()
+                .when(readingStore).insertAll(any(ReadingBatch.class));
+        for (int i = 0; i < 8; i++) {
+            sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli() + i, i);
+        }
+
+        // Act
+        assertThrows(ReadingBufferFullException.class,
+                () -> sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli() + 8, 8));
+        assertThrows(ReadingBufferFullException.class,
+                () -> sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli() + 9, 9));
+
+        // Assert: producers spent no attempts of the kept batch, which the next flush still writes
+        verify(readingStore, times(1)).insertAll(any(ReadingBatch.class));
+        sensorReadingService.flush();
+        verify(readingStore, times(3)).insertAll(any(ReadingBatch.class));
+        assertEquals(0.0, meterRegistry.counter("iot.readings.dropped").count());
+        sensorReadingService.append(SENSOR, TIMESTAMP.toEpochMilli() + 8, 8);
+    }
+
+    @Test
+    void flush_ShouldDropOnlyRejectedReadings_WhenStoreRejectsBatch() {
+        // Arrange: the store rejects any batch holding the reading at -1
+        List<Long> written = new ArrayList<>();
+        doAnswer(invocation -> {
+            ReadingBatch batch = invocation.getArgument(0);
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.timestamp(i) == -1) {
+                    throw new DataIntegrityViolationException("no partition of relation found for row");
+                }
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                written.add(batch.timestamp(i));
+            }
+            return null;
+        }).when(readingStore).insertAll(any(ReadingBatch.class));
+        sensorReadingService.append(SENSOR, 1, 1.0);
+        sensorReadingService.append(SENSOR, -1, 2.0);
+        sensorReadingService.append(SENSOR, 3, 3.0);
+        sensorReadingService.append(SENSOR, 4, 4.0);
+
+        // Act
+        sensorReadingService.flush();
+
+        // Assert
+        assertEquals(List.of(1L, 3L, 4L), written);
+        assertEquals(1.0, meterRegistry.counter("iot.readings.dropped").count());
+    }
+
+    private static SensorReadingRequest reading(Instant timestamp) {
+        return SensorReadingRequest.builder()
+                .sensorId(SENSOR.sensorId())
+                .timestamp(timestamp)
+                .value(1.0)
+                .build();
+    }
+
+    private static SensorReadingRequest reading(String sensorId, Double value) {
+        return SensorReadingRequest.builder()
+                .sensorId(sensorId)
+                .timestamp(TIMESTAMP)
+                .value(value)
+                .build();
+    }
+}
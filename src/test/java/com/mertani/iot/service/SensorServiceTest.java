@@ -1,6 +1,10 @@
 package com.mertani.iot.service;
 
 import com.mertani.iot.TestUtils;
+import com.mertani.iot.cache.InventoryCache;
+import com.mertani.iot.dto.BulkCreateResponse;
+import com.mertani.iot.dto.BulkItemError;
+import com.mertani.iot.dto.CursorPageResponse;
 import com.mertani.iot.dto.SensorRequest;
 import com.mertani.iot.dto.SensorResponse;
 import com.mertani.iot.exception.DeviceNotFoundException;
@@ -11,20 +15,32 @@ import com.mertani.iot.model.Device;
 import com.mertani.iot.model.Sensor;
 import com.mertani.iot.repository.DeviceRepository;
 import com.mertani.iot.repository.SensorRepository;
+import com.mertani.iot.stream.SensorChangedEvent;
+import com.mertani.iot.telemetry.SensorRef;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +55,15 @@ class SensorServiceTest {
     @Mock
     private SensorMapper sensorMapper;
 
+    @Mock
+    private InventoryCache inventoryCache;
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private SensorService sensorService;
 
@@ -97,24 +122,52 @@ class SensorServiceTest {
     }
 
     @Test
-    void getSensorById_ShouldReturnSensorResponse_WhenSensorExists() {
+    void createSensors_ShouldResolveDevicesAndSensorIdsWithOneQueryEach() {
         // Arrange
-        when(sensorRepository.findById(anyLong())).thenReturn(Optional.of(sensor));
+        SensorRequest valid = TestUtils.createTestSensorRequest(DEVICE_ID);
+        SensorRequest unknownDevice = TestUtils.createTestSensorRequest(99L);
+        unknownDevice.setSensorId("SENSOR-456");
+        SensorRequest existing = TestUtils.createTestSensorRequest(DEVICE_ID);
+        existing.setSensorId("SENSOR-EXISTING");
+        when(sensorRepository.findExistingSensorIds(anyCollection())).thenReturn(List.of("SENSOR-EXISTING"));
+        when(deviceRepository.findAllById(anyIterable())).thenReturn(List.of(device));
+        when(sensorMapper.toEntity(any(SensorRequest.class))).thenReturn(sensor);
+        when(sensorRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
         when(sensorMapper.toDto(any(Sensor.class))).thenReturn(sensorResponse);
 
+        // Act
+        BulkCreateResponse<SensorResponse> result =
+                sensorService.createSensors(Arrays.asList(valid, unknownDevice, existing));
+
+        // Assert
+        assertEquals(List.of(sensorResponse), result.getCreated());
+        assertEquals(List.of(1, 2), result.getErrors().stream().map(BulkItemError::getIndex).toList());
+        assertTrue(result.getErrors().get(0).getMessage().contains("Device not found"));
+        verify(deviceRepository, times(1)).findAllById(anyIterable());
+        verify(deviceRepository, never()).findById(anyLong());
+        verify(sensorRepository, never()).existsBySensorId(anyString());
+        verify(sensorRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void getSensorById_ShouldReturnSensorResponse_WhenSensorExists() {
+        // Arrange
+        when(sensorRepository.findResponseById(anyLong())).thenReturn(Optional.of(sensorResponse));
+
         // Act
         SensorResponse result = sensorService.getSensorById(1L);
 
         // Assert
         assertNotNull(result);
         assertEquals(sensorResponse, result);
-        verify(sensorRepository, times(1)).findById(anyLong());
+        verify(sensorRepository, times(1)).findResponseById(anyLong());
+        verify(sensorRepository, never()).findById(anyLong());
     }
 
     @Test
     void getSensorById_ShouldThrowException_WhenSensorNotFound() {
         // Arrange
-        when(sensorRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(sensorRepository.findResponseById(anyLong())).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(SensorNotFoundException.class, () -> sensorService.getSensorById(1L));
@@ -123,9 +176,8 @@ class SensorServiceTest {
     @Test
     void getSensorsByDeviceId_ShouldReturnListOfSensorResponses() {
         // Arrange
-        List<Sensor> sensors = Arrays.asList(sensor);
-        when(sensorRepository.findByDeviceId(anyLong())).thenReturn(sensors);
-        when(sensorMapper.toDto(any(Sensor.class))).thenReturn(sensorResponse);
+        List<SensorResponse> sensors = Arrays.asList(sensorResponse);
+        when(sensorRepository.findResponsesByDeviceId(anyLong())).thenReturn(sensors);
 
         // Act
         List<SensorResponse> results = sensorService.getSensorsByDeviceId(DEVICE_ID);
@@ -134,7 +186,66 @@ class SensorServiceTest {
         assertNotNull(results);
         assertFalse(results.isEmpty());
         assertEquals(1, results.size());
-        verify(sensorRepository, times(1)).findByDeviceId(anyLong());
+        verify(sensorRepository, times(1)).findResponsesByDeviceId(anyLong());
+        verify(sensorMapper, never()).toDto(any(Sensor.class));
+    }
+
+    @Test
+    void getSensorsGroupedByDeviceId_ShouldGroupSensorsFromSingleQuery() {
+        // Arrange
+        when(sensorRepository.findAllResponses()).thenReturn(Arrays.asList(sensorResponse));
+
+        // Act
+        Map<Long, List<SensorResponse>> results = sensorService.getSensorsGroupedByDeviceId();
+
+        // Assert
+        assertEquals(1, results.size());
+        assertEquals(List.of(sensorResponse), results.get(DEVICE_ID));
+        verify(sensorRepository, times(1)).findAllResponses();
+        verify(sensorRepository, never()).findResponsesByDeviceId(anyLong());
+    }
+
+    @Test
+    void getSensorsPage_ShouldFetchOneExtraRowToDetectNextPage() {
+        // Arrange
+        when(sensorRepository.findResponsesAfter(eq(5L), any(Limit.class)))
+                .thenReturn(Arrays.asList(sensorResponse));
+
+        // Act
+        CursorPageResponse<SensorResponse> page = sensorService.getSensorsPage(5L, 20);
+
+        // Assert
+        assertEquals(List.of(sensorResponse), page.getItems());
+        assertNull(page.getNextCursor());
+        verify(sensorRepository).findResponsesAfter(5L, Limit.of(21));
+    }
+
+    @Test
+    void exportSensors_ShouldPassEveryStreamedRowToSink() {
+        // Arrange
+        when(sensorRepository.streamAllResponses()).thenReturn(Stream.of(sensorResponse, sensorResponse));
+        List<SensorResponse> exported = new ArrayList<>();
+
+        // Act
+        sensorService.exportSensors(exported::add);
+
+        // Assert
+        assertEquals(List.of(sensorResponse, sensorResponse), exported);
+        verify(sensorRepository, never()).findAllResponses();
+    }
+
+    @Test
+    void getSensorsByDeviceIds_ShouldUseSingleInQuery() {
+        // Arrange
+        when(sensorRepository.findResponsesByDeviceIdIn(anyCollection())).thenReturn(Arrays.asList(sensorResponse));
+
+        // Act
+        Map<Long, List<SensorResponse>> results = sensorService.getSensorsByDeviceIds(List.of(DEVICE_ID, 2L));
+
+        // Assert
+        assertEquals(List.of(sensorResponse), results.get(DEVICE_ID));
+        verify(sensorRepository, times(1)).findResponsesByDeviceIdIn(List.of(DEVICE_ID, 2L));
+        verify(sensorRepository, never()).findResponsesByDeviceId(anyLong());
     }
 
     @Test
@@ -156,22 +267,44 @@ class SensorServiceTest {
         verify(sensorRepository, times(1)).save(any(Sensor.class));
     }
 
+    @Test
+    void updateSensor_ShouldPublishRemovalFromPreviousDevice_WhenDeviceChanges() {
+        // Arrange
+        Device newDevice = TestUtils.createTestDevice();
+        newDevice.setId(2L);
+        sensorRequest.setDeviceId(2L);
+        SensorResponse movedResponse = TestUtils.createTestSensorResponse(2L);
+        when(sensorRepository.findById(anyLong())).thenReturn(Optional.of(sensor));
+        when(deviceRepository.findById(2L)).thenReturn(Optional.of(newDevice));
+        when(sensorRepository.save(any(Sensor.class))).thenReturn(sensor);
+        when(sensorMapper.toDto(any(Sensor.class))).thenReturn(movedResponse);
+
+        // Act
+        sensorService.updateSensor(sensor.getId(), sensorRequest);
+
+        // Assert
+        verify(eventPublisher).publishEvent(SensorChangedEvent.removed(DEVICE_ID, sensor.getId()));
+        verify(eventPublisher).publishEvent(SensorChangedEvent.updated(movedResponse));
+    }
+
     @Test
     void deleteSensor_ShouldDeleteSensor_WhenSensorExists() {
         // Arrange
-        when(sensorRepository.existsById(anyLong())).thenReturn(true);
+        when(sensorRepository.findRefById(anyLong())).thenReturn(Optional.of(new SensorRef("SENSOR-123", 1L, 1L)));
         doNothing().when(sensorRepository).deleteById(anyLong());
 
         // Act & Assert
         assertDoesNotThrow(() -> sensorService.deleteSensor(1L));
-        verify(sensorRepository, times(1)).existsById(anyLong());
+        verify(sensorRepository, times(1)).findRefById(anyLong());
         verify(sensorRepository, times(1)).deleteById(anyLong());
+        verify(inventoryCache, times(1)).evictSensor(1L, "SENSOR-123", 1L);
+        verify(eventPublisher).publishEvent(SensorChangedEvent.removed(1L, 1L));
     }
 
     @Test
     void deleteSensor_ShouldThrowException_WhenSensorNotFound() {
         // Arrange
-        when(sensorRepository.existsById(anyLong())).thenReturn(false);
+        when(sensorRepository.findRefById(anyLong())).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(SensorNotFoundException.class, () -> sensorService.deleteSensor(1L));
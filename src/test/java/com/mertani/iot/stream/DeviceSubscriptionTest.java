@@ -0,0 +1,186 @@
+package com.mertani.iot.stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceSubscriptionTest {
+
+    private static final int BUFFER_SIZE = 8;
+
+    private final ExecutorService sender = Executors.newSingleThreadExecutor();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final List<DeviceSubscription> closed = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        sender.shutdownNow();
+    }
+
+    @Test
+    void offer_ShouldDeliverEventsInOrder() throws Exception {
+        // Arrange
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        DeviceSubscription subscription = subscription(emitter);
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            subscription.offer(event(i));
+        }
+
+        // Assert
+        assertTrue(emitter.awaitSent(5));
+        assertEquals(List.of("0", "1", "2", "3", "4"), emitter.sent);
+        assertEquals(0, dropped.get());
+    }
+
+    @Test
+    void offer_ShouldDropOldestWithoutBlocking_WhenSubscriberIsSlow() throws Exception {
+        // Arrange: the first send blocks until released, as for a stalled client
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        DeviceSubscription subscription = subscription(emitter);
+        subscription.offer(event(0));
+        assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+
+        // Act
+        long startedAt = System.nanoTime();
+        for (int i = 1; i <= BUFFER_SIZE + 10; i++) {
+            subscription.offer(event(i));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        release.countDown();
+
+        // Assert
+        assertTrue(elapsedMillis < 1000, "offer blocked for " + elapsedMillis + " ms");
+        assertEquals(10, dropped.get());
+        assertTrue(emitter.awaitSent(BUFFER_SIZE + 1));
+        assertEquals("0", emitter.sent.get(0));
+        assertEquals(String.valueOf(11), emitter.sent.get(1));
+        assertEquals(String.valueOf(BUFFER_SIZE + 10), emitter.sent.get(BUFFER_SIZE));
+    }
+
+    @Test
+    void offer_ShouldCloseSubscription_WhenSendFails() throws Exception {
+        // Arrange
+        SseEmitter emitter = new SseEmitter() {
+            @Override
+            public void send(Set<DataWithMediaType> items) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        DeviceSubscription subscription = subscription(emitter);
+
+        // Act
+        subscription.offer(event(0));
+        sender.shutdown();
+        sender.awaitTermination(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(List.of(subscription), closed);
+        subscription.offer(event(1));
+        assertEquals(0, subscription.queued());
+    }
+
+    @Test
+    void evictIfStalled_ShouldCloseSubscriptionAndCompleteOnceSendReturns() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        DeviceSubscription subscription = subscription(emitter);
+        subscription.offer(event(0));
+        assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+
+        // Act
+        boolean evicted = subscription.evictIfStalled(System.nanoTime(), 0);
+
+        // Assert: closed at once, but the emitter is left to the blocked sender
+        assertTrue(evicted);
+        assertEquals(List.of(subscription), closed);
+        assertTrue(subscription.sending());
+        assertEquals(0, emitter.completions.get());
+        release.countDown();
+        sender.shutdown();
+        assertTrue(sender.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(subscription.sending());
+        assertEquals(1, emitter.completions.get());
+    }
+
+    @Test
+    void evictIfStalled_ShouldKeepSubscription_WithinDeadline() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(release);
+        DeviceSubscription subscription = subscription(emitter);
+        subscription.offer(event(0));
+        assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+
+        // Act
+        boolean evicted = subscription.evictIfStalled(System.nanoTime(), TimeUnit.MINUTES.toNanos(1));
+        release.countDown();
+
+        // Assert
+        assertFalse(evicted);
+        assertTrue(emitter.awaitSent(1));
+        assertEquals(List.of(), closed);
+        assertEquals(0, emitter.completions.get());
+    }
+
+    private DeviceSubscription subscription(SseEmitter emitter) {
+        return new DeviceSubscription(1L, emitter, BUFFER_SIZE, sender, dropped::incrementAndGet, closed::add);
+    }
+
+    private static Set<ResponseBodyEmitter.DataWithMediaType> event(int sequence) {
+        return Set.of(new ResponseBodyEmitter.DataWithMediaType(String.valueOf(sequence), null));
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final AtomicInteger completions = new AtomicInteger();
+        private final CountDownLatch release;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            sent.add((String) items.iterator().next().getData());
+        }
+
+        @Override
+        public void complete() {
+            completions.incrementAndGet();
+            super.complete();
+        }
+
+        boolean awaitSent(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sent.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return sent.size() == count;
+        }
+    }
+}
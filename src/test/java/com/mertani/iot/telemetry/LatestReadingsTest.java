@@ -0,0 +1,122 @@
+package com.mertani.iot.telemetry;
+
+import com.mertani.iot.dto.SensorResponse;
+import com.mertani.iot.repository.ReadingStore;
+import com.mertani.iot.stream.SensorChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class LatestReadingsTest {
+
+    private static final SensorRef SENSOR = new SensorRef("SENSOR-123", 7L, 1L);
+
+    private ReadingStore readingStore;
+    private LatestReadings latest;
+
+    @BeforeEach
+    void setUp() {
+        readingStore = mock(ReadingStore.class);
+        latest = new LatestReadings(new SensorSlots(), readingStore, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void onReading_ShouldKeepNewestReading_WhenDeliveredOutOfOrder() {
+        // Act
+        latest.onReading(SENSOR, 2000, 21.5);
+        latest.onReading(SENSOR, 1000, 19.0);
+        latest.onReading(SENSOR, 2000, 30.0);
+
+        // Assert
+        assertEquals(new LatestReading(SENSOR, 2000, 21.5), latest.get(7L));
+        assertNull(latest.get(8L));
+        assertEquals(1, latest.size());
+    }
+
+    @Test
+    void onSensorChanged_ShouldDropRemovedSensorsAndFollowRenames() {
+        // Arrange
+        SensorRef other = new SensorRef("SENSOR-456", 8L, 1L);
+        latest.onReading(SENSOR, 1000, 21.5);
+        latest.onReading(other, 1000, 5.0);
+
+        // Act
+        latest.onSensorChanged(SensorChangedEvent.removed(1L, 7L));
+        latest.onSensorChanged(SensorChangedEvent.updated(SensorResponse.builder()
+                .id(8L).sensorId("SENSOR-789").deviceId(2L).active(true).build()));
+
+        // Assert
+        List<LatestReading> all = new ArrayList<>();
+        latest.forEach(all::add);
+        assertEquals(List.of(new LatestReading(new SensorRef("SENSOR-789", 8L, 2L), 1000, 5.0)), all);
+        assertNull(latest.get(7L));
+        assertEquals(1, latest.size());
+    }
+
+    @Test
+    void load_ShouldRestoreStoredReadingsWithoutReplacingNewerOnes() {
+        // Arrange
+        latest.onReading(SENSOR, 5000, 25.0);
+        doAnswer(invocation -> {
+            ReadingListener sink = invocation.getArgument(0);
+            sink.onReading(SENSOR, 4000, 24.0);
+            sink.onReading(new SensorRef("SENSOR-456", 8L, 1L), 3000, 5.0);
+            return null;
+        }).when(readingStore).forEachLatest(any());
+
+        // Act
+        latest.load();
+
+        // Assert
+        assertEquals(25.0, latest.get(7L).value());
+        assertEquals(5.0, latest.get(8L).value());
+        assertEquals(2, latest.size());
+    }
+
+    @Test
+    void get_ShouldNeverSeeTimestampAndValueFromDifferentWrites() throws Exception {
+        // Arrange: every reading's value equals its timestamp
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong torn = new AtomicLong();
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 2; w++) {
+            int start = w;
+            writers.add(new Thread(() -> {
+                for (long t = start; t < 200_000; t += 2) {
+                    latest.onReading(SENSOR, t, t);
+                }
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                LatestReading reading = latest.get(7L);
+                if (reading != null && reading.timestamp() != (long) reading.value()) {
+                    torn.incrementAndGet();
+                }
+            }
+        });
+
+        // Act
+        reader.start();
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        done.set(true);
+        reader.join();
+
+        // Assert
+        assertEquals(0, torn.get());
+        assertEquals(199_999L, latest.get(7L).timestamp());
+    }
+}
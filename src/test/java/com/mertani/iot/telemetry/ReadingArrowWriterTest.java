@@ -0,0 +1,85 @@
+package com.mertani.iot.telemetry;
+
+import com.mertani.iot.ArrowStreams;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingArrowWriterTest {
+
+    private static final long TIMESTAMP = 1_704_067_200_000L;
+
+    @Test
+    void write_ShouldWriteSchemaAndOneRecordBatchPerChunk() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReadingBatch chunk = new ReadingBatch(4);
+
+        // Act
+        ReadingArrowWriter writer = new ReadingArrowWriter(out);
+        chunk.add(1L, TIMESTAMP, 20.5);
+        chunk.add(1L, TIMESTAMP + 1000, -3.25);
+        chunk.add(2L, TIMESTAMP, Double.MAX_VALUE);
+        writer.write(chunk);
+        chunk.clear();
+        writer.write(chunk);
+        chunk.add(7L, -1L, 0.0);
+        writer.write(chunk);
+        writer.finish();
+
+        // Assert
+        ArrowStreams.Readings readings = ArrowStreams.read(out.toByteArray());
+        assertEquals(List.of(
+                new ArrowStreams.Field("sensor_id", 2, false),
+                new ArrowStreams.Field("recorded_at", 10, false),
+                new ArrowStreams.Field("reading_value", 3, false)), readings.fields());
+        assertEquals(1, readings.timeUnit());
+        assertEquals("UTC", readings.timeZone());
+        assertEquals(2, readings.batches());
+        assertArrayEquals(new long[]{1, 1, 2, 7}, readings.sensorIds());
+        assertArrayEquals(new long[]{TIMESTAMP, TIMESTAMP + 1000, TIMESTAMP, -1}, readings.timestamps());
+        assertArrayEquals(new double[]{20.5, -3.25, Double.MAX_VALUE, 0.0}, readings.values());
+    }
+
+    @Test
+    void write_ShouldWriteBatchesLargerThanItsBuffer() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReadingBatch chunk = new ReadingBatch(10_000);
+        for (int i = 0; i < chunk.capacity(); i++) {
+            chunk.add(i % 3, TIMESTAMP + i, i / 4.0);
+        }
+
+        // Act
+        ReadingArrowWriter writer = new ReadingArrowWriter(out);
+        writer.write(chunk);
+        writer.write(chunk);
+        writer.finish();
+
+        // Assert
+        ArrowStreams.Readings readings = ArrowStreams.read(out.toByteArray());
+        assertEquals(2, readings.batches());
+        assertEquals(20_000, readings.values().length);
+        assertEquals(TIMESTAMP + 9_999, readings.timestamps()[19_999]);
+        assertEquals(9_999 / 4.0, readings.values()[19_999]);
+        assertEquals(9_999 % 3, readings.sensorIds()[19_999]);
+    }
+
+    @Test
+    void finish_ShouldWriteSchemaOnly_WhenNothingWasWritten() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        new ReadingArrowWriter(out).finish();
+
+        // Assert
+        ArrowStreams.Readings readings = ArrowStreams.read(out.toByteArray());
+        assertEquals(3, readings.fields().size());
+        assertEquals(0, readings.batches());
+    }
+}
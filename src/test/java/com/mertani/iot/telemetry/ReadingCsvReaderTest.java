@@ -0,0 +1,100 @@
+package com.mertani.iot.telemetry;
+
+import com.mertani.iot.exception.InvalidReadingImportException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingCsvReaderTest {
+
+    private static final long TIMESTAMP = 1_704_067_200_000L;
+
+    @Test
+    void next_ShouldReadColumnsByHeaderName() throws IOException {
+        // Arrange: extra columns, any order, quoted fields and a blank line
+        String csv = "\uFEFFValue,site,SensorId,Timestamp\n"
+                + "21.5,north,SENSOR-A,2024-01-01T00:00:00Z\n"
+                + "\n"
+                + "-3.25,\"south, \"\"old\"\" site\",\"SENSOR-B\"," + (TIMESTAMP + 1000) + "\n"
+                + "1e3,,SENSOR-A,2024-01-01T01:00:00.250+01:00\n"
+                + "0,,SENSOR-A,2024-02-29T23:59:59.999Z\n"
+                + "0,,SENSOR-A,2024-01-01T00:00:01.5Z\n";
+
+        // Act
+        List<String> read = readAll(csv);
+
+        // Assert
+        assertEquals(List.of(
+                "1:SENSOR-A@" + TIMESTAMP + "=21.5",
+                "2:SENSOR-B@" + (TIMESTAMP + 1000) + "=-3.25",
+                "3:SENSOR-A@" + (TIMESTAMP + 250) + "=1000.0",
+                "4:SENSOR-A@" + (Instant.parse("2024-03-01T00:00:00Z").toEpochMilli() - 1) + "=0.0",
+                "5:SENSOR-A@" + (TIMESTAMP + 1500) + "=0.0"), read);
+    }
+
+    @Test
+    void next_ShouldFlagMalformedLinesAndCarryOn() throws IOException {
+        // Arrange
+        String csv = "sensorId,timestamp,value\n"
+                + "SENSOR-A,yesterday,1.0\n"
+                + "SENSOR-A,2024-02-30T00:00:00Z,1.0\n"
+                + "SENSOR-A,2024-01-01T12:60:00Z,1.0\n"
+                + "SENSOR-A," + TIMESTAMP + ",warm\n"
+                + "SENSOR-A," + TIMESTAMP + ",NaN\n"
+                + "," + TIMESTAMP + ",1.0\n"
+                + "SENSOR-A," + TIMESTAMP + "\n"
+                + "\"SENSOR-A," + TIMESTAMP + ",1.0\n"
+                + "SENSOR-A," + TIMESTAMP + ",2.0\n";
+
+        // Act
+        List<String> read = readAll(csv);
+
+        // Assert
+        assertEquals(List.of("1:invalid", "2:invalid", "3:invalid", "4:invalid", "5:invalid", "6:invalid",
+                "7:invalid", "8:invalid", "9:SENSOR-A@" + TIMESTAMP + "=2.0"), read);
+    }
+
+    @Test
+    void skip_ShouldCountLinesLikeNext() throws IOException {
+        // Arrange
+        ReadingCsvReader reader = new ReadingCsvReader(new StringReader("sensorId,timestamp,value\n"
+                + "SENSOR-A," + TIMESTAMP + ",1.0\n\n"
+                + "SENSOR-A," + (TIMESTAMP + 1) + ",2.0\n"
+                + "SENSOR-A," + (TIMESTAMP + 2) + ",3.0\n"));
+
+        // Act
+        long skipped = reader.skip(2);
+
+        // Assert
+        assertEquals(2, skipped);
+        assertTrue(reader.next());
+        assertEquals(3, reader.lines());
+        assertEquals(3.0, reader.value());
+        assertEquals(0, reader.skip(5));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    void constructor_ShouldReject_WhenHeaderLacksAColumn() {
+        // Act & Assert
+        assertThrows(InvalidReadingImportException.class,
+                () -> new ReadingCsvReader(new StringReader("sensor,timestamp,value\nSENSOR-A,0,1.0\n")));
+        assertThrows(InvalidReadingImportException.class, () -> new ReadingCsvReader(new StringReader("")));
+    }
+
+    private static List<String> readAll(String csv) throws IOException {
+        ReadingCsvReader reader = new ReadingCsvReader(new StringReader(csv));
+        List<String> read = new ArrayList<>();
+        while (reader.next()) {
+            read.add(reader.lines() + ":" + (reader.isValid()
+                    ? reader.sensorId() + "@" + reader.timestamp() + "=" + reader.value() : "invalid"));
+        }
+        return read;
+    }
+}
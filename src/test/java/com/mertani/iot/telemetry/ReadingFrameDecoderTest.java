@@ -0,0 +1,186 @@
+package com.mertani.iot.telemetry;
+
+import com.mertani.iot.exception.MalformedReadingFrameException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingFrameDecoderTest {
+
+    private static final long TIMESTAMP = 1_704_067_200_000L;
+
+    // Varint of -1: ten bytes, the last of which sets the sign bit
+    private static final byte[] MINUS_ONE = {-1, -1, -1, -1, -1, -1, -1, -1, -1, 1};
+
+    @Test
+    void next_ShouldDecodeEncodedFrames() {
+        // Arrange
+        ReadingFrameEncoder encoder = new ReadingFrameEncoder();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        encoder.add("SENSOR-A", TIMESTAMP, 21.5)
+                .add("SENSOR-B", TIMESTAMP + 1000, -3.25)
+                .add("SENSOR-A", TIMESTAMP - 500, Double.NaN);
+        encoder.writeFrame(body);
+        encoder.add("SENSOR-C", TIMESTAMP, 1e300);
+        encoder.writeFrame(body);
+
+        // Act
+        List<String> decoded = decodeAll(body.toByteArray());
+
+        // Assert
+        assertEquals(List.of(
+                "SENSOR-A@" + TIMESTAMP + "=21.5",
+                "SENSOR-B@" + (TIMESTAMP + 1000) + "=-3.25",
+                "SENSOR-A@" + (TIMESTAMP - 500) + "=NaN",
+                "SENSOR-C@" + TIMESTAMP + "=1.0E300"), decoded);
+    }
+
+    @Test
+    void next_ShouldEncodeRegularReadingsCompactly() {
+        // Arrange
+        ReadingFrameEncoder encoder = new ReadingFrameEncoder();
+        for (int i = 0; i < 1000; i++) {
+            encoder.add("SENSOR-" + (i % 10), TIMESTAMP + i * 100L, i);
+        }
+
+        // Act
+        byte[] body = encoder.toByteArray();
+
+        // Assert: index, delta and value take 1 + 2 + 8 bytes per reading
+        assertTrue(body.length < 1000 * 11 + 200, "frame is " + body.length + " bytes");
+        assertEquals(1000, decodeAll(body).size());
+    }
+
+    @Test
+    void next_ShouldReject_WhenFrameIsTruncated() {
+        // Arrange
+        byte[] body = new ReadingFrameEncoder().add("SENSOR-A", TIMESTAMP, 1.0).toByteArray();
+        byte[] truncated = Arrays.copyOf(body, body.length - 3);
+
+        // Act & Assert
+        assertThrows(MalformedReadingFrameException.class, () -> decodeAll(truncated));
+    }
+
+    @Test
+    void next_ShouldReject_WhenSensorIndexIsOutsideDictionary() {
+        // Arrange: the first sensor index follows length, version, dictionary, count and base timestamp
+        byte[] body = new ReadingFrameEncoder().add("SENSOR-A", TIMESTAMP, 1.0).toByteArray();
+        int indexOffset = 4 + 1 + 1 + 1 + "SENSOR-A".length() + 1 + Long.BYTES;
+        body[indexOffset] = 5;
+
+        // Act & Assert
+        MalformedReadingFrameException ex =
+                assertThrows(MalformedReadingFrameException.class, () -> decodeAll(body));
+        assertTrue(ex.getMessage().contains("outside dictionary"));
+    }
+
+    @Test
+    void next_ShouldReject_WhenDictionarySizeIsNegative() {
+        // Arrange
+        byte[] body = frame(new byte[]{ReadingFrameDecoder.VERSION}, MINUS_ONE);
+
+        // Act & Assert
+        MalformedReadingFrameException ex =
+                assertThrows(MalformedReadingFrameException.class, () -> decodeAll(body));
+        assertEquals("Invalid dictionary size -1", ex.getMessage());
+    }
+
+    @Test
+    void next_ShouldReject_WhenSensorIdLengthIsNegative() {
+        // Arrange
+        byte[] body = frame(new byte[]{ReadingFrameDecoder.VERSION, 1}, MINUS_ONE);
+
+        // Act & Assert
+        MalformedReadingFrameException ex =
+                assertThrows(MalformedReadingFrameException.class, () -> decodeAll(body));
+        assertEquals("Invalid sensor ID length -1", ex.getMessage());
+    }
+
+    @Test
+    void next_ShouldReject_WhenReadingCountIsNegative() {
+        // Arrange
+        byte[] body = frame(new byte[]{ReadingFrameDecoder.VERSION, 0}, MINUS_ONE);
+
+        // Act & Assert
+        MalformedReadingFrameException ex =
+                assertThrows(MalformedReadingFrameException.class, () -> decodeAll(body));
+        assertEquals("Invalid reading count -1", ex.getMessage());
+    }
+
+    @Test
+    void next_ShouldReject_WhenSensorIndexIsNegative() {
+        // Arrange: a dictionary of "A" and one reading whose index is -1
+        byte[] body = frame(new byte[]{ReadingFrameDecoder.VERSION, 1, 1, 'A', 1},
+                ByteBuffer.allocate(Long.BYTES).putLong(TIMESTAMP).array(),
+                MINUS_ONE,
+                new byte[]{0},
+                ByteBuffer.allocate(Double.BYTES).putDouble(1.0).array());
+
+        // Act & Assert
+        MalformedReadingFrameException ex =
+                assertThrows(MalformedReadingFrameException.class, () -> decodeAll(body));
+        assertEquals("Sensor index -1 outside dictionary", ex.getMessage());
+    }
+
+    @Test
+    void next_ShouldReject_WhenLengthExceedsBody() {
+        // Arrange
+        ByteBuffer body = ByteBuffer.allocate(8).putInt(100).putInt(0).flip();
+
+        // Act & Assert
+        assertThrows(MalformedReadingFrameException.class,
+                () -> new ReadingFrameDecoder(body).next(new ReadingFrame()));
+    }
+
+    @Test
+    void completeLength_ShouldCoverOnlyWholeFrames() {
+        // Arrange
+        ReadingFrameEncoder encoder = new ReadingFrameEncoder();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        encoder.add("SENSOR-A", TIMESTAMP, 1.0);
+        encoder.writeFrame(stream);
+        int firstFrame = stream.size();
+        encoder.add("SENSOR-A", TIMESTAMP + 1, 2.0);
+        encoder.writeFrame(stream);
+        byte[] bytes = stream.toByteArray();
+
+        // Act & Assert
+        assertEquals(0, ReadingFrameDecoder.completeLength(ByteBuffer.wrap(bytes, 0, 3), 1024));
+        assertEquals(firstFrame, ReadingFrameDecoder.completeLength(ByteBuffer.wrap(bytes, 0, bytes.length - 1), 1024));
+        assertEquals(bytes.length, ReadingFrameDecoder.completeLength(ByteBuffer.wrap(bytes), 1024));
+        assertThrows(MalformedReadingFrameException.class,
+                () -> ReadingFrameDecoder.completeLength(ByteBuffer.wrap(bytes), 8));
+    }
+
+    /**
+     * @return a body of one frame: the payload parts prefixed with their total length
+     */
+    private static byte[] frame(byte[]... parts) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            payload.writeBytes(part);
+        }
+        return ByteBuffer.allocate(Integer.BYTES + payload.size())
+                .putInt(payload.size())
+                .put(payload.toByteArray())
+                .array();
+    }
+
+    private static List<String> decodeAll(byte[] body) {
+        ReadingFrameDecoder decoder = new ReadingFrameDecoder(ByteBuffer.wrap(body));
+        ReadingFrame frame = new ReadingFrame();
+        List<String> readings = new ArrayList<>();
+        while (decoder.next(frame)) {
+            for (int i = 0; i < frame.size(); i++) {
+                readings.add(frame.sensorIds().get(frame.sensorIndex(i)) + "@" + frame.timestamp(i) + "=" + frame.value(i));
+            }
+        }
+        return readings;
+    }
+}
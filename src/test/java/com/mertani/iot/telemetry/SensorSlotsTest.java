@@ -0,0 +1,74 @@
+package com.mertani.iot.telemetry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorSlotsTest {
+
+    @Test
+    void getOrAssign_ShouldHandOutDenseStableSlots() {
+        // Arrange
+        SensorSlots slots = new SensorSlots();
+
+        // Act: enough keys to grow the table several times
+        for (long id = 1; id <= 10_000; id++) {
+            assertEquals(id - 1, slots.getOrAssign(id * 7919));
+        }
+
+        // Assert
+        assertEquals(10_000, slots.size());
+        for (long id = 1; id <= 10_000; id++) {
+            assertEquals(id - 1, slots.get(id * 7919));
+        }
+        assertEquals(-1, slots.get(3));
+    }
+
+    @Test
+    void getOrAssign_ShouldAssignOneSlotPerSensor_WhenCalledConcurrently() throws Exception {
+        // Arrange
+        SensorSlots slots = new SensorSlots();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<int[]>> results = new ArrayList<>();
+
+        // Act
+        try {
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    int[] assigned = new int[5_000];
+                    for (int i = 0; i < assigned.length; i++) {
+                        assigned[i] = slots.getOrAssign(i + 1);
+                    }
+                    return assigned;
+                }));
+            }
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(first, result.get());
+            }
+
+            // Assert
+            Set<Integer> distinct = new HashSet<>();
+            for (int slot : first) {
+                distinct.add(slot);
+            }
+            assertEquals(5_000, distinct.size());
+            assertEquals(5_000, slots.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void getOrAssign_ShouldRejectNonPositiveIds() {
+        assertThrows(IllegalArgumentException.class, () -> new SensorSlots().getOrAssign(0));
+    }
+}
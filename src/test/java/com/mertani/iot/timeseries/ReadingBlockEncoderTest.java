@@ -0,0 +1,122 @@
+package com.mertani.iot.timeseries;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadingBlockEncoderTest {
+
+    private static final long START = 1_704_067_200_000L;
+
+    @Test
+    void roundTrip_ShouldRestoreRegularSlowlyChangingReadings() {
+        Random random = new Random(1);
+        long[] timestamps = new long[3600];
+        double[] values = new double[timestamps.length];
+        double value = 21.5;
+        for (int i = 0; i < timestamps.length; i++) {
+            // 10s interval with a little clock jitter, temperature to one decimal
+            timestamps[i] = START + i * 10_000L + random.nextInt(20);
+            value = Math.round((value + random.nextGaussian() * 0.05) * 10) / 10.0;
+            values[i] = value;
+        }
+
+        byte[] block = assertRoundTrip(timestamps, values);
+
+        assertTrue(block.length < timestamps.length * 4, "Expected under 4 bytes per reading, got " + block.length);
+    }
+
+    @Test
+    void roundTrip_ShouldRestoreIrregularNoisyReadings() {
+        Random random = new Random(2);
+        long[] timestamps = new long[1000];
+        double[] values = new double[timestamps.length];
+        long timestamp = START;
+        for (int i = 0; i < timestamps.length; i++) {
+            // Gaps from a millisecond to hours, so every delta-of-delta width is used
+            timestamp += 1 + (long) Math.pow(10, random.nextInt(8)) * random.nextInt(10);
+            timestamps[i] = timestamp;
+            values[i] = random.nextDouble() * 1e6 - 5e5;
+        }
+
+        assertRoundTrip(timestamps, values);
+    }
+
+    @Test
+    void roundTrip_ShouldKeepSpecialValuesBitForBit() {
+        double[] values = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                Double.MIN_VALUE, Double.MAX_VALUE, -1.0, 1.0, 1.0, Double.longBitsToDouble(1L)};
+        long[] timestamps = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            timestamps[i] = Long.MIN_VALUE / 2 + i * (Long.MAX_VALUE / 16);
+        }
+
+        assertRoundTrip(timestamps, values);
+    }
+
+    @Test
+    void encoder_ShouldUseTwoBitsPerRepeatedReadingAtFixedInterval() {
+        ReadingBlockEncoder encoder = new ReadingBlockEncoder();
+        for (int i = 0; i < 1001; i++) {
+            encoder.add(START + i * 60_000L, 5.0);
+        }
+
+        // 128 header bits, 68 + 1 for the second reading's first delta and value, then 2 bits each
+        assertEquals((128 + 69 + 999 * 2 + 7) / 8, encoder.toByteArray().length);
+        assertEquals(START, encoder.firstTimestamp());
+        assertEquals(START + 1000 * 60_000L, encoder.lastTimestamp());
+        assertEquals(5.0, encoder.lastValue());
+    }
+
+    @Test
+    void reset_ShouldStartANewBlock() {
+        ReadingBlockEncoder encoder = new ReadingBlockEncoder();
+        encoder.add(START, 1.0);
+        encoder.add(START + 5, 2.0);
+        encoder.reset();
+
+        encoder.add(START + 100, 3.0);
+
+        ReadingBlockDecoder decoder = new ReadingBlockDecoder(encoder.toByteArray(), encoder.size());
+        assertTrue(decoder.next());
+        assertEquals(START + 100, decoder.timestamp());
+        assertEquals(3.0, decoder.value());
+        assertFalse(decoder.next());
+    }
+
+    @Test
+    void decoder_ShouldRejectTruncatedBlock() {
+        ReadingBlockEncoder encoder = new ReadingBlockEncoder();
+        encoder.add(START, 1.0);
+        encoder.add(START + 5, 2.0);
+
+        // Padding bits may decode as a repeated reading or two, but not as a hundred
+        ReadingBlockDecoder decoder = new ReadingBlockDecoder(encoder.toByteArray(), 100);
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            while (decoder.next()) {
+                // Read to the end
+            }
+        });
+    }
+
+    private static byte[] assertRoundTrip(long[] timestamps, double[] values) {
+        ReadingBlockEncoder encoder = new ReadingBlockEncoder();
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.add(timestamps[i], values[i]);
+        }
+        byte[] block = encoder.toByteArray();
+
+        ReadingBlockDecoder decoder = new ReadingBlockDecoder(block, encoder.size());
+        for (int i = 0; i < timestamps.length; i++) {
+            assertTrue(decoder.next());
+            assertEquals(timestamps[i], decoder.timestamp(), "timestamp " + i);
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoder.value()),
+                    "value " + i);
+        }
+        assertFalse(decoder.next());
+        return block;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mertani.iot.timeseries;
+
+import com.mertani.iot.telemetry.ReadingBatch;
+import com.mertani.iot.telemetry.SensorSlots;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupTrackerTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private final RollupTracker tracker = new RollupTracker(new SensorSlots());
+
+    @Test
+    void drain_ShouldReturnOneMinuteAlignedRangePerSensor() {
+        // Arrange
+        ReadingBatch batch = new ReadingBatch(8);
+        batch.add(7L, 10 * MINUTE + 5_000, 1.0);
+        batch.add(8L, 3 * MINUTE, 1.0);
+        batch.add(7L, 2 * MINUTE + 59_999, 1.0);
+        batch.add(7L, 4 * MINUTE, 1.0);
+
+        // Act
+        tracker.markDirty(batch);
+        RollupTracker.DirtyRanges ranges = tracker.drain();
+
+        // Assert
+        assertEquals(2, ranges.size());
+        assertEquals(7L, ranges.sensorId(0));
+        assertEquals(2 * MINUTE, ranges.from(0));
+        assertEquals(11 * MINUTE, ranges.to(0));
+        assertEquals(8L, ranges.sensorId(1));
+        assertEquals(3 * MINUTE, ranges.from(1));
+        assertEquals(4 * MINUTE, ranges.to(1));
+    }
+
+    @Test
+    void drain_ShouldStartOver() {
+        // Arrange
+        tracker.markDirty(7L, 0, MINUTE);
+        tracker.drain();
+
+        // Act
+        tracker.markDirty(7L, 5 * MINUTE, 6 * MINUTE);
+        RollupTracker.DirtyRanges ranges = tracker.drain();
+
+        // Assert
+        assertEquals(1, ranges.size());
+        assertEquals(5 * MINUTE, ranges.from(0));
+        assertTrue(tracker.drain().isEmpty());
+    }
+
+    @Test
+    void markDirty_ShouldHandleReadingsBeforeTheEpoch() {
+        // Act
+        tracker.markDirty(batchOf(7L, -1));
+
+        // Assert
+        RollupTracker.DirtyRanges ranges = tracker.drain();
+        assertEquals(-MINUTE, ranges.from(0));
+        assertEquals(0, ranges.to(0));
+    }
+
+    private static ReadingBatch batchOf(long sensorId, long timestamp) {
+        ReadingBatch batch = new ReadingBatch(1);
+        batch.add(sensorId, timestamp, 1.0);
+        return batch;
+    }
+}